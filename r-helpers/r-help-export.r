@@ -0,0 +1,36 @@
+args <- commandArgs(TRUE)
+output <- file(args[1], open = "w", encoding = "UTF-8")
+
+# every help page is written as a header line "\001<package>\t<topic>\t<topic>..." followed by the rendered text,
+# base and recommended packages go first, so their topics win when topic is looked up without package
+
+packages <- installed.packages()
+priorities <- ifelse(is.na(packages[, "Priority"]), 2, ifelse(packages[, "Priority"] == "base", 0, 1))
+packageNames <- unique(packages[order(priorities), "Package"])
+
+for (name in packageNames) {
+    aliasesFile <- file.path(find.package(name), "help", "aliases.rds")
+    if (!file.exists(aliasesFile)) next
+
+    aliases <- readRDS(aliasesFile)
+    db <- tryCatch(tools::Rd_db(name), error = function(e) list())
+
+    for (rdName in names(db)) {
+        topics <- names(aliases)[aliases == sub("\\.[Rr]d$", "", basename(rdName))]
+        if (length(topics) == 0) next
+
+        text <- tryCatch({
+            lines <- character()
+            connection <- textConnection("lines", "w", local = TRUE)
+            tools::Rd2txt(db[[rdName]], out = connection, package = name, options = list(underline_titles = FALSE))
+            close(connection)
+            lines
+        }, error = function(e) NULL)
+        if (is.null(text)) next
+
+        writeLines(paste(c(paste("\001", name, sep = ""), topics), collapse = "\t"), output)
+        writeLines(text, output)
+    }
+}
+
+close(output)
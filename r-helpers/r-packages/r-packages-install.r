@@ -7,4 +7,6 @@ defauls = if(number.defaults>0){
 additional = if((length(args)-3-number.defaults)>0){
                 args[(4+number.defaults):length(args)]}
 setRepositories(FALSE,defauls,additional)
-install.packages(args[1],dependencies = TRUE,verbose=FALSE)
\ No newline at end of file
+#args[1] is a comma separated list of packages, R orders them by dependencies and installs independent ones in parallel
+packages = strsplit(args[1], ",")[[1]]
+install.packages(packages,dependencies = TRUE,verbose=FALSE,Ncpus=max(1L, parallel::detectCores() - 1L, na.rm = TRUE))
\ No newline at end of file
@@ -7,4 +7,5 @@ defauls = if(number.defaults>0){
 additional = if((length(args)-3-number.defaults)>0){
                 args[(4+number.defaults):length(args)]}
 setRepositories(FALSE,defauls,additional)
-update.packages(oldPkgs=args[1],dependencies = TRUE,verbose=FALSE, ask=FALSE)
\ No newline at end of file
+packages = strsplit(args[1], ",")[[1]]
+update.packages(oldPkgs=packages,dependencies = TRUE,verbose=FALSE, ask=FALSE,Ncpus=max(1L, parallel::detectCores() - 1L, na.rm = TRUE))
\ No newline at end of file
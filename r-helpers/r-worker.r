@@ -0,0 +1,74 @@
+# Long-lived worker of TheRWorkerPool.
+# Every line of stdin is a call of jetbrains_ther_worker_run,
+# its output is followed by "jetbrains_ther_worker_done <id> <status>" on stdout and "jetbrains_ther_worker_done <id>" on stderr.
+
+jetbrains_ther_worker_run <- function(id, kind, target, args) {
+  status <- tryCatch(
+    {
+      jetbrains_ther_worker_source(kind, target, args)
+      0
+    },
+    jetbrains_ther_worker_quit = function(c) c$status,
+    error = function(e) {
+      cat("Error: ", conditionMessage(e), "\n", sep = "", file = stderr())
+      1
+    }
+  )
+
+  cat("\njetbrains_ther_worker_done ", id, " ", status, "\n", sep = "")
+  cat("\njetbrains_ther_worker_done ", id, "\n", sep = "", file = stderr())
+
+  flush(stdout())
+  flush(stderr())
+}
+
+jetbrains_ther_worker_source <- function(kind, target, args) {
+  # helper is evaluated as if it was run by `R --slave -f helper --args args`,
+  # options, working directory, search path and sinks are restored, so helpers don't affect each other,
+  # packages attached by the helper are detached but stay loaded
+
+  options <- options()
+  wd <- getwd()
+  searchPath <- search()
+  sinks <- sink.number()
+  messageSink <- sink.number(type = "message")
+  on.exit({
+    while (sink.number() > sinks) sink()
+    if (sink.number(type = "message") != messageSink) sink(type = "message")
+    for (name in setdiff(search(), searchPath)) try(detach(name, character.only = TRUE), silent = TRUE)
+    options(options)
+    setwd(wd)
+  })
+
+  e <- new.env(parent = globalenv())
+
+  e$commandArgs <- function(trailingOnly = FALSE) {
+    if (trailingOnly) args else c("R", "--slave", "-f", target, "--args", args)
+  }
+
+  e$quit <- e$q <- function(save = "default", status = 0, runLast = TRUE) {
+    stop(structure(class = c("jetbrains_ther_worker_quit", "condition"), list(message = "quit", call = NULL, status = status)))
+  }
+
+  file <- if (kind == "e") textConnection(target) else target
+  if (kind == "e") on.exit(close(file), add = TRUE)
+
+  withCallingHandlers(
+    source(file, local = e, print.eval = TRUE, echo = FALSE),
+    warning = function(w) {
+      cat("Warning message:\n", conditionMessage(w), "\n", sep = "", file = stderr())
+      invokeRestart("muffleWarning")
+    }
+  )
+}
+
+jetbrains_ther_worker_input <- file("stdin")
+open(jetbrains_ther_worker_input)
+
+repeat {
+  jetbrains_ther_worker_line <- readLines(jetbrains_ther_worker_input, n = 1)
+
+  if (length(jetbrains_ther_worker_line) == 0) break
+
+  eval(parse(text = jetbrains_ther_worker_line))
+}
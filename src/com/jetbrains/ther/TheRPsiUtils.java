@@ -2,8 +2,6 @@ package com.jetbrains.ther;
 
 import com.google.common.collect.Lists;
 import com.intellij.execution.ExecutionException;
-import com.intellij.execution.configurations.GeneralCommandLine;
-import com.intellij.execution.process.CapturingProcessHandler;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
@@ -16,6 +14,7 @@ import com.intellij.util.ArrayUtil;
 import com.intellij.util.SmartList;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.Predicate;
+import com.jetbrains.ther.documentation.TheRHelpStore;
 import com.jetbrains.ther.interpreter.TheRInterpreterService;
 import com.jetbrains.ther.psi.api.*;
 import com.jetbrains.ther.psi.stubs.TheRAssignmentNameIndex;
@@ -126,22 +125,41 @@ public class TheRPsiUtils {
    * If packageName parameter equals null we do not load package
    */
   public static String getHelpForFunction(@NotNull final PsiElement assignee, @Nullable final String packageName) {
+    return getHelpForTopic(getHelpTopic(assignee), packageName);
+  }
+
+  @NotNull
+  public static String getHelpTopic(@NotNull final PsiElement assignee) {
+    PsiElement topic = assignee;
+    if (assignee instanceof TheRAssignmentStatement && ((TheRAssignmentStatement)assignee).getAssignee() != null) {
+      topic = ((TheRAssignmentStatement)assignee).getAssignee();
+    }
+    return topic.getText().replaceAll("\"", "");
+  }
+
+  /**
+   * If packageName parameter equals null we do not load package
+   */
+  @Nullable
+  public static String getHelpForTopic(@NotNull final String topic, @Nullable final String packageName) {
+    final TheRInterpreterService interpreterService = TheRInterpreterService.getInstance();
+    final String path = interpreterService.getInterpreterPath();
+    final TheRHelpStore helpStore = TheRHelpStore.getInstance(path);
+    final String storedHelp = helpStore == null ? null : helpStore.getHelpText(topic, packageName);
+    if (storedHelp != null) {
+      return storedHelp;
+    }
     final String helpHelper = packageName != null ? "r-help.r" : "r-help-without-package.r";
     final File file = TheRHelpersLocator.getHelperFile(helpHelper);
-    final String path = TheRInterpreterService.getInstance().getInterpreterPath();
     final String helperPath = file.getAbsolutePath();
     try {
-      final String assigneeText = assignee.getText().replaceAll("\"", "");
-      final ArrayList<String> arguments = Lists.newArrayList(path, "--slave", "-f ", helperPath, " --args ");
+      final ArrayList<String> arguments = Lists.newArrayList();
       if (packageName != null) {
         arguments.add(packageName);
       }
-      arguments.add(assigneeText);
+      arguments.add(topic);
 
-      final GeneralCommandLine commandLine = new GeneralCommandLine(arguments);
-      final Process process = commandLine.createProcess();
-      final CapturingProcessHandler processHandler = new CapturingProcessHandler(process);
-      final ProcessOutput output = processHandler.runProcess(MINUTE * 5);
+      final ProcessOutput output = interpreterService.getWorkerPool().runHelper(path, helperPath, arguments, MINUTE * 5);
       String stdout = output.getStdout();
       if (stdout.startsWith("No documentation")) {
         return null;
@@ -1,6 +1,8 @@
 package com.jetbrains.ther;
 
 import com.google.common.collect.Sets;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.CapturingProcessHandler;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.openapi.application.ApplicationManager;
@@ -13,8 +15,8 @@ import com.jetbrains.ther.interpreter.TheRInterpreterService;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 public class TheRUtils {
@@ -77,11 +79,9 @@ public class TheRUtils {
       return null;
     }
     try {
-      final Process process = Runtime.getRuntime().exec(path + " --slave -e " + scriptText);
-      final CapturingProcessHandler processHandler = new CapturingProcessHandler(process);
-      return processHandler.runProcess(5000);
+      return TheRInterpreterService.getInstance().getWorkerPool().runScript(path, scriptText, 5000);
     }
-    catch (IOException e) {
+    catch (ExecutionException e) {
       LOG.info("Failed to run R executable: \n" +
                "Interpreter path " + path + "\n" +
                "Exception occurred: " + e.getMessage());
@@ -89,6 +89,28 @@ public class TheRUtils {
     return null;
   }
 
+  @NotNull
+  public static ProcessOutput runHelperProcess(@NotNull final String path,
+                                               @NotNull final String helperPath,
+                                               @NotNull final List<String> args,
+                                               final int timeout) throws ExecutionException {
+    // long or network bound helpers are run by their own process instead of occupying a worker of the pool
+
+    final GeneralCommandLine commandLine = new GeneralCommandLine(path, "--slave", "-f", helperPath, "--args");
+    commandLine.addParameters(args);
+
+    return new CapturingProcessHandler(commandLine.createProcess()).runProcess(timeout);
+  }
+
+  @NotNull
+  public static ProcessOutput runScriptProcess(@NotNull final String path,
+                                               @NotNull final String scriptText,
+                                               final int timeout) throws ExecutionException {
+    final GeneralCommandLine commandLine = new GeneralCommandLine(path, "--slave", "-e", scriptText);
+
+    return new CapturingProcessHandler(commandLine.createProcess()).runProcess(timeout);
+  }
+
   public static void appendToDocument(@NotNull final Document document, final String text) {
     DocumentUtil.writeInRunUndoTransparentAction(new Runnable() {
       @Override
@@ -0,0 +1,81 @@
+package com.jetbrains.ther.debugger;
+
+import com.jetbrains.ther.debugger.data.TheRLocation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+
+public class TheRBreakpointTable {
+
+  // Lines are stored per function name in the same form R reports them in locations.
+  // Functions with the same name are merged, so table could only reject location,
+  // found location should be checked against source positions.
+  // Conditions are stored per line because hooks are placed by lines, see TheRCommands#mainFunctionCommand.
+
+  @NotNull
+  public static final TheRBreakpointTable EMPTY = new TheRBreakpointTable(Collections.<String, BitSet>emptyMap());
+
+  @NotNull
+  private final Map<String, BitSet> myLines;
+
+  @NotNull
+  private final Map<Integer, String> myConditions;
+
+  public TheRBreakpointTable(@NotNull final Map<String, BitSet> lines) {
+    this(lines, Collections.<Integer, String>emptyMap());
+  }
+
+  public TheRBreakpointTable(@NotNull final Map<String, BitSet> lines, @NotNull final Map<Integer, String> conditions) {
+    myLines = lines;
+    myConditions = conditions;
+  }
+
+  public boolean contains(@NotNull final TheRLocation location) {
+    final BitSet lines = myLines.get(location.getFunctionName());
+
+    return lines != null && location.getLine() >= 0 && lines.get(location.getLine());
+  }
+
+  public boolean containsFunction(@NotNull final String functionName) {
+    return myLines.containsKey(functionName);
+  }
+
+  public boolean hasCondition(@NotNull final TheRLocation location) {
+    return myConditions.containsKey(location.getLine());
+  }
+
+  @NotNull
+  public Map<Integer, String> getConditions() {
+    return myConditions;
+  }
+
+  @NotNull
+  public BitSet getLines() {
+    // lines of all functions which could be hooked, zero line is the function start and doesn't begin any statement
+
+    final BitSet result = new BitSet();
+
+    for (final BitSet lines : myLines.values()) {
+      result.or(lines);
+    }
+
+    result.clear(0);
+
+    return result;
+  }
+
+  public boolean isCoveredBy(@NotNull final BitSet hookedLines) {
+    for (final BitSet lines : myLines.values()) {
+      final BitSet rest = (BitSet)lines.clone();
+      rest.andNot(hookedLines);
+
+      if (lines.get(0) || !rest.isEmpty()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
@@ -1,33 +1,33 @@
 package com.jetbrains.ther.debugger;
 
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.util.io.FileUtil;
 import com.jetbrains.ther.debugger.data.TheRLocation;
+import com.jetbrains.ther.debugger.evaluator.TheRCachingDebuggerEvaluator;
 import com.jetbrains.ther.debugger.evaluator.TheRDebuggerEvaluatorFactory;
 import com.jetbrains.ther.debugger.evaluator.TheRExpressionHandler;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.exception.TheRInterruptedException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
 import com.jetbrains.ther.debugger.executor.TheRExecutionResultType;
 import com.jetbrains.ther.debugger.executor.TheRExecutor;
-import com.jetbrains.ther.debugger.frame.TheRStackFrame;
-import com.jetbrains.ther.debugger.frame.TheRValueModifierFactory;
-import com.jetbrains.ther.debugger.frame.TheRValueModifierHandler;
-import com.jetbrains.ther.debugger.frame.TheRVarsLoaderFactory;
+import com.jetbrains.ther.debugger.frame.*;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebugger;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerFactory;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerHandler;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Future;
 
-import static com.jetbrains.ther.debugger.data.TheRCommands.SYS_NFRAME_COMMAND;
-import static com.jetbrains.ther.debugger.data.TheRCommands.bodyCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.*;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.MAIN_FUNCTION_NAME;
+import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.LINE_SEPARATOR;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.TRUE_RESPONSE;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
-import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.*;
+import static com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtils.submitTraceAndDebugFunctions;
 import static com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtils.traceAndDebugFunctions;
 
 public class TheRDebugger implements TheRFunctionDebuggerHandler {
@@ -65,18 +65,37 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
   @NotNull
   private final List<TheRFunctionDebugger> myDebuggers;
 
+  @NotNull
+  private final List<Integer> myFrameNumbers;
+
   @NotNull
   private final List<TheRStackFrame> myStack;
 
   @NotNull
   private final List<TheRStackFrame> myUnmodifiableStack;
 
+  @NotNull
+  private final TheRSuspensionCache myCache;
+
+  @NotNull
+  private volatile TheRBreakpointTable myBreakpoints;
+
+  @NotNull
+  private BitSet myHookedLines;
+
+  @NotNull
+  private Map<Integer, String> myHookConditions;
+
   private int myReturnLineNumber;
 
   private int myDropFrames;
 
   private boolean myIsStarted;
 
+  private boolean myIsArmed;
+
+  private boolean myIsHookReached;
+
   public TheRDebugger(@NotNull final TheRExecutor executor,
                       @NotNull final TheRFunctionDebuggerFactory debuggerFactory,
                       @NotNull final TheRVarsLoaderFactory loaderFactory,
@@ -98,23 +117,130 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
     myModifierHandler = modifierHandler;
 
     myDebuggers = new ArrayList<TheRFunctionDebugger>();
+    myFrameNumbers = new ArrayList<Integer>();
     myStack = new ArrayList<TheRStackFrame>();
     myUnmodifiableStack = Collections.unmodifiableList(myStack);
+    myCache = new TheRSuspensionCache();
+    myBreakpoints = TheRBreakpointTable.EMPTY;
+    myHookedLines = new BitSet();
+    myHookConditions = Collections.emptyMap();
 
     myReturnLineNumber = -1;
     myDropFrames = 1;
     myIsStarted = false;
+    myIsArmed = false;
+    myIsHookReached = false;
   }
 
   public boolean advance() throws TheRDebuggerException {
+    myCache.invalidate();
+
+    if (!myIsStarted) {
+      return prepareDebug();
+    }
+    else {
+      return continueDebug(Step.ADVANCE);
+    }
+  }
+
+  public boolean resume() throws TheRDebuggerException {
+    // R executes the script by itself until an armed hook stops it at the breakpoint line, see `isHooked`
+
+    myCache.invalidate();
+
     if (!myIsStarted) {
       return prepareDebug();
     }
     else {
-      return continueDebug();
+      armHooks();
+
+      return continueDebug(Step.RESUME);
     }
   }
 
+  public void armHooks() throws TheRDebuggerException {
+    // armed hooks stop R at the hooked lines whose breakpoints don't have conditions or have TRUE or failed ones,
+    // hooks are disarmed by the hook which has stopped R or by `restoreFunctions`,
+    // conditions are passed to R only if they have been changed since the last time
+
+    if (myIsArmed) {
+      return;
+    }
+
+    final Map<Integer, String> conditions = myBreakpoints.getConditions();
+
+    if (conditions.equals(myHookConditions)) {
+      execute(myExecutor, ARM_HOOKS_COMMAND, EMPTY, myOutputReceiver);
+    }
+    else {
+      execute(myExecutor, hookConditionsCommand(conditions) + "; " + ARM_HOOKS_COMMAND, EMPTY, myOutputReceiver);
+
+      myHookConditions = conditions;
+    }
+
+    myIsArmed = true;
+  }
+
+  public boolean hasHookedConditions() {
+    for (final Integer line : myBreakpoints.getConditions().keySet()) {
+      if (myHookedLines.get(line)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  public boolean isHooked() {
+    // hooks are placed when the main function is defined,
+    // so breakpoints added later or placed at function start lines could be reached only by stepping
+
+    return myBreakpoints.isCoveredBy(myIsStarted ? myHookedLines : myBreakpoints.getLines());
+  }
+
+  public boolean advance(final int depth) throws TheRDebuggerException {
+    // advances until the top frame could be at breakpoint or the stack isn't deeper than `depth`,
+    // the first step is made in the top frame, frames below it without breakpoints are finished by R itself
+
+    return advance(depth, false);
+  }
+
+  public boolean finish(final int depth) throws TheRDebuggerException {
+    // the same as `advance(int)` but the top frame is finished too if it doesn't have breakpoints
+
+    return advance(depth, true);
+  }
+
+  public boolean isAtBreakpoint() {
+    // conditional breakpoint at the hooked line is reached only through the hook which has checked its condition,
+    // so R should be stepped with armed hooks to reach it, conditions of the other breakpoints are not checked
+
+    final TheRBreakpointTable breakpoints = myBreakpoints;
+    final TheRLocation location = myStack.get(myStack.size() - 1).getLocation();
+
+    return breakpoints.contains(location) &&
+           (myIsHookReached || !breakpoints.hasCondition(location) || !myHookedLines.get(location.getLine()));
+  }
+
+  public void setBreakpoints(@NotNull final TheRBreakpointTable breakpoints) {
+    myBreakpoints = breakpoints;
+  }
+
+  public void releaseFunctions(@NotNull final Collection<String> retainedFunctions) throws TheRDebuggerException {
+    // released functions are executed by R without stepping until `restoreFunctions` is called
+
+    final List<String> functions = new ArrayList<String>(retainedFunctions);
+    functions.add(MAIN_FUNCTION_NAME);
+
+    execute(myExecutor, releaseFunctionsCommand(functions), EMPTY, myOutputReceiver);
+  }
+
+  public void restoreFunctions() throws TheRDebuggerException {
+    execute(myExecutor, RESTORE_FUNCTIONS_COMMAND, EMPTY, myOutputReceiver);
+
+    myIsArmed = false;
+  }
+
   @NotNull
   public List<TheRStackFrame> getStack() {
     return myUnmodifiableStack;
@@ -124,24 +250,37 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
   public void appendDebugger(@NotNull final TheRFunctionDebugger debugger) throws TheRDebuggerException {
     myDebuggers.add(debugger);
 
+    final TheRValueModifier modifier = new TheRCachingValueModifier(
+      myModifierFactory.getModifier(
+        myExecutor,
+        myDebuggerFactory,
+        myOutputReceiver,
+        myModifierHandler,
+        myStack.size()
+      ),
+      myCache
+    );
+
+    final int frameNumber = debugger.getFrameNumber() != -1 ? debugger.getFrameNumber() : loadFrameNumber();
+    myFrameNumbers.add(frameNumber);
+
     myStack.add(
       new TheRStackFrame(
         debugger.getLocation(),
-        myLoaderFactory.getLoader(
-          myModifierFactory.getModifier(
+        new TheRCachingVarsLoader(
+          myLoaderFactory.getLoader(modifier, frameNumber),
+          myCache,
+          frameNumber
+        ),
+        new TheRCachingDebuggerEvaluator(
+          myEvaluatorFactory.getEvaluator(
             myExecutor,
             myDebuggerFactory,
             myOutputReceiver,
-            myModifierHandler,
+            myExpressionHandler,
             myStack.size()
           ),
-          loadFrameNumber()
-        ),
-        myEvaluatorFactory.getEvaluator(
-          myExecutor,
-          myDebuggerFactory,
-          myOutputReceiver,
-          myExpressionHandler,
+          myCache,
           myStack.size()
         )
       )
@@ -161,19 +300,59 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
     myDropFrames = number;
   }
 
+  @Override
+  public void onBreakpointHook(@NotNull final String functionName, final int frameNumber, final int lineNumber)
+    throws TheRDebuggerException {
+    // frames above the hooked one have been finished by R, the hooked frame is either known or entered without stepping
+
+    while (!myDebuggers.isEmpty() && myFrameNumbers.get(myFrameNumbers.size() - 1) > frameNumber) {
+      popDebugger();
+    }
+
+    if (!myDebuggers.isEmpty() && myFrameNumbers.get(myFrameNumbers.size() - 1) == frameNumber) {
+      myReturnLineNumber = lineNumber;
+    }
+    else {
+      appendDebugger(
+        myDebuggerFactory.getFunctionDebugger(
+          myExecutor,
+          this,
+          myOutputReceiver,
+          functionName,
+          frameNumber,
+          lineNumber
+        )
+      );
+    }
+
+    myDropFrames = 1;
+    myIsArmed = false;
+    myIsHookReached = true;
+  }
+
   private boolean prepareDebug() throws TheRDebuggerException {
     myIsStarted = true;
+    myHookedLines = myBreakpoints.getLines();
 
-    submitMainFunction();
-    closeReader();
+    final File script = copyScript();
+    final boolean isMainFunctionEmpty;
 
-    traceAndDebugFunctions(myExecutor, myOutputReceiver);
+    try {
+      isMainFunctionEmpty = submitMainFunction(script);
+    }
+    finally {
+      deleteScript(script);
+    }
 
-    if (isMainFunctionEmpty()) {
+    if (isMainFunctionEmpty) {
       return false;
     }
 
-    execute(myExecutor, MAIN_FUNCTION_NAME + "()", TheRExecutionResultType.DEBUGGING_IN, myOutputReceiver);
+    final Future<TheRExecutionResult> instrumentation = submitTraceAndDebugFunctions(myExecutor);
+    final Future<TheRExecutionResult> start = submit(myExecutor, MAIN_FUNCTION_NAME + "()");
+
+    traceAndDebugFunctions(instrumentation, myOutputReceiver);
+    get(start, TheRExecutionResultType.DEBUGGING_IN, myOutputReceiver);
 
     appendDebugger(
       myDebuggerFactory.getFunctionDebugger(
@@ -186,8 +365,60 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
     return topDebugger().hasNext();
   }
 
-  private boolean continueDebug() throws TheRDebuggerException {
-    topDebugger().advance(); // Don't forget that advance could append new debugger
+  private boolean advance(final int depth, final boolean finishTop) throws TheRDebuggerException {
+    boolean finish = finishTop;
+
+    do {
+      if (!(finish && isFinishable() ? finish() : advance())) {
+        return false;
+      }
+
+      finish = true;
+    }
+    while (myStack.size() > depth && !isAtBreakpoint());
+
+    return true;
+  }
+
+  private boolean finish() throws TheRDebuggerException {
+    myCache.invalidate();
+
+    return continueDebug(Step.FINISH);
+  }
+
+  private boolean isFinishable() {
+    // `f` doesn't stop at the rest lines of the function, debugged calls are stopped at as usual
+
+    return myIsStarted &&
+           !myDebuggers.isEmpty() &&
+           !myBreakpoints.containsFunction(topDebugger().getLocation().getFunctionName());
+  }
+
+  private boolean continueDebug(@NotNull final Step step) throws TheRDebuggerException {
+    // Don't forget that advance, finish and resume could append new debugger
+
+    myIsHookReached = false;
+
+    try {
+      switch (step) {
+        case ADVANCE:
+          topDebugger().advance();
+          break;
+        case FINISH:
+          topDebugger().finish();
+          break;
+        case RESUME:
+          topDebugger().resume();
+          break;
+      }
+    }
+    catch (final TheRInterruptedException e) {
+      if (!resynchronize()) {
+        return false;
+      }
+
+      throw e;
+    }
 
     while (!topDebugger().hasNext()) {
       for (int i = 0; i < myDropFrames; i++) {
@@ -216,27 +447,70 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
     return true;
   }
 
+  private boolean resynchronize() throws TheRDebuggerException {
+    // interrupted R stops at the nearest browser prompt, debuggers of the frames above it are dropped
+
+    final int frameNumber = loadFrameNumber();
+
+    while (!myDebuggers.isEmpty() && myFrameNumbers.get(myFrameNumbers.size() - 1) > frameNumber) {
+      popDebugger();
+    }
+
+    myDropFrames = 1;
+    myReturnLineNumber = -1;
+
+    return !myDebuggers.isEmpty();
+  }
+
   private int loadFrameNumber() throws TheRDebuggerException {
     final String frameNumber = execute(myExecutor, SYS_NFRAME_COMMAND, TheRExecutionResultType.RESPONSE, myOutputReceiver);
 
     return Integer.parseInt(frameNumber.substring("[1] ".length()));
   }
 
-  private void submitMainFunction() throws TheRDebuggerException {
-    execute(myExecutor, MAIN_FUNCTION_NAME + " <- function() {", PLUS, myOutputReceiver);
+  @NotNull
+  private File copyScript() throws TheRDebuggerException {
+    // script is passed to R through the file to be parsed in one command instead of line by line
 
     try {
-      String command;
+      final File result = File.createTempFile("ther", ".r");
+      final BufferedWriter writer = new BufferedWriter(new FileWriter(result));
+
+      try {
+        String line;
 
-      while ((command = myScriptReader.readLine()) != null) {
-        execute(myExecutor, command, PLUS, myOutputReceiver);
+        while ((line = myScriptReader.readLine()) != null) {
+          writer.write(line);
+          writer.write(LINE_SEPARATOR);
+        }
       }
+      finally {
+        writer.close();
+        closeReader();
+      }
+
+      return result;
     }
     catch (final IOException e) {
       throw new TheRDebuggerException(e);
     }
+  }
+
+  private boolean submitMainFunction(@NotNull final File script) throws TheRDebuggerException {
+    final String response = execute(
+      myExecutor,
+      mainFunctionCommand(FileUtil.toSystemIndependentName(script.getAbsolutePath()), myHookedLines),
+      RESPONSE,
+      myOutputReceiver
+    );
 
-    execute(myExecutor, "}", EMPTY, myOutputReceiver);
+    return response.equals(TRUE_RESPONSE);
+  }
+
+  private void deleteScript(@NotNull final File script) {
+    if (!script.delete()) {
+      LOGGER.warn("Script copy couldn't be deleted [path: " + script.getAbsolutePath() + "]");
+    }
   }
 
   private void closeReader() {
@@ -255,6 +529,7 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
 
   private void popDebugger() {
     myDebuggers.remove(myDebuggers.size() - 1);
+    myFrameNumbers.remove(myFrameNumbers.size() - 1);
     myStack.remove(myStack.size() - 1);
 
     myExpressionHandler.setLastFrameNumber(myStack.size() - 1);
@@ -279,9 +554,7 @@ public class TheRDebugger implements TheRFunctionDebuggerHandler {
     return topDebugger.getLocation();
   }
 
-  private boolean isMainFunctionEmpty() throws TheRDebuggerException {
-    final String collapsedMainFunction = execute(myExecutor, bodyCommand(MAIN_FUNCTION_NAME), RESPONSE, myOutputReceiver);
-
-    return StringUtil.countNewLines(collapsedMainFunction) < 5;
+  private enum Step {
+    ADVANCE, FINISH, RESUME
   }
 }
@@ -63,6 +63,16 @@ public final class TheRDebuggerUtils {
     return "if (" + isFunction + " && " + isDebugged + ") " + attrCommand(globalVar, "original") + " else " + globalVar;
   }
 
+  @NotNull
+  public static String loadValueCommand(final int frameNumber, @NotNull final String var) {
+    return cappedPrintCommand(calculateValueCommand(frameNumber, var));
+  }
+
+  @NotNull
+  public static String loadValueCommand(final int frameNumber, @NotNull final String var, final int from, final int to) {
+    return cappedPrintCommand(rangeCommand(calculateValueCommand(frameNumber, var), from, to));
+  }
+
   public static boolean isServiceName(@NotNull final String name) {
     return name.startsWith(SERVICE_FUNCTION_PREFIX);
   }
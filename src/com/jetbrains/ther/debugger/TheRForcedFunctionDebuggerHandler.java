@@ -82,6 +82,13 @@ class TheRForcedFunctionDebuggerHandler implements TheRFunctionDebuggerHandler {
     }
   }
 
+  @Override
+  public void onBreakpointHook(@NotNull final String functionName, final int frameNumber, final int lineNumber)
+    throws TheRDebuggerException {
+    // forced functions are only stepped, hooks are never armed for them
+    throw new TheRDebuggerException("Unexpected breakpoint hook in " + functionName + " at line " + lineNumber);
+  }
+
   @NotNull
   private TheRFunctionDebugger topDebugger() {
     return myDebuggers.get(myDebuggers.size() - 1);
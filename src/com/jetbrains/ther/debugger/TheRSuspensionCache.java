@@ -0,0 +1,68 @@
+package com.jetbrains.ther.debugger;
+
+import com.jetbrains.ther.debugger.frame.TheRVar;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TheRSuspensionCache {
+
+  // Values loaded while R is suspended stay the same until R executes something,
+  // so they are kept until the debugger advances or some value is modified.
+
+  @NotNull
+  private final Map<Integer, List<TheRVar>> myVars;
+
+  @NotNull
+  private final Map<String, String> myValues;
+
+  @NotNull
+  private final Map<String, String> myResults;
+
+  public TheRSuspensionCache() {
+    myVars = new HashMap<Integer, List<TheRVar>>();
+    myValues = new HashMap<String, String>();
+    myResults = new HashMap<String, String>();
+  }
+
+  @Nullable
+  public synchronized List<TheRVar> getVars(final int frameNumber) {
+    return myVars.get(frameNumber);
+  }
+
+  public synchronized void putVars(final int frameNumber, @NotNull final List<TheRVar> vars) {
+    myVars.put(frameNumber, vars);
+  }
+
+  @Nullable
+  public synchronized String getValue(final int frameNumber, @NotNull final String expression) {
+    return myValues.get(calculateKey(frameNumber, expression));
+  }
+
+  public synchronized void putValue(final int frameNumber, @NotNull final String expression, @NotNull final String value) {
+    myValues.put(calculateKey(frameNumber, expression), value);
+  }
+
+  @Nullable
+  public synchronized String getResult(final int frameNumber, @NotNull final String expression) {
+    return myResults.get(calculateKey(frameNumber, expression));
+  }
+
+  public synchronized void putResult(final int frameNumber, @NotNull final String expression, @NotNull final String result) {
+    myResults.put(calculateKey(frameNumber, expression), result);
+  }
+
+  public synchronized void invalidate() {
+    myVars.clear();
+    myValues.clear();
+    myResults.clear();
+  }
+
+  @NotNull
+  private static String calculateKey(final int frameNumber, @NotNull final String expression) {
+    return frameNumber + ":" + expression;
+  }
+}
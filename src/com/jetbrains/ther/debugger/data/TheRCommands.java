@@ -2,6 +2,16 @@ package com.jetbrains.ther.debugger.data;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.*;
+import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.CLOSURE;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
+
 public final class TheRCommands {
 
   @NotNull
@@ -13,6 +23,12 @@ public final class TheRCommands {
   @NotNull
   public static final String EXECUTE_AND_STEP_COMMAND = "n";
 
+  @NotNull
+  public static final String FINISH_COMMAND = "f";
+
+  @NotNull
+  public static final String CONTINUE_COMMAND = "c";
+
   @NotNull
   public static final String ENVIRONMENT_COMMAND = "environment()";
 
@@ -22,6 +38,128 @@ public final class TheRCommands {
   @NotNull
   public static final String QUIT_COMMAND = "q()";
 
+  private static final int SUMMARY_MAX_LENGTH = 100;
+
+  private static final int SUMMARY_MAX_SIZE = 64 * 1024;
+
+  private static final int SUMMARY_HEAD_LENGTH = 10;
+
+  private static final int VALUE_MAX_ENTRIES = 10000;
+
+  private static final int VALUE_MAX_CHARS = 1024 * 1024;
+
+  @NotNull
+  private static final String RETAINED_FUNCTIONS_VARIABLE = "." + SERVICE_FUNCTION_PREFIX + "retained";
+
+  @NotNull
+  private static final String INSTRUMENTED_FUNCTIONS_VARIABLE = "." + SERVICE_FUNCTION_PREFIX + "instrumented";
+
+  @NotNull
+  private static final String ARMED_HOOKS_VARIABLE = "." + SERVICE_FUNCTION_PREFIX + "armed";
+
+  @NotNull
+  private static final String HOOKED_EXIT_VARIABLE = "." + SERVICE_FUNCTION_PREFIX + "exit";
+
+  @NotNull
+  private static final String HOOK_CONDITIONS_VARIABLE = "." + SERVICE_FUNCTION_PREFIX + "conditions";
+
+  @NotNull
+  private static final String HOOK_FUNCTION = String.format(
+    // hook wraps the statement which begins at the breakpoint line and is transparent until it is armed,
+    // armed hook evaluates condition of its line in the frame of the statement and stays armed if it isn't TRUE,
+    // failed condition is reported to stderr and stops R as the TRUE one,
+    // stopping hook prints frame number, line and function name and stops at the browser in the frame of the statement,
+    // calls which are not debugged report their exit the same way as debugged ones
+    // and stop at the browser in the user caller, so it is stepped again after `c` has left it
+
+    "function(x, l) { " +
+    "f <- parent.frame(); " +
+    "if (exists(\"%1$s\", envir = globalenv(), inherits = FALSE) && { " +
+    "k <- if (exists(\"%5$s\", envir = globalenv(), inherits = FALSE)) get(\"%5$s\", envir = globalenv())[as.character(l)]; " +
+    "is.null(k) || is.na(k) || isTRUE(tryCatch(eval(parse(text = k), envir = f), " +
+    "error = function(e) { message(\"Breakpoint condition failed: \", conditionMessage(e)); TRUE })) " +
+    "}) { " +
+    "rm(\"%1$s\", envir = globalenv()); " +
+    "n <- sys.parent(); " +
+    "if (!isdebugged(sys.function(n)) && !exists(\"%2$s\", envir = f, inherits = FALSE)) { " +
+    "assign(\"%2$s\", TRUE, envir = f); " +
+    "eval(bquote(on.exit({ " +
+    "cat(\"%3$s\", .(paste(deparse(sys.call(n)), collapse = \"\")), \"\\n\", sep = \"\"); " +
+    "if (identical(topenv(parent.frame()), globalenv())) eval(quote(browser()), parent.frame()) " +
+    "}, add = TRUE)), f) " +
+    "}; " +
+    "cat(\"%4$s\", n, \" \", l, \" \", paste(deparse(sys.call(n)[[1]]), collapse = \"\"), \"\\n\", sep = \"\"); " +
+    "eval(quote(browser()), f) " +
+    "}; " +
+    "x " +
+    "}",
+    ARMED_HOOKS_VARIABLE,
+    HOOKED_EXIT_VARIABLE,
+    EXITING_FROM_PREFIX,
+    BREAKPOINT_HOOK_PREFIX,
+    HOOK_CONDITIONS_VARIABLE
+  );
+
+  @NotNull
+  public static final String ARM_HOOKS_COMMAND = String.format("assign(\"%s\", TRUE, envir = globalenv())", ARMED_HOOKS_VARIABLE);
+
+  @NotNull
+  public static final String DISARM_HOOKS_COMMAND = String.format(
+    "if (exists(\"%1$s\", envir = globalenv(), inherits = FALSE)) rm(\"%1$s\", envir = globalenv())",
+    ARMED_HOOKS_VARIABLE
+  );
+
+  @NotNull
+  private static final String INSTRUMENT_FUNCTION = String.format(
+    // instruments closures of the environment which are not registered in its registry yet,
+    // registry maps name to the instrumented closure, so redefined closures are instrumented again,
+    // enter function prints name and frame number of the entered closure, so it is not requested separately
+
+    "function(e) { " +
+    "r <- if (exists(\"%1$s\", envir = globalenv())) get(\"%1$s\", envir = globalenv()); " +
+    "if (!exists(\"%2$s\", envir = e, inherits = FALSE)) assign(\"%2$s\", new.env(), envir = e); " +
+    "i <- get(\"%2$s\", envir = e); " +
+    "for (n in ls(e)) { " +
+    "if ((grepl(\"^%3$s\", n) && n != \"%4$s\") || (!is.null(r) && !(n %%in%% r))) next; " +
+    "v <- get(n, envir = e); " +
+    "if (typeof(v) != \"%5$s\" || (exists(n, envir = i, inherits = FALSE) && identical(get(n, envir = i), v))) next; " +
+    "t <- paste0(\"%3$s\", n, \"%6$s\"); " +
+    "assign(t, eval(bquote(function() { " +
+    "f <- parent.frame(); " +
+    "cat(\"[1] \\\"\", .(n), \"\\\" \\\"\", max(which(vapply(sys.frames(), identical, logical(1), f))), \"\\\"\\n\", sep = \"\") " +
+    "})), envir = e); " +
+    "trace(n, get(t, envir = e), where = e); " +
+    "debug(get(n, envir = e)); " +
+    "assign(n, get(n, envir = e), envir = i) " +
+    "} " +
+    "}",
+    RETAINED_FUNCTIONS_VARIABLE,
+    INSTRUMENTED_FUNCTIONS_VARIABLE,
+    SERVICE_FUNCTION_PREFIX,
+    MAIN_FUNCTION_NAME,
+    CLOSURE,
+    SERVICE_ENTER_FUNCTION_SUFFIX
+  );
+
+  @NotNull
+  public static final String INSTRUMENT_FUNCTIONS_COMMAND = "(" + INSTRUMENT_FUNCTION + ")(" + ENVIRONMENT_COMMAND + ")";
+
+  @NotNull
+  public static final String RESTORE_FUNCTIONS_COMMAND = String.format(
+    // disarms breakpoint hooks and instruments every closure of the user frames on the stack
+    // which has been released or defined since the release
+
+    "(function(i) { " +
+    "%1$s; " +
+    "if (!exists(\"%2$s\", envir = globalenv())) return(invisible()); " +
+    "rm(\"%2$s\", envir = globalenv()); " +
+    "for (e in head(sys.frames(), -1)) if (identical(topenv(e), globalenv())) i(e) " +
+    "})(%3$s)",
+    DISARM_HOOKS_COMMAND,
+    RETAINED_FUNCTIONS_VARIABLE,
+    INSTRUMENT_FUNCTION
+  );
+
   @NotNull
   public static String optionsCommand(@NotNull final String key, @NotNull final String value) {
     return String.format("options(%s=%s)", key, value);
@@ -37,6 +175,45 @@ public final class TheRCommands {
     return String.format("ls(%s)", sysFrameCommand(frameNumber));
   }
 
+  @NotNull
+  public static String loadVarsCommand(final int frameNumber) {
+    // prints `VAR_PREFIX name`, `[1] "type"` and value for every variable except service functions,
+    // large values and data frames are replaced with `SUMMARY_PREFIX length` or `DATA_FRAME_SUMMARY_PREFIX length`,
+    // description and head, length is printed without scientific notation
+
+    return String.format(
+      "local({ " +
+      "f <- %s; " +
+      "for (n in ls(f)) { " +
+      "v <- tryCatch(get(n, envir = f), error = function(e) e); " +
+      "t <- typeof(v); " +
+      "if (t == \"%s\" && grepl(\"^%s\", n)) next; " +
+      "if (t == \"%s\" && isdebugged(v)) v <- attr(v, \"original\"); " +
+      "cat(\"%s\", n, \"\\n[1] \\\"\", t, \"\\\"\\n\", sep = \"\"); " +
+      "if (t != \"%s\" && t != \"environment\" && (is.data.frame(v) || length(v) > %d || object.size(v) > %d)) { " +
+      "cat(if (is.data.frame(v)) \"%s\" else \"%s\", format(length(v), scientific = FALSE), \"\\n\", " +
+      "paste(class(v), collapse = \" \"), \", \", " +
+      "if (is.null(dim(v))) paste(\"length\", format(length(v), scientific = FALSE)) else paste(\"dim\", paste(dim(v), collapse = \" x \")), \", \", " +
+      "format(object.size(v), units = \"auto\"), \"\\n\", sep = \"\"); " +
+      "print(head(v, %d)) " +
+      "} " +
+      "else print(v) " +
+      "} " +
+      "})",
+      sysFrameCommand(frameNumber),
+      CLOSURE,
+      SERVICE_FUNCTION_PREFIX,
+      CLOSURE,
+      VAR_PREFIX,
+      CLOSURE,
+      SUMMARY_MAX_LENGTH,
+      SUMMARY_MAX_SIZE,
+      DATA_FRAME_SUMMARY_PREFIX,
+      SUMMARY_PREFIX,
+      SUMMARY_HEAD_LENGTH
+    );
+  }
+
   @NotNull
   public static String typeOfCommand(@NotNull final String identifier) {
     return String.format("%s(%s)", TYPEOF_FUNCTION, identifier);
@@ -77,11 +254,64 @@ public final class TheRCommands {
     return String.format("Filter(%s, %s)", function, identifier);
   }
 
+  @NotNull
+  public static String releaseFunctionsCommand(@NotNull final Collection<String> retainedFunctions) {
+    // uninstruments every closure of the user frames on the stack except retained ones, so they are executed without stepping,
+    // frames of package functions are skipped because their closures are never instrumented
+
+    return String.format(
+      "(function(r) { " +
+      "assign(\"%1$s\", r, envir = globalenv()); " +
+      "for (e in head(sys.frames(), -1)) if (identical(topenv(e), globalenv())) for (n in ls(e)) { " +
+      "if (grepl(\"^%2$s\", n) || n %%in%% r) next; " +
+      "v <- get(n, envir = e); " +
+      "if (typeof(v) == \"%3$s\" && isdebugged(v)) suppressMessages(untrace(n, where = e)) " +
+      "} " +
+      "})(%4$s)",
+      RETAINED_FUNCTIONS_VARIABLE,
+      SERVICE_FUNCTION_PREFIX,
+      CLOSURE,
+      vectorCommand(retainedFunctions)
+    );
+  }
+
   @NotNull
   public static String bodyCommand(@NotNull final String function) {
     return String.format("body(%s)", function);
   }
 
+  @NotNull
+  public static String mainFunctionCommand(@NotNull final String scriptPath, @NotNull final BitSet hookedLines) {
+    // defines main function with the same srcrefs as if the script was typed line by line after `function() {`
+    // and prints if its body is empty,
+    // statements which begin at hooked lines are wrapped into the hook call, nested function definitions included,
+    // srcrefs are kept, so R reports the same locations while stepping
+
+    return String.format(
+      "(function(l, b) { " +
+      "assign(\"%1$s\", %2$s, envir = globalenv()); " +
+      "h <- function(x) { " +
+      "if (!is.call(x) || as.character(x[[1]])[1] %%in%% c(\"quote\", \"bquote\", \"expression\", \"~\")) return(x); " +
+      "s <- if (identical(x[[1]], as.name(\"{\"))) attr(x, \"srcref\"); " +
+      "for (i in seq_along(x)[-1]) { " +
+      "if (is.call(x[[i]])) x[[i]] <- h(x[[i]]); " +
+      "if (!is.null(s) && (s[[i]][1] - 1L) %%in%% b) x[[i]] <- call(\"%1$s\", x[[i]], s[[i]][1] - 1L) " +
+      "}; " +
+      "x " +
+      "}; " +
+      "p <- parse(text = l, srcfile = srcfilecopy(\"\", l), keep.source = TRUE)[[1]]; " +
+      "if (length(b) > 0) p <- h(p); " +
+      "assign(\"%3$s\", eval(p, envir = globalenv()), envir = globalenv()); " +
+      "length(body(%3$s)) == 1 " +
+      "})(c(\"function() {\", readLines(\"%4$s\"), \"}\"), %5$s)",
+      HOOK_FUNCTION_NAME,
+      HOOK_FUNCTION,
+      MAIN_FUNCTION_NAME,
+      scriptPath,
+      integerVectorCommand(hookedLines)
+    );
+  }
+
   @NotNull
   public static String sourceCommand(@NotNull final String path) {
     return String.format("source(\"%s\")", path);
@@ -92,6 +322,171 @@ public final class TheRCommands {
     return String.format("R.Version()[\"%s\"]", key);
   }
 
+  @NotNull
+  public static String sentinelCommand(@NotNull final String sentinel) {
+    return String.format("cat(\"%1$s\\n\"); cat(\"%1$s\\n\", file = stderr())", sentinel);
+  }
+
+  @NotNull
+  public static String dataFrameInfoCommand(@NotNull final String dataFrame, @NotNull final String path) {
+    // writes row count, column count and then name, type code and factor levels of every column,
+    // type codes are the same as `TheRDataFrameColumn.Type` ordinals
+
+    return String.format(
+      "local({ " +
+      "v <- %s; " +
+      "f <- file(\"%s\", \"wb\"); " +
+      "writeBin(c(nrow(v), length(v)), f, endian = \"little\"); " +
+      "for (i in seq_along(v)) { " +
+      "x <- v[[i]]; " +
+      "k <- if (is.factor(x)) 3L else if (is.object(x)) 5L else if (is.double(x)) 0L else if (is.integer(x)) 1L " +
+      "else if (is.logical(x)) 2L else if (is.character(x)) 4L else 5L; " +
+      "writeBin(enc2utf8(names(v)[i]), f); " +
+      "writeBin(k, f, endian = \"little\"); " +
+      "if (k == 3L) { writeBin(nlevels(x), f, endian = \"little\"); writeBin(enc2utf8(levels(x)), f) } " +
+      "} " +
+      "close(f) " +
+      "})",
+      dataFrame,
+      path
+    );
+  }
+
+  @NotNull
+  public static String dataFrameChunkCommand(@NotNull final String dataFrame, @NotNull final String path, final int from, final int to) {
+    // writes rows from `from` to `to` (1-based inclusive) column by column:
+    // factors as codes, doubles, integers and logicals as is, other columns as strings
+
+    return String.format(
+      "local({ " +
+      "v <- %s; " +
+      "f <- file(\"%s\", \"wb\"); " +
+      "for (x in v) { " +
+      "x <- x[%d:%d]; " +
+      "if (is.factor(x)) writeBin(as.integer(x), f, endian = \"little\") " +
+      "else if (is.object(x)) writeBin(enc2utf8(format(x)), f) " +
+      "else if (is.double(x) || is.integer(x) || is.logical(x)) writeBin(x, f, endian = \"little\") " +
+      "else writeBin(enc2utf8(as.character(x)), f) " +
+      "} " +
+      "close(f) " +
+      "})",
+      dataFrame,
+      path,
+      from,
+      to
+    );
+  }
+
+  @NotNull
+  public static String rangeCommand(@NotNull final String value, final int from, final int to) {
+    // `from` and `to` are 1-based inclusive indices
+
+    return String.format("(%s)[%d:%d]", value, from, to);
+  }
+
+  @NotNull
+  public static String cappedPrintCommand(@NotNull final String value) {
+    // formats no more than VALUE_MAX_ENTRIES entries and prints no more than VALUE_MAX_CHARS chars
+
+    return String.format(
+      "local({ " +
+      "o <- paste(capture.output(print(%s, max = %d)), collapse = \"\\n\"); " +
+      "if (nchar(o) > %d) o <- paste0(substr(o, 1, %d), \"\\n...\"); " +
+      "cat(o, \"\\n\", sep = \"\") " +
+      "})",
+      value,
+      VALUE_MAX_ENTRIES,
+      VALUE_MAX_CHARS,
+      VALUE_MAX_CHARS
+    );
+  }
+
+  @NotNull
+  public static String hookConditionsCommand(@NotNull final Map<Integer, String> conditions) {
+    // conditions are looked up by hooks by their lines, see HOOK_FUNCTION
+
+    return String.format("assign(\"%s\", %s, envir = globalenv())", HOOK_CONDITIONS_VARIABLE, namedVectorCommand(conditions));
+  }
+
+  @NotNull
+  public static String batchEvaluationCommand(@NotNull final List<String> expressions) {
+    // prints `BATCH_RESULT_PREFIX i` or `BATCH_ERROR_PREFIX i` and then output or error message for every expression,
+    // expressions are parsed separately, so the broken one doesn't break the rest,
+    // closures are released while the batch is evaluated, otherwise the called one would open the browser
+    // inside of `capture.output` and its prompt would be swallowed by the sink,
+    // closures are restored in `finally`, so an interrupted batch doesn't leave them released
+
+    return String.format(
+      "%1$s; " +
+      "invisible(tryCatch(" +
+      "(function(e, s) for (i in seq_along(s)) cat(tryCatch(" +
+      "paste0(\"%2$s\", i, \"\\n\", paste(capture.output(eval(parse(text = s[[i]]), envir = e)), collapse = \"\\n\")), " +
+      "error = function(x) paste0(\"%3$s\", i, \"\\n\", conditionMessage(x))" +
+      "), \"\\n\", sep = \"\"))(environment(), %4$s), " +
+      "finally = %5$s" +
+      "))",
+      releaseFunctionsCommand(Collections.<String>emptyList()),
+      BATCH_RESULT_PREFIX,
+      BATCH_ERROR_PREFIX,
+      vectorCommand(expressions),
+      RESTORE_FUNCTIONS_COMMAND
+    );
+  }
+
+  @NotNull
+  private static String vectorCommand(@NotNull final Collection<String> values) {
+    final StringBuilder sb = new StringBuilder("c(");
+
+    boolean first = true;
+
+    for (final String value : values) {
+      if (!first) {
+        sb.append(", ");
+      }
+
+      sb.append(quote(value));
+
+      first = false;
+    }
+
+    return sb.append(')').toString();
+  }
+
+  @NotNull
+  private static String namedVectorCommand(@NotNull final Map<Integer, String> values) {
+    final StringBuilder sb = new StringBuilder("c(");
+
+    for (final Map.Entry<Integer, String> entry : values.entrySet()) {
+      if (sb.length() > 2) {
+        sb.append(", ");
+      }
+
+      sb.append('"').append(entry.getKey()).append("\" = ").append(quote(entry.getValue()));
+    }
+
+    return sb.append(')').toString();
+  }
+
+  @NotNull
+  private static String quote(@NotNull final String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r") + "\"";
+  }
+
+  @NotNull
+  private static String integerVectorCommand(@NotNull final BitSet values) {
+    final StringBuilder sb = new StringBuilder("c(");
+
+    for (int value = values.nextSetBit(0); value != -1; value = values.nextSetBit(value + 1)) {
+      if (sb.length() > 2) {
+        sb.append(", ");
+      }
+
+      sb.append(value).append('L');
+    }
+
+    return sb.append(')').toString();
+  }
+
   @NotNull
   private static String sysFrameCommand(final int frameNumber) {
     return String.format("sys.frame(%d)", frameNumber);
@@ -12,4 +12,7 @@ public final class TheRFunctionConstants {
 
   @NotNull
   public static final String MAIN_FUNCTION_NAME = SERVICE_FUNCTION_PREFIX + "main";
+
+  @NotNull
+  public static final String HOOK_FUNCTION_NAME = SERVICE_FUNCTION_PREFIX + "hook";
 }
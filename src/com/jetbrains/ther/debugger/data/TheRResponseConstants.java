@@ -31,6 +31,30 @@ public final class TheRResponseConstants {
   @NotNull
   public static final String EXITING_FROM_PREFIX = "exiting from: ";
 
+  @NotNull
+  public static final String CALLED_FROM_PREFIX = "Called from: ";
+
   @NotNull
   public static final String ENVIRONMENT_PREFIX = "<environment: ";
+
+  @NotNull
+  public static final String TRUE_RESPONSE = "[1] TRUE";
+
+  @NotNull
+  public static final String VAR_PREFIX = TheRFunctionConstants.SERVICE_FUNCTION_PREFIX + "var: ";
+
+  @NotNull
+  public static final String SUMMARY_PREFIX = TheRFunctionConstants.SERVICE_FUNCTION_PREFIX + "summary: ";
+
+  @NotNull
+  public static final String DATA_FRAME_SUMMARY_PREFIX = TheRFunctionConstants.SERVICE_FUNCTION_PREFIX + "data.frame: ";
+
+  @NotNull
+  public static final String BATCH_RESULT_PREFIX = TheRFunctionConstants.SERVICE_FUNCTION_PREFIX + "result: ";
+
+  @NotNull
+  public static final String BATCH_ERROR_PREFIX = TheRFunctionConstants.SERVICE_FUNCTION_PREFIX + "error: ";
+
+  @NotNull
+  public static final String BREAKPOINT_HOOK_PREFIX = TheRFunctionConstants.SERVICE_FUNCTION_PREFIX + "breakpoint: ";
 }
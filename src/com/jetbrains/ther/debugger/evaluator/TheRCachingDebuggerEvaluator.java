@@ -0,0 +1,105 @@
+package com.jetbrains.ther.debugger.evaluator;
+
+import com.jetbrains.ther.debugger.TheRSuspensionCache;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TheRCachingDebuggerEvaluator implements TheRDebuggerEvaluator {
+
+  @NotNull
+  private final TheRDebuggerEvaluator myEvaluator;
+
+  @NotNull
+  private final TheRSuspensionCache myCache;
+
+  private final int myFrameNumber;
+
+  public TheRCachingDebuggerEvaluator(@NotNull final TheRDebuggerEvaluator evaluator,
+                                      @NotNull final TheRSuspensionCache cache,
+                                      final int frameNumber) {
+    myEvaluator = evaluator;
+    myCache = cache;
+    myFrameNumber = frameNumber;
+  }
+
+  @Override
+  public void evaluate(@NotNull final String expression, @NotNull final Receiver receiver) {
+    final String cached = myCache.getResult(myFrameNumber, expression);
+
+    if (cached != null) {
+      receiver.receiveResult(cached);
+      return;
+    }
+
+    invalidate();
+    myEvaluator.evaluate(expression, new CachingReceiver(expression, receiver));
+  }
+
+  @Override
+  public void evaluate(@NotNull final List<String> expressions, @NotNull final List<Receiver> receivers) {
+    // only not cached expressions are passed to the batch
+
+    final List<String> notCachedExpressions = new ArrayList<String>();
+    final List<Receiver> notCachedReceivers = new ArrayList<Receiver>();
+
+    for (int i = 0; i < expressions.size(); i++) {
+      final String expression = expressions.get(i);
+      final String cached = myCache.getResult(myFrameNumber, expression);
+
+      if (cached != null) {
+        receivers.get(i).receiveResult(cached);
+      }
+      else {
+        notCachedExpressions.add(expression);
+        notCachedReceivers.add(new CachingReceiver(expression, receivers.get(i)));
+      }
+    }
+
+    if (!notCachedExpressions.isEmpty()) {
+      invalidate();
+      myEvaluator.evaluate(notCachedExpressions, notCachedReceivers);
+    }
+  }
+
+  private void invalidate() {
+    // evaluated expression could modify variables or call functions with side effects,
+    // so everything loaded before it is dropped and only results of the following expressions are cached
+
+    myCache.invalidate();
+  }
+
+  private class CachingReceiver implements Receiver {
+
+    // errors are not cached, so failed expression is re-evaluated next time
+
+    @NotNull
+    private final String myExpression;
+
+    @NotNull
+    private final Receiver myReceiver;
+
+    public CachingReceiver(@NotNull final String expression, @NotNull final Receiver receiver) {
+      myExpression = expression;
+      myReceiver = receiver;
+    }
+
+    @Override
+    public void receiveResult(@NotNull final String result) {
+      myCache.putResult(myFrameNumber, myExpression, result);
+
+      myReceiver.receiveResult(result);
+    }
+
+    @Override
+    public void receiveError(@NotNull final Exception e) {
+      myReceiver.receiveError(e);
+    }
+
+    @Override
+    public void receiveError(@NotNull final String error) {
+      myReceiver.receiveError(error);
+    }
+  }
+}
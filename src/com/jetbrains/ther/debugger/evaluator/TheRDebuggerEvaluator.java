@@ -2,10 +2,15 @@ package com.jetbrains.ther.debugger.evaluator;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public interface TheRDebuggerEvaluator {
 
   void evaluate(@NotNull final String expression, @NotNull final Receiver receiver);
 
+  // `receivers.get(i)` receives result of `expressions.get(i)`
+  void evaluate(@NotNull final List<String> expressions, @NotNull final List<Receiver> receivers);
+
   interface Receiver {
 
     void receiveResult(@NotNull final String result);
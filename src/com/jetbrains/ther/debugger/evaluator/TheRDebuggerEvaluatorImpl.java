@@ -9,14 +9,34 @@ import com.jetbrains.ther.debugger.executor.TheRExecutor;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerFactory;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.appendError;
+import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.findCurrentLineEnd;
 import static com.jetbrains.ther.debugger.TheRDebuggerUtils.calculateRepresentation;
 import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.batchEvaluationCommand;
+import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.LINE_SEPARATOR;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.BATCH_ERROR_PREFIX;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.BATCH_RESULT_PREFIX;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
-import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.*;
 
 class TheRDebuggerEvaluatorImpl implements TheRDebuggerEvaluator {
 
+  @NotNull
+  private static final String RESULT_SEPARATOR = LINE_SEPARATOR + BATCH_RESULT_PREFIX;
+
+  @NotNull
+  private static final String ERROR_SEPARATOR = LINE_SEPARATOR + BATCH_ERROR_PREFIX;
+
+  @NotNull
+  private static final String INTERRUPTED_ERROR = "Evaluation has been interrupted";
+
+  // watches are evaluated on every stop, so the batch which takes too long is cancelled instead of blocking the session
+  private static final long BATCH_TIMEOUT_MILLIS = 30000;
+
   @NotNull
   private final TheRExecutor myExecutor;
 
@@ -56,19 +76,40 @@ class TheRDebuggerEvaluatorImpl implements TheRDebuggerEvaluator {
     }
   }
 
+  @Override
+  public void evaluate(@NotNull final List<String> expressions, @NotNull final List<Receiver> receivers) {
+    try {
+      final List<String> handledExpressions = new ArrayList<String>(expressions.size());
+
+      for (final String expression : expressions) {
+        handledExpressions.add(myHandler.handle(myFrameNumber, expression));
+      }
+
+      doEvaluate(handledExpressions, receivers);
+    }
+    catch (final TheRDebuggerException e) {
+      for (final Receiver receiver : receivers) {
+        receiver.receiveError(e);
+      }
+    }
+  }
+
   private void doEvaluate(@NotNull final String expression,
                           @NotNull final Receiver receiver) throws TheRDebuggerException {
     final TheRExecutionResult result = myExecutor.execute(expression);
 
     switch (result.getType()) {
       case DEBUGGING_IN:
+      case DEBUGGING_IN_AFTER_OUTPUT:
+        // expression could print output before the call of the debugged function, it is kept before the function result
         appendError(result, myReceiver);
 
+        final String outputBefore = result.getResultRange().substring(result.getOutput());
+        final String functionResult = TheRDebuggerUtils.forciblyEvaluateFunction(myExecutor, myFactory, myReceiver);
+
         receiver.receiveResult(
           calculateRepresentation(
-            TheRDebuggerUtils.forciblyEvaluateFunction(
-              myExecutor, myFactory, myReceiver
-            )
+            outputBefore.isEmpty() ? functionResult : outputBefore + LINE_SEPARATOR + functionResult
           )
         );
 
@@ -100,6 +141,49 @@ class TheRDebuggerEvaluatorImpl implements TheRDebuggerEvaluator {
           )
         );
 
+        break;
+      case INTERRUPTED:
+        appendError(result, myReceiver);
+
+        receiver.receiveError(INTERRUPTED_ERROR);
+
+        break;
+      default:
+        throw new TheRUnexpectedExecutionResultTypeException(
+          "Actual type is not the same as expected: " +
+          "[" +
+          "actual: " + result.getType() + ", " +
+          "expected: " +
+          "[" + DEBUGGING_IN + ", " + DEBUGGING_IN_AFTER_OUTPUT + ", " + EMPTY + ", " + RESPONSE + ", " + DEBUG_AT + ", " + INTERRUPTED + "]" +
+          "]"
+        );
+    }
+  }
+
+  private void doEvaluate(@NotNull final List<String> expressions,
+                          @NotNull final List<Receiver> receivers) throws TheRDebuggerException {
+    final TheRExecutionResult result = get(submit(myExecutor, batchEvaluationCommand(expressions)), BATCH_TIMEOUT_MILLIS);
+
+    switch (result.getType()) {
+      case EMPTY:
+        for (final Receiver receiver : receivers) {
+          receiver.receiveError(result.getError());
+        }
+
+        break;
+      case RESPONSE:
+        appendError(result, myReceiver);
+
+        receiveBatch(result.getOutput(), receivers);
+
+        break;
+      case INTERRUPTED:
+        appendError(result, myReceiver);
+
+        for (final Receiver receiver : receivers) {
+          receiver.receiveError(INTERRUPTED_ERROR);
+        }
+
         break;
       default:
         throw new TheRUnexpectedExecutionResultTypeException(
@@ -107,9 +191,57 @@ class TheRDebuggerEvaluatorImpl implements TheRDebuggerEvaluator {
           "[" +
           "actual: " + result.getType() + ", " +
           "expected: " +
-          "[" + DEBUGGING_IN + ", " + EMPTY + ", " + RESPONSE + ", " + DEBUG_AT + "]" +
+          "[" + EMPTY + ", " + RESPONSE + ", " + INTERRUPTED + "]" +
           "]"
         );
     }
   }
+
+  private static void receiveBatch(@NotNull final String output, @NotNull final List<Receiver> receivers) {
+    final boolean[] received = new boolean[receivers.size()];
+
+    int index = output.startsWith(BATCH_RESULT_PREFIX) || output.startsWith(BATCH_ERROR_PREFIX) ? 0 : skipSeparator(output, findNext(output, 0));
+
+    while (index < output.length()) {
+      final boolean isResult = output.startsWith(BATCH_RESULT_PREFIX, index);
+      final int numberBegin = index + (isResult ? BATCH_RESULT_PREFIX : BATCH_ERROR_PREFIX).length();
+      final int numberEnd = findCurrentLineEnd(output, numberBegin);
+      final int valueEnd = findNext(output, numberEnd);
+      final int valueBegin = Math.min(numberEnd + LINE_SEPARATOR.length(), valueEnd);
+
+      final int number = Integer.parseInt(output.substring(numberBegin, numberEnd)) - 1; // R indices are 1-based
+      final String value = output.substring(valueBegin, valueEnd);
+
+      if (isResult) {
+        receivers.get(number).receiveResult(calculateRepresentation(value));
+      }
+      else {
+        receivers.get(number).receiveError(value);
+      }
+
+      received[number] = true;
+      index = skipSeparator(output, valueEnd);
+    }
+
+    for (int i = 0; i < received.length; i++) {
+      if (!received[i]) {
+        receivers.get(i).receiveError("Expression hasn't been evaluated");
+      }
+    }
+  }
+
+  private static int findNext(@NotNull final String output, final int index) {
+    final int result = output.indexOf(RESULT_SEPARATOR, index);
+    final int error = output.indexOf(ERROR_SEPARATOR, index);
+
+    if (result == -1 || error == -1) {
+      return result == -1 && error == -1 ? output.length() : Math.max(result, error);
+    }
+
+    return Math.min(result, error);
+  }
+
+  private static int skipSeparator(@NotNull final String output, final int separatorIndex) {
+    return separatorIndex == output.length() ? separatorIndex : separatorIndex + LINE_SEPARATOR.length();
+  }
 }
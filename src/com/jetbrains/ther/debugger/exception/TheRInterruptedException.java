@@ -0,0 +1,10 @@
+package com.jetbrains.ther.debugger.exception;
+
+import org.jetbrains.annotations.NotNull;
+
+public class TheRInterruptedException extends TheRDebuggerException {
+
+  public TheRInterruptedException(@NotNull final String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,15 @@
+package com.jetbrains.ther.debugger.executor;
+
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Future;
+
+public interface TheRAsyncExecutor extends TheRExecutor {
+
+  // submitted commands are executed in the submission order,
+  // cancelled command is still executed by R but its result is dropped
+
+  @NotNull
+  Future<TheRExecutionResult> submit(@NotNull final String command) throws TheRDebuggerException;
+}
@@ -0,0 +1,69 @@
+package com.jetbrains.ther.debugger.executor;
+
+import org.jetbrains.annotations.NotNull;
+
+public class TheRCommandMetrics {
+
+  // durations are measured from the moment command started to be written,
+  // sizes are measured in chars of the written command and received output and error
+
+  @NotNull
+  private final TheRExecutionResultType myType;
+
+  private final int myBytesOut;
+
+  private final int myBytesIn;
+
+  private final long myWriteNanos;
+
+  private final long myFirstByteNanos;
+
+  private final long myCompletionNanos;
+
+  private final long myClassificationNanos;
+
+  public TheRCommandMetrics(@NotNull final TheRExecutionResultType type,
+                            final int bytesOut,
+                            final int bytesIn,
+                            final long writeNanos,
+                            final long firstByteNanos,
+                            final long completionNanos,
+                            final long classificationNanos) {
+    myType = type;
+    myBytesOut = bytesOut;
+    myBytesIn = bytesIn;
+    myWriteNanos = writeNanos;
+    myFirstByteNanos = firstByteNanos;
+    myCompletionNanos = completionNanos;
+    myClassificationNanos = classificationNanos;
+  }
+
+  @NotNull
+  public TheRExecutionResultType getType() {
+    return myType;
+  }
+
+  public int getBytesOut() {
+    return myBytesOut;
+  }
+
+  public int getBytesIn() {
+    return myBytesIn;
+  }
+
+  public long getWriteNanos() {
+    return myWriteNanos;
+  }
+
+  public long getFirstByteNanos() {
+    return myFirstByteNanos;
+  }
+
+  public long getCompletionNanos() {
+    return myCompletionNanos;
+  }
+
+  public long getClassificationNanos() {
+    return myClassificationNanos;
+  }
+}
@@ -0,0 +1,56 @@
+package com.jetbrains.ther.debugger.executor;
+
+import org.jetbrains.annotations.NotNull;
+
+public class TheRExecutionInterrupter {
+
+  // Signal is sent under the same lock as the command is completed,
+  // so it is never sent to R waiting for the next command, otherwise R would print an extra invitation.
+
+  @NotNull
+  private final Runnable mySignal;
+
+  private boolean myIsExecuting;
+
+  private boolean myIsInterrupted;
+
+  public TheRExecutionInterrupter(@NotNull final Runnable signal) {
+    mySignal = signal;
+
+    myIsExecuting = false;
+    myIsInterrupted = false;
+  }
+
+  public synchronized void start() {
+    myIsExecuting = true;
+    myIsInterrupted = false;
+  }
+
+  public synchronized boolean complete() {
+    // returns true if the completed command has been interrupted
+
+    final boolean result = myIsExecuting && myIsInterrupted;
+
+    myIsExecuting = false;
+    myIsInterrupted = false;
+
+    return result;
+  }
+
+  public synchronized boolean isExecuting() {
+    return myIsExecuting;
+  }
+
+  public synchronized boolean interrupt() {
+    // returns true if the signal has been sent
+
+    if (!myIsExecuting || myIsInterrupted) {
+      return false;
+    }
+
+    myIsInterrupted = true;
+    mySignal.run();
+
+    return true;
+  }
+}
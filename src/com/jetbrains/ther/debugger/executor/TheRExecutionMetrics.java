@@ -0,0 +1,208 @@
+package com.jetbrains.ther.debugger.executor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class TheRExecutionMetrics {
+
+  // commands are aggregated by the action which was current when they were completed,
+  // every value is put into the power of two bucket, so histograms have constant size
+
+  @NotNull
+  public static final String OTHER_ACTION = "other";
+
+  @NotNull
+  private static final String[] METRICS = new String[]{"write_us", "first_byte_us", "completion_us", "classification_us", "chars_out", "chars_in"};
+
+  @NotNull
+  private static final String CSV_HEADER = "action,metric,bucket,count";
+
+  private static final int BUCKETS = 64;
+
+  @NotNull
+  private final Map<String, ActionMetrics> myActions;
+
+  @NotNull
+  private volatile String myAction;
+
+  public TheRExecutionMetrics() {
+    myActions = new LinkedHashMap<String, ActionMetrics>();
+    myAction = OTHER_ACTION;
+  }
+
+  public void setAction(@NotNull final String action) {
+    myAction = action;
+  }
+
+  public synchronized void record(@NotNull final TheRCommandMetrics metrics) {
+    ActionMetrics actionMetrics = myActions.get(myAction);
+
+    if (actionMetrics == null) {
+      actionMetrics = new ActionMetrics();
+      myActions.put(myAction, actionMetrics);
+    }
+
+    actionMetrics.add(metrics);
+  }
+
+  public synchronized boolean isEmpty() {
+    return myActions.isEmpty();
+  }
+
+  @NotNull
+  public synchronized String getSummary() {
+    // bucket upper bounds are printed, so percentiles are accurate within a factor of two
+
+    final StringBuilder sb = new StringBuilder();
+
+    for (final Map.Entry<String, ActionMetrics> entry : myActions.entrySet()) {
+      final ActionMetrics metrics = entry.getValue();
+
+      sb.append(entry.getKey()).append(": ").append(metrics.myCount).append(" commands, ").append(metrics.myTypes).append('\n');
+
+      for (int i = 0; i < METRICS.length; i++) {
+        final long[] histogram = metrics.myHistograms[i];
+
+        sb
+          .append("  ")
+          .append(METRICS[i])
+          .append(": p50 <= ").append(percentile(histogram, metrics.myCount, 0.5))
+          .append(", p90 <= ").append(percentile(histogram, metrics.myCount, 0.9))
+          .append(", p99 <= ").append(percentile(histogram, metrics.myCount, 0.99))
+          .append(", max = ").append(metrics.myMaxs[i])
+          .append(", total = ").append(metrics.myTotals[i])
+          .append('\n');
+      }
+    }
+
+    return sb.toString();
+  }
+
+  public synchronized void export(@NotNull final Writer writer) throws IOException {
+    // histogram rows have bucket upper bound in the `bucket` column, type rows have type name there
+
+    writer.write(CSV_HEADER);
+    writer.write('\n');
+
+    for (final Map.Entry<String, ActionMetrics> entry : myActions.entrySet()) {
+      final String action = escape(entry.getKey());
+      final ActionMetrics metrics = entry.getValue();
+
+      for (int i = 0; i < METRICS.length; i++) {
+        final long[] histogram = metrics.myHistograms[i];
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+          if (histogram[bucket] != 0) {
+            writeRow(writer, action, METRICS[i], Long.toString(upperBound(bucket)), histogram[bucket]);
+          }
+        }
+      }
+
+      for (final Map.Entry<TheRExecutionResultType, Integer> type : metrics.myTypes.entrySet()) {
+        writeRow(writer, action, "type", type.getKey().name(), type.getValue());
+      }
+    }
+
+    writer.flush();
+  }
+
+  private static void writeRow(@NotNull final Writer writer,
+                               @NotNull final String action,
+                               @NotNull final String metric,
+                               @NotNull final String bucket,
+                               final long count) throws IOException {
+    writer.write(action);
+    writer.write(',');
+    writer.write(metric);
+    writer.write(',');
+    writer.write(bucket);
+    writer.write(',');
+    writer.write(Long.toString(count));
+    writer.write('\n');
+  }
+
+  @NotNull
+  private static String escape(@NotNull final String value) {
+    if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+      return value;
+    }
+
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  private static int bucket(final long value) {
+    // 0 for values less than 1, otherwise `i` for values in [2^(i - 1), 2^i)
+
+    return value < 1 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  private static long upperBound(final int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  private static long percentile(@NotNull final long[] histogram, final int count, final double percentile) {
+    final long threshold = (long)Math.ceil(count * percentile);
+    long accumulated = 0;
+
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      accumulated += histogram[bucket];
+
+      if (accumulated >= threshold) {
+        return upperBound(bucket);
+      }
+    }
+
+    return 0;
+  }
+
+  private static class ActionMetrics {
+
+    @NotNull
+    private final long[][] myHistograms;
+
+    @NotNull
+    private final long[] myMaxs;
+
+    @NotNull
+    private final long[] myTotals;
+
+    @NotNull
+    private final Map<TheRExecutionResultType, Integer> myTypes;
+
+    private int myCount;
+
+    public ActionMetrics() {
+      myHistograms = new long[METRICS.length][BUCKETS];
+      myMaxs = new long[METRICS.length];
+      myTotals = new long[METRICS.length];
+      myTypes = new EnumMap<TheRExecutionResultType, Integer>(TheRExecutionResultType.class);
+      myCount = 0;
+    }
+
+    public void add(@NotNull final TheRCommandMetrics metrics) {
+      add(0, TimeUnit.NANOSECONDS.toMicros(metrics.getWriteNanos()));
+      add(1, TimeUnit.NANOSECONDS.toMicros(metrics.getFirstByteNanos()));
+      add(2, TimeUnit.NANOSECONDS.toMicros(metrics.getCompletionNanos()));
+      add(3, TimeUnit.NANOSECONDS.toMicros(metrics.getClassificationNanos()));
+      add(4, metrics.getBytesOut());
+      add(5, metrics.getBytesIn());
+
+      final Integer typeCount = myTypes.get(metrics.getType());
+      myTypes.put(metrics.getType(), typeCount == null ? 1 : typeCount + 1);
+
+      myCount++;
+    }
+
+    private void add(final int metric, final long value) {
+      myHistograms[metric][bucket(value)]++;
+      myMaxs[metric] = Math.max(myMaxs[metric], value);
+      myTotals[metric] += value;
+    }
+  }
+}
@@ -0,0 +1,370 @@
+package com.jetbrains.ther.debugger.executor;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.findLastButOneLineEnd;
+import static com.jetbrains.ther.debugger.data.TheRCommands.sentinelCommand;
+import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.LINE_SEPARATOR;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.interrupted;
+
+public class TheRExecutionPipeline {
+
+  // Every command is followed by the unique sentinel printed to both streams.
+  // Command's output ends with the invitation which precedes echoed sentinel command,
+  // command's error ends just before the sentinel line.
+  // So commands could be written one by one without waiting and their results are extracted in the same order.
+
+  @NotNull
+  private final TheRExecutionResultCalculator myCalculator;
+
+  @NotNull
+  private final String mySentinelPrefix;
+
+  @NotNull
+  private final Listener myListener;
+
+  @NotNull
+  private final Object myWriteLock;
+
+  @NotNull
+  private final StringBuilder myOutputBuffer;
+
+  @NotNull
+  private final StringBuilder myErrorBuffer;
+
+  @NotNull
+  private final LinkedList<Entry> myEntries;
+
+  private int myOutputScanned;
+
+  private int myErrorScanned;
+
+  private int myCounter;
+
+  private boolean myTerminated;
+
+  public TheRExecutionPipeline(@NotNull final TheRExecutionResultCalculator calculator,
+                               @NotNull final String sentinelPrefix,
+                               @NotNull final Listener listener) {
+    myCalculator = calculator;
+    mySentinelPrefix = sentinelPrefix;
+    myListener = listener;
+
+    myWriteLock = new Object();
+    myOutputBuffer = new StringBuilder();
+    myErrorBuffer = new StringBuilder();
+    myEntries = new LinkedList<Entry>();
+
+    myOutputScanned = 0;
+    myErrorScanned = 0;
+    myCounter = 0;
+    myTerminated = false;
+  }
+
+  @NotNull
+  public Future<TheRExecutionResult> submit(@NotNull final String command, @NotNull final Writer writer) throws TheRDebuggerException {
+    // writing is not guarded by `this` because R could stop reading input until its output is read
+
+    synchronized (myWriteLock) {
+      final Entry entry;
+
+      synchronized (this) {
+        if (myTerminated) {
+          throw new TheRDebuggerException("Command couldn't be executed because process has been terminated [command: " + command + "]");
+        }
+
+        entry = new Entry(command, mySentinelPrefix + myCounter, System.nanoTime());
+
+        myEntries.add(entry);
+        myCounter++;
+      }
+
+      try {
+        writer.write(command);
+        writer.write(LINE_SEPARATOR);
+        writer.write(entry.mySentinelCommand);
+        writer.write(LINE_SEPARATOR);
+        writer.flush();
+
+        entry.myWriteNanos = System.nanoTime() - entry.myBeginNanos;
+      }
+      catch (final IOException e) {
+        throw new TheRDebuggerException(e);
+      }
+
+      return entry.myFuture;
+    }
+  }
+
+  public synchronized void appendOutput(@NotNull final String text) {
+    markFirstByte();
+    myOutputBuffer.append(text);
+
+    process();
+  }
+
+  public synchronized void appendError(@NotNull final String text) {
+    markFirstByte();
+    myErrorBuffer.append(text);
+
+    process();
+  }
+
+  public synchronized boolean interrupt() {
+    // only the first entry could be executed by R at the moment, the following ones are waiting in its input,
+    // listener is notified under the same lock as entries are completed, so completed entry is never interrupted
+
+    final Entry entry = myEntries.peek();
+
+    return entry != null && interrupt(entry);
+  }
+
+  @NotNull
+  public synchronized String terminate() {
+    myTerminated = true;
+
+    while (!myEntries.isEmpty()) {
+      final Entry entry = myEntries.poll();
+
+      entry.fail(
+        new TheRDebuggerException("Process has been terminated before command was completed [command: " + entry.myCommand + "]")
+      );
+    }
+
+    final String result = myErrorBuffer.toString();
+
+    myOutputBuffer.setLength(0);
+    myErrorBuffer.setLength(0);
+
+    return result;
+  }
+
+  private synchronized void cancel(@NotNull final Entry entry) {
+    // only the first entry could be interrupted, the following ones are executed by R anyway and their results are dropped
+
+    if (myEntries.peek() == entry) {
+      interrupt(entry);
+    }
+  }
+
+  private boolean interrupt(@NotNull final Entry entry) {
+    if (entry.myInterrupted) {
+      return false;
+    }
+
+    entry.myInterrupted = true;
+    myListener.onInterrupted();
+
+    return true;
+  }
+
+  private void markFirstByte() {
+    // text received while the previous command is completing is attributed to it
+
+    final Entry entry = myEntries.peek();
+
+    if (entry != null && entry.myFirstByteNanos == -1) {
+      entry.myFirstByteNanos = System.nanoTime() - entry.myBeginNanos;
+    }
+  }
+
+  private void process() {
+    while (!myEntries.isEmpty()) {
+      final Entry entry = myEntries.peek();
+
+      final int outputSentinel = findSentinelLine(myOutputBuffer, myOutputScanned, entry.mySentinel);
+
+      if (outputSentinel == -1) {
+        myOutputScanned = Math.max(0, myOutputBuffer.length() - entry.mySentinel.length() - 1);
+        return;
+      }
+
+      myOutputScanned = outputSentinel;
+
+      final int errorSentinel = findSentinelLine(myErrorBuffer, myErrorScanned, entry.mySentinel);
+
+      if (errorSentinel == -1) {
+        myErrorScanned = Math.max(0, myErrorBuffer.length() - entry.mySentinel.length() - 1);
+        return;
+      }
+
+      final String output = myOutputBuffer.substring(0, calculateOutputEnd(outputSentinel, entry.mySentinelCommand));
+      final String error = myErrorBuffer.substring(0, errorSentinel);
+
+      myOutputBuffer.delete(0, skipLineBreak(myOutputBuffer, outputSentinel + entry.mySentinel.length()));
+      myErrorBuffer.delete(0, skipLineBreak(myErrorBuffer, errorSentinel + entry.mySentinel.length()));
+
+      myOutputScanned = 0;
+      myErrorScanned = 0;
+
+      myEntries.poll();
+
+      complete(entry, output, error);
+    }
+  }
+
+  private void complete(@NotNull final Entry entry, @NotNull final String output, @NotNull final String error) {
+    if (entry.myFuture.isCancelled()) {
+      return;
+    }
+
+    final long completed = System.nanoTime();
+    final TheRExecutionResult result;
+
+    try {
+      final TheRExecutionResult calculated = myCalculator.calculate(output, error);
+
+      result = entry.myInterrupted ? interrupted(calculated) : calculated;
+    }
+    catch (final IllegalArgumentException e) {
+      entry.fail(new TheRDebuggerException(e));
+      return;
+    }
+
+    final TheRCommandMetrics metrics = new TheRCommandMetrics(
+      result.getType(),
+      entry.myCommand.length() + entry.mySentinelCommand.length() + 2 * LINE_SEPARATOR.length(),
+      output.length() + error.length(),
+      entry.myWriteNanos,
+      entry.myFirstByteNanos,
+      completed - entry.myBeginNanos,
+      System.nanoTime() - completed
+    );
+
+    myListener.onExecuted(entry.myCommand, result, metrics);
+
+    entry.complete(result);
+  }
+
+  private int calculateOutputEnd(final int sentinelLine, @NotNull final String sentinelCommand) {
+    final int sentinelCommandEnd = findLastButOneLineEnd(myOutputBuffer, sentinelLine);
+    final int sentinelCommandBegin = sentinelCommandEnd - sentinelCommand.length();
+
+    if (sentinelCommandBegin >= 0 && myOutputBuffer.indexOf(sentinelCommand, sentinelCommandBegin) == sentinelCommandBegin) {
+      return sentinelCommandBegin;
+    }
+    else {
+      return sentinelCommandEnd;
+    }
+  }
+
+  private static int findSentinelLine(@NotNull final StringBuilder buffer, final int fromIndex, @NotNull final String sentinel) {
+    int index = buffer.indexOf(sentinel, fromIndex);
+
+    while (index != -1) {
+      final int end = index + sentinel.length();
+
+      if ((index == 0 || StringUtil.isLineBreak(buffer.charAt(index - 1))) &&
+          end < buffer.length() &&
+          StringUtil.isLineBreak(buffer.charAt(end))) {
+        return index;
+      }
+
+      index = buffer.indexOf(sentinel, index + 1);
+    }
+
+    return -1;
+  }
+
+  private static int skipLineBreak(@NotNull final StringBuilder buffer, final int index) {
+    if (buffer.charAt(index) == '\r' && index + 1 < buffer.length() && buffer.charAt(index + 1) == '\n') {
+      return index + 2;
+    }
+    else {
+      return index + 1;
+    }
+  }
+
+  public interface Listener {
+
+    void onExecuted(@NotNull final String command, @NotNull final TheRExecutionResult result, @NotNull final TheRCommandMetrics metrics);
+
+    void onInterrupted();
+  }
+
+  private class Entry {
+
+    @NotNull
+    private final String myCommand;
+
+    @NotNull
+    private final String mySentinel;
+
+    @NotNull
+    private final String mySentinelCommand;
+
+    @NotNull
+    private final FutureTask<TheRExecutionResult> myFuture;
+
+    @Nullable
+    private TheRExecutionResult myResult;
+
+    @Nullable
+    private TheRDebuggerException myException;
+
+    private boolean myInterrupted;
+
+    private final long myBeginNanos;
+
+    private volatile long myWriteNanos;
+
+    private long myFirstByteNanos;
+
+    public Entry(@NotNull final String command, @NotNull final String sentinel, final long beginNanos) {
+      myCommand = command;
+      mySentinel = sentinel;
+      mySentinelCommand = sentinelCommand(sentinel);
+      myBeginNanos = beginNanos;
+
+      myFuture = new FutureTask<TheRExecutionResult>(
+        new Callable<TheRExecutionResult>() {
+          @Override
+          public TheRExecutionResult call() throws TheRDebuggerException {
+            if (myException != null) {
+              throw myException;
+            }
+
+            return myResult;
+          }
+        }
+      ) {
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+          final boolean result = super.cancel(false);
+
+          if (result && mayInterruptIfRunning) {
+            TheRExecutionPipeline.this.cancel(Entry.this);
+          }
+
+          return result;
+        }
+      };
+
+      myResult = null;
+      myException = null;
+      myInterrupted = false;
+      myWriteNanos = -1;
+      myFirstByteNanos = -1;
+    }
+
+    public void complete(@NotNull final TheRExecutionResult result) {
+      myResult = result;
+      myFuture.run();
+    }
+
+    public void fail(@NotNull final TheRDebuggerException exception) {
+      myException = exception;
+      myFuture.run();
+    }
+  }
+}
@@ -1,14 +1,11 @@
 package com.jetbrains.ther.debugger.executor;
 
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
+import gnu.trove.TIntArrayList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.ListIterator;
 import java.util.regex.Pattern;
 
 import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.LINE_SEPARATOR;
@@ -20,25 +17,67 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   @NotNull
   private static final Pattern START_TRACE_PATTERN = Pattern.compile("^" + TRACING_PREFIX + ".* on entry( )*$");
 
+  // Every line break symbol finishes a line, so `\r\n` produces an empty line between `\r` and `\n`.
+  // Lines are classified as soon as they are finished, so `calculate` doesn't rescan the whole output.
+
+  @NotNull
+  private final TIntArrayList myLineBegins;
+
+  @NotNull
+  private final TIntArrayList myExitingFromLines;
+
+  @NotNull
+  private final TIntArrayList myDebuggingInLines;
+
+  @NotNull
+  private final TIntArrayList myDebugAtLines;
+
   @NotNull
-  private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("(\r|\n|\r\n)");
+  private final TIntArrayList myCalledFromLines;
+
+  private int myBreakpointHookLine;
+
+  @Nullable
+  private CharSequence myOutput;
+
+  private int myScanned;
+
+  public TheRExecutionResultCalculatorImpl() {
+    myLineBegins = new TIntArrayList();
+    myExitingFromLines = new TIntArrayList();
+    myDebuggingInLines = new TIntArrayList();
+    myDebugAtLines = new TIntArrayList();
+    myCalledFromLines = new TIntArrayList();
+
+    reset();
+  }
 
   @Override
   public boolean isComplete(@NotNull final CharSequence output) {
+    scan(output);
+
     return endsLineBreakAndPlusAndSpace(output) || endsLineBreakAndBrowseAndSpace(output);
   }
 
   @Override
   @NotNull
   public TheRExecutionResult calculate(@NotNull final CharSequence output, @NotNull final String error) {
-    final String[] lines =
-      LINE_BREAK_PATTERN.split(output); // Don't forget that first line is command and the last is invitation for the next one
+    scan(output);
+    classifyLine(output, myLineBegins.size() - 1, output.length()); // last line is not finished by line break
 
-    return calculateResult(
-      lines,
-      calculateTypeAndResultLineBounds(lines),
-      error
-    );
+    try {
+      final int lineCount = calculateLineCount(output); // Don't forget that first line is command and the last is invitation for the next one
+
+      return calculateResult(
+        output,
+        lineCount,
+        calculateTypeAndResultLineBounds(output, lineCount),
+        error
+      );
+    }
+    finally {
+      reset();
+    }
   }
 
   private static boolean endsLineBreakAndPlusAndSpace(@NotNull final CharSequence output) {
@@ -64,11 +103,87 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
     }
   }
 
+  private void scan(@NotNull final CharSequence output) {
+    if (output != myOutput || output.length() < myScanned) {
+      reset();
+
+      myOutput = output;
+    }
+
+    for (int i = myScanned; i < output.length(); i++) {
+      if (StringUtil.isLineBreak(output.charAt(i))) {
+        classifyLine(output, myLineBegins.size() - 1, i);
+
+        myLineBegins.add(i + 1);
+      }
+    }
+
+    myScanned = output.length();
+  }
+
+  private void classifyLine(@NotNull final CharSequence output, final int line, final int lineEnd) {
+    final int lineBegin = myLineBegins.get(line);
+
+    if (lineBegin == lineEnd) {
+      return;
+    }
+
+    if (isSubsequence(DEBUG_AT_LINE_PREFIX, output, lineBegin)) {
+      myDebugAtLines.add(line);
+    }
+    else if (line > 0 && isSubsequence(EXITING_FROM_PREFIX, output, lineBegin)) {
+      myExitingFromLines.add(line);
+    }
+    else if (line > 0 && isSubsequence(DEBUGGING_IN_PREFIX, output, lineBegin)) {
+      myDebuggingInLines.add(line);
+    }
+    else if (line > 0 && isSubsequence(CALLED_FROM_PREFIX, output, lineBegin)) {
+      myCalledFromLines.add(line);
+    }
+    else if (line > 0 && myBreakpointHookLine == -1 && isSubsequence(BREAKPOINT_HOOK_PREFIX, output, lineBegin)) {
+      myBreakpointHookLine = line;
+    }
+  }
+
+  private void reset() {
+    myOutput = null;
+    myScanned = 0;
+
+    myLineBegins.clear();
+    myLineBegins.add(0);
+
+    myExitingFromLines.clear();
+    myDebuggingInLines.clear();
+    myDebugAtLines.clear();
+    myCalledFromLines.clear();
+
+    myBreakpointHookLine = -1;
+  }
+
+  private int calculateLineCount(@NotNull final CharSequence output) {
+    int result = myLineBegins.size();
+
+    while (result > 0 && getLineBegin(result - 1) == getLineEnd(output, result - 1)) { // trailing empty lines are ignored
+      result--;
+    }
+
+    return result;
+  }
+
+  private int getLineBegin(final int line) {
+    return myLineBegins.get(line);
+  }
+
+  private int getLineEnd(@NotNull final CharSequence output, final int line) {
+    return line == myLineBegins.size() - 1 ? output.length() : myLineBegins.get(line + 1) - 1;
+  }
+
   @NotNull
-  private static TheRExecutionResult calculateResult(@NotNull final String[] lines,
-                                                     @NotNull final TypeAndResultLineBounds typeAndResultLineBounds,
-                                                     @NotNull final String error) {
-    final StringBuilder sb = new StringBuilder();
+  private TheRExecutionResult calculateResult(@NotNull final CharSequence output,
+                                              final int lineCount,
+                                              @NotNull final TypeAndResultLineBounds typeAndResultLineBounds,
+                                              @NotNull final String error) {
+    final StringBuilder sb = new StringBuilder(output.length());
 
     final TextRange preCalculatedRange =
       (typeAndResultLineBounds.myResultEnd <= typeAndResultLineBounds.myResultBegin) ? TextRange.EMPTY_RANGE : null;
@@ -76,16 +191,19 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
     int resultBegin = 0;
     int resultEnd = 0;
 
-    for (int i = 1; i < lines.length - 1; i++) {
-      sb.append(lines[i]);
+    for (int i = 1; i < lineCount - 1; i++) {
+      sb.append(output, getLineBegin(i), getLineEnd(output, i));
 
-      if (i != lines.length - 2) {
+      if (i < typeAndResultLineBounds.myResultEnd) {
+        resultEnd = sb.length();
+      }
+
+      if (i != lineCount - 2) {
         sb.append(LINE_SEPARATOR);
       }
 
-      if (preCalculatedRange == null) {
-        resultBegin += calculateResultBeginAddition(lines, typeAndResultLineBounds.myResultBegin, i);
-        resultEnd += calculateResultEndAddition(lines, typeAndResultLineBounds.myResultEnd, i);
+      if (i < typeAndResultLineBounds.myResultBegin) {
+        resultBegin = sb.length();
       }
     }
 
@@ -98,60 +216,72 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @NotNull
-  private static TypeAndResultLineBounds calculateTypeAndResultLineBounds(@NotNull final String[] lines) {
-    TypeAndResultLineBounds candidate = tryJustPlusAndSpace(lines);
+  private TypeAndResultLineBounds calculateTypeAndResultLineBounds(@NotNull final CharSequence output, final int lineCount) {
+    TypeAndResultLineBounds candidate = tryJustPlusAndSpace(output, lineCount);
 
     if (candidate != null) {
       return candidate;
     }
 
-    candidate = tryJustBrowseAndSpace(lines);
+    candidate = tryJustBrowseAndSpace(output, lineCount);
 
     if (candidate != null) {
       return candidate;
     }
 
-    if (!endsBrowseAndSpace(lines)) {
+    if (!endsBrowseAndSpace(output, lineCount)) {
       throw new IllegalArgumentException("Output is incomplete");
     }
 
-    candidate = tryDebugging(lines);
+    candidate = tryBreakpointHook(lineCount);
+
+    if (candidate != null) {
+      return candidate;
+    }
+
+    candidate = tryDebugging(output);
 
     if (candidate != null) {
       return candidate;
     }
 
-    candidate = tryContinueTrace(lines);
+    candidate = tryContinueTrace(lineCount);
 
     if (candidate != null) {
       return candidate;
     }
 
-    candidate = tryExitingFrom(lines);
+    candidate = tryExitingFrom(lineCount);
 
     if (candidate != null) {
       return candidate;
     }
 
-    candidate = tryDebugAt(lines);
+    candidate = tryDebuggingAfterOutput();
 
     if (candidate != null) {
       return candidate;
     }
 
-    candidate = tryStartTrace(lines);
+    candidate = tryDebugAt(lineCount);
 
     if (candidate != null) {
       return candidate;
     }
 
-    candidate = tryUnbraceDebugAt(lines);
+    candidate = tryStartTrace(output, lineCount);
 
     if (candidate != null) {
       return candidate;
     }
 
-    return new TypeAndResultLineBounds(RESPONSE, 0, lines.length);
+    candidate = tryUnbraceDebugAt(output, lineCount);
+
+    if (candidate != null) {
+      return candidate;
+    }
+
+    return new TypeAndResultLineBounds(RESPONSE, 0, lineCount);
   }
 
   private static boolean isSubsequence(@NotNull final CharSequence sequence,
@@ -170,41 +300,11 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
     return true;
   }
 
-  private static int calculateResultBeginAddition(@NotNull final String[] lines,
-                                                  final int resultLineBegin,
-                                                  final int i) {
-    int result = 0;
-
-    if (i < resultLineBegin) {
-      result += lines[i].length();
-
-      if (i != lines.length - 2) {
-        result += LINE_SEPARATOR.length();
-      }
-    }
-
-    return result;
-  }
-
-  private static int calculateResultEndAddition(@NotNull final String[] lines,
-                                                final int resultLineEnd,
-                                                final int i) {
-    int result = 0;
-
-    if (i < resultLineEnd) {
-      result += lines[i].length();
-
-      if (i != lines.length - 2 && i != resultLineEnd - 1) {
-        result += LINE_SEPARATOR.length();
-      }
-    }
-
-    return result;
-  }
-
   @Nullable
-  private static TypeAndResultLineBounds tryJustPlusAndSpace(@NotNull final String[] lines) {
-    if (lines.length == 2 && lines[1].equals(PLUS_AND_SPACE)) {
+  private TypeAndResultLineBounds tryJustPlusAndSpace(@NotNull final CharSequence output, final int lineCount) {
+    if (lineCount == 2 &&
+        getLineEnd(output, 1) - getLineBegin(1) == PLUS_AND_SPACE.length() &&
+        isSubsequence(PLUS_AND_SPACE, output, getLineBegin(1))) {
       return new TypeAndResultLineBounds(PLUS, 1, 1);
     }
     else {
@@ -213,8 +313,8 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryJustBrowseAndSpace(@NotNull final String[] lines) {
-    if (lines.length == 2 && justBrowseAndSpace(lines[1])) {
+  private TypeAndResultLineBounds tryJustBrowseAndSpace(@NotNull final CharSequence output, final int lineCount) {
+    if (lineCount == 2 && justBrowseAndSpace(output, getLineBegin(1), getLineEnd(output, 1))) {
       return new TypeAndResultLineBounds(EMPTY, 1, 1);
     }
     else {
@@ -222,13 +322,35 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
     }
   }
 
-  private static boolean endsBrowseAndSpace(@NotNull final String[] lines) {
-    return lines.length > 1 && justBrowseAndSpace(lines[lines.length - 1]);
+  private boolean endsBrowseAndSpace(@NotNull final CharSequence output, final int lineCount) {
+    return lineCount > 1 && justBrowseAndSpace(output, getLineBegin(lineCount - 1), getLineEnd(output, lineCount - 1));
+  }
+
+  @Nullable
+  private TypeAndResultLineBounds tryBreakpointHook(final int lineCount) {
+    if (myBreakpointHookLine == -1 || myBreakpointHookLine >= lineCount - 1) {
+      return null;
+    }
+
+    // result could be located before hook line,
+    // "exiting from ..." lines of finished frames are not a part of it
+
+    int resultBegin = 1;
+
+    for (int k = 0; k < myExitingFromLines.size(); k++) {
+      final int line = myExitingFromLines.get(k);
+
+      if (line < myBreakpointHookLine) {
+        resultBegin = line + 1;
+      }
+    }
+
+    return new TypeAndResultLineBounds(BREAKPOINT_HOOK, resultBegin, myBreakpointHookLine);
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryDebugging(@NotNull final String[] lines) {
-    if (lines.length > 1 && lines[1].startsWith(DEBUGGING_IN_PREFIX)) {
+  private TypeAndResultLineBounds tryDebugging(@NotNull final CharSequence output) {
+    if (isSubsequence(DEBUGGING_IN_PREFIX, output, getLineBegin(1))) {
       return new TypeAndResultLineBounds(TheRExecutionResultType.DEBUGGING_IN, 1, 1);
     }
     else {
@@ -237,25 +359,31 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryContinueTrace(@NotNull final String[] lines) {
+  private TypeAndResultLineBounds tryContinueTrace(final int lineCount) {
     final int endOffset = -2; // "debugging in..." line and "debug: {..." line
 
-    for (int i = 1; i < lines.length + endOffset - 1; i++) {
-      if (lines[i].startsWith(EXITING_FROM_PREFIX)) {
-        for (int j = i + 1; j < lines.length; j++) {
-          if (lines[j].startsWith(DEBUGGING_IN_PREFIX)) {
-            if (i == 1) {
-              // result could be located inside trace information between "exiting from ..." and "debugging in..." lines
-              return new TypeAndResultLineBounds(CONTINUE_TRACE, i + 1, j);
-            }
-            else {
-              // result could be located before trace information
-              return new TypeAndResultLineBounds(CONTINUE_TRACE, 1, i);
-            }
-          }
-        }
+    if (myExitingFromLines.isEmpty()) {
+      return null;
+    }
 
-        return null;
+    final int i = myExitingFromLines.get(0);
+
+    if (i >= lineCount + endOffset - 1) {
+      return null;
+    }
+
+    for (int k = 0; k < myDebuggingInLines.size(); k++) {
+      final int j = myDebuggingInLines.get(k);
+
+      if (j > i) {
+        if (i == 1) {
+          // result could be located inside trace information between "exiting from ..." and "debugging in..." lines
+          return new TypeAndResultLineBounds(CONTINUE_TRACE, i + 1, j);
+        }
+        else {
+          // result could be located before trace information
+          return new TypeAndResultLineBounds(CONTINUE_TRACE, 1, i);
+        }
       }
     }
 
@@ -263,37 +391,33 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryExitingFrom(@NotNull final String[] lines) {
-    final List<Integer> exitingFromIndices = new ArrayList<Integer>();
-
-    for (int i = 1; i < lines.length - 1; i++) {
-      if (lines[i].startsWith(EXITING_FROM_PREFIX)) {
-        exitingFromIndices.add(i);
-      }
-    }
-
-    if (exitingFromIndices.isEmpty()) {
+  private TypeAndResultLineBounds tryExitingFrom(final int lineCount) {
+    if (myExitingFromLines.isEmpty()) {
       return null;
     }
 
-    final TheRExecutionResultType type = (exitingFromIndices.size() == 1) ? TheRExecutionResultType.EXITING_FROM : RECURSIVE_EXITING_FROM;
+    final TheRExecutionResultType type =
+      (myExitingFromLines.size() == 1) ? TheRExecutionResultType.EXITING_FROM : RECURSIVE_EXITING_FROM;
 
-    final Integer firstExitingFrom = exitingFromIndices.get(0);
-    final Integer lastExitingFrom = exitingFromIndices.get(exitingFromIndices.size() - 1);
+    final int firstExitingFrom = myExitingFromLines.get(0);
+    final int lastExitingFrom = myExitingFromLines.get(myExitingFromLines.size() - 1);
 
     if (firstExitingFrom == 1) {
       // result could be located between "exiting from ..." lines
       // or between last "exiting from ..." and "debug at #..." lines
       // or just after last "exiting from ..." line if there is no "debug at #..." line
 
-      final Pair<Integer, Integer> resultBetweenExitingFrom = findResultBetweenExitingFrom(exitingFromIndices);
+      for (int k = 1; k < myExitingFromLines.size(); k++) {
+        final int current = myExitingFromLines.get(k - 1);
+        final int next = myExitingFromLines.get(k);
 
-      if (resultBetweenExitingFrom != null) {
-        return new TypeAndResultLineBounds(type, resultBetweenExitingFrom.first, resultBetweenExitingFrom.second);
+        if (next - current > 1) {
+          return new TypeAndResultLineBounds(type, current + 1, next);
+        }
       }
 
       final int resultLineBegin = lastExitingFrom + 1;
-      final int resultLineEnd = findDebugAt(lines, resultLineBegin);
+      final int resultLineEnd = findCalledFrom(findDebugAt(lineCount, resultLineBegin), resultLineBegin);
 
       return new TypeAndResultLineBounds(type, resultLineBegin, resultLineEnd);
     }
@@ -304,10 +428,21 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryDebugAt(@NotNull final String[] lines) {
-    if (lines.length > 2) {
-      final int debugAtLine = findDebugAt(lines, 0);
-      final boolean debugAtExists = debugAtLine < lines.length - 1;
+  private TypeAndResultLineBounds tryDebuggingAfterOutput() {
+    // finished function or loop could print output before the call of the debugged function
+
+    if (myDebuggingInLines.isEmpty()) {
+      return null;
+    }
+
+    return new TypeAndResultLineBounds(DEBUGGING_IN_AFTER_OUTPUT, 1, myDebuggingInLines.get(0));
+  }
+
+  @Nullable
+  private TypeAndResultLineBounds tryDebugAt(final int lineCount) {
+    if (lineCount > 2) {
+      final int debugAtLine = findDebugAt(lineCount, 0);
+      final boolean debugAtExists = debugAtLine < lineCount - 1;
 
       if (debugAtExists) {
         return new TypeAndResultLineBounds(TheRExecutionResultType.DEBUG_AT, 1, debugAtLine);
@@ -322,15 +457,15 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryStartTrace(@NotNull final String[] lines) {
-    if (START_TRACE_PATTERN.matcher(lines[1]).find()) {
+  private TypeAndResultLineBounds tryStartTrace(@NotNull final CharSequence output, final int lineCount) {
+    if (START_TRACE_PATTERN.matcher(output.subSequence(getLineBegin(1), getLineEnd(output, 1))).find()) {
       final int unbraceFunctionStartTraceLength = 1 // previous command
                                                   + 1 // "Tracing on ... entry"
                                                   + 1 // "[1] \"...\""
                                                   + 1 // "debug: ..,"
                                                   + 1; // invitation for the next command
 
-      if (lines.length == unbraceFunctionStartTraceLength) {
+      if (lineCount == unbraceFunctionStartTraceLength) {
         return new TypeAndResultLineBounds(START_TRACE_UNBRACE, 1, 1);
       }
       else {
@@ -342,9 +477,9 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
   }
 
   @Nullable
-  private static TypeAndResultLineBounds tryUnbraceDebugAt(@NotNull final String[] lines) {
-    if (lines.length > 2 && lines[lines.length - 2].startsWith(DEBUG_AT_PREFIX)) {
-      return new TypeAndResultLineBounds(TheRExecutionResultType.DEBUG_AT, 1, lines.length - 2);
+  private TypeAndResultLineBounds tryUnbraceDebugAt(@NotNull final CharSequence output, final int lineCount) {
+    if (lineCount > 2 && isSubsequence(DEBUG_AT_PREFIX, output, getLineBegin(lineCount - 2))) {
+      return new TypeAndResultLineBounds(TheRExecutionResultType.DEBUG_AT, 1, lineCount - 2);
     }
     else {
       return null;
@@ -365,37 +500,41 @@ public class TheRExecutionResultCalculatorImpl implements TheRExecutionResultCal
     return -1;
   }
 
-  private static boolean justBrowseAndSpace(@NotNull final String line) {
-    return line.startsWith(BROWSE_PREFIX) &&
-           line.endsWith(BROWSE_SUFFIX) &&
-           isDigits(line, BROWSE_PREFIX.length(), line.length() - BROWSE_SUFFIX.length() - 1);
+  private static boolean justBrowseAndSpace(@NotNull final CharSequence output, final int lineBegin, final int lineEnd) {
+    return lineEnd - lineBegin >= BROWSE_PREFIX.length() + BROWSE_SUFFIX.length() &&
+           isSubsequence(BROWSE_PREFIX, output, lineBegin) &&
+           isSubsequence(BROWSE_SUFFIX, output, lineEnd - BROWSE_SUFFIX.length()) &&
+           isDigits(output, lineBegin + BROWSE_PREFIX.length(), lineEnd - BROWSE_SUFFIX.length() - 1);
   }
 
-  @Nullable
-  private static Pair<Integer, Integer> findResultBetweenExitingFrom(@NotNull final List<Integer> exitingFromIndices) {
-    final ListIterator<Integer> curIterator = exitingFromIndices.listIterator();
-    final ListIterator<Integer> nextIterator = exitingFromIndices.listIterator(1);
+  private int findDebugAt(final int lineCount, final int index) {
+    if (index >= lineCount - 1) {
+      return index;
+    }
 
-    while (curIterator.hasNext() && nextIterator.hasNext()) {
-      final Integer current = curIterator.next();
-      final Integer next = nextIterator.next();
+    for (int k = 0; k < myDebugAtLines.size(); k++) {
+      final int line = myDebugAtLines.get(k);
 
-      if (next - current > 1) {
-        return Pair.create(current + 1, next);
+      if (line >= index && line < lineCount - 1) {
+        return line;
       }
     }
 
-    return null;
+    return lineCount - 1;
   }
 
-  private static int findDebugAt(@NotNull final String[] lines, final int index) {
-    int result = index;
+  private int findCalledFrom(final int resultLineEnd, final int index) {
+    // browser started by the exit of the hooked frame prints its call before the prompt
 
-    while (result < lines.length - 1 && !lines[result].startsWith(DEBUG_AT_LINE_PREFIX)) {
-      result++;
+    for (int k = 0; k < myCalledFromLines.size(); k++) {
+      final int line = myCalledFromLines.get(k);
+
+      if (line >= index && line < resultLineEnd) {
+        return line;
+      }
     }
 
-    return result;
+    return resultLineEnd;
   }
 
   private static boolean isDigits(@NotNull final CharSequence sequence, final int beginIndex, final int endIndex) { // [l..r]
@@ -4,11 +4,14 @@ public enum TheRExecutionResultType {
   PLUS,
   EMPTY,
   DEBUGGING_IN,
+  DEBUGGING_IN_AFTER_OUTPUT,
   DEBUG_AT,
   START_TRACE_BRACE,
   START_TRACE_UNBRACE,
   CONTINUE_TRACE,
   EXITING_FROM,
   RECURSIVE_EXITING_FROM,
-  RESPONSE
+  RESPONSE,
+  INTERRUPTED,
+  BREAKPOINT_HOOK
 }
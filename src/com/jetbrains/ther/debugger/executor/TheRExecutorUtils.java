@@ -1,10 +1,13 @@
 package com.jetbrains.ther.debugger.executor;
 
+import com.intellij.openapi.util.TextRange;
 import com.jetbrains.ther.debugger.TheROutputReceiver;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
 import com.jetbrains.ther.debugger.exception.TheRUnexpectedExecutionResultTypeException;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.*;
+
 import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.appendError;
 
 public final class TheRExecutorUtils {
@@ -13,15 +16,7 @@ public final class TheRExecutorUtils {
   public static TheRExecutionResult execute(@NotNull final TheRExecutor executor,
                                             @NotNull final String command,
                                             @NotNull final TheRExecutionResultType expectedType) throws TheRDebuggerException {
-    final TheRExecutionResult result = executor.execute(command);
-
-    if (result.getType() != expectedType) {
-      throw new TheRUnexpectedExecutionResultTypeException(
-        "Actual type is not the same as expected: [actual: " + result.getType() + ", expected: " + expectedType + "]"
-      );
-    }
-
-    return result;
+    return checkType(executor.execute(command), expectedType);
   }
 
   @NotNull
@@ -46,4 +41,118 @@ public final class TheRExecutorUtils {
 
     return result;
   }
+
+  @NotNull
+  public static TheRExecutionResult interrupted(@NotNull final TheRExecutionResult result) {
+    // output printed before the interruption is kept as result
+
+    return new TheRExecutionResult(
+      result.getOutput(),
+      TheRExecutionResultType.INTERRUPTED,
+      TextRange.allOf(result.getOutput()),
+      result.getError()
+    );
+  }
+
+  @NotNull
+  public static Future<TheRExecutionResult> submit(@NotNull final TheRExecutor executor,
+                                                   @NotNull final String command) throws TheRDebuggerException {
+    // synchronous executors complete command immediately, so submission order is kept anyway
+
+    if (executor instanceof TheRAsyncExecutor) {
+      return ((TheRAsyncExecutor)executor).submit(command);
+    }
+    else {
+      return completed(executor.execute(command));
+    }
+  }
+
+  @NotNull
+  public static Future<TheRExecutionResult> completed(@NotNull final TheRExecutionResult result) {
+    final FutureTask<TheRExecutionResult> future = new FutureTask<TheRExecutionResult>(
+      new Callable<TheRExecutionResult>() {
+        @Override
+        public TheRExecutionResult call() {
+          return result;
+        }
+      }
+    );
+
+    future.run();
+
+    return future;
+  }
+
+  @NotNull
+  public static TheRExecutionResult get(@NotNull final Future<TheRExecutionResult> future) throws TheRDebuggerException {
+    try {
+      return future.get();
+    }
+    catch (final InterruptedException e) {
+      throw new TheRDebuggerException(e);
+    }
+    catch (final ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  @NotNull
+  public static TheRExecutionResult get(@NotNull final Future<TheRExecutionResult> future, final long timeoutMillis)
+    throws TheRDebuggerException {
+    // command is cancelled if it hasn't been completed in time, so R is interrupted if it is still executing the command
+
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    catch (final TimeoutException e) {
+      future.cancel(true);
+
+      throw new TheRDebuggerException("Command hasn't been completed in " + timeoutMillis + " ms");
+    }
+    catch (final InterruptedException e) {
+      throw new TheRDebuggerException(e);
+    }
+    catch (final ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  @NotNull
+  public static TheRExecutionResult get(@NotNull final Future<TheRExecutionResult> future,
+                                        @NotNull final TheRExecutionResultType expectedType) throws TheRDebuggerException {
+    return checkType(get(future), expectedType);
+  }
+
+  @NotNull
+  public static String get(@NotNull final Future<TheRExecutionResult> future,
+                           @NotNull final TheRExecutionResultType expectedType,
+                           @NotNull final TheROutputReceiver receiver) throws TheRDebuggerException {
+    final TheRExecutionResult result = get(future, expectedType);
+
+    appendError(result, receiver);
+
+    return result.getOutput();
+  }
+
+  @NotNull
+  private static TheRDebuggerException unwrap(@NotNull final ExecutionException e) {
+    if (e.getCause() instanceof TheRDebuggerException) {
+      return (TheRDebuggerException)e.getCause();
+    }
+
+    return new TheRDebuggerException(e);
+  }
+
+  @NotNull
+  private static TheRExecutionResult checkType(@NotNull final TheRExecutionResult result,
+                                               @NotNull final TheRExecutionResultType expectedType)
+    throws TheRUnexpectedExecutionResultTypeException {
+    if (result.getType() != expectedType) {
+      throw new TheRUnexpectedExecutionResultTypeException(
+        "Actual type is not the same as expected: [actual: " + result.getType() + ", expected: " + expectedType + "]"
+      );
+    }
+
+    return result;
+  }
 }
@@ -0,0 +1,218 @@
+package com.jetbrains.ther.debugger.executor;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.TextRange;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.get;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.interrupted;
+
+public class TheRRecordingExecutor implements TheRAsyncExecutor {
+
+  // transcript consists of entries, every entry is a header line
+  // `<type> <result start> <result end> <nanos> <command length> <output length> <error length>`
+  // followed by command, output and error without separators and `\n`,
+  // lengths are used instead of escaping, so R output is stored as is.
+  // Submitted commands are written in the submission order as soon as all previous ones are completed,
+  // so time of pipelined command includes waiting for the previous ones,
+  // cancelled command is written as interrupted since its result is dropped.
+  // Temp files (copied script, data frame chunks) have random names, so their paths are replaced with placeholder
+
+  @NotNull
+  private static final Logger LOGGER = Logger.getInstance(TheRRecordingExecutor.class);
+
+  @NotNull
+  private static final TheRExecutionResult CANCELLED_RESULT = interrupted(
+    new TheRExecutionResult("", TheRExecutionResultType.EMPTY, TextRange.EMPTY_RANGE, "")
+  );
+
+  @NotNull
+  private static final Pattern TEMP_FILE_PATTERN = Pattern.compile("[^\"']*/ther\\d+\\.(r|bin)(?=[\"'])");
+
+  @NotNull
+  private static final String TEMP_FILE_PLACEHOLDER = "<temp>/ther.$1";
+
+  @NotNull
+  private final TheRExecutor myExecutor;
+
+  @NotNull
+  private final Writer myWriter;
+
+  @NotNull
+  private final LinkedList<Slot> mySlots;
+
+  public TheRRecordingExecutor(@NotNull final TheRExecutor executor, @NotNull final Writer writer) {
+    myExecutor = executor;
+    myWriter = writer;
+    mySlots = new LinkedList<Slot>();
+  }
+
+  @NotNull
+  @Override
+  public TheRExecutionResult execute(@NotNull final String command) throws TheRDebuggerException {
+    return get(submit(command));
+  }
+
+  @NotNull
+  @Override
+  public Future<TheRExecutionResult> submit(@NotNull final String command) throws TheRDebuggerException {
+    synchronized (mySlots) {
+      final long begin = System.nanoTime();
+      final Slot slot = new Slot(command, TheRExecutorUtils.submit(myExecutor, command), begin);
+
+      mySlots.add(slot);
+
+      try {
+        flush();
+      }
+      catch (final IOException e) {
+        throw new TheRDebuggerException(e);
+      }
+
+      return slot;
+    }
+  }
+
+  @NotNull
+  static String normalize(@NotNull final String command) {
+    return TEMP_FILE_PATTERN.matcher(command).replaceAll(TEMP_FILE_PLACEHOLDER);
+  }
+
+  public void close() throws TheRDebuggerException {
+    try {
+      synchronized (mySlots) {
+        flush();
+        myWriter.close();
+      }
+    }
+    catch (final IOException e) {
+      throw new TheRDebuggerException(e);
+    }
+  }
+
+  private void flush() throws IOException {
+    synchronized (mySlots) {
+      while (!mySlots.isEmpty() && mySlots.peek().myFuture.isDone()) {
+        final Slot slot = mySlots.poll();
+        final long nanos = System.nanoTime() - slot.myBeginNanos;
+
+        if (slot.myFuture.isCancelled()) {
+          write(slot.myCommand, CANCELLED_RESULT, nanos);
+          continue;
+        }
+
+        try {
+          write(slot.myCommand, get(slot.myFuture), nanos);
+        }
+        catch (final TheRDebuggerException ignored) {
+          // failed command has no result, it happens only if process has been terminated
+        }
+      }
+    }
+  }
+
+  private void write(@NotNull final String rawCommand, @NotNull final TheRExecutionResult result, final long nanos) throws IOException {
+    final String command = normalize(rawCommand);
+
+    myWriter.write(result.getType().name());
+    myWriter.write(' ');
+    myWriter.write(Integer.toString(result.getResultRange().getStartOffset()));
+    myWriter.write(' ');
+    myWriter.write(Integer.toString(result.getResultRange().getEndOffset()));
+    myWriter.write(' ');
+    myWriter.write(Long.toString(nanos));
+    myWriter.write(' ');
+    myWriter.write(Integer.toString(command.length()));
+    myWriter.write(' ');
+    myWriter.write(Integer.toString(result.getOutput().length()));
+    myWriter.write(' ');
+    myWriter.write(Integer.toString(result.getError().length()));
+    myWriter.write('\n');
+
+    myWriter.write(command);
+    myWriter.write(result.getOutput());
+    myWriter.write(result.getError());
+    myWriter.write('\n');
+
+    myWriter.flush();
+  }
+
+  private class Slot implements Future<TheRExecutionResult> {
+
+    @NotNull
+    private final String myCommand;
+
+    @NotNull
+    private final Future<TheRExecutionResult> myFuture;
+
+    private final long myBeginNanos;
+
+    public Slot(@NotNull final String command, @NotNull final Future<TheRExecutionResult> future, final long beginNanos) {
+      myCommand = command;
+      myFuture = future;
+      myBeginNanos = beginNanos;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      final boolean result = myFuture.cancel(mayInterruptIfRunning);
+
+      try {
+        flush();
+      }
+      catch (final IOException e) {
+        LOGGER.warn(e);
+      }
+
+      return result;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return myFuture.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+      return myFuture.isDone();
+    }
+
+    @Override
+    public TheRExecutionResult get() throws InterruptedException, ExecutionException {
+      final TheRExecutionResult result = myFuture.get();
+
+      flushOrFail();
+
+      return result;
+    }
+
+    @Override
+    public TheRExecutionResult get(final long timeout, @NotNull final TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+      final TheRExecutionResult result = myFuture.get(timeout, unit);
+
+      flushOrFail();
+
+      return result;
+    }
+
+    private void flushOrFail() throws ExecutionException {
+      try {
+        flush();
+      }
+      catch (final IOException e) {
+        throw new ExecutionException(new TheRDebuggerException(e));
+      }
+    }
+  }
+}
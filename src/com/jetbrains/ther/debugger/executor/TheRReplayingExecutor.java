@@ -0,0 +1,161 @@
+package com.jetbrains.ther.debugger.executor;
+
+import com.intellij.openapi.util.TextRange;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+public class TheRReplayingExecutor implements TheRExecutor {
+
+  // replays transcript written by `TheRRecordingExecutor`, commands should be executed in the recorded order,
+  // temp file paths are compared as placeholders since they are different on every run
+
+  @NotNull
+  private final Queue<Entry> myEntries;
+
+  private final boolean myRealTime;
+
+  private int myCounter;
+
+  public TheRReplayingExecutor(@NotNull final Reader reader, final boolean realTime) throws TheRDebuggerException {
+    myEntries = readEntries(new BufferedReader(reader));
+    myRealTime = realTime;
+    myCounter = 0;
+  }
+
+  @NotNull
+  @Override
+  public TheRExecutionResult execute(@NotNull final String command) throws TheRDebuggerException {
+    final Entry entry = myEntries.poll();
+
+    if (entry == null) {
+      throw new TheRDebuggerException("Transcript is over [command: " + command + "]");
+    }
+
+    if (!entry.myCommand.equals(TheRRecordingExecutor.normalize(command))) {
+      throw new TheRDebuggerException(
+        "Command is not the same as recorded: [actual: " + command + ", expected: " + entry.myCommand + ", index: " + myCounter + "]"
+      );
+    }
+
+    myCounter++;
+
+    if (myRealTime) {
+      sleep(entry.myNanos);
+    }
+
+    return entry.myResult;
+  }
+
+  public boolean isOver() {
+    return myEntries.isEmpty();
+  }
+
+  @NotNull
+  private static Queue<Entry> readEntries(@NotNull final BufferedReader reader) throws TheRDebuggerException {
+    final Queue<Entry> result = new LinkedList<Entry>();
+
+    try {
+      try {
+        Entry entry;
+
+        while ((entry = readEntry(reader)) != null) {
+          result.add(entry);
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (final IOException e) {
+      throw new TheRDebuggerException(e);
+    }
+
+    return result;
+  }
+
+  @Nullable
+  private static Entry readEntry(@NotNull final BufferedReader reader) throws IOException, TheRDebuggerException {
+    final String header = reader.readLine();
+
+    if (header == null) {
+      return null;
+    }
+
+    final String[] fields = header.split(" ");
+
+    if (fields.length != 7) {
+      throw new TheRDebuggerException("Invalid transcript entry header [header: " + header + "]");
+    }
+
+    try {
+      final TheRExecutionResultType type = TheRExecutionResultType.valueOf(fields[0]);
+      final TextRange resultRange = new TextRange(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+      final long nanos = Long.parseLong(fields[3]);
+
+      final String command = read(reader, Integer.parseInt(fields[4]));
+      final String output = read(reader, Integer.parseInt(fields[5]));
+      final String error = read(reader, Integer.parseInt(fields[6]));
+
+      if (reader.read() != '\n') {
+        throw new TheRDebuggerException("Invalid transcript entry end [command: " + command + "]");
+      }
+
+      return new Entry(command, new TheRExecutionResult(output, type, resultRange, error), nanos);
+    }
+    catch (final IllegalArgumentException e) {
+      throw new TheRDebuggerException(e);
+    }
+  }
+
+  @NotNull
+  private static String read(@NotNull final Reader reader, final int length) throws IOException, TheRDebuggerException {
+    final char[] buffer = new char[length];
+    int offset = 0;
+
+    while (offset < length) {
+      final int read = reader.read(buffer, offset, length - offset);
+
+      if (read == -1) {
+        throw new TheRDebuggerException("Unexpected end of transcript");
+      }
+
+      offset += read;
+    }
+
+    return new String(buffer);
+  }
+
+  private static void sleep(final long nanos) throws TheRDebuggerException {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+    catch (final InterruptedException e) {
+      throw new TheRDebuggerException(e);
+    }
+  }
+
+  private static class Entry {
+
+    @NotNull
+    private final String myCommand;
+
+    @NotNull
+    private final TheRExecutionResult myResult;
+
+    private final long myNanos;
+
+    public Entry(@NotNull final String command, @NotNull final TheRExecutionResult result, final long nanos) {
+      myCommand = command;
+      myResult = result;
+      myNanos = nanos;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.jetbrains.ther.debugger.TheROutputReceiver;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.findCurrentLineEnd;
+import static com.jetbrains.ther.debugger.TheRDebuggerUtils.calculateRepresentation;
+import static com.jetbrains.ther.debugger.TheRDebuggerUtils.loadValueCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.loadVarsCommand;
+import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.LINE_SEPARATOR;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
+import static com.jetbrains.ther.debugger.frame.TheRVarsLoaderUtils.loadOutput;
+
+class TheRBatchVarsLoaderImpl implements TheRVarsLoader {
+
+  @NotNull
+  private static final String VAR_SEPARATOR = LINE_SEPARATOR + VAR_PREFIX;
+
+  @NotNull
+  private final TheRExecutor myExecutor;
+
+  @NotNull
+  private final TheROutputReceiver myReceiver;
+
+  @NotNull
+  private final TheRValueModifier myModifier;
+
+  private final int myFrameNumber;
+
+  public TheRBatchVarsLoaderImpl(@NotNull final TheRExecutor executor,
+                                 @NotNull final TheROutputReceiver receiver,
+                                 @NotNull final TheRValueModifier modifier,
+                                 final int frameNumber) {
+    myExecutor = executor;
+    myReceiver = receiver;
+    myModifier = modifier;
+    myFrameNumber = frameNumber;
+  }
+
+  @NotNull
+  @Override
+  public List<TheRVar> load() throws TheRDebuggerException {
+    return calculateVars(loadOutput(myExecutor, myReceiver, loadVarsCommand(myFrameNumber)));
+  }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var) throws TheRDebuggerException {
+    return loadOutput(myExecutor, myReceiver, loadValueCommand(myFrameNumber, var));
+  }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var, final int from, final int to) throws TheRDebuggerException {
+    return loadOutput(myExecutor, myReceiver, loadValueCommand(myFrameNumber, var, from, to));
+  }
+
+  @NotNull
+  @Override
+  public TheRDataFrameLoader getDataFrameLoader(@NotNull final String var) {
+    return new TheRDataFrameLoaderImpl(myExecutor, myReceiver, myFrameNumber, var);
+  }
+
+  @NotNull
+  private List<TheRVar> calculateVars(@NotNull final String output) {
+    final List<TheRVar> result = new ArrayList<TheRVar>();
+
+    int index = output.startsWith(VAR_PREFIX) ? 0 : skipSeparator(output, findNextVar(output, 0));
+
+    while (index < output.length()) {
+      final int nameEnd = findCurrentLineEnd(output, index);
+      final int typeBegin = Math.min(nameEnd + LINE_SEPARATOR.length(), output.length());
+      final int typeEnd = findCurrentLineEnd(output, typeBegin);
+      final int valueEnd = findNextVar(output, typeEnd);
+      final int valueBegin = Math.min(typeEnd + LINE_SEPARATOR.length(), valueEnd);
+
+      final String name = output.substring(index + VAR_PREFIX.length(), nameEnd);
+      final String type = output.substring(typeBegin, typeEnd);
+
+      final boolean isDataFrame = output.startsWith(DATA_FRAME_SUMMARY_PREFIX, valueBegin);
+
+      if (isDataFrame || output.startsWith(SUMMARY_PREFIX, valueBegin)) {
+        final int lengthBegin = valueBegin + (isDataFrame ? DATA_FRAME_SUMMARY_PREFIX : SUMMARY_PREFIX).length();
+        final int lengthEnd = findCurrentLineEnd(output, valueBegin);
+        final int summaryBegin = Math.min(lengthEnd + LINE_SEPARATOR.length(), valueEnd);
+
+        final int length = parseLength(output.substring(lengthBegin, lengthEnd));
+
+        if (length == -1) {
+          result.add(new TheRVar(name, type, output.substring(summaryBegin, valueEnd), myModifier));
+        }
+        else {
+          result.add(
+            new TheRVar(
+              name,
+              type,
+              output.substring(summaryBegin, valueEnd),
+              myModifier,
+              length,
+              isDataFrame
+            )
+          );
+        }
+      }
+      else {
+        result.add(
+          new TheRVar(
+            name,
+            type,
+            calculateRepresentation(type, output.substring(valueBegin, valueEnd)),
+            myModifier
+          )
+        );
+      }
+
+      index = skipSeparator(output, valueEnd);
+    }
+
+    return result;
+  }
+
+  private static int parseLength(@NotNull final String length) {
+    // long vectors are limited to the pages which could be addressed,
+    // unparseable length makes the summary a complete value without pages
+
+    try {
+      return (int)Math.min(Long.parseLong(length.trim()), Integer.MAX_VALUE);
+    }
+    catch (final NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static int findNextVar(@NotNull final String output, final int index) {
+    final int result = output.indexOf(VAR_SEPARATOR, index);
+
+    return result == -1 ? output.length() : result;
+  }
+
+  private static int skipSeparator(@NotNull final String output, final int separatorIndex) {
+    return separatorIndex == output.length() ? separatorIndex : separatorIndex + LINE_SEPARATOR.length();
+  }
+}
@@ -0,0 +1,34 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.jetbrains.ther.debugger.TheRSuspensionCache;
+import org.jetbrains.annotations.NotNull;
+
+public class TheRCachingValueModifier implements TheRValueModifier {
+
+  @NotNull
+  private final TheRValueModifier myModifier;
+
+  @NotNull
+  private final TheRSuspensionCache myCache;
+
+  public TheRCachingValueModifier(@NotNull final TheRValueModifier modifier, @NotNull final TheRSuspensionCache cache) {
+    myModifier = modifier;
+    myCache = cache;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return myModifier.isEnabled();
+  }
+
+  @Override
+  public void setValue(@NotNull final String name, @NotNull final String value, @NotNull final Listener listener) {
+    // assignment could be partially executed even if it has failed, so cache is invalidated anyway
+    try {
+      myModifier.setValue(name, value, listener);
+    }
+    finally {
+      myCache.invalidate();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.jetbrains.ther.debugger.TheRSuspensionCache;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TheRCachingVarsLoader implements TheRVarsLoader {
+
+  @NotNull
+  private final TheRVarsLoader myLoader;
+
+  @NotNull
+  private final TheRSuspensionCache myCache;
+
+  private final int myFrameNumber;
+
+  public TheRCachingVarsLoader(@NotNull final TheRVarsLoader loader, @NotNull final TheRSuspensionCache cache, final int frameNumber) {
+    myLoader = loader;
+    myCache = cache;
+    myFrameNumber = frameNumber;
+  }
+
+  @NotNull
+  @Override
+  public List<TheRVar> load() throws TheRDebuggerException {
+    final List<TheRVar> cached = myCache.getVars(myFrameNumber);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    final List<TheRVar> result = Collections.unmodifiableList(myLoader.load());
+
+    myCache.putVars(myFrameNumber, result);
+
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var) throws TheRDebuggerException {
+    final String cached = myCache.getValue(myFrameNumber, var);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    final String result = myLoader.loadValue(var);
+
+    myCache.putValue(myFrameNumber, var, result);
+
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var, final int from, final int to) throws TheRDebuggerException {
+    final String page = var + "[" + from + ":" + to + "]";
+    final String cached = myCache.getValue(myFrameNumber, page);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    final String result = myLoader.loadValue(var, from, to);
+
+    myCache.putValue(myFrameNumber, page, result);
+
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public TheRDataFrameLoader getDataFrameLoader(@NotNull final String var) {
+    // data frame viewer keeps loaded chunks by itself
+    return myLoader.getDataFrameLoader(var);
+  }
+}
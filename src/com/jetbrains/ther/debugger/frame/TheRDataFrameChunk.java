@@ -0,0 +1,86 @@
+package com.jetbrains.ther.debugger.frame;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public class TheRDataFrameChunk {
+
+  // R marks NA in double vectors by NaN with 1954 in the lower word
+  private static final long NA_DOUBLE_LOWER_WORD = 1954;
+
+  @NotNull
+  private final List<TheRDataFrameColumn> myColumns;
+
+  // every buffer is `double[]`, `int[]` or `String[]` depending on the column type
+  @NotNull
+  private final Object[] myBuffers;
+
+  private final int myFrom;
+
+  private final int mySize;
+
+  public TheRDataFrameChunk(@NotNull final List<TheRDataFrameColumn> columns,
+                            @NotNull final Object[] buffers,
+                            final int from,
+                            final int size) {
+    myColumns = columns;
+    myBuffers = buffers;
+    myFrom = from;
+    mySize = size;
+  }
+
+  public int getFrom() {
+    return myFrom;
+  }
+
+  public int getSize() {
+    return mySize;
+  }
+
+  public boolean contains(final int row) {
+    return row >= myFrom && row < myFrom + mySize;
+  }
+
+  @NotNull
+  public String getValue(final int row, final int column) {
+    final int index = row - myFrom;
+    final TheRDataFrameColumn dataFrameColumn = myColumns.get(column);
+
+    switch (dataFrameColumn.getType()) {
+      case DOUBLE:
+        return toString(((double[])myBuffers[column])[index]);
+      case INTEGER:
+        final int integer = ((int[])myBuffers[column])[index];
+
+        return integer == Integer.MIN_VALUE ? "NA" : Integer.toString(integer);
+      case LOGICAL:
+        final int logical = ((int[])myBuffers[column])[index];
+
+        return logical == Integer.MIN_VALUE ? "NA" : logical == 0 ? "FALSE" : "TRUE";
+      case FACTOR:
+        final int code = ((int[])myBuffers[column])[index];
+
+        return code == Integer.MIN_VALUE ? "NA" : dataFrameColumn.getLevels().get(code - 1);
+      default:
+        return ((String[])myBuffers[column])[index];
+    }
+  }
+
+  @NotNull
+  private static String toString(final double value) {
+    if (Double.isNaN(value)) {
+      return (Double.doubleToRawLongBits(value) & 0xFFFFFFFFL) == NA_DOUBLE_LOWER_WORD ? "NA" : "NaN";
+    }
+
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "Inf" : "-Inf";
+    }
+
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long)value);
+    }
+
+    return Double.toString(value);
+  }
+}
@@ -0,0 +1,48 @@
+package com.jetbrains.ther.debugger.frame;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public class TheRDataFrameColumn {
+
+  @NotNull
+  private final String myName;
+
+  @NotNull
+  private final Type myType;
+
+  @NotNull
+  private final List<String> myLevels;
+
+  public TheRDataFrameColumn(@NotNull final String name, @NotNull final Type type, @NotNull final List<String> levels) {
+    myName = name;
+    myType = type;
+    myLevels = levels;
+  }
+
+  @NotNull
+  public String getName() {
+    return myName;
+  }
+
+  @NotNull
+  public Type getType() {
+    return myType;
+  }
+
+  @NotNull
+  public List<String> getLevels() {
+    return myLevels;
+  }
+
+  public enum Type {
+    // order is the same as codes written by `TheRCommands.dataFrameInfoCommand`
+
+    DOUBLE, INTEGER, LOGICAL, FACTOR, CHARACTER, OTHER;
+
+    public boolean isString() {
+      return this == CHARACTER || this == OTHER;
+    }
+  }
+}
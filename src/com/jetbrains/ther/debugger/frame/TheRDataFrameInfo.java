@@ -0,0 +1,27 @@
+package com.jetbrains.ther.debugger.frame;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public class TheRDataFrameInfo {
+
+  private final int myRowCount;
+
+  @NotNull
+  private final List<TheRDataFrameColumn> myColumns;
+
+  public TheRDataFrameInfo(final int rowCount, @NotNull final List<TheRDataFrameColumn> columns) {
+    myRowCount = rowCount;
+    myColumns = columns;
+  }
+
+  public int getRowCount() {
+    return myRowCount;
+  }
+
+  @NotNull
+  public List<TheRDataFrameColumn> getColumns() {
+    return myColumns;
+  }
+}
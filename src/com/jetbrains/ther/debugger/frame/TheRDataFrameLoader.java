@@ -0,0 +1,21 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public interface TheRDataFrameLoader {
+
+  @NotNull
+  TheRDataFrameInfo loadInfo() throws TheRDebuggerException;
+
+  // `from` is inclusive, `to` is exclusive, both are 0-based
+  @NotNull
+  TheRDataFrameChunk loadChunk(@NotNull final TheRDataFrameInfo info, final int from, final int to) throws TheRDebuggerException;
+
+  // chunks start at `froms` and contain `size` rows or less at the end, they are requested without waiting for each other
+  @NotNull
+  List<TheRDataFrameChunk> loadChunks(@NotNull final TheRDataFrameInfo info, @NotNull final List<Integer> froms, final int size)
+    throws TheRDebuggerException;
+}
@@ -0,0 +1,258 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.jetbrains.ther.debugger.TheROutputReceiver;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static com.jetbrains.ther.debugger.TheRDebuggerUtils.calculateValueCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.dataFrameChunkCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.dataFrameInfoCommand;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.EMPTY;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.*;
+
+class TheRDataFrameLoaderImpl implements TheRDataFrameLoader {
+
+  // R writes data frame to the file using `writeBin` since console output is text only
+
+  @NotNull
+  private static final Logger LOGGER = Logger.getInstance(TheRDataFrameLoaderImpl.class);
+
+  @NotNull
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @NotNull
+  private final TheRExecutor myExecutor;
+
+  @NotNull
+  private final TheROutputReceiver myReceiver;
+
+  private final int myFrameNumber;
+
+  @NotNull
+  private final String myVar;
+
+  public TheRDataFrameLoaderImpl(@NotNull final TheRExecutor executor,
+                                 @NotNull final TheROutputReceiver receiver,
+                                 final int frameNumber,
+                                 @NotNull final String var) {
+    myExecutor = executor;
+    myReceiver = receiver;
+    myFrameNumber = frameNumber;
+    myVar = var;
+  }
+
+  @NotNull
+  @Override
+  public TheRDataFrameInfo loadInfo() throws TheRDebuggerException {
+    final File file = createFile();
+
+    try {
+      final ByteBuffer buffer = load(dataFrameInfoCommand(calculateValueCommand(myFrameNumber, myVar), calculatePath(file)), file);
+
+      final int rowCount = buffer.getInt();
+      final int columnCount = buffer.getInt();
+
+      final List<TheRDataFrameColumn> columns = new ArrayList<TheRDataFrameColumn>(columnCount);
+
+      for (int i = 0; i < columnCount; i++) {
+        columns.add(readColumn(buffer));
+      }
+
+      return new TheRDataFrameInfo(rowCount, columns);
+    }
+    catch (final BufferUnderflowException e) {
+      throw new TheRDebuggerException(e);
+    }
+    finally {
+      deleteFile(file);
+    }
+  }
+
+  @NotNull
+  @Override
+  public TheRDataFrameChunk loadChunk(@NotNull final TheRDataFrameInfo info, final int from, final int to) throws TheRDebuggerException {
+    return loadChunks(info, Collections.singletonList(from), Collections.singletonList(to)).get(0);
+  }
+
+  @NotNull
+  @Override
+  public List<TheRDataFrameChunk> loadChunks(@NotNull final TheRDataFrameInfo info,
+                                             @NotNull final List<Integer> froms,
+                                             final int size) throws TheRDebuggerException {
+    final List<Integer> tos = new ArrayList<Integer>(froms.size());
+
+    for (final int from : froms) {
+      tos.add(Math.min(from + size, info.getRowCount()));
+    }
+
+    return loadChunks(info, froms, tos);
+  }
+
+  @NotNull
+  private List<TheRDataFrameChunk> loadChunks(@NotNull final TheRDataFrameInfo info,
+                                              @NotNull final List<Integer> froms,
+                                              @NotNull final List<Integer> tos) throws TheRDebuggerException {
+    final String value = calculateValueCommand(myFrameNumber, myVar);
+    final List<File> files = new ArrayList<File>(froms.size());
+
+    try {
+      final List<Future<TheRExecutionResult>> futures = new ArrayList<Future<TheRExecutionResult>>(froms.size());
+
+      for (int i = 0; i < froms.size(); i++) {
+        final File file = createFile();
+        files.add(file);
+
+        futures.add(submit(myExecutor, dataFrameChunkCommand(value, calculatePath(file), froms.get(i) + 1, tos.get(i))));
+      }
+
+      final List<TheRDataFrameChunk> result = new ArrayList<TheRDataFrameChunk>(froms.size());
+
+      for (int i = 0; i < froms.size(); i++) {
+        get(futures.get(i), EMPTY, myReceiver);
+
+        result.add(readChunk(info, loadFile(files.get(i)), froms.get(i), tos.get(i)));
+      }
+
+      return result;
+    }
+    catch (final BufferUnderflowException e) {
+      throw new TheRDebuggerException(e);
+    }
+    finally {
+      for (final File file : files) {
+        deleteFile(file);
+      }
+    }
+  }
+
+  @NotNull
+  private ByteBuffer load(@NotNull final String command, @NotNull final File file) throws TheRDebuggerException {
+    execute(myExecutor, command, EMPTY, myReceiver);
+
+    return loadFile(file);
+  }
+
+  @NotNull
+  private static ByteBuffer loadFile(@NotNull final File file) throws TheRDebuggerException {
+    try {
+      return ByteBuffer.wrap(FileUtil.loadFileBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    catch (final IOException e) {
+      throw new TheRDebuggerException(e);
+    }
+  }
+
+  @NotNull
+  private static TheRDataFrameChunk readChunk(@NotNull final TheRDataFrameInfo info,
+                                              @NotNull final ByteBuffer buffer,
+                                              final int from,
+                                              final int to) {
+    final List<TheRDataFrameColumn> columns = info.getColumns();
+    final Object[] buffers = new Object[columns.size()];
+    final int size = to - from;
+
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = readBuffer(buffer, columns.get(i).getType(), size);
+    }
+
+    return new TheRDataFrameChunk(columns, buffers, from, size);
+  }
+
+  @NotNull
+  private static File createFile() throws TheRDebuggerException {
+    try {
+      return File.createTempFile("ther", ".bin");
+    }
+    catch (final IOException e) {
+      throw new TheRDebuggerException(e);
+    }
+  }
+
+  @NotNull
+  private static String calculatePath(@NotNull final File file) {
+    return FileUtil.toSystemIndependentName(file.getAbsolutePath());
+  }
+
+  private static void deleteFile(@NotNull final File file) {
+    if (!file.delete()) {
+      LOGGER.warn("Data frame file couldn't be deleted [path: " + file.getAbsolutePath() + "]");
+    }
+  }
+
+  @NotNull
+  private static TheRDataFrameColumn readColumn(@NotNull final ByteBuffer buffer) {
+    final String name = readString(buffer);
+    final TheRDataFrameColumn.Type type = TheRDataFrameColumn.Type.values()[buffer.getInt()];
+
+    if (type != TheRDataFrameColumn.Type.FACTOR) {
+      return new TheRDataFrameColumn(name, type, Collections.<String>emptyList());
+    }
+
+    final int levelCount = buffer.getInt();
+    final List<String> levels = new ArrayList<String>(levelCount);
+
+    for (int i = 0; i < levelCount; i++) {
+      levels.add(readString(buffer));
+    }
+
+    return new TheRDataFrameColumn(name, type, levels);
+  }
+
+  @NotNull
+  private static Object readBuffer(@NotNull final ByteBuffer buffer, @NotNull final TheRDataFrameColumn.Type type, final int size) {
+    if (type == TheRDataFrameColumn.Type.DOUBLE) {
+      final double[] result = new double[size];
+      buffer.asDoubleBuffer().get(result);
+      buffer.position(buffer.position() + size * 8);
+
+      return result;
+    }
+
+    if (type.isString()) {
+      final String[] result = new String[size];
+
+      for (int i = 0; i < size; i++) {
+        result[i] = readString(buffer);
+      }
+
+      return result;
+    }
+
+    final int[] result = new int[size];
+    buffer.asIntBuffer().get(result);
+    buffer.position(buffer.position() + size * 4);
+
+    return result;
+  }
+
+  @NotNull
+  private static String readString(@NotNull final ByteBuffer buffer) {
+    // `writeBin` terminates every string with zero byte
+
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+    byte current;
+
+    while ((current = buffer.get()) != 0) {
+      result.write(current);
+    }
+
+    return new String(result.toByteArray(), UTF_8);
+  }
+}
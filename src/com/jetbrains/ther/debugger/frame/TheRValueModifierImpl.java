@@ -9,12 +9,16 @@ import com.jetbrains.ther.debugger.executor.TheRExecutor;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerFactory;
 import org.jetbrains.annotations.NotNull;
 
+import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.appendResult;
 import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
 import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
 
 class TheRValueModifierImpl implements TheRValueModifier {
 
+  @NotNull
+  private static final String INTERRUPTED_ERROR = "Modification has been interrupted";
+
   @NotNull
   private final TheRExecutor myExecutor;
 
@@ -75,6 +79,10 @@ class TheRValueModifierImpl implements TheRValueModifier {
 
         return;
       case DEBUGGING_IN:
+      case DEBUGGING_IN_AFTER_OUTPUT:
+        // value could print output before the call of the debugged function
+        appendResult(result, myReceiver);
+
         TheRDebuggerUtils.forciblyEvaluateFunction(myExecutor, myFactory, myReceiver);
 
         listener.onSuccess();
@@ -85,6 +93,12 @@ class TheRValueModifierImpl implements TheRValueModifier {
 
         listener.onSuccess();
 
+        return;
+      case INTERRUPTED:
+        appendResult(result, myReceiver);
+
+        listener.onError(INTERRUPTED_ERROR);
+
         return;
       default:
         throw new TheRUnexpectedExecutionResultTypeException(
@@ -92,7 +106,7 @@ class TheRValueModifierImpl implements TheRValueModifier {
           "[" +
           "actual: " + result.getType() + ", " +
           "expected: " +
-          "[" + DEBUGGING_IN + ", " + EMPTY + ", " + DEBUG_AT + "]" +
+          "[" + DEBUGGING_IN + ", " + DEBUGGING_IN_AFTER_OUTPUT + ", " + EMPTY + ", " + DEBUG_AT + ", " + INTERRUPTED + "]" +
           "]"
         );
     }
@@ -16,14 +16,29 @@ public class TheRVar {
   @NotNull
   private final TheRValueModifier myModifier;
 
+  private final int myLength;
+
+  private final boolean myIsDataFrame;
+
   public TheRVar(@NotNull final String name,
                  @NotNull final String type,
                  @NotNull final String value,
                  @NotNull final TheRValueModifier modifier) {
+    this(name, type, value, modifier, -1, false);
+  }
+
+  public TheRVar(@NotNull final String name,
+                 @NotNull final String type,
+                 @NotNull final String value,
+                 @NotNull final TheRValueModifier modifier,
+                 final int length,
+                 final boolean isDataFrame) {
     myName = name;
     myType = type;
     myValue = value;
     myModifier = modifier;
+    myLength = length;
+    myIsDataFrame = isDataFrame;
   }
 
   @NotNull
@@ -45,4 +60,18 @@ public class TheRVar {
   public TheRValueModifier getModifier() {
     return myModifier;
   }
+
+  public boolean isComplete() {
+    // incomplete value is a summary of the large object, its contents could be loaded by `TheRVarsLoader`
+
+    return myLength == -1;
+  }
+
+  public int getLength() {
+    return myLength;
+  }
+
+  public boolean isDataFrame() {
+    return myIsDataFrame;
+  }
 }
@@ -9,4 +9,13 @@ public interface TheRVarsLoader {
 
   @NotNull
   List<TheRVar> load() throws TheRDebuggerException;
+
+  @NotNull
+  String loadValue(@NotNull final String var) throws TheRDebuggerException;
+
+  @NotNull
+  String loadValue(@NotNull final String var, final int from, final int to) throws TheRDebuggerException;
+
+  @NotNull
+  TheRDataFrameLoader getDataFrameLoader(@NotNull final String var);
 }
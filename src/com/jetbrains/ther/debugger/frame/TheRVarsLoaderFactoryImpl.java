@@ -12,15 +12,25 @@ public class TheRVarsLoaderFactoryImpl implements TheRVarsLoaderFactory {
   @NotNull
   private final TheROutputReceiver myReceiver;
 
-  public TheRVarsLoaderFactoryImpl(@NotNull final TheRExecutor executor, @NotNull final TheROutputReceiver receiver) {
+  private final boolean myBatch;
+
+  public TheRVarsLoaderFactoryImpl(@NotNull final TheRExecutor executor,
+                                   @NotNull final TheROutputReceiver receiver,
+                                   final boolean batch) {
     myExecutor = executor;
     myReceiver = receiver;
+    myBatch = batch;
   }
 
   @NotNull
   @Override
   public TheRVarsLoader getLoader(@NotNull final TheRValueModifier modifier,
                                   final int frameNumber) {
-    return new TheRVarsLoaderImpl(myExecutor, myReceiver, modifier, frameNumber);
+    if (myBatch) {
+      return new TheRBatchVarsLoaderImpl(myExecutor, myReceiver, modifier, frameNumber);
+    }
+    else {
+      return new TheRVarsLoaderImpl(myExecutor, myReceiver, modifier, frameNumber);
+    }
   }
 }
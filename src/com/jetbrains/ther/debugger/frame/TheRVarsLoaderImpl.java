@@ -4,7 +4,6 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.jetbrains.ther.debugger.TheRDebuggerUtils;
 import com.jetbrains.ther.debugger.TheROutputReceiver;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
-import com.jetbrains.ther.debugger.exception.TheRUnexpectedExecutionResultTypeException;
 import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
 import com.jetbrains.ther.debugger.executor.TheRExecutor;
 import org.jetbrains.annotations.NotNull;
@@ -13,14 +12,16 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Future;
 
 import static com.jetbrains.ther.debugger.TheRDebuggerUtils.calculateRepresentation;
 import static com.jetbrains.ther.debugger.TheRDebuggerUtils.calculateValueCommand;
+import static com.jetbrains.ther.debugger.TheRDebuggerUtils.loadValueCommand;
 import static com.jetbrains.ther.debugger.data.TheRCommands.*;
 import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.FUNCTION_TYPE;
-import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.DEBUG_AT;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.RESPONSE;
-import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.*;
+import static com.jetbrains.ther.debugger.frame.TheRVarsLoaderUtils.loadOutput;
 
 // TODO [dbg][upd_test]
 class TheRVarsLoaderImpl implements TheRVarsLoader {
@@ -69,6 +70,24 @@ class TheRVarsLoaderImpl implements TheRVarsLoader {
     return vars;
   }
 
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var) throws TheRDebuggerException {
+    return loadOutput(myExecutor, myReceiver, loadValueCommand(myFrameNumber, var));
+  }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var, final int from, final int to) throws TheRDebuggerException {
+    return loadOutput(myExecutor, myReceiver, loadValueCommand(myFrameNumber, var, from, to));
+  }
+
+  @NotNull
+  @Override
+  public TheRDataFrameLoader getDataFrameLoader(@NotNull final String var) {
+    return new TheRDataFrameLoaderImpl(myExecutor, myReceiver, myFrameNumber, var);
+  }
+
   @NotNull
   private List<String> calculateVariableNames(@NotNull final String text) {
     final List<String> result = new ArrayList<String>();
@@ -88,21 +107,29 @@ class TheRVarsLoaderImpl implements TheRVarsLoader {
 
   @Nullable
   private TheRVar loadVar(@NotNull final String var) throws TheRDebuggerException {
-    final String type = execute(
-      myExecutor,
-      typeOfCommand(expressionOnFrameCommand(myFrameNumber, var)),
-      RESPONSE,
-      myReceiver
-    );
+    // `typeof` doesn't call debugged functions, so value is requested without waiting for the type,
+    // value of service function isn't loaded at all
+
+    final Future<TheRExecutionResult> type = submit(myExecutor, typeOfCommand(expressionOnFrameCommand(myFrameNumber, var)));
+    final Future<TheRExecutionResult> value = TheRDebuggerUtils.isServiceName(var)
+                                              ? null
+                                              : submit(myExecutor, calculateValueCommand(myFrameNumber, var));
 
-    if (type.equals(FUNCTION_TYPE) && TheRDebuggerUtils.isServiceName(var)) {
+    final String typeOutput = get(type, RESPONSE, myReceiver);
+
+    if (typeOutput.equals(FUNCTION_TYPE) && value == null) {
       return null;
     }
 
     return new TheRVar(
       var,
-      type,
-      loadValue(var, type),
+      typeOutput,
+      calculateRepresentation(
+        typeOutput,
+        value == null
+        ? loadOutput(myExecutor, myReceiver, calculateValueCommand(myFrameNumber, var))
+        : loadOutput(myExecutor, myReceiver, get(value))
+      ),
       myModifier
     );
   }
@@ -118,37 +145,4 @@ class TheRVarsLoaderImpl implements TheRVarsLoader {
       return null;
     }
   }
-
-  @NotNull
-  private String loadValue(@NotNull final String var,
-                           @NotNull final String type) throws TheRDebuggerException {
-    final TheRExecutionResult result = execute(myExecutor, calculateValueCommand(myFrameNumber, var), myReceiver);
-
-    switch (result.getType()) {
-      case RESPONSE:
-        return calculateRepresentation(
-          type,
-          result.getOutput()
-        );
-      case DEBUG_AT:
-        return calculateRepresentation(
-          type,
-          execute(
-            myExecutor,
-            EXECUTE_AND_STEP_COMMAND,
-            RESPONSE,
-            myReceiver
-          )
-        );
-      default:
-        throw new TheRUnexpectedExecutionResultTypeException(
-          "Actual type is not the same as expected: " +
-          "[" +
-          "actual: " + result.getType() + ", " +
-          "expected: " +
-          "[" + RESPONSE + ", " + DEBUG_AT + "]" +
-          "]"
-        );
-    }
-  }
 }
@@ -0,0 +1,57 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.jetbrains.ther.debugger.TheROutputReceiver;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.exception.TheRInterruptedException;
+import com.jetbrains.ther.debugger.exception.TheRUnexpectedExecutionResultTypeException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.appendError;
+import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
+
+final class TheRVarsLoaderUtils {
+
+  @NotNull
+  private static final String INTERRUPTED_ERROR = "Loading has been interrupted";
+
+  @NotNull
+  public static String loadOutput(@NotNull final TheRExecutor executor,
+                                  @NotNull final TheROutputReceiver receiver,
+                                  @NotNull final String command) throws TheRDebuggerException {
+    return loadOutput(executor, receiver, executor.execute(command));
+  }
+
+  @NotNull
+  public static String loadOutput(@NotNull final TheRExecutor executor,
+                                  @NotNull final TheROutputReceiver receiver,
+                                  @NotNull final TheRExecutionResult result) throws TheRDebuggerException {
+    appendError(result, receiver);
+
+    switch (result.getType()) {
+      case RESPONSE:
+        return result.getOutput();
+      case DEBUG_AT:
+        return execute(
+          executor,
+          EXECUTE_AND_STEP_COMMAND,
+          RESPONSE,
+          receiver
+        );
+      case INTERRUPTED:
+        throw new TheRInterruptedException(INTERRUPTED_ERROR);
+      default:
+        throw new TheRUnexpectedExecutionResultTypeException(
+          "Actual type is not the same as expected: " +
+          "[" +
+          "actual: " + result.getType() + ", " +
+          "expected: " +
+          "[" + RESPONSE + ", " + DEBUG_AT + ", " + INTERRUPTED + "]" +
+          "]"
+        );
+    }
+  }
+}
@@ -15,8 +15,19 @@ class TheRBraceFunctionDebugger extends TheRFunctionDebuggerBase {
                                    @NotNull final TheRFunctionDebuggerFactory debuggerFactory,
                                    @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
                                    @NotNull final TheROutputReceiver outputReceiver,
-                                   @NotNull final String functionName) throws TheRDebuggerException {
-    super(executor, debuggerFactory, debuggerHandler, outputReceiver, functionName);
+                                   @NotNull final String functionName,
+                                   final int frameNumber) throws TheRDebuggerException {
+    super(executor, debuggerFactory, debuggerHandler, outputReceiver, functionName, frameNumber);
+  }
+
+  public TheRBraceFunctionDebugger(@NotNull final TheRExecutor executor,
+                                   @NotNull final TheRFunctionDebuggerFactory debuggerFactory,
+                                   @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                   @NotNull final TheROutputReceiver outputReceiver,
+                                   @NotNull final String functionName,
+                                   final int frameNumber,
+                                   final int lineNumber) {
+    super(executor, debuggerFactory, debuggerHandler, outputReceiver, functionName, frameNumber, lineNumber);
   }
 
   @Override
@@ -9,10 +9,19 @@ public interface TheRFunctionDebugger {
   @NotNull
   TheRLocation getLocation();
 
+  // -1 if R hasn't reported the frame number on entry
+  int getFrameNumber();
+
   boolean hasNext();
 
   void advance() throws TheRDebuggerException;
 
+  // executes the rest of the current loop or function without stepping, debugged calls are still entered
+  void finish() throws TheRDebuggerException;
+
+  // executes the script without stepping until the next armed breakpoint hook or the end of the function
+  void resume() throws TheRDebuggerException;
+
   @NotNull
   String getResult();
 }
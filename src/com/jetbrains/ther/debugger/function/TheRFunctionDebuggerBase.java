@@ -6,6 +6,7 @@ import com.jetbrains.ther.debugger.TheROutputReceiver;
 import com.jetbrains.ther.debugger.data.TheRFunctionConstants;
 import com.jetbrains.ther.debugger.data.TheRLocation;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.exception.TheRInterruptedException;
 import com.jetbrains.ther.debugger.exception.TheRRuntimeException;
 import com.jetbrains.ther.debugger.exception.TheRUnexpectedExecutionResultTypeException;
 import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
@@ -14,9 +15,12 @@ import com.jetbrains.ther.debugger.executor.TheRExecutor;
 import org.jetbrains.annotations.NotNull;
 
 import static com.jetbrains.ther.debugger.TheRDebuggerStringUtils.*;
+import static com.jetbrains.ther.debugger.data.TheRCommands.CONTINUE_COMMAND;
 import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.FINISH_COMMAND;
 import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.FOR_LOOP_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.WHILE_LOOP_PREFIX;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.BREAKPOINT_HOOK_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.DEBUG_AT_LINE_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.EXITING_FROM_PREFIX;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
@@ -26,6 +30,9 @@ import static com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtils.traceA
 // TODO [dbg][upd_test]
 abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
 
+  @NotNull
+  private static final String HOOK_CALL_PREFIX = TheRFunctionConstants.HOOK_FUNCTION_NAME + "(";
+
   @NotNull
   private final TheRExecutor myExecutor;
 
@@ -41,6 +48,8 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
   @NotNull
   private final String myFunctionName;
 
+  private final int myFrameNumber;
+
   private int myCurrentLineNumber;
 
   @NotNull
@@ -50,12 +59,14 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
                                   @NotNull final TheRFunctionDebuggerFactory debuggerFactory,
                                   @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
                                   @NotNull final TheROutputReceiver outputReceiver,
-                                  @NotNull final String functionName) throws TheRDebuggerException {
+                                  @NotNull final String functionName,
+                                  final int frameNumber) throws TheRDebuggerException {
     myExecutor = executor;
     myDebuggerFactory = debuggerFactory;
     myDebuggerHandler = debuggerHandler;
     myOutputReceiver = outputReceiver;
     myFunctionName = functionName;
+    myFrameNumber = frameNumber;
 
     myCurrentLineNumber = initCurrentLine();
     traceAndDebugFunctions(myExecutor, myOutputReceiver);
@@ -63,12 +74,38 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
     myResult = "";
   }
 
+  protected TheRFunctionDebuggerBase(@NotNull final TheRExecutor executor,
+                                     @NotNull final TheRFunctionDebuggerFactory debuggerFactory,
+                                     @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                     @NotNull final TheROutputReceiver outputReceiver,
+                                     @NotNull final String functionName,
+                                     final int frameNumber,
+                                     final int lineNumber) {
+    // R is already stopped at the line, closures are instrumented when debugger restores them after the stop
+
+    myExecutor = executor;
+    myDebuggerFactory = debuggerFactory;
+    myDebuggerHandler = debuggerHandler;
+    myOutputReceiver = outputReceiver;
+    myFunctionName = functionName;
+    myFrameNumber = frameNumber;
+
+    myCurrentLineNumber = lineNumber;
+
+    myResult = "";
+  }
+
   @NotNull
   @Override
   public TheRLocation getLocation() {
     return new TheRLocation(myFunctionName, myCurrentLineNumber);
   }
 
+  @Override
+  public int getFrameNumber() {
+    return myFrameNumber;
+  }
+
   @Override
   public boolean hasNext() {
     return myCurrentLineNumber != -1;
@@ -80,44 +117,25 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
       throw new IllegalStateException("Advance could be called only if hasNext returns true");
     }
 
-    final TheRExecutionResult result = myExecutor.execute(EXECUTE_AND_STEP_COMMAND);
+    handleResult(myExecutor.execute(EXECUTE_AND_STEP_COMMAND));
+  }
 
-    switch (result.getType()) {
-      case CONTINUE_TRACE:
-        handleContinueTrace(result);
-        break;
-      case DEBUG_AT:
-        handleDebugAt(result);
-        break;
-      case DEBUGGING_IN:
-        handleDebuggingIn(result);
-        break;
-      case EMPTY:
-        handleEmpty(result);
-        break;
-      case EXITING_FROM:
-        handleEndTrace(result);
-        break;
-      case RECURSIVE_EXITING_FROM:
-        handleRecursiveEndTrace(result);
-        break;
-      default:
-        throw new TheRUnexpectedExecutionResultTypeException(
-          "Actual type is not the same as expected: " +
-          "[" +
-          "actual: " + result.getType() + ", " +
-          "expected: " +
-          "[" +
-          CONTINUE_TRACE + ", " +
-          DEBUG_AT + ", " +
-          DEBUGGING_IN + ", " +
-          EMPTY + ", " +
-          TheRExecutionResultType.EXITING_FROM + ", " +
-          RECURSIVE_EXITING_FROM +
-          "]" +
-          "]"
-        );
+  @Override
+  public void finish() throws TheRDebuggerException {
+    if (!hasNext()) {
+      throw new IllegalStateException("Finish could be called only if hasNext returns true");
     }
+
+    handleResult(myExecutor.execute(FINISH_COMMAND));
+  }
+
+  @Override
+  public void resume() throws TheRDebuggerException {
+    if (!hasNext()) {
+      throw new IllegalStateException("Resume could be called only if hasNext returns true");
+    }
+
+    handleResult(myExecutor.execute(CONTINUE_COMMAND));
   }
 
   @NotNull
@@ -205,6 +223,12 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
     );
   }
 
+  protected void handleDebuggingInAfterOutput(@NotNull final TheRExecutionResult result) throws TheRDebuggerException {
+    appendResult(result, myOutputReceiver);
+
+    handleDebuggingIn(result);
+  }
+
   protected void handleRecursiveEndTrace(@NotNull final TheRExecutionResult result) throws TheRDebuggerException {
     final RecursiveEndTraceData data = calculateRecursiveEndTraceData(result);
 
@@ -223,6 +247,93 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
     throw new TheRRuntimeException(result.getError());
   }
 
+  protected void handleInterrupted(@NotNull final TheRExecutionResult result) throws TheRDebuggerException {
+    // R has returned to some browser prompt, the caller should find out which one
+    appendResult(result, myOutputReceiver);
+    appendError(result, myOutputReceiver);
+
+    throw new TheRInterruptedException("Execution has been interrupted");
+  }
+
+  protected void handleBreakpointHook(@NotNull final TheRExecutionResult result) throws TheRDebuggerException {
+    // hook line is `<prefix><frame number> <line number> <function name>`
+
+    appendResult(result, myOutputReceiver);
+    appendError(result, myOutputReceiver);
+
+    final String output = result.getOutput();
+    final int hookBegin = findNextLineAfterResult(result) + BREAKPOINT_HOOK_PREFIX.length();
+    final String[] hook = output.substring(hookBegin, findCurrentLineEnd(output, hookBegin)).split(" ", 3);
+
+    if (hook.length != 3) {
+      throw new TheRDebuggerException("Breakpoint hook output is malformed: " + output);
+    }
+
+    final int frameNumber;
+    final int lineNumber;
+
+    try {
+      frameNumber = Integer.parseInt(hook[0]);
+      lineNumber = Integer.parseInt(hook[1]);
+    }
+    catch (final NumberFormatException e) {
+      throw new TheRDebuggerException(e);
+    }
+
+    myDebuggerHandler.onBreakpointHook(hook[2], frameNumber, lineNumber);
+  }
+
+  private void handleResult(@NotNull final TheRExecutionResult result) throws TheRDebuggerException {
+    switch (result.getType()) {
+      case CONTINUE_TRACE:
+        handleContinueTrace(result);
+        break;
+      case DEBUG_AT:
+        handleDebugAt(result);
+        break;
+      case DEBUGGING_IN:
+        handleDebuggingIn(result);
+        break;
+      case DEBUGGING_IN_AFTER_OUTPUT:
+        handleDebuggingInAfterOutput(result);
+        break;
+      case EMPTY:
+        handleEmpty(result);
+        break;
+      case EXITING_FROM:
+        handleEndTrace(result);
+        break;
+      case RECURSIVE_EXITING_FROM:
+        handleRecursiveEndTrace(result);
+        break;
+      case INTERRUPTED:
+        handleInterrupted(result);
+        break;
+      case BREAKPOINT_HOOK:
+        handleBreakpointHook(result);
+        break;
+      default:
+        throw new TheRUnexpectedExecutionResultTypeException(
+          "Actual type is not the same as expected: " +
+          "[" +
+          "actual: " + result.getType() + ", " +
+          "expected: " +
+          "[" +
+          CONTINUE_TRACE + ", " +
+          DEBUG_AT + ", " +
+          DEBUGGING_IN + ", " +
+          DEBUGGING_IN_AFTER_OUTPUT + ", " +
+          EMPTY + ", " +
+          TheRExecutionResultType.EXITING_FROM + ", " +
+          RECURSIVE_EXITING_FROM + ", " +
+          INTERRUPTED + ", " +
+          BREAKPOINT_HOOK +
+          "]" +
+          "]"
+        );
+    }
+  }
+
   private int extractLineNumber(@NotNull final String output, final int debugAtIndex) {
     final int lineNumberBegin = debugAtIndex + DEBUG_AT_LINE_PREFIX.length();
     final int lineNumberEnd = output.indexOf(':', lineNumberBegin + 1);
@@ -244,7 +355,9 @@ abstract class TheRFunctionDebuggerBase implements TheRFunctionDebugger {
 
   private boolean isBraceLoopEntrance(@NotNull final String output, final int debugAtIndex) {
     final int lineNumberBegin = debugAtIndex + DEBUG_AT_LINE_PREFIX.length();
-    final int loopEntranceBegin = output.indexOf(':', lineNumberBegin + 1) + 2;
+    final int statementBegin = output.indexOf(':', lineNumberBegin + 1) + 2;
+    final int loopEntranceBegin =
+      output.startsWith(HOOK_CALL_PREFIX, statementBegin) ? statementBegin + HOOK_CALL_PREFIX.length() : statementBegin; // hooked statement
     final int lines = StringUtil.countNewLines(output.substring(loopEntranceBegin));
 
     return lines > 1 && (
@@ -11,4 +11,13 @@ public interface TheRFunctionDebuggerFactory {
   TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
                                            @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
                                            @NotNull final TheROutputReceiver outputReceiver) throws TheRDebuggerException;
+
+  // debugger of the function which has been stopped by the breakpoint hook, R has already reported its frame and line
+  @NotNull
+  TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
+                                           @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                           @NotNull final TheROutputReceiver outputReceiver,
+                                           @NotNull final String functionName,
+                                           final int frameNumber,
+                                           final int lineNumber);
 }
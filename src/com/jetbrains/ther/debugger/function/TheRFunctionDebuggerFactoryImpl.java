@@ -17,6 +17,9 @@ import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
 
 public class TheRFunctionDebuggerFactoryImpl implements TheRFunctionDebuggerFactory {
 
+  @NotNull
+  private static final String ENTER_SEPARATOR = "\" \"";
+
   @NotNull
   @Override
   public TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
@@ -34,7 +37,8 @@ public class TheRFunctionDebuggerFactoryImpl implements TheRFunctionDebuggerFact
           this,
           debuggerHandler,
           outputReceiver,
-          extractFunctionName(startTraceResult.getOutput())
+          extractFunctionName(startTraceResult.getOutput()),
+          extractFrameNumber(startTraceResult.getOutput())
         );
 
       case START_TRACE_UNBRACE:
@@ -43,7 +47,8 @@ public class TheRFunctionDebuggerFactoryImpl implements TheRFunctionDebuggerFact
           this,
           debuggerHandler,
           outputReceiver,
-          extractFunctionName(startTraceResult.getOutput())
+          extractFunctionName(startTraceResult.getOutput()),
+          extractFrameNumber(startTraceResult.getOutput())
         );
       default:
         throw new TheRUnexpectedExecutionResultTypeException(
@@ -58,7 +63,29 @@ public class TheRFunctionDebuggerFactoryImpl implements TheRFunctionDebuggerFact
   }
 
   @NotNull
-  private static String extractFunctionName(@NotNull final String startTraceText) {
+  @Override
+  public TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
+                                                  @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                                  @NotNull final TheROutputReceiver outputReceiver,
+                                                  @NotNull final String functionName,
+                                                  final int frameNumber,
+                                                  final int lineNumber) {
+    // hooks are placed only into braces, so the function is always a brace one
+    return new TheRBraceFunctionDebugger(
+      executor,
+      this,
+      debuggerHandler,
+      outputReceiver,
+      functionName,
+      frameNumber,
+      lineNumber
+    );
+  }
+
+  @NotNull
+  private static String extractEnterLine(@NotNull final String startTraceText) {
+    // second line is printed by the enter function: `[1] "name" "frame number"`
+
     final int secondLineBegin = findNextLineBegin(startTraceText, 0);
     final int secondLineEnd = findCurrentLineEnd(startTraceText, secondLineBegin);
 
@@ -67,4 +94,28 @@ public class TheRFunctionDebuggerFactoryImpl implements TheRFunctionDebuggerFact
       secondLineEnd - "\"".length()
     );
   }
+
+  @NotNull
+  private static String extractFunctionName(@NotNull final String startTraceText) {
+    final String enterLine = extractEnterLine(startTraceText);
+    final int separator = enterLine.lastIndexOf(ENTER_SEPARATOR);
+
+    return separator == -1 ? enterLine : enterLine.substring(0, separator);
+  }
+
+  private static int extractFrameNumber(@NotNull final String startTraceText) {
+    final String enterLine = extractEnterLine(startTraceText);
+    final int separator = enterLine.lastIndexOf(ENTER_SEPARATOR);
+
+    if (separator == -1) {
+      return -1;
+    }
+
+    try {
+      return Integer.parseInt(enterLine.substring(separator + ENTER_SEPARATOR.length()));
+    }
+    catch (final NumberFormatException e) {
+      return -1;
+    }
+  }
 }
@@ -10,4 +10,7 @@ public interface TheRFunctionDebuggerHandler {
   void setReturnLineNumber(final int lineNumber);
 
   void setDropFrames(final int number);
+
+  // armed hook has stopped R at the line of the function which is executed in the frame with the given number
+  void onBreakpointHook(@NotNull final String functionName, final int frameNumber, final int lineNumber) throws TheRDebuggerException;
 }
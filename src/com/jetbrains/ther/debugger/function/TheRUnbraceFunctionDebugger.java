@@ -13,8 +13,9 @@ class TheRUnbraceFunctionDebugger extends TheRFunctionDebuggerBase {
                                      @NotNull final TheRFunctionDebuggerFactory debuggerFactory,
                                      @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
                                      @NotNull final TheROutputReceiver outputReceiver,
-                                     @NotNull final String functionName) throws TheRDebuggerException {
-    super(executor, debuggerFactory, debuggerHandler, outputReceiver, functionName);
+                                     @NotNull final String functionName,
+                                     final int frameNumber) throws TheRDebuggerException {
+    super(executor, debuggerFactory, debuggerHandler, outputReceiver, functionName, frameNumber);
   }
 
   @Override
@@ -3,7 +3,6 @@ package com.jetbrains.ther.documentation;
 import com.intellij.lang.documentation.AbstractDocumentationProvider;
 import com.intellij.psi.PsiElement;
 import com.jetbrains.ther.TheRHelp;
-import com.jetbrains.ther.TheRPsiUtils;
 import com.jetbrains.ther.psi.api.TheRFunctionExpression;
 import org.jetbrains.annotations.Nullable;
 
@@ -22,12 +21,12 @@ public class TheRDocumentationProvider extends AbstractDocumentationProvider {
         break;
       }
     }
-    final String helpText = TheRPsiUtils.getHelpForFunction(element, null);
-    if (helpText == null) {
+    final TheRHelp help = TheRHelpCache.getInstance().getHelp(element);
+    if (help == null) {
       return null;
     }
     else {
-      return TheRDocumentationUtils.getFormattedString(new TheRHelp(helpText));
+      return TheRDocumentationUtils.getFormattedString(help);
     }
   }
 }
@@ -0,0 +1,310 @@
+package com.jetbrains.ther.documentation;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.jetbrains.ther.TheRHelp;
+import com.jetbrains.ther.TheRPsiUtils;
+import com.jetbrains.ther.TheRUtils;
+import com.jetbrains.ther.interpreter.TheRInterpreterService;
+import com.jetbrains.ther.interpreter.TheRSkeletonGenerator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Help texts are taken from {@link TheRHelpStore} if it has been built,
+ * otherwise they are stored on disk in files named by the hash of (interpreter path, package, package version, topic).
+ * Recently used parsed helps are also kept in memory.
+ * Both levels are bounded and evict least recently used entries.
+ * Package versions are read from DESCRIPTION once and kept until {@link #invalidatePackageVersions()}.
+ */
+public class TheRHelpCache {
+  private static final Logger LOG = Logger.getInstance(TheRHelpCache.class.getName());
+
+  private static final String CACHE_DIR_NAME = "r_help_cache";
+
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+
+  private static final int MEMORY_CAPACITY = 512;
+
+  private static final long DISK_CAPACITY = 32 * 1024 * 1024;
+
+  private static final TheRHelp NO_HELP = new TheRHelp("");
+
+  @NotNull
+  private final File myDir;
+
+  @NotNull
+  private final Map<String, TheRHelp> myHelps;
+
+  @NotNull
+  private final Map<String, Set<String>> myLibraryPaths;
+
+  @NotNull
+  private final Map<String, String> myPackageVersions;
+
+  private long myDiskSize = -1;
+
+  public static TheRHelpCache getInstance() {
+    return ServiceManager.getService(TheRHelpCache.class);
+  }
+
+  public TheRHelpCache() {
+    this(new File(PathManager.getSystemPath(), CACHE_DIR_NAME));
+  }
+
+  public TheRHelpCache(@NotNull final File dir) {
+    myDir = dir;
+    myHelps = new LinkedHashMap<String, TheRHelp>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, TheRHelp> eldest) {
+        return size() > MEMORY_CAPACITY;
+      }
+    };
+    myLibraryPaths = new HashMap<String, Set<String>>();
+    myPackageVersions = new HashMap<String, String>();
+  }
+
+  @Nullable
+  public TheRHelp getHelp(@NotNull final PsiElement element) {
+    return getHelp(TheRPsiUtils.getHelpTopic(element), getPackageName(element));
+  }
+
+  /**
+   * Package name is a part of the key and help is looked up in that package,
+   * otherwise help is looked up in attached packages only
+   */
+  @Nullable
+  public TheRHelp getHelp(@NotNull final String topic, @Nullable final String packageName) {
+    final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
+    if (StringUtil.isEmptyOrSpaces(interpreterPath)) {
+      return null;
+    }
+
+    final String key = getKey(interpreterPath, packageName, topic);
+
+    TheRHelp help = getFromMemory(key);
+    if (help != null) {
+      return help == NO_HELP ? null : help;
+    }
+
+    final TheRHelpStore helpStore = TheRHelpStore.getInstance(interpreterPath);
+    final String storedText = helpStore == null ? null : helpStore.getHelpText(topic, packageName);
+    if (storedText != null) {
+      help = new TheRHelp(storedText);
+      putToMemory(key, help);
+      return help;
+    }
+
+    final String cachedText = getFromDisk(key);
+    if (cachedText != null) {
+      help = new TheRHelp(cachedText);
+      putToMemory(key, help);
+      return help;
+    }
+
+    final String helpText = TheRPsiUtils.getHelpForTopic(topic, packageName);
+    if (helpText == null || helpText.isEmpty()) {
+      // missing help is not stored on disk, so failed lookups are retried in the next session
+      putToMemory(key, NO_HELP);
+      return null;
+    }
+
+    help = new TheRHelp(helpText);
+    putToMemory(key, help);
+    putToDisk(key, helpText);
+    return help;
+  }
+
+  /**
+   * Should be called when packages are installed, updated or removed, so keys of their helps use new versions
+   * and topics without help are looked up again
+   */
+  public void invalidatePackageVersions() {
+    synchronized (myPackageVersions) {
+      myPackageVersions.clear();
+    }
+    removeMissingFromMemory();
+  }
+
+  /**
+   * Returns package name if element is declared in the skeleton of the package
+   */
+  @Nullable
+  public static String getPackageName(@NotNull final PsiElement element) {
+    final PsiFile file = element.getContainingFile();
+    final VirtualFile virtualFile = file == null ? null : file.getVirtualFile();
+    final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
+    if (virtualFile == null || StringUtil.isEmptyOrSpaces(interpreterPath)) {
+      return null;
+    }
+    final String skeletonsPath = FileUtil.toSystemIndependentName(TheRSkeletonGenerator.getSkeletonsPath(interpreterPath));
+    if (!FileUtil.startsWith(virtualFile.getPath(), skeletonsPath)) {
+      return null;
+    }
+    return virtualFile.getNameWithoutExtension();
+  }
+
+  @NotNull
+  private String getKey(@NotNull final String interpreterPath, @Nullable final String packageName, @NotNull final String topic) {
+    final String packageVersion = packageName == null ? "" : getPackageVersion(interpreterPath, packageName);
+    return interpreterPath + '\n' + StringUtil.notNullize(packageName) + '\n' + packageVersion + '\n' + topic;
+  }
+
+  @NotNull
+  private String getPackageVersion(@NotNull final String interpreterPath, @NotNull final String packageName) {
+    final String key = interpreterPath + '\n' + packageName;
+    synchronized (myPackageVersions) {
+      final String version = myPackageVersions.get(key);
+      if (version != null) {
+        return version;
+      }
+    }
+    final String version = loadPackageVersion(interpreterPath, packageName);
+    synchronized (myPackageVersions) {
+      myPackageVersions.put(key, version);
+    }
+    return version;
+  }
+
+  @NotNull
+  private String loadPackageVersion(@NotNull final String interpreterPath, @NotNull final String packageName) {
+    for (String libraryPath : getLibraryPaths(interpreterPath)) {
+      final File description = new File(new File(libraryPath, packageName), "DESCRIPTION");
+      if (!description.isFile()) continue;
+      try {
+        for (String line : StringUtil.splitByLines(FileUtil.loadFile(description))) {
+          if (line.startsWith("Version:")) {
+            return line.substring("Version:".length()).trim();
+          }
+        }
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+    }
+    return "";
+  }
+
+  @NotNull
+  private Set<String> getLibraryPaths(@NotNull final String interpreterPath) {
+    synchronized (myLibraryPaths) {
+      Set<String> libraryPaths = myLibraryPaths.get(interpreterPath);
+      if (libraryPaths == null) {
+        libraryPaths = TheRUtils.getLibraryPathes(interpreterPath);
+        if (!libraryPaths.isEmpty()) {
+          myLibraryPaths.put(interpreterPath, libraryPaths);
+        }
+      }
+      return libraryPaths;
+    }
+  }
+
+  @Nullable
+  private synchronized TheRHelp getFromMemory(@NotNull final String key) {
+    return myHelps.get(key);
+  }
+
+  private synchronized void putToMemory(@NotNull final String key, @NotNull final TheRHelp help) {
+    myHelps.put(key, help);
+  }
+
+  private synchronized void removeMissingFromMemory() {
+    final Iterator<TheRHelp> iterator = myHelps.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() == NO_HELP) {
+        iterator.remove();
+      }
+    }
+  }
+
+  @Nullable
+  private synchronized String getFromDisk(@NotNull final String key) {
+    // the key is stored before the help text, so hash collisions are detected
+
+    final File file = getFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      final String content = FileUtil.loadFile(file, CHARSET);
+      if (!content.startsWith(key + '\n' + '\n')) {
+        return null;
+      }
+      if (!file.setLastModified(System.currentTimeMillis())) {
+        LOG.debug("Failed to touch " + file);
+      }
+      return content.substring(key.length() + 2);
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  private synchronized void putToDisk(@NotNull final String key, @NotNull final String helpText) {
+    final File file = getFile(key);
+    final long diskSize = getDiskSize() - file.length();
+    try {
+      FileUtil.writeToFile(file, (key + '\n' + '\n' + helpText).getBytes(CHARSET));
+      myDiskSize = diskSize + file.length();
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return;
+    }
+    if (myDiskSize > DISK_CAPACITY) {
+      evictFromDisk(DISK_CAPACITY * 3 / 4);
+    }
+  }
+
+  private long getDiskSize() {
+    if (myDiskSize < 0) {
+      myDiskSize = 0;
+      for (File file : listFiles()) {
+        myDiskSize += file.length();
+      }
+    }
+    return myDiskSize;
+  }
+
+  private void evictFromDisk(final long targetSize) {
+    final List<File> files = listFiles();
+    Collections.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File o1, File o2) {
+        final long modified1 = o1.lastModified();
+        final long modified2 = o2.lastModified();
+        return modified1 < modified2 ? -1 : (modified1 == modified2 ? 0 : 1);
+      }
+    });
+    for (File file : files) {
+      if (myDiskSize <= targetSize) break;
+      final long length = file.length();
+      if (FileUtil.delete(file)) {
+        myDiskSize -= length;
+      }
+    }
+  }
+
+  @NotNull
+  private List<File> listFiles() {
+    final File[] files = myDir.listFiles();
+    return files == null ? new ArrayList<File>() : new ArrayList<File>(Arrays.asList(files));
+  }
+
+  @NotNull
+  private File getFile(@NotNull final String key) {
+    return new File(myDir, Integer.toHexString(key.hashCode()));
+  }
+}
@@ -0,0 +1,130 @@
+package com.jetbrains.ther.documentation;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManagerAdapter;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.fileEditor.TextEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.jetbrains.ther.TheRPsiUtils;
+import com.jetbrains.ther.psi.api.TheRFile;
+import com.jetbrains.ther.psi.api.TheRReferenceExpression;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Loads help for library functions visible in the selected editor, so quick documentation doesn't wait for R.
+ * Only the last selection is warmed, the previous task is cancelled or stops before its next topic.
+ */
+public class TheRHelpCacheWarmer implements StartupActivity {
+  private static final int MAX_TOPICS = 50;
+
+  @Override
+  public void runActivity(@NotNull final Project project) {
+    final Warmer warmer = new Warmer(project);
+    project.getMessageBus().connect(project).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerAdapter() {
+      @Override
+      public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        final FileEditor fileEditor = event.getNewEditor();
+        warmer.warm(fileEditor instanceof TextEditor ? ((TextEditor)fileEditor).getEditor() : null);
+      }
+    });
+  }
+
+  @NotNull
+  private static Set<Pair<String, String>> collectTopics(@NotNull final PsiFile file, @NotNull final TextRange range) {
+    // only functions from package skeletons are warmed, user functions are documented by their doc strings
+
+    final Set<Pair<String, String>> topics = new LinkedHashSet<Pair<String, String>>();
+    if (!file.isValid()) return topics;
+    for (TheRReferenceExpression reference : PsiTreeUtil.findChildrenOfType(file, TheRReferenceExpression.class)) {
+      if (!range.contains(reference.getTextRange())) continue;
+      final PsiElement target = reference.getReference().resolve();
+      if (target == null) continue;
+      final String packageName = TheRHelpCache.getPackageName(target);
+      if (packageName == null) continue;
+      topics.add(Pair.create(TheRPsiUtils.getHelpTopic(target), packageName));
+      if (topics.size() >= MAX_TOPICS) break;
+    }
+    return topics;
+  }
+
+  private static class Warmer {
+    @NotNull
+    private final Project myProject;
+
+    @Nullable
+    private Future<?> myTask;
+
+    private int mySelection;
+
+    private Warmer(@NotNull final Project project) {
+      myProject = project;
+    }
+
+    private void warm(@Nullable final Editor editor) {
+      final int selection;
+      synchronized (this) {
+        if (myTask != null) {
+          myTask.cancel(false);
+          myTask = null;
+        }
+        selection = ++mySelection;
+      }
+
+      if (editor == null) return;
+      final PsiFile file = PsiDocumentManager.getInstance(myProject).getPsiFile(editor.getDocument());
+      if (!(file instanceof TheRFile)) return;
+
+      final Rectangle area = editor.getScrollingModel().getVisibleArea();
+      final TextRange visibleRange = new TextRange(
+        editor.logicalPositionToOffset(editor.xyToLogicalPosition(area.getLocation())),
+        editor.logicalPositionToOffset(editor.xyToLogicalPosition(new Point(area.x + area.width, area.y + area.height)))
+      );
+
+      final Future<?> task = ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+        @Override
+        public void run() {
+          if (!isCurrent(selection)) return;
+          final Set<Pair<String, String>> topics = ApplicationManager.getApplication().runReadAction(
+            new Computable<Set<Pair<String, String>>>() {
+              @Override
+              public Set<Pair<String, String>> compute() {
+                return collectTopics(file, visibleRange);
+              }
+            });
+          final TheRHelpCache cache = TheRHelpCache.getInstance();
+          for (Pair<String, String> topic : topics) {
+            if (myProject.isDisposed() || !isCurrent(selection)) return;
+            cache.getHelp(topic.getFirst(), topic.getSecond());
+          }
+        }
+      });
+
+      synchronized (this) {
+        if (selection == mySelection) {
+          myTask = task;
+        }
+      }
+    }
+
+    private synchronized boolean isCurrent(final int selection) {
+      return selection == mySelection;
+    }
+  }
+}
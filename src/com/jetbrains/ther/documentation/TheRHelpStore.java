@@ -0,0 +1,345 @@
+package com.jetbrains.ther.documentation;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.jetbrains.ther.interpreter.TheRSkeletonGenerator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Help pages of all installed packages exported by r-help-export.r.
+ * The store file contains deflated pages followed by the index of topics, it is memory-mapped and only the index is loaded.
+ * Every build is written to a new file named by its build time, so the mapped file of the previous build is never replaced,
+ * previous files are deleted by the next builds once they could be deleted.
+ * The current file of every interpreter is kept in memory, so the skeletons directory is listed once per interpreter.
+ */
+public class TheRHelpStore {
+  private static final Logger LOG = Logger.getInstance(TheRHelpStore.class.getName());
+
+  public static final String R_HELP_EXPORT = "r-help-export.r";
+
+  private static final String STORE_FILE_PREFIX = "r_help.";
+
+  private static final String STORE_FILE_SUFFIX = ".store";
+
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+
+  private static final int MAGIC = 0x52484c50;
+
+  private static final int VERSION = 1;
+
+  private static final char RECORD_PREFIX = '\u0001';
+
+  private static final Map<String, TheRHelpStore> ourStores = new HashMap<String, TheRHelpStore>();
+
+  private static final Map<String, File> ourStoreFiles = new HashMap<String, File>();
+
+  @NotNull
+  private final File myFile;
+
+  @NotNull
+  private final MappedByteBuffer myBuffer;
+
+  @NotNull
+  private final Map<String, Entry> myPackageTopics;
+
+  @NotNull
+  private final Map<String, Entry> myTopics;
+
+  private TheRHelpStore(@NotNull final File file,
+                        @NotNull final MappedByteBuffer buffer,
+                        @NotNull final Map<String, Entry> packageTopics,
+                        @NotNull final Map<String, Entry> topics) {
+    myFile = file;
+    myBuffer = buffer;
+    myPackageTopics = packageTopics;
+    myTopics = topics;
+  }
+
+  /**
+   * Returns the file of the latest build or null if the store hasn't been built for the interpreter yet
+   */
+  @Nullable
+  public static synchronized File findStoreFile(@NotNull final String interpreterPath) {
+    // the directory is listed again only if the current file has been deleted from outside
+
+    final File file = ourStoreFiles.get(interpreterPath);
+    if (ourStoreFiles.containsKey(interpreterPath) && (file == null || file.isFile())) {
+      return file;
+    }
+    final File latestFile = findLatestStoreFile(interpreterPath);
+    ourStoreFiles.put(interpreterPath, latestFile);
+    return latestFile;
+  }
+
+  /**
+   * Returns null if the store hasn't been built for the interpreter yet
+   */
+  @Nullable
+  public static synchronized TheRHelpStore getInstance(@NotNull final String interpreterPath) {
+    final File file = findStoreFile(interpreterPath);
+    final TheRHelpStore store = ourStores.get(interpreterPath);
+    if (store != null && store.myFile.equals(file)) {
+      return store;
+    }
+    ourStores.remove(interpreterPath);
+    if (file == null) {
+      return null;
+    }
+    try {
+      final TheRHelpStore newStore = open(file);
+      ourStores.put(interpreterPath, newStore);
+      return newStore;
+    }
+    catch (IOException e) {
+      LOG.info("Failed to open help store " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * If packageName parameter equals null the topic is looked up in all packages
+   */
+  @Nullable
+  public String getHelpText(@NotNull final String topic, @Nullable final String packageName) {
+    final Entry entry = packageName == null ? myTopics.get(topic) : myPackageTopics.get(getKey(packageName, topic));
+    if (entry == null) {
+      return null;
+    }
+    final byte[] compressed = new byte[entry.myCompressedLength];
+    final ByteBuffer buffer = myBuffer.duplicate();
+    buffer.position(entry.myOffset);
+    buffer.get(compressed);
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      final byte[] result = new byte[entry.myLength];
+      inflater.inflate(result);
+      return new String(result, CHARSET);
+    }
+    catch (DataFormatException e) {
+      LOG.info(e);
+      return null;
+    }
+    finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Converts the output of r-help-export.r into the new store file of the interpreter,
+   * the new file becomes visible only when it is written
+   */
+  public static void build(@NotNull final File export, @NotNull final String interpreterPath) throws IOException {
+    final File store = new File(
+      TheRSkeletonGenerator.getSkeletonsPath(interpreterPath),
+      STORE_FILE_PREFIX + Math.max(System.currentTimeMillis(), getBuild(findStoreFile(interpreterPath)) + 1) + STORE_FILE_SUFFIX
+    );
+    final File tempStore = new File(store.getPath() + ".tmp");
+    write(export, tempStore);
+    FileUtil.rename(tempStore, store);
+
+    synchronized (TheRHelpStore.class) {
+      ourStoreFiles.put(interpreterPath, store);
+    }
+
+    for (File file : listStoreFiles(interpreterPath)) {
+      if (!file.equals(store) && !FileUtil.delete(file)) {
+        LOG.debug("Failed to delete previous help store " + file);
+      }
+    }
+  }
+
+  static void write(@NotNull final File export, @NotNull final File store) throws IOException {
+    final List<IndexEntry> index = new ArrayList<IndexEntry>();
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(export), CHARSET));
+    final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(store)));
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+
+      String[] header = null;
+      final StringBuilder text = new StringBuilder();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty() && line.charAt(0) == RECORD_PREFIX) {
+          writePage(output, header, text, index);
+          header = line.substring(1).split("\t");
+          text.setLength(0);
+        }
+        else if (header != null) {
+          text.append(line).append('\n');
+        }
+      }
+      writePage(output, header, text, index);
+
+      final int indexOffset = output.size();
+      output.writeInt(index.size());
+      for (IndexEntry entry : index) {
+        output.writeUTF(entry.myPackageName);
+        output.writeUTF(entry.myTopic);
+        output.writeInt(entry.myEntry.myOffset);
+        output.writeInt(entry.myEntry.myCompressedLength);
+        output.writeInt(entry.myEntry.myLength);
+      }
+      output.writeInt(indexOffset);
+    }
+    finally {
+      reader.close();
+      output.close();
+    }
+  }
+
+  @Nullable
+  private static File findLatestStoreFile(@NotNull final String interpreterPath) {
+    File result = null;
+    long resultBuild = -1;
+    for (File file : listStoreFiles(interpreterPath)) {
+      final long build = getBuild(file);
+      if (build > resultBuild) {
+        result = file;
+        resultBuild = build;
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static List<File> listStoreFiles(@NotNull final String interpreterPath) {
+    final List<File> result = new ArrayList<File>();
+    final File[] files = new File(TheRSkeletonGenerator.getSkeletonsPath(interpreterPath)).listFiles();
+    if (files == null) {
+      return result;
+    }
+    for (File file : files) {
+      if (getBuild(file) != -1) {
+        result.add(file);
+      }
+    }
+    return result;
+  }
+
+  private static long getBuild(@Nullable final File file) {
+    // store files are named `STORE_FILE_PREFIX build STORE_FILE_SUFFIX`, -1 is returned for other files
+
+    final String name = file == null ? "" : file.getName();
+    if (name.length() <= STORE_FILE_PREFIX.length() + STORE_FILE_SUFFIX.length() ||
+        !name.startsWith(STORE_FILE_PREFIX) ||
+        !name.endsWith(STORE_FILE_SUFFIX) ||
+        !file.isFile()) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(STORE_FILE_PREFIX.length(), name.length() - STORE_FILE_SUFFIX.length()));
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void writePage(@NotNull final DataOutputStream output,
+                                @Nullable final String[] header,
+                                @NotNull final StringBuilder text,
+                                @NotNull final List<IndexEntry> index) throws IOException {
+    if (header == null || header.length < 2) {
+      return;
+    }
+    final byte[] bytes = text.toString().getBytes(CHARSET);
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    final DeflaterOutputStream deflater = new DeflaterOutputStream(compressed);
+    deflater.write(bytes);
+    deflater.close();
+
+    final Entry entry = new Entry(output.size(), compressed.size(), bytes.length);
+    compressed.writeTo(output);
+    for (int i = 1; i < header.length; i++) {
+      index.add(new IndexEntry(header[0], header[i], entry));
+    }
+  }
+
+  @NotNull
+  static TheRHelpStore open(@NotNull final File file) throws IOException {
+    final MappedByteBuffer buffer;
+    final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+    }
+    finally {
+      randomAccessFile.close();
+    }
+
+    if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported format");
+    }
+
+    final int indexOffset = buffer.getInt(buffer.limit() - 4);
+    if (indexOffset < 8 || indexOffset > buffer.limit() - 8) {
+      throw new IOException("Corrupted index");
+    }
+    final byte[] indexBytes = new byte[buffer.limit() - 4 - indexOffset];
+    buffer.position(indexOffset);
+    buffer.get(indexBytes);
+
+    final Map<String, Entry> packageTopics = new HashMap<String, Entry>();
+    final Map<String, Entry> topics = new HashMap<String, Entry>();
+    final DataInputStream input = new DataInputStream(new ByteArrayInputStream(indexBytes));
+    final int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      final String packageName = input.readUTF();
+      final String topic = input.readUTF();
+      final Entry entry = new Entry(input.readInt(), input.readInt(), input.readInt());
+      packageTopics.put(getKey(packageName, topic), entry);
+      if (!topics.containsKey(topic)) {
+        topics.put(topic, entry);
+      }
+    }
+
+    LOG.info("Help store " + file + " is opened, topics: " + size);
+    return new TheRHelpStore(file, buffer, packageTopics, topics);
+  }
+
+  @NotNull
+  private static String getKey(@NotNull final String packageName, @NotNull final String topic) {
+    return packageName + "::" + topic;
+  }
+
+  private static class Entry {
+    private final int myOffset;
+    private final int myCompressedLength;
+    private final int myLength;
+
+    private Entry(final int offset, final int compressedLength, final int length) {
+      myOffset = offset;
+      myCompressedLength = compressedLength;
+      myLength = length;
+    }
+  }
+
+  private static class IndexEntry {
+    @NotNull
+    private final String myPackageName;
+    @NotNull
+    private final String myTopic;
+    @NotNull
+    private final Entry myEntry;
+
+    private IndexEntry(@NotNull final String packageName, @NotNull final String topic, @NotNull final Entry entry) {
+      myPackageName = packageName;
+      myTopic = topic;
+      myEntry = entry;
+    }
+  }
+}
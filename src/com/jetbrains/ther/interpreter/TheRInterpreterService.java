@@ -1,7 +1,9 @@
 package com.jetbrains.ther.interpreter;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.*;
 import com.intellij.util.xmlb.XmlSerializerUtil;
+import com.intellij.util.xmlb.annotations.Transient;
 import org.jetbrains.annotations.NotNull;
 
 @State(
@@ -11,10 +13,12 @@ import org.jetbrains.annotations.NotNull;
       file = StoragePathMacros.APP_CONFIG + "/rInterpreterSettings.xml"
     )}
 )
-public class TheRInterpreterService implements PersistentStateComponent<TheRInterpreterService> {
+public class TheRInterpreterService implements PersistentStateComponent<TheRInterpreterService>, Disposable {
   public String INTERPRETER_PATH = "";
   public String INTERPRETER_SOURCES_PATH = "";
 
+  private final TheRWorkerPool myWorkerPool = new TheRWorkerPool();
+
   public static TheRInterpreterService getInstance() {
     return ServiceManager.getService(TheRInterpreterService.class);
   }
@@ -44,4 +48,15 @@ public class TheRInterpreterService implements PersistentStateComponent<TheRInte
   public void setSourcesPath(@NotNull final String interpreterSourcesPath) {
     INTERPRETER_SOURCES_PATH = interpreterSourcesPath;
   }
+
+  @Transient
+  @NotNull
+  public TheRWorkerPool getWorkerPool() {
+    return myWorkerPool;
+  }
+
+  @Override
+  public void dispose() {
+    myWorkerPool.dispose();
+  }
 }
@@ -1,7 +1,7 @@
 package com.jetbrains.ther.interpreter;
 
 import com.google.common.collect.Lists;
-import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.ExecutionException;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
@@ -20,14 +20,22 @@ import com.intellij.openapi.roots.libraries.Library;
 import com.intellij.openapi.roots.libraries.LibraryTable;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.jetbrains.ther.TheRHelpersLocator;
+import com.jetbrains.ther.TheRUtils;
+import com.jetbrains.ther.documentation.TheRHelpStore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -40,6 +48,8 @@ public class TheRSkeletonGenerator {
 
   protected static final int MINUTE = 60 * 1000;
 
+  private static final String PACKAGES_DIGEST_FILE_NAME = "r_help.packages";
+
   public static String getSkeletonsPath(@NotNull final String interpreterHome) {
     final String basePath = PathManager.getSystemPath();
     return getSkeletonsRootPath(basePath) + File.separator + FileUtil.toSystemIndependentName(interpreterHome).hashCode() + File.separator;
@@ -59,19 +69,87 @@ public class TheRSkeletonGenerator {
       if (!skeletonsDir.exists() && !skeletonsDir.mkdirs()) {
         LOG.error("Can't create skeleton dir " + String.valueOf(skeletonsPath));
       }
-      final String commandLine = path + " --slave -f " + helperPath + " --args " + skeletonsPath;
-      final Process process = Runtime.getRuntime().exec(commandLine);
-      final CapturingProcessHandler processHandler = new CapturingProcessHandler(process, null, commandLine);
-      final ProcessOutput output = processHandler.runProcess(MINUTE * 5);
+      final ProcessOutput output = TheRUtils.runHelperProcess(path, helperPath, Collections.singletonList(skeletonsPath), MINUTE * 5);
       if (output.getExitCode() != 0) {
         LOG.error("Failed to generate skeletons. Exit code: " + output.getExitCode());
         LOG.error(output.getStderrLines());
       }
+      // help store is rebuilt when packages are installed, updated or removed
+      final File digestFile = new File(skeletonsDir, PACKAGES_DIGEST_FILE_NAME);
+      final String packagesDigest = getPackagesDigest(path);
+      if (TheRHelpStore.findStoreFile(path) == null || (packagesDigest != null && !packagesDigest.equals(loadDigest(digestFile)))) {
+        if (runHelpExport(path) && packagesDigest != null) {
+          saveDigest(digestFile, packagesDigest);
+        }
+      }
     }
-    catch (IOException e) {
+    catch (ExecutionException e) {
       LOG.error(e);
     }
   }
+
+  private static boolean runHelpExport(@NotNull final String path) throws ExecutionException {
+    final String helperPath = TheRHelpersLocator.getHelperPath(TheRHelpStore.R_HELP_EXPORT);
+    try {
+      final File export = FileUtil.createTempFile("r_help", ".txt", true);
+      try {
+        final ProcessOutput output =
+          TheRUtils.runHelperProcess(path, helperPath, Collections.singletonList(export.getAbsolutePath()), MINUTE * 10);
+        if (output.getExitCode() != 0) {
+          LOG.info("Failed to export help. Exit code: " + output.getExitCode() + "\n" + output.getStderr());
+          return false;
+        }
+        TheRHelpStore.build(export, path);
+        return true;
+      }
+      finally {
+        FileUtil.delete(export);
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns MD5 of names and versions of installed packages or null if they couldn't be loaded
+   */
+  @Nullable
+  private static String getPackagesDigest(@NotNull final String path) {
+    final ProcessOutput output = TheRUtils.getSuccessProcessOutput("installed.packages()[, c(\"Package\", \"Version\")]", path);
+    if (output == null) return null;
+    try {
+      final byte[] digest = MessageDigest.getInstance("MD5").digest(output.getStdout().getBytes(CharsetToolkit.UTF8_CHARSET));
+      return new BigInteger(1, digest).toString(16);
+    }
+    catch (NoSuchAlgorithmException e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  @Nullable
+  private static String loadDigest(@NotNull final File digestFile) {
+    if (!digestFile.isFile()) return null;
+    try {
+      return FileUtil.loadFile(digestFile).trim();
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  private static void saveDigest(@NotNull final File digestFile, @NotNull final String digest) {
+    try {
+      FileUtil.writeToFile(digestFile, digest);
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
   public static void generateSkeletons(@NotNull final Project project) {
 
     final Application application = ApplicationManager.getApplication();
@@ -0,0 +1,318 @@
+package com.jetbrains.ther.interpreter;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.jetbrains.ther.TheRHelpersLocator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+
+class TheRWorker {
+
+  // R process running r-worker.r, it executes one request at a time,
+  // request output is framed by the sentinel line printed to both streams
+
+  private static final Logger LOG = Logger.getInstance(TheRWorker.class.getName());
+
+  @NotNull
+  private static final String R_WORKER = "r-worker.r";
+
+  @NotNull
+  private static final String SENTINEL_PREFIX = "jetbrains_ther_worker_done ";
+
+  @NotNull
+  private final String myInterpreterPath;
+
+  @NotNull
+  private final Process myProcess;
+
+  @NotNull
+  private final Writer myWriter;
+
+  @NotNull
+  private final Object myLock;
+
+  @Nullable
+  private Response myResponse;
+
+  private int myCounter;
+
+  private boolean myIsAlive;
+
+  private long myLastUsed;
+
+  public TheRWorker(@NotNull final String interpreterPath) throws ExecutionException {
+    myInterpreterPath = interpreterPath;
+    myProcess = new GeneralCommandLine(interpreterPath, "--slave", "-f", TheRHelpersLocator.getHelperPath(R_WORKER)).createProcess();
+    myWriter = new OutputStreamWriter(myProcess.getOutputStream());
+    myLock = new Object();
+
+    myResponse = null;
+    myCounter = 0;
+    myIsAlive = true;
+    myLastUsed = System.currentTimeMillis();
+
+    startReading(myProcess.getInputStream(), false);
+    startReading(myProcess.getErrorStream(), true);
+  }
+
+  @NotNull
+  public String getInterpreterPath() {
+    return myInterpreterPath;
+  }
+
+  public boolean isAlive() {
+    synchronized (myLock) {
+      return myIsAlive;
+    }
+  }
+
+  public long getLastUsed() {
+    synchronized (myLock) {
+      return myLastUsed;
+    }
+  }
+
+  @NotNull
+  public ProcessOutput execute(@NotNull final String kind,
+                               @NotNull final String target,
+                               @NotNull final Iterable<String> args,
+                               final int timeout) {
+    final Response response;
+
+    synchronized (myLock) {
+      myCounter++;
+
+      response = new Response(myCounter);
+      myResponse = response;
+    }
+
+    try {
+      myWriter.write(calculateRequest(response.myId, kind, target, args));
+      myWriter.write('\n');
+      myWriter.flush();
+    }
+    catch (final IOException e) {
+      LOG.info(e);
+    }
+
+    final ProcessOutput result = new ProcessOutput();
+
+    synchronized (myLock) {
+      final long deadline = System.currentTimeMillis() + timeout;
+      long remaining = timeout;
+
+      try {
+        while (!response.isDone() && myIsAlive && remaining > 0) {
+          myLock.wait(remaining);
+
+          remaining = deadline - System.currentTimeMillis();
+        }
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      myResponse = null;
+      myLastUsed = System.currentTimeMillis();
+
+      result.appendStdout(response.getOutput());
+      result.appendStderr(response.getError());
+
+      if (response.isDone()) {
+        result.setExitCode(response.getStatus());
+        return result;
+      }
+
+      if (myIsAlive) {
+        result.setTimeout();
+      }
+    }
+
+    destroy();
+    result.setExitCode(waitForExitCode());
+
+    return result;
+  }
+
+  public void destroy() {
+    synchronized (myLock) {
+      myIsAlive = false;
+      myLock.notifyAll();
+    }
+
+    myProcess.destroy();
+  }
+
+  @NotNull
+  static String calculateRequest(final int id,
+                                 @NotNull final String kind,
+                                 @NotNull final String target,
+                                 @NotNull final Iterable<String> args) {
+    final StringBuilder sb = new StringBuilder("jetbrains_ther_worker_run(");
+
+    sb.append(id).append(", ").append(quote(kind)).append(", ").append(quote(target)).append(", c(");
+
+    boolean first = true;
+
+    for (final String arg : args) {
+      if (!first) {
+        sb.append(", ");
+      }
+
+      sb.append(quote(arg));
+      first = false;
+    }
+
+    return sb.append("))").toString();
+  }
+
+  @NotNull
+  private static String quote(@NotNull final String value) {
+    // request should be written in one line, so line breaks are escaped too
+
+    return "\"" +
+           value
+             .replace("\\", "\\\\")
+             .replace("\"", "\\\"")
+             .replace("\n", "\\n")
+             .replace("\r", "\\r")
+             .replace("\t", "\\t") +
+           "\"";
+  }
+
+  @NotNull
+  private static String removeSeparator(@NotNull final StringBuilder sb) {
+    // worker prints line break before the sentinel, so the sentinel is always on its own line
+
+    final int length = sb.length();
+
+    return length > 0 && sb.charAt(length - 1) == '\n' ? sb.substring(0, length - 1) : sb.toString();
+  }
+
+  private int waitForExitCode() {
+    try {
+      return myProcess.waitFor();
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+  }
+
+  private void startReading(@NotNull final InputStream stream, final boolean error) {
+    ApplicationManager.getApplication().executeOnPooledThread(
+      new Runnable() {
+        @Override
+        public void run() {
+          final BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+
+          try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+              onLine(line, error);
+            }
+          }
+          catch (final IOException e) {
+            LOG.info(e);
+          }
+          finally {
+            synchronized (myLock) {
+              myIsAlive = false;
+              myLock.notifyAll();
+            }
+          }
+        }
+      }
+    );
+  }
+
+  private void onLine(@NotNull final String line, final boolean error) {
+    synchronized (myLock) {
+      if (myResponse != null && myResponse.onLine(line, error)) {
+        myLock.notifyAll();
+      }
+    }
+  }
+
+  private static int parseStatus(@NotNull final String[] fields) {
+    try {
+      return fields.length > 1 ? Integer.parseInt(fields[1]) : 0;
+    }
+    catch (final NumberFormatException e) {
+      return 1;
+    }
+  }
+
+  static class Response {
+
+    private final int myId;
+
+    @NotNull
+    private final StringBuilder myOutput;
+
+    @NotNull
+    private final StringBuilder myError;
+
+    private boolean myOutputDone;
+
+    private boolean myErrorDone;
+
+    private int myStatus;
+
+    public Response(final int id) {
+      myId = id;
+      myOutput = new StringBuilder();
+      myError = new StringBuilder();
+      myOutputDone = false;
+      myErrorDone = false;
+      myStatus = 0;
+    }
+
+    public boolean onLine(@NotNull final String line, final boolean error) {
+      // returns true if the line is the sentinel of this response, sentinels of other responses are kept as output
+
+      if (line.startsWith(SENTINEL_PREFIX)) {
+        final String[] fields = line.substring(SENTINEL_PREFIX.length()).split(" ");
+
+        if (fields[0].equals(Integer.toString(myId))) {
+          if (error) {
+            myErrorDone = true;
+          }
+          else {
+            myOutputDone = true;
+            myStatus = parseStatus(fields);
+          }
+
+          return true;
+        }
+      }
+
+      (error ? myError : myOutput).append(line).append('\n');
+      return false;
+    }
+
+    public boolean isDone() {
+      return myOutputDone && myErrorDone;
+    }
+
+    @NotNull
+    public String getOutput() {
+      return removeSeparator(myOutput);
+    }
+
+    @NotNull
+    public String getError() {
+      return removeSeparator(myError);
+    }
+
+    public int getStatus() {
+      return myStatus;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.jetbrains.ther.interpreter;
+
+import com.intellij.concurrency.JobScheduler;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TheRWorkerPool {
+
+  // Helpers are executed by long-lived R processes instead of `R --slave -f helper`,
+  // so R startup and package loading are paid once per worker.
+  // Crashed and timed out workers are destroyed, the next request starts a new one.
+  // One more worker could be started for short requests, so they aren't blocked by long helpers.
+
+  private static final Logger LOG = Logger.getInstance(TheRWorkerPool.class.getName());
+
+  private static final int MAX_SIZE = 2;
+
+  private static final int RESERVED_SIZE = 1;
+
+  private static final int SHORT_TIMEOUT = 10000;
+
+  private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(3);
+
+  @NotNull
+  private final LinkedList<TheRWorker> myIdleWorkers;
+
+  @NotNull
+  private final Set<TheRWorker> myBusyWorkers;
+
+  @NotNull
+  private final Set<TheRWorker> myStaleWorkers;
+
+  private int mySize;
+
+  private boolean myIsDisposed;
+
+  @Nullable
+  private ScheduledFuture<?> myEviction;
+
+  public TheRWorkerPool() {
+    myIdleWorkers = new LinkedList<TheRWorker>();
+    myBusyWorkers = new HashSet<TheRWorker>();
+    myStaleWorkers = new HashSet<TheRWorker>();
+    mySize = 0;
+    myIsDisposed = false;
+    myEviction = null;
+  }
+
+  @NotNull
+  public ProcessOutput runHelper(@NotNull final String interpreterPath,
+                                 @NotNull final String helperPath,
+                                 @NotNull final List<String> args,
+                                 final int timeout) throws ExecutionException {
+    return execute(interpreterPath, "f", helperPath, args, timeout);
+  }
+
+  @NotNull
+  public ProcessOutput runScript(@NotNull final String interpreterPath,
+                                 @NotNull final String script,
+                                 final int timeout) throws ExecutionException {
+    return execute(interpreterPath, "e", script, Collections.<String>emptyList(), timeout);
+  }
+
+  public void destroyIdle() {
+    // packages are installed or removed after this call, so idle workers are destroyed to unload their namespaces and DLLs,
+    // busy workers are destroyed once they finish the current request
+
+    synchronized (this) {
+      myStaleWorkers.addAll(myBusyWorkers);
+    }
+
+    destroyIdleWorkers(null, 0);
+  }
+
+  public void dispose() {
+    synchronized (this) {
+      myIsDisposed = true;
+
+      if (myEviction != null) {
+        myEviction.cancel(false);
+        myEviction = null;
+      }
+    }
+
+    destroyIdleWorkers(null, 0);
+  }
+
+  @NotNull
+  private ProcessOutput execute(@NotNull final String interpreterPath,
+                                @NotNull final String kind,
+                                @NotNull final String target,
+                                @NotNull final List<String> args,
+                                final int timeout) throws ExecutionException {
+    final TheRWorker worker = acquire(interpreterPath, timeout);
+    boolean isHealthy = false;
+
+    try {
+      final ProcessOutput output = worker.execute(kind, target, args, timeout);
+
+      isHealthy = worker.isAlive() && !output.isTimeout();
+
+      return output;
+    }
+    finally {
+      release(worker, isHealthy);
+    }
+  }
+
+  @NotNull
+  private TheRWorker acquire(@NotNull final String interpreterPath, final int timeout) throws ExecutionException {
+    destroyIdleWorkers(interpreterPath, IDLE_TIMEOUT);
+
+    synchronized (this) {
+      final long deadline = System.currentTimeMillis() + timeout;
+      final int maxSize = timeout <= SHORT_TIMEOUT ? MAX_SIZE + RESERVED_SIZE : MAX_SIZE;
+
+      while (true) {
+        if (myIsDisposed) {
+          throw new ExecutionException("R worker pool has been disposed");
+        }
+
+        final Iterator<TheRWorker> iterator = myIdleWorkers.iterator();
+
+        while (iterator.hasNext()) {
+          final TheRWorker worker = iterator.next();
+
+          if (worker.getInterpreterPath().equals(interpreterPath) && worker.isAlive()) {
+            iterator.remove();
+            myBusyWorkers.add(worker);
+            return worker;
+          }
+        }
+
+        if (mySize < maxSize) {
+          mySize++;
+          break;
+        }
+
+        if (!myIdleWorkers.isEmpty()) {
+          // idle worker of another interpreter is replaced
+          myIdleWorkers.removeLast().destroy();
+          mySize--;
+          continue;
+        }
+
+        final long remaining = deadline - System.currentTimeMillis();
+
+        if (remaining <= 0) {
+          throw new ExecutionException("All R workers are busy");
+        }
+
+        try {
+          wait(remaining);
+        }
+        catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ExecutionException(e);
+        }
+      }
+    }
+
+    try {
+      final TheRWorker worker = new TheRWorker(interpreterPath);
+
+      synchronized (this) {
+        myBusyWorkers.add(worker);
+      }
+
+      return worker;
+    }
+    catch (final ExecutionException e) {
+      synchronized (this) {
+        mySize--;
+        notifyAll();
+      }
+
+      throw e;
+    }
+  }
+
+  private void release(@NotNull final TheRWorker worker, final boolean isHealthy) {
+    final boolean isReusable;
+
+    synchronized (this) {
+      myBusyWorkers.remove(worker);
+
+      final boolean isStale = myStaleWorkers.remove(worker);
+      isReusable = isHealthy && !isStale && !myIsDisposed;
+
+      if (isReusable) {
+        // the most recently used worker is taken first, so extra workers become idle and are evicted
+        myIdleWorkers.addFirst(worker);
+        scheduleEviction();
+      }
+      else {
+        mySize--;
+      }
+
+      notifyAll();
+    }
+
+    if (!isReusable) {
+      worker.destroy();
+    }
+  }
+
+  private void scheduleEviction() {
+    if (myEviction != null) {
+      return;
+    }
+
+    myEviction = JobScheduler.getScheduler().scheduleWithFixedDelay(
+      new Runnable() {
+        @Override
+        public void run() {
+          destroyIdleWorkers(null, IDLE_TIMEOUT);
+        }
+      },
+      IDLE_TIMEOUT,
+      IDLE_TIMEOUT,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  private void destroyIdleWorkers(@Nullable final String retainedInterpreterPath, final long idleTimeout) {
+    // workers of the retained interpreter are destroyed only if they have been idle for too long
+
+    final List<TheRWorker> destroyed = new LinkedList<TheRWorker>();
+    final long now = System.currentTimeMillis();
+
+    synchronized (this) {
+      final Iterator<TheRWorker> iterator = myIdleWorkers.iterator();
+
+      while (iterator.hasNext()) {
+        final TheRWorker worker = iterator.next();
+        final boolean isRetained = retainedInterpreterPath == null || worker.getInterpreterPath().equals(retainedInterpreterPath);
+
+        if (!worker.isAlive() || now - worker.getLastUsed() >= idleTimeout || !isRetained) {
+          iterator.remove();
+          destroyed.add(worker);
+          mySize--;
+        }
+      }
+
+      if (!destroyed.isEmpty()) {
+        notifyAll();
+      }
+    }
+
+    for (final TheRWorker worker : destroyed) {
+      LOG.debug("R worker is destroyed [interpreter: " + worker.getInterpreterPath() + "]");
+
+      worker.destroy();
+    }
+  }
+}
@@ -55,7 +55,11 @@ public class TheRPackageManagementService extends PackageManagementService {
 
   @NotNull
   public List<TheRDefaultRepository> getDefaultRepositories() {
-    return Lists.newArrayList(TheRPackagesUtil.getDefaultRepositories()); //TODO Caching of this value
+    return Lists.newArrayList(TheRPackagesUtil.getDefaultRepositories());
+  }
+
+  public void reloadRepositories() {
+    TheRRepositoryService.getInstance().invalidate();
   }
 
   public List<String> getMirrors() {
@@ -17,16 +17,22 @@ import com.intellij.webcore.packaging.InstalledPackage;
 import com.intellij.webcore.packaging.PackageManagementService;
 import com.intellij.webcore.packaging.PackagesNotificationPanel;
 import com.intellij.webcore.packaging.RepoPackage;
+import com.jetbrains.ther.documentation.TheRHelpCache;
+import com.jetbrains.ther.interpreter.TheRInterpreterService;
+import com.jetbrains.ther.interpreter.TheRWorkerPool;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.event.HyperlinkEvent;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author avesloguzova
  */
 public class TheRPackageTaskManager {
+  private static final Object ourInstallLock = new Object();
+  private static final Map<Project, PendingPackages> ourPendingInstalls = new HashMap<Project, PendingPackages>();
+  private static final Map<Project, PendingPackages> ourPendingUpdates = new HashMap<Project, PendingPackages>();
+
   private final Project myProject;
   private final TaskListener myListener;
 
@@ -36,11 +42,28 @@ public class TheRPackageTaskManager {
   }
 
   public void install(@NotNull final RepoPackage pkg) {
-    ProgressManager.getInstance().run(new InstallTask(myProject, myListener, pkg));
+    schedule(ourPendingInstalls, pkg, false);
   }
 
   public void update(@NotNull final RepoPackage pkg) {
-    ProgressManager.getInstance().run(new UpdateTask(myProject, myListener, pkg));
+    schedule(ourPendingUpdates, pkg, true);
+  }
+
+  private void schedule(@NotNull final Map<Project, PendingPackages> queues, @NotNull final RepoPackage pkg, final boolean update) {
+    // every project has its own queue, so its batch is run by the task of the project,
+    // requests made while a batch is running are installed by the next batch
+    final boolean isNewBatch;
+    synchronized (queues) {
+      PendingPackages pending = queues.get(myProject);
+      if (pending == null) {
+        pending = new PendingPackages();
+        queues.put(myProject, pending);
+      }
+      isNewBatch = pending.add(pkg.getName(), myListener);
+    }
+    if (isNewBatch) {
+      ProgressManager.getInstance().run(new InstallTask(myProject, queues, update));
+    }
   }
 
   public void uninstall(@NotNull final List<InstalledPackage> installedPackages) {
@@ -66,7 +89,12 @@ public class TheRPackageTaskManager {
     @Override
     public void run(@NotNull final ProgressIndicator indicator) {
       taskStarted(indicator);
-      taskFinished(runTask(indicator));
+      // workers keep namespaces and DLLs of used packages loaded, so they are dropped before and after the library is changed
+      final TheRWorkerPool workerPool = TheRInterpreterService.getInstance().getWorkerPool();
+      workerPool.destroyIdle();
+      final List<ExecutionException> exceptions = runTask(indicator);
+      workerPool.destroyIdle();
+      taskFinished(exceptions);
     }
 
     protected void taskStarted(@NotNull final ProgressIndicator indicator) {
@@ -85,6 +113,7 @@ public class TheRPackageTaskManager {
     }
 
     protected void taskFinished(@NotNull final List<ExecutionException> exceptions) {
+      TheRHelpCache.getInstance().invalidatePackageVersions();
       final Ref<Notification> notificationRef = new Ref<Notification>(null);
       if (exceptions.isEmpty()) {
         notificationRef.set(new Notification(PACKAGING_GROUP_ID, getSuccessTitle(), getSuccessDescription(),
@@ -132,86 +161,122 @@ public class TheRPackageTaskManager {
   }
 
   public static class InstallTask extends PackagingTask {
-    final RepoPackage myPackage;
+    @NotNull private final Map<Project, PendingPackages> myQueues;
+    @NotNull private final BatchListener myBatchListener;
+    private final boolean myUpdate;
 
-    InstallTask(@NotNull final  Project project,
-                @NotNull final TaskListener listener,
-                @NotNull final RepoPackage repoPackage) {
-      super(project, "Install package", listener);
-      myPackage = repoPackage;
+    InstallTask(@NotNull final Project project, @NotNull final Map<Project, PendingPackages> queues, final boolean update) {
+      this(project, queues, update, new BatchListener());
+    }
+
+    private InstallTask(@NotNull final Project project,
+                        @NotNull final Map<Project, PendingPackages> queues,
+                        final boolean update,
+                        @NotNull final BatchListener listener) {
+      super(project, update ? "Update packages" : "Install packages", listener);
+      myQueues = queues;
+      myUpdate = update;
+      myBatchListener = listener;
+    }
+
+    @Override
+    public void run(@NotNull final ProgressIndicator indicator) {
+      // batches of all projects are run one by one, so R processes don't install into the same library at the same time
+      synchronized (ourInstallLock) {
+        final PendingPackages pending;
+        synchronized (myQueues) {
+          pending = myQueues.remove(myProject);
+        }
+        if (pending != null) {
+          myBatchListener.myListeners.putAll(pending.myListeners);
+        }
+        if (!myBatchListener.myListeners.isEmpty()) {
+          super.run(indicator);
+        }
+      }
     }
 
     @NotNull
     @Override
     protected List<ExecutionException> runTask(@NotNull ProgressIndicator indicator) {
-      final List<ExecutionException> exceptions = new ArrayList<ExecutionException>();
-      try {
-        TheRPackagesUtil.installPackage(myPackage);
-      }
-      catch (ExecutionException e) {
-        exceptions.add(e);
-      }
-      return exceptions;
+      indicator.setIndeterminate(false);
+      final Map<String, ExecutionException> failures =
+        TheRPackagesUtil.installPackages(new ArrayList<String>(myBatchListener.myListeners.keySet()), myUpdate, indicator);
+      myBatchListener.myFailures.putAll(failures);
+      return new ArrayList<ExecutionException>(failures.values());
     }
 
     @NotNull
     @Override
     protected String getSuccessTitle() {
-      return "Package installed successfully";
+      return myUpdate ? "Packages updated successfully" : "Packages installed successfully";
     }
 
     @NotNull
     @Override
     protected String getSuccessDescription() {
-      return "Installed package " + myPackage.getName();
+      return (myUpdate ? "Updated packages: " : "Installed packages: ") + getPackagesString(myBatchListener.myListeners.keySet());
     }
 
     @NotNull
     @Override
     protected String getFailureTitle() {
-      return "Install package failed";
+      return (myUpdate ? "Update packages failed: " : "Install packages failed: ") +
+             getPackagesString(myBatchListener.myFailures.keySet());
+    }
+
+    @NotNull
+    private static String getPackagesString(@NotNull final Collection<String> packageNames) {
+      return StringUtil.join(packageNames, new Function<String, String>() {
+        @Override
+        public String fun(String packageName) {
+          return "'" + packageName + "'";
+        }
+      }, ", ");
     }
   }
 
-  public static class UpdateTask extends PackagingTask {
-    final RepoPackage myPackage;
+  private static class PendingPackages {
+    // guarded by the map of queues which contains it
 
-    UpdateTask(@NotNull final  Project project,
-                @NotNull final TaskListener listener,
-                @NotNull final RepoPackage repoPackage) {
-      super(project, "Update package", listener);
-      myPackage = repoPackage;
-    }
+    private final Map<String, List<TaskListener>> myListeners = new LinkedHashMap<String, List<TaskListener>>();
 
-    @NotNull
-    @Override
-    protected List<ExecutionException> runTask(@NotNull ProgressIndicator indicator) {
-      final List<ExecutionException> exceptions = new ArrayList<ExecutionException>();
-      try {
-        TheRPackagesUtil.updatePackage(myPackage);
-      }
-      catch (ExecutionException e) {
-        exceptions.add(e);
+    /**
+     * Returns true if there were no pending packages, so a new batch should be scheduled
+     */
+    public boolean add(@NotNull final String packageName, @NotNull final TaskListener listener) {
+      final boolean wasEmpty = myListeners.isEmpty();
+      List<TaskListener> listeners = myListeners.get(packageName);
+      if (listeners == null) {
+        listeners = new ArrayList<TaskListener>();
+        myListeners.put(packageName, listeners);
       }
-      return exceptions;
+      listeners.add(listener);
+      return wasEmpty;
     }
+  }
 
-    @NotNull
-    @Override
-    protected String getSuccessTitle() {
-      return "Package updated successfully";
-    }
+  private static class BatchListener implements TaskListener {
+    private final Map<String, List<TaskListener>> myListeners = new LinkedHashMap<String, List<TaskListener>>();
+    private final Map<String, ExecutionException> myFailures = new LinkedHashMap<String, ExecutionException>();
 
-    @NotNull
     @Override
-    protected String getSuccessDescription() {
-      return "Updated package " + myPackage.getName();
+    public void started() {
+      for (List<TaskListener> listeners : myListeners.values()) {
+        for (TaskListener listener : listeners) {
+          listener.started();
+        }
+      }
     }
 
-    @NotNull
     @Override
-    protected String getFailureTitle() {
-      return "Update package failed";
+    public void finished(@NotNull final List<ExecutionException> exceptions) {
+      for (Map.Entry<String, List<TaskListener>> entry : myListeners.entrySet()) {
+        final ExecutionException failure = myFailures.get(entry.getKey());
+        for (TaskListener listener : entry.getValue()) {
+          listener.finished(failure == null ? Collections.<ExecutionException>emptyList() : Collections.singletonList(failure));
+        }
+      }
     }
   }
 
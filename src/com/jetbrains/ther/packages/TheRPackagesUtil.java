@@ -5,9 +5,13 @@ import com.google.common.collect.Sets;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.CatchingConsumer;
 import com.intellij.webcore.packaging.InstalledPackage;
@@ -49,6 +53,8 @@ public final class TheRPackagesUtil {
   @NonNls public static final String CRAN_URL = "https://cran.r-project.org/web/packages/available_packages_by_name.html";
 
   private static final Pattern urlPattern = Pattern.compile("\".+\"");
+  private static final Pattern installingPattern = Pattern.compile("installing (?:\\*\\w+\\* )?package [\u2018'](.+?)[\u2019']");
+  private static final Pattern donePattern = Pattern.compile("DONE \\((.+?)\\)");
   private static final Logger LOG = Logger.getInstance(TheRPackagesUtil.class.getName());
 
   private static final Set<String> basePackages = Sets.newHashSet("base", "utils", "stats", "datasets", "graphics",
@@ -67,9 +73,8 @@ public final class TheRPackagesUtil {
     }
     final String helperPath = TheRHelpersLocator.getHelperPath(helper);
     try {
-      final Process process = new GeneralCommandLine(path, "--slave", "-f", helperPath).createProcess();
-      final CapturingProcessHandler processHandler = new CapturingProcessHandler(process);
-      final ProcessOutput output = processHandler.runProcess(5 * TheRPsiUtils.MINUTE);
+      final ProcessOutput output = TheRInterpreterService.getInstance().getWorkerPool()
+        .runHelper(path, helperPath, Collections.<String>emptyList(), 5 * TheRPsiUtils.MINUTE);
       if (output.getExitCode() != 0) {
         LOG.error("Failed to run script. Exit code: " + output.getExitCode());
         LOG.error(output.getStderrLines());
@@ -139,9 +144,14 @@ public final class TheRPackagesUtil {
 
   @NotNull
   public static List<TheRDefaultRepository> getDefaultRepositories() {
-    final String output = getHelperOutput(R_PACKAGES_DEFAULT_REPOS);
-    if (output != null) {
-      return toDefaultPackages((output));
+    return TheRRepositoryService.getInstance().getDefaultRepositories();
+  }
+
+  @NotNull
+  static List<TheRDefaultRepository> loadDefaultRepositories() {
+    final TheRRunResult result = runHelperWithArgs(R_PACKAGES_DEFAULT_REPOS);
+    if (result != null) {
+      return toDefaultPackages(result.getStdOut());
     }
     return Lists.newArrayList();
   }
@@ -157,9 +167,25 @@ public final class TheRPackagesUtil {
 
   @NotNull
   public static List<String> getCRANMirrors() {
-    final ProcessOutput output = TheRUtils.getProcessOutput("getCRANmirrors()[,\"URL\"]");
-    if (output != null && output.getExitCode() == 0) {
-      return getURLs(output.getStdout());
+    return TheRRepositoryService.getInstance().getMirrors();
+  }
+
+  @NotNull
+  static List<String> loadCRANMirrors() {
+    // mirrors list is downloaded from CRAN, so it is loaded by its own process like the other network bound helpers
+    final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
+    if (StringUtil.isEmptyOrSpaces(interpreterPath)) {
+      LOG.info("Path to interpreter didn't set");
+      return Lists.newArrayList();
+    }
+    try {
+      final ProcessOutput output = TheRUtils.runScriptProcess(interpreterPath, "getCRANmirrors()[,\"URL\"]", TheRPsiUtils.MINUTE);
+      if (output.getExitCode() == 0 && !output.isTimeout()) {
+        return getURLs(output.getStdout());
+      }
+    }
+    catch (ExecutionException e) {
+      LOG.info(e.getMessage());
     }
     return Lists.newArrayList();
   }
@@ -203,34 +229,69 @@ public final class TheRPackagesUtil {
     return packageList;
   }
 
-  public static void installPackage(@NotNull RepoPackage repoPackage)
-    throws ExecutionException {
-    List<String> args = getHelperRepositoryArguments();
-    args.add(0, repoPackage.getName());
-    final TheRRunResult result = runHelperWithArgs(R_INSTALL_PACKAGE, args.toArray(new String[args.size()]));
-    if (result == null) {
-      throw new ExecutionException("Please, specify path to the R executable.");
-    }
-    final String stderr = result.getStdErr();
-    if (!stderr.contains(String.format("DONE (%s)", repoPackage.getName()))) {
-      throw new TheRExecutionException("Some error during the installation", result.getCommand(), result.getStdOut(), result.getStdErr(),
-                                       result.getExitCode());
-    }
-  }
-
-  public static void updatePackage(@NotNull RepoPackage repoPackage)
-    throws ExecutionException {
-    List<String> args = getHelperRepositoryArguments();
-    args.add(0, repoPackage.getName());
-    final TheRRunResult result = runHelperWithArgs(R_UPDATE_PACKAGE, args.toArray(new String[args.size()]));
-    if (result == null) {
-      throw new ExecutionException("Please, specify path to the R executable.");
+  /**
+   * Installs or updates packages in one R process, R resolves their dependencies and installs independent packages in parallel.
+   * Returns failures by package names.
+   */
+  @NotNull
+  public static Map<String, ExecutionException> installPackages(@NotNull final List<String> packageNames,
+                                                                final boolean update,
+                                                                @NotNull final ProgressIndicator indicator) {
+    final Map<String, ExecutionException> failures = new LinkedHashMap<String, ExecutionException>();
+    final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
+    if (StringUtil.isEmptyOrSpaces(interpreterPath)) {
+      for (String packageName : packageNames) {
+        failures.put(packageName, new ExecutionException("Please, specify path to the R executable."));
+      }
+      return failures;
+    }
+    final List<String> command = Lists.newArrayList(interpreterPath, "--slave", "-f",
+                                                    TheRHelpersLocator.getHelperPath(update ? R_UPDATE_PACKAGE : R_INSTALL_PACKAGE),
+                                                    "--args", StringUtil.join(packageNames, ","));
+    command.addAll(getHelperRepositoryArguments());
+    final String commandString = StringUtil.join(command, " ");
+    final Set<String> requested = new HashSet<String>(packageNames);
+    try {
+      final Process process = new GeneralCommandLine(command).createProcess();
+      final CapturingProcessHandler processHandler = new CapturingProcessHandler(process, null, commandString);
+      processHandler.addProcessListener(new ProcessAdapter() {
+        private final Set<String> myInstalled = new HashSet<String>();
+
+        @Override
+        public void onTextAvailable(ProcessEvent event, Key outputType) {
+          // outputs of parallel installations are printed when they are finished, so only started installations are reported,
+          // dependencies are installed too, but only requested packages are counted
+          final Matcher startedMatcher = installingPattern.matcher(event.getText());
+          while (startedMatcher.find()) {
+            indicator.setText2("Installing " + startedMatcher.group(1));
+          }
+          final Matcher doneMatcher = donePattern.matcher(event.getText());
+          while (doneMatcher.find()) {
+            final String packageName = doneMatcher.group(1);
+            indicator.setText2("Installed " + packageName);
+            synchronized (myInstalled) {
+              if (requested.contains(packageName) && myInstalled.add(packageName)) {
+                indicator.setFraction((double)myInstalled.size() / requested.size());
+              }
+            }
+          }
+        }
+      });
+      final ProcessOutput output = processHandler.runProcess(packageNames.size() * 5 * TheRPsiUtils.MINUTE);
+      for (String packageName : packageNames) {
+        final String done = String.format("DONE (%s)", packageName);
+        if (!output.getStderr().contains(done) && !output.getStdout().contains(done)) {
+          failures.put(packageName, new TheRExecutionException("Some error during the installation of " + packageName, commandString,
+                                                               output.getStdout(), output.getStderr(), output.getExitCode()));
+        }
+      }
     }
-    final String stderr = result.getStdErr();
-    if (!stderr.contains(String.format("DONE (%s)", repoPackage.getName()))) {
-      throw new TheRExecutionException("Some error during the installation", result.getCommand(), result.getStdOut(), result.getStdErr(),
-                                       result.getExitCode());
+    catch (ExecutionException e) {
+      for (String packageName : packageNames) {
+        failures.put(packageName, e);
+      }
     }
+    return failures;
   }
 
   public static void uninstallPackage(List<InstalledPackage> repoPackage) throws ExecutionException {
@@ -308,18 +369,17 @@ public final class TheRPackagesUtil {
 
   @Nullable
   private static TheRRunResult runHelperWithArgs(@NotNull final String helper, @NotNull final String... args) {
+    // these helpers download repository indices for minutes, so they don't occupy workers of the pool needed by short requests
     final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
     if (StringUtil.isEmptyOrSpaces(interpreterPath)) {
       LOG.info("Path to interpreter didn't set");
       return null;
     }
-    final ArrayList<String> command = Lists.newArrayList(interpreterPath, " --slave", "-f ", TheRHelpersLocator.getHelperPath(helper),
-                                                         " --args");
+    final String helperPath = TheRHelpersLocator.getHelperPath(helper);
+    final ArrayList<String> command = Lists.newArrayList(interpreterPath, " --slave", "-f ", helperPath, " --args");
     Collections.addAll(command, args);
     try {
-      final Process process = new GeneralCommandLine(command).createProcess();
-      final CapturingProcessHandler processHandler = new CapturingProcessHandler(process, null, StringUtil.join(command, " "));
-      final ProcessOutput output = processHandler.runProcess(5 * TheRPsiUtils.MINUTE);
+      final ProcessOutput output = TheRUtils.runHelperProcess(interpreterPath, helperPath, Arrays.asList(args), 5 * TheRPsiUtils.MINUTE);
       if (output.getExitCode() != 0) {
         LOG.error("Failed to run script. Exit code: " + output.getExitCode());
         LOG.error(output.getStderrLines());
@@ -339,8 +399,9 @@ public final class TheRPackagesUtil {
     args.add(String.valueOf(service.CRANMirror + 1));
     if (service.enabledRepositories.size() > 0) {
       args.add(String.valueOf(service.enabledRepositories.size()));
+      final List<TheRDefaultRepository> defaultRepositories = getDefaultRepositories();
       for (String repository : service.enabledRepositories) {
-        for (TheRDefaultRepository defaultRepository : getDefaultRepositories()) {
+        for (TheRDefaultRepository defaultRepository : defaultRepositories) {
           if (defaultRepository.getUrl().equals(repository))
             args.add(String.valueOf(defaultRepository.getIndex()));
         }
@@ -0,0 +1,63 @@
+package com.jetbrains.ther.packages;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.jetbrains.ther.interpreter.TheRInterpreterService;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default repositories and CRAN mirrors of the interpreter are loaded once and kept until {@link #invalidate()}
+ */
+public class TheRRepositoryService {
+  private final Map<String, List<TheRDefaultRepository>> myDefaultRepositories = new HashMap<String, List<TheRDefaultRepository>>();
+  private final Map<String, List<String>> myMirrors = new HashMap<String, List<String>>();
+
+  public static TheRRepositoryService getInstance() {
+    return ServiceManager.getService(TheRRepositoryService.class);
+  }
+
+  @NotNull
+  public List<TheRDefaultRepository> getDefaultRepositories() {
+    final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
+    synchronized (this) {
+      final List<TheRDefaultRepository> repositories = myDefaultRepositories.get(interpreterPath);
+      if (repositories != null) {
+        return repositories;
+      }
+    }
+    final List<TheRDefaultRepository> repositories = Collections.unmodifiableList(TheRPackagesUtil.loadDefaultRepositories());
+    if (!repositories.isEmpty()) {
+      synchronized (this) {
+        myDefaultRepositories.put(interpreterPath, repositories);
+      }
+    }
+    return repositories;
+  }
+
+  @NotNull
+  public List<String> getMirrors() {
+    final String interpreterPath = TheRInterpreterService.getInstance().getInterpreterPath();
+    synchronized (this) {
+      final List<String> mirrors = myMirrors.get(interpreterPath);
+      if (mirrors != null) {
+        return mirrors;
+      }
+    }
+    final List<String> mirrors = Collections.unmodifiableList(TheRPackagesUtil.loadCRANMirrors());
+    if (!mirrors.isEmpty()) {
+      synchronized (this) {
+        myMirrors.put(interpreterPath, mirrors);
+      }
+    }
+    return mirrors;
+  }
+
+  public synchronized void invalidate() {
+    myDefaultRepositories.clear();
+    myMirrors.clear();
+  }
+}
@@ -2,6 +2,7 @@ package com.jetbrains.ther.packages.ui;
 
 
 import com.google.common.collect.Lists;
+import com.intellij.icons.AllIcons;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
@@ -104,6 +105,13 @@ public class TheRManageRepoDialog extends DialogWrapper {
             reloadList();
           }
         })
+        .addExtraAction(new AnActionButton("Reload", "Reload default repositories and CRAN mirrors", AllIcons.Actions.Refresh) {
+          @Override
+          public void actionPerformed(AnActionEvent e) {
+            myController.reloadRepositories();
+            reloadList();
+          }
+        })
         .setRemoveActionUpdater(new AnActionButtonUpdater() {
           @Override
           public boolean isEnabled(AnActionEvent event) {
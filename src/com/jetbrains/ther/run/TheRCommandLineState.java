@@ -24,6 +24,12 @@ public class TheRCommandLineState extends CommandLineState {
   @NotNull
   private static final String IO_ENV_KEY = "ther.debugger.io";
 
+  @NotNull
+  private static final String FRAMING_ENV_KEY = "ther.debugger.framing";
+
+  @NotNull
+  private static final String METRICS_ENV_KEY = "ther.debugger.metrics";
+
   @NotNull
   private final TheRRunConfiguration myRunConfiguration;
 
@@ -72,17 +78,23 @@ public class TheRCommandLineState extends CommandLineState {
     return new TheRXProcessHandler(
       commandLine,
       createExecutionResultCalculator(),
-      parseBoolean(runConfiguration.getEnvs().get(IO_ENV_KEY))
+      parseBoolean(runConfiguration.getEnvs().get(IO_ENV_KEY)),
+      isDebug() && parseBoolean(runConfiguration.getEnvs().get(FRAMING_ENV_KEY)),
+      runConfiguration.getEnvs().get(METRICS_ENV_KEY)
     );
   }
 
   @NotNull
   private TheRExecutionResultCalculator createExecutionResultCalculator() {
-    if (getEnvironment().getExecutor().getId().equals(DefaultDebugExecutor.EXECUTOR_ID)) {
+    if (isDebug()) {
       return new TheRExecutionResultCalculatorImpl();
     }
     else {
       return new TheRRunExecutionResultCalculator();
     }
   }
+
+  private boolean isDebug() {
+    return getEnvironment().getExecutor().getId().equals(DefaultDebugExecutor.EXECUTOR_ID);
+  }
 }
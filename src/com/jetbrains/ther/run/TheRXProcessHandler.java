@@ -12,22 +12,23 @@ import com.intellij.openapi.util.SystemInfo;
 import com.intellij.util.io.BaseDataReader;
 import com.intellij.util.io.BaseOutputReader;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
-import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
-import com.jetbrains.ther.debugger.executor.TheRExecutionResultCalculator;
-import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import com.jetbrains.ther.debugger.executor.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jvnet.winp.WinProcess;
 
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
+import java.io.*;
 import java.util.LinkedList;
+import java.util.Random;
 import java.util.concurrent.Future;
 
+import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_FUNCTION_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.LINE_SEPARATOR;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.completed;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.get;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.interrupted;
 
-public class TheRXProcessHandler extends ColoredProcessHandler implements TheRExecutor {
+public class TheRXProcessHandler extends ColoredProcessHandler implements TheRAsyncExecutor {
 
   @NotNull
   private static final Logger LOGGER = Logger.getInstance(TheRXProcessHandler.class);
@@ -40,6 +41,15 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
 
   private final boolean myPrintIO;
 
+  @Nullable
+  private final TheRExecutionPipeline myPipeline;
+
+  @NotNull
+  private final TheRExecutionMetrics myMetrics;
+
+  @Nullable
+  private final String myMetricsPath;
+
   @NotNull
   private final StringBuilder myOutputBuffer;
 
@@ -52,6 +62,9 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
   @NotNull
   private final LinkedList<Listener> myListeners;
 
+  @NotNull
+  private final TheRExecutionInterrupter myInterrupter;
+
   @Nullable
   private Reader myOutputReader;
 
@@ -60,14 +73,21 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
 
   private int myExecuteCounter;
 
+  private long myFirstByteNanos;
+
   public TheRXProcessHandler(@NotNull final GeneralCommandLine commandLine,
                              @NotNull final TheRExecutionResultCalculator resultCalculator,
-                             final boolean printIO)
+                             final boolean printIO,
+                             final boolean framed,
+                             @Nullable final String metricsPath)
     throws ExecutionException {
     super(commandLine);
 
     myResultCalculator = resultCalculator;
     myPrintIO = printIO;
+    myPipeline = framed ? createPipeline(resultCalculator) : null;
+    myMetrics = new TheRExecutionMetrics();
+    myMetricsPath = metricsPath;
 
     myOutputBuffer = new StringBuilder();
     myErrorBuffer = new StringBuilder();
@@ -76,26 +96,62 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
 
     myListeners = new LinkedList<Listener>();
 
+    myInterrupter = new TheRExecutionInterrupter(
+      new Runnable() {
+        @Override
+        public void run() {
+          UnixProcessManager.sendSigIntToProcessTree(getProcess());
+        }
+      }
+    );
+
     myOutputReader = null;
     myErrorReader = null;
     myExecuteCounter = 0;
+    myFirstByteNanos = -1;
   }
 
   @NotNull
   @Override
   public TheRExecutionResult execute(@NotNull final String command) throws TheRDebuggerException {
+    if (myPipeline != null) {
+      return get(myPipeline.submit(command, myWriter));
+    }
+
     try {
+      startExecuting();
+
+      final long begin = System.nanoTime();
+
       myWriter.write(command);
       myWriter.write(LINE_SEPARATOR);
       myWriter.flush();
 
+      final long written = System.nanoTime();
+
       synchronized (myOutputBuffer) {
         waitForOutput();
 
         synchronized (myErrorBuffer) {
           waitForError();
 
-          final TheRExecutionResult result = myResultCalculator.calculate(myOutputBuffer, myErrorBuffer.toString());
+          final long completed = System.nanoTime();
+
+          final TheRExecutionResult calculated = myResultCalculator.calculate(myOutputBuffer, myErrorBuffer.toString());
+          final TheRExecutionResult result = myInterrupter.complete() ? interrupted(calculated) : calculated;
+          final long firstByte = getFirstByteNanos();
+
+          myMetrics.record(
+            new TheRCommandMetrics(
+              result.getType(),
+              command.length() + LINE_SEPARATOR.length(),
+              myOutputBuffer.length() + myErrorBuffer.length(),
+              written - begin,
+              (firstByte == -1 ? completed : firstByte) - begin,
+              completed - begin,
+              System.nanoTime() - completed
+            )
+          );
 
           myExecuteCounter++;
 
@@ -114,6 +170,52 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
     catch (final InterruptedException e) {
       throw new TheRDebuggerException(e);
     }
+    finally {
+      myInterrupter.complete();
+    }
+  }
+
+  @NotNull
+  @Override
+  public Future<TheRExecutionResult> submit(@NotNull final String command) throws TheRDebuggerException {
+    // without framing the end of command's output is recognized by prompt only, so commands aren't pipelined
+
+    if (myPipeline != null) {
+      return myPipeline.submit(command, myWriter);
+    }
+    else {
+      return completed(execute(command));
+    }
+  }
+
+  @NotNull
+  public TheRExecutionMetrics getMetrics() {
+    // debug process sets current action, so metrics are aggregated by step, resume, variables loading and so on
+    return myMetrics;
+  }
+
+  public void interrupt() {
+    // SIGINT returns R to the nearest browser prompt, so the running command is completed as interrupted,
+    // signal is not sent if there is no running command because R would print an extra prompt,
+    // command is not marked as interrupted if the signal can't be sent, otherwise its result would be lost
+
+    if (!SystemInfo.isUnix) {
+      LOGGER.warn("Interruption is not supported on this OS");
+      return;
+    }
+
+    if (myPipeline != null) {
+      myPipeline.interrupt();
+      return;
+    }
+
+    // command whose invitation has been already received is completed even if its result is not calculated yet
+
+    synchronized (myOutputBuffer) {
+      if (!myResultCalculator.isComplete(myOutputBuffer)) {
+        myInterrupter.interrupt();
+      }
+    }
   }
 
   @Override
@@ -138,7 +240,7 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
   protected BaseDataReader createOutputDataReader(@NotNull final BaseDataReader.SleepingPolicy sleepingPolicy) {
     myOutputReader = super.createProcessOutReader();
 
-    return new TheRXBaseOutputReader(myOutputReader, sleepingPolicy, myOutputBuffer, "output stream of " + myCommandLine);
+    return new TheRXBaseOutputReader(myOutputReader, sleepingPolicy, myOutputBuffer, false, "output stream of " + myCommandLine);
   }
 
   @NotNull
@@ -146,7 +248,7 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
   protected BaseDataReader createErrorDataReader(@NotNull final BaseDataReader.SleepingPolicy sleepingPolicy) {
     myErrorReader = super.createProcessErrReader();
 
-    return new TheRXBaseOutputReader(myErrorReader, sleepingPolicy, myErrorBuffer, "error stream of " + myCommandLine);
+    return new TheRXBaseOutputReader(myErrorReader, sleepingPolicy, myErrorBuffer, true, "error stream of " + myCommandLine);
   }
 
   @Override
@@ -168,15 +270,62 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
 
   @Override
   protected void onOSProcessTerminated(final int exitCode) {
-    final String errorBuffer = waitAndCopyErrorBuffer();
+    final String errorBuffer = myPipeline != null ? myPipeline.terminate() : waitAndCopyErrorBuffer();
 
     for (final Listener listener : myListeners) {
       listener.onTerminated(errorBuffer);
     }
 
+    if (myMetricsPath != null && !myMetricsPath.isEmpty()) {
+      exportMetrics(myMetricsPath);
+    }
+
     super.onOSProcessTerminated(exitCode);
   }
 
+  private synchronized void startExecuting() {
+    myFirstByteNanos = -1;
+    myInterrupter.start();
+  }
+
+  private synchronized void markFirstByte() {
+    if (myFirstByteNanos == -1 && myInterrupter.isExecuting()) {
+      myFirstByteNanos = System.nanoTime();
+    }
+  }
+
+  private synchronized long getFirstByteNanos() {
+    final long result = myFirstByteNanos;
+
+    myFirstByteNanos = -1;
+
+    return result;
+  }
+
+  private void exportMetrics(@NotNull final String path) {
+    if (myMetrics.isEmpty()) {
+      return;
+    }
+
+    notifyTextAvailable("METRICS:\n", SERVICE_KEY);
+    notifyTextAvailable(myMetrics.getSummary(), SERVICE_KEY);
+    notifyTextAvailable("exported to " + path + "\n\n", SERVICE_KEY);
+
+    try {
+      final Writer writer = new BufferedWriter(new FileWriter(path));
+
+      try {
+        myMetrics.export(writer);
+      }
+      finally {
+        writer.close();
+      }
+    }
+    catch (final IOException e) {
+      LOGGER.warn(e);
+    }
+  }
+
   private void waitForOutput() throws IOException, InterruptedException {
     assert myOutputReader != null;
 
@@ -197,6 +346,35 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
     }
   }
 
+  @NotNull
+  private TheRExecutionPipeline createPipeline(@NotNull final TheRExecutionResultCalculator resultCalculator) {
+    return new TheRExecutionPipeline(
+      resultCalculator,
+      SERVICE_FUNCTION_PREFIX + "sentinel_" + Long.toHexString(new Random().nextLong()) + "_",
+      new TheRExecutionPipeline.Listener() {
+        @Override
+        public void onExecuted(@NotNull final String command,
+                               @NotNull final TheRExecutionResult result,
+                               @NotNull final TheRCommandMetrics metrics) {
+          myMetrics.record(metrics);
+
+          myExecuteCounter++;
+
+          printIO(command, result);
+        }
+
+        @Override
+        public void onInterrupted() {
+          // interrupted or cancelled command is still being executed, so R is returned to the browser prompt
+
+          if (SystemInfo.isUnix) {
+            UnixProcessManager.sendSigIntToProcessTree(getProcess());
+          }
+        }
+      }
+    );
+  }
+
   private void printIO(@NotNull final String command, @NotNull final TheRExecutionResult result) {
     if (myPrintIO) {
       printIO("COMMAND", command);
@@ -257,19 +435,36 @@ public class TheRXProcessHandler extends ColoredProcessHandler implements TheREx
     @NotNull
     private final StringBuilder myBuffer;
 
+    private final boolean myError;
+
     public TheRXBaseOutputReader(@NotNull final Reader reader,
                                  @NotNull final SleepingPolicy sleepingPolicy,
                                  @NotNull final StringBuilder buffer,
+                                 final boolean error,
                                  @NotNull final String presentableName) {
       super(reader, sleepingPolicy);
 
       myBuffer = buffer;
+      myError = error;
 
       start(presentableName);
     }
 
     @Override
     protected void onTextAvailable(@NotNull final String text) {
+      if (myPipeline != null) {
+        if (myError) {
+          myPipeline.appendError(text);
+        }
+        else {
+          myPipeline.appendOutput(text);
+        }
+
+        return;
+      }
+
+      markFirstByte();
+
       synchronized (myBuffer) {
         myBuffer.append(text);
         myBuffer.notify();
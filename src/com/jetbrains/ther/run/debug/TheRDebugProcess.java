@@ -14,27 +14,27 @@ import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
 import com.intellij.xdebugger.breakpoints.XLineBreakpoint;
 import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
-import com.intellij.xdebugger.evaluation.XDebuggerEvaluator;
 import com.intellij.xdebugger.frame.XExecutionStack;
 import com.intellij.xdebugger.frame.XStackFrame;
 import com.intellij.xdebugger.frame.XSuspendContext;
-import com.intellij.xdebugger.frame.XValue;
 import com.jetbrains.ther.debugger.TheRDebugger;
 import com.jetbrains.ther.debugger.TheROutputReceiver;
 import com.jetbrains.ther.debugger.data.TheRInterpreterConstants;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.exception.TheRInterruptedException;
 import com.jetbrains.ther.debugger.exception.TheRRuntimeException;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
 import com.jetbrains.ther.debugger.frame.TheRStackFrame;
 import com.jetbrains.ther.run.TheRProcessUtils;
 import com.jetbrains.ther.run.TheRXProcessHandler;
 import com.jetbrains.ther.run.debug.resolve.TheRResolvingSession;
 import com.jetbrains.ther.run.debug.stack.TheRXStack;
-import com.jetbrains.ther.run.debug.stack.TheRXValue;
 import com.jetbrains.ther.run.graphics.TheRGraphicsUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 // TODO [xdbg][test]
@@ -43,9 +43,27 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
   @NotNull
   private static final Logger LOGGER = Logger.getInstance(TheRDebugProcess.class);
 
+  @NotNull
+  private static final String INITIALIZE_ACTION = "initialize";
+
+  @NotNull
+  private static final String STEP_OVER_ACTION = "step over";
+
+  @NotNull
+  private static final String STEP_INTO_ACTION = "step into";
+
+  @NotNull
+  private static final String STEP_OUT_ACTION = "step out";
+
+  @NotNull
+  private static final String RESUME_ACTION = "resume";
+
   @NotNull
   private final TheRXProcessHandler myProcessHandler;
 
+  @NotNull
+  private final TheRExecutor myCommandExecutor;
+
   @NotNull
   private final ExecutionConsole myExecutionConsole;
 
@@ -55,6 +73,9 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
   @NotNull
   private final TheROutputReceiver myOutputReceiver;
 
+  @NotNull
+  private final TheRResolvingSession myResolvingSession;
+
   @NotNull
   private final TheRXStack myStack;
 
@@ -73,8 +94,11 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
   @NotNull
   private final XBreakpointHandler[] myBreakpointHandlers;
 
+  private boolean myIsStackUpdated;
+
   public TheRDebugProcess(@NotNull final XDebugSession session,
                           @NotNull final TheRXProcessHandler processHandler,
+                          @NotNull final TheRExecutor commandExecutor,
                           @NotNull final ExecutionConsole executionConsole,
                           @NotNull final TheRDebugger debugger,
                           @NotNull final TheROutputReceiver outputReceiver,
@@ -83,15 +107,18 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
     super(session);
 
     myProcessHandler = processHandler;
+    myCommandExecutor = commandExecutor;
     myExecutionConsole = executionConsole;
 
     myDebugger = debugger;
     myOutputReceiver = outputReceiver;
-    myStack = new TheRXStack(myDebugger.getStack(), resolvingSession, executor);
+    myResolvingSession = resolvingSession;
+    myStack = new TheRXStack(myDebugger.getStack(), resolvingSession, executor, processHandler.getMetrics());
     myExecutor = executor;
 
-    myBreakpoints = new HashMap<XSourcePositionWrapper, XLineBreakpoint<XBreakpointProperties>>();
-    myTempBreakpoints = new HashSet<XSourcePositionWrapper>();
+    // breakpoints are registered in EDT and iterated in the debugger thread
+    myBreakpoints = new ConcurrentHashMap<XSourcePositionWrapper, XLineBreakpoint<XBreakpointProperties>>();
+    myTempBreakpoints = Collections.newSetFromMap(new ConcurrentHashMap<XSourcePositionWrapper, Boolean>());
 
     myEditorsProvider = new TheREditorsProvider();
     myBreakpointHandlers = new XBreakpointHandler[]{new TheRXLineBreakpointHandler()};
@@ -134,17 +161,23 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
       new Runnable() {
         @Override
         public void run() {
+          myProcessHandler.getMetrics().setAction(STEP_OVER_ACTION);
+
           try {
             final List<TheRStackFrame> stack = myDebugger.getStack();
             final int targetDepth = stack.size();
 
-            do {
-              if (!advance()) return;
+            myDebugger.releaseFunctions(calculateRetainedFunctions());
 
-              myStack.update();
+            do {
+              if (!advance(targetDepth)) return;
             }
             while (!isBreakpoint() && stack.size() > targetDepth);
 
+            myDebugger.restoreFunctions();
+
+            updateStack();
+
             showDebugInformation();
           }
           catch (final TheRDebuggerException e) {
@@ -161,6 +194,8 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
       new Runnable() {
         @Override
         public void run() {
+          myProcessHandler.getMetrics().setAction(STEP_INTO_ACTION);
+
           try {
             if (!advance()) return;
 
@@ -182,17 +217,23 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
       new Runnable() {
         @Override
         public void run() {
+          myProcessHandler.getMetrics().setAction(STEP_OUT_ACTION);
+
           try {
             final List<TheRStackFrame> stack = myDebugger.getStack();
             final int targetDepth = stack.size() - 1;
 
-            do {
-              if (!advance()) return;
+            myDebugger.releaseFunctions(calculateRetainedFunctions());
 
-              myStack.update();
+            do {
+              if (!finish(targetDepth)) return;
             }
             while (!isBreakpoint() && stack.size() > targetDepth);
 
+            myDebugger.restoreFunctions();
+
+            updateStack();
+
             showDebugInformation();
           }
           catch (final TheRDebuggerException e) {
@@ -203,20 +244,37 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
     );
   }
 
+  @Override
+  public void startPausing() {
+    // called from EDT while the debug loop is busy, so R is interrupted directly instead of through the executor
+    myProcessHandler.interrupt();
+  }
+
   @Override
   public void resume() {
     myExecutor.execute(
       new Runnable() {
         @Override
         public void run() {
+          myProcessHandler.getMetrics().setAction(RESUME_ACTION);
+
           try {
-            do {
-              if (!advance()) return;
+            // if every breakpoint is hooked, R continues by itself and stops at the hooked line,
+            // otherwise functions without breakpoints are executed by R itself and only calls which could reach a breakpoint are stepped
+
+            final boolean hooked = myDebugger.isHooked();
 
-              myStack.update();
+            myDebugger.releaseFunctions(hooked ? Collections.<String>emptySet() : calculateRetainedFunctions());
+
+            do {
+              if (!(hooked ? resumeDebugger() : advance(0))) return;
             }
             while (!isBreakpoint());
 
+            myDebugger.restoreFunctions();
+
+            updateStack();
+
             showDebugInformation();
           }
           catch (final TheRDebuggerException e) {
@@ -246,6 +304,7 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
     }
 
     myTempBreakpoints.add(new XSourcePositionWrapper(position));
+    updateBreakpoints();
 
     resume();
   }
@@ -261,12 +320,14 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
       new Runnable() {
         @Override
         public void run() {
+          myProcessHandler.getMetrics().setAction(INITIALIZE_ACTION);
+
           try {
             for (final String command : TheRInterpreterConstants.INIT_DEBUG_COMMANDS) {
-              myProcessHandler.execute(command);
+              myCommandExecutor.execute(command);
             }
 
-            TheRProcessUtils.executeInitGraphicsCommands(getSession().getProject(), myProcessHandler);
+            TheRProcessUtils.executeInitGraphicsCommands(getSession().getProject(), myCommandExecutor);
           }
           catch (final TheRDebuggerException e) {
             handleException(e);
@@ -286,8 +347,24 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
   }
 
   private boolean advance() throws TheRDebuggerException {
-    final boolean executed = myDebugger.advance();
+    return stopIfNotExecuted(myDebugger.advance());
+  }
+
+  private boolean advance(final int depth) throws TheRDebuggerException {
+    // steps without possible breakpoint are not passed to this layer, see TheRDebugger#advance(int)
+
+    return stopIfNotExecuted(myDebugger.advance(depth));
+  }
+
+  private boolean resumeDebugger() throws TheRDebuggerException {
+    return stopIfNotExecuted(myDebugger.resume());
+  }
+
+  private boolean finish(final int depth) throws TheRDebuggerException {
+    return stopIfNotExecuted(myDebugger.finish(depth));
+  }
 
+  private boolean stopIfNotExecuted(final boolean executed) {
     if (!executed) {
       getSession().stop();
     }
@@ -295,44 +372,113 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
     return executed;
   }
 
-  private boolean isBreakpoint() {
-    final XSourcePositionWrapper wrapper = new XSourcePositionWrapper(getCurrentPosition());
+  private boolean isBreakpoint() throws TheRDebuggerException {
+    // stack is resolved only if the current location could have a breakpoint,
+    // so intermediate steps don't create stack frames and source positions,
+    // the following steps are made with armed hooks, so conditional breakpoints are checked by R, see TheRDebugger#isAtBreakpoint
+
+    myIsStackUpdated = false;
+
+    if (myDebugger.isAtBreakpoint()) {
+      updateStack();
+
+      final XSourcePositionWrapper wrapper = new XSourcePositionWrapper(getCurrentPosition());
+
+      if (myTempBreakpoints.contains(wrapper) || myBreakpoints.containsKey(wrapper)) {
+        return true;
+      }
+    }
+
+    if (myDebugger.hasHookedConditions()) {
+      myDebugger.armHooks();
+    }
+
+    return false;
+  }
+
+  private void updateStack() {
+    // stack is updated only once per stop, isBreakpoint could have already updated it
+
+    if (!myIsStackUpdated) {
+      myStack.update();
+
+      myIsStackUpdated = true;
+    }
+  }
+
+  private void updateBreakpoints() {
+    myDebugger.setBreakpoints(myResolvingSession.resolveBreakpoints(calculateBreakpointPositions(), calculateBreakpointConditions()));
+  }
+
+  @NotNull
+  private Map<XSourcePosition, String> calculateBreakpointConditions() {
+    // run to cursor stops at the position regardless of the breakpoint condition
+
+    final Map<XSourcePosition, String> conditions = new HashMap<XSourcePosition, String>();
+
+    for (final Map.Entry<XSourcePositionWrapper, XLineBreakpoint<XBreakpointProperties>> entry : myBreakpoints.entrySet()) {
+      final XExpression conditionExpression = entry.getValue().getConditionExpression();
+
+      if (conditionExpression != null &&
+          !conditionExpression.getExpression().trim().isEmpty() &&
+          !myTempBreakpoints.contains(entry.getKey())) {
+        conditions.put(entry.getKey().myPosition, conditionExpression.getExpression());
+      }
+    }
+
+    return conditions;
+  }
+
+  @NotNull
+  private Set<String> calculateRetainedFunctions() {
+    return myResolvingSession.resolveEnclosingFunctions(calculateBreakpointPositions());
+  }
+
+  @NotNull
+  private List<XSourcePosition> calculateBreakpointPositions() {
+    final List<XSourcePosition> positions = new ArrayList<XSourcePosition>();
+
+    for (final XSourcePositionWrapper wrapper : myBreakpoints.keySet()) {
+      positions.add(wrapper.myPosition);
+    }
+
+    for (final XSourcePositionWrapper wrapper : myTempBreakpoints) {
+      positions.add(wrapper.myPosition);
+    }
 
-    return myBreakpoints.containsKey(wrapper) || myTempBreakpoints.contains(wrapper);
+    return positions;
   }
 
-  private void showDebugInformation() {
+  private void showDebugInformation() throws TheRDebuggerException {
     final XSourcePositionWrapper wrapper = new XSourcePositionWrapper(getCurrentPosition());
     final XLineBreakpoint<XBreakpointProperties> breakpoint = myBreakpoints.get(wrapper);
 
     final XDebugSession session = getSession();
     final XSuspendContext suspendContext = myStack.getSuspendContext();
 
-    if (breakpoint != null) {
-      final XDebuggerEvaluator evaluator = getActiveEvaluator();
-      final XExpression conditionExpression = breakpoint.getConditionExpression();
-
-      if (evaluator != null && conditionExpression != null) {
-        evaluator.evaluate(
-          conditionExpression,
-          new EvaluationCallback(breakpoint, suspendContext),
-          null
-        );
-      }
-      else if (!session.breakpointReached(breakpoint, null, suspendContext)) { // 2nd arg is printed to console when breakpoint is reached
+    if (breakpoint != null && myDebugger.isAtBreakpoint()) {
+      if (!session.breakpointReached(breakpoint, null, suspendContext)) { // 2nd arg is printed to console when breakpoint is reached
         resume();
       }
     }
     else {
       session.positionReached(suspendContext);
 
-      myTempBreakpoints.remove(wrapper);
+      if (myTempBreakpoints.remove(wrapper)) {
+        updateBreakpoints();
+      }
     }
 
     TheRGraphicsUtils.getGraphicsState(session.getProject()).refresh(true);
   }
 
   private void handleException(@NotNull final TheRDebuggerException e) {
+    if (e instanceof TheRInterruptedException) {
+      handleInterruption();
+
+      return;
+    }
+
     if (e instanceof TheRRuntimeException) {
       if (e.getMessage().isEmpty()) { // sometimes error message couldn't be loaded in time
         myOutputReceiver.receiveError("Debug has been interrupted because of runtime error");
@@ -350,6 +496,21 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
     LOGGER.error(e);
   }
 
+  private void handleInterruption() {
+    // debugger has been already resynchronized with the browser prompt R has returned to
+
+    try {
+      myDebugger.restoreFunctions();
+
+      myStack.update();
+
+      showDebugInformation();
+    }
+    catch (final TheRDebuggerException e) {
+      handleException(e);
+    }
+  }
+
   @NotNull
   private XSourcePosition getCurrentPosition() {
     final XExecutionStack stack = myStack.getSuspendContext().getActiveExecutionStack();
@@ -361,16 +522,6 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
     return frame.getSourcePosition();  // TODO [xdbg][null]
   }
 
-  @Nullable
-  private XDebuggerEvaluator getActiveEvaluator() {
-    final XExecutionStack activeExecutionStack = myStack.getSuspendContext().getActiveExecutionStack();
-    assert activeExecutionStack != null; // see TheRXSuspendContext#getActiveExecutionStack()
-
-    final XStackFrame topFrame = activeExecutionStack.getTopFrame();
-
-    return topFrame == null ? null : topFrame.getEvaluator();
-  }
-
   private static class XSourcePositionWrapper {
 
     @NotNull
@@ -411,6 +562,8 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
         new XSourcePositionWrapper(breakpoint.getSourcePosition()),
         breakpoint
       );
+
+      updateBreakpoints();
     }
 
     @Override
@@ -420,44 +573,8 @@ class TheRDebugProcess extends XDebugProcess implements TheRXProcessHandler.List
       myBreakpoints.remove(
         new XSourcePositionWrapper(breakpoint.getSourcePosition())
       );
-    }
-  }
-
-  private class EvaluationCallback implements XDebuggerEvaluator.XEvaluationCallback {
 
-    private final int myPrefixLength = "[1] ".length();
-
-    @NotNull
-    private final XLineBreakpoint<XBreakpointProperties> myBreakpoint;
-
-    @NotNull
-    private final XSuspendContext mySuspendContext;
-
-    public EvaluationCallback(@NotNull final XLineBreakpoint<XBreakpointProperties> breakpoint,
-                              @NotNull final XSuspendContext suspendContext) {
-      myBreakpoint = breakpoint;
-      mySuspendContext = suspendContext;
-    }
-
-    @Override
-    public void evaluated(@NotNull final XValue result) {
-      if (result instanceof TheRXValue) {
-        final String value = ((TheRXValue)result).getValue();
-        final boolean evaluatedToTrue = value.length() > myPrefixLength && Boolean.parseBoolean(value.substring(myPrefixLength));
-
-        if (evaluatedToTrue &&
-            getSession()
-              .breakpointReached(myBreakpoint, null, mySuspendContext)) { // 2 arg is printed to console when breakpoint is reached
-          return;
-        }
-      }
-
-      resume();
-    }
-
-    @Override
-    public void errorOccurred(@NotNull final String errorMessage) {
-      LOGGER.info(errorMessage);
+      updateBreakpoints();
     }
   }
 }
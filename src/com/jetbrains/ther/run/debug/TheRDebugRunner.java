@@ -9,11 +9,11 @@ import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.execution.runners.GenericProgramRunner;
 import com.intellij.execution.ui.ExecutionConsole;
 import com.intellij.execution.ui.RunContentDescriptor;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.util.ConcurrencyUtil;
 import com.intellij.xdebugger.XDebugProcess;
 import com.intellij.xdebugger.XDebugProcessStarter;
 import com.intellij.xdebugger.XDebugSession;
@@ -22,6 +22,10 @@ import com.jetbrains.ther.debugger.TheRDebugger;
 import com.jetbrains.ther.debugger.TheROutputReceiver;
 import com.jetbrains.ther.debugger.evaluator.TheRDebuggerEvaluatorFactoryImpl;
 import com.jetbrains.ther.debugger.evaluator.TheRExpressionHandlerImpl;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionMetrics;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import com.jetbrains.ther.debugger.executor.TheRRecordingExecutor;
 import com.jetbrains.ther.debugger.frame.TheRValueModifierFactoryImpl;
 import com.jetbrains.ther.debugger.frame.TheRValueModifierHandlerImpl;
 import com.jetbrains.ther.debugger.frame.TheRVarsLoaderFactoryImpl;
@@ -35,12 +39,22 @@ import com.jetbrains.ther.run.debug.resolve.TheRResolvingSessionImpl;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 public class TheRDebugRunner extends GenericProgramRunner {
 
+  @NotNull
+  private static final Logger LOGGER = Logger.getInstance(TheRDebugRunner.class);
+
+  @NotNull
+  private static final String TRANSCRIPT_ENV_KEY = "ther.debugger.transcript";
+
   @NotNull
   private static final String FILE_IS_NOT_FOUND = "File is not found [path: %s]";
 
@@ -76,12 +90,19 @@ public class TheRDebugRunner extends GenericProgramRunner {
     final TheRRunConfiguration runConfiguration = (TheRRunConfiguration)environment.getRunProfile();
     final String scriptPath = runConfiguration.getScriptPath();
 
+    final TheRExecutor executor = createExecutor(processHandler, runConfiguration.getEnvs().get(TRANSCRIPT_ENV_KEY));
+
     final XDebugSession session = XDebuggerManager.getInstance(project).startSession(
       environment,
       createDebugProcessStarter(
         processHandler,
+        executor,
         executionResult.getExecutionConsole(),
-        createDebugger(processHandler, outputReceiver, scriptPath),
+        createDebugger(
+          executor,
+          outputReceiver,
+          scriptPath
+        ),
         outputReceiver,
         createResolvingSession(
           project,
@@ -103,6 +124,7 @@ public class TheRDebugRunner extends GenericProgramRunner {
 
   @NotNull
   private XDebugProcessStarter createDebugProcessStarter(@NotNull final TheRXProcessHandler processHandler,
+                                                         @NotNull final TheRExecutor executor,
                                                          @NotNull final ExecutionConsole executionConsole,
                                                          @NotNull final TheRDebugger debugger,
                                                          @NotNull final TheROutputReceiver outputReceiver,
@@ -114,25 +136,95 @@ public class TheRDebugRunner extends GenericProgramRunner {
         return new TheRDebugProcess(
           session,
           processHandler,
+          executor,
           executionConsole,
           debugger,
           outputReceiver,
           resolvingSession,
-          ConcurrencyUtil.newSingleThreadExecutor(EXECUTOR_NAME)
+          createDebugExecutor(processHandler.getMetrics())
         );
       }
     };
   }
 
   @NotNull
-  private TheRDebugger createDebugger(@NotNull final TheRXProcessHandler processHandler,
+  private TheRExecutor createExecutor(@NotNull final TheRXProcessHandler processHandler, @Nullable final String transcriptPath)
+    throws ExecutionException {
+    // transcript could be replayed by `TheRReplayingExecutor` without R
+
+    if (transcriptPath == null || transcriptPath.isEmpty()) {
+      return processHandler;
+    }
+
+    final TheRRecordingExecutor result;
+
+    try {
+      result = new TheRRecordingExecutor(
+        processHandler,
+        new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(transcriptPath)), "UTF-8")
+      );
+    }
+    catch (final IOException e) {
+      throw new ExecutionException(e);
+    }
+
+    processHandler.addListener(
+      new TheRXProcessHandler.Listener() {
+        @Override
+        public void onInitialized() {
+        }
+
+        @Override
+        public void onTerminated(@NotNull final String errorBuffer) {
+          try {
+            result.close();
+          }
+          catch (final TheRDebuggerException e) {
+            LOGGER.warn(e);
+          }
+        }
+      }
+    );
+
+    return result;
+  }
+
+  @NotNull
+  private ExecutorService createDebugExecutor(@NotNull final TheRExecutionMetrics metrics) {
+    // every task starts as `other` action, tasks which are interesting on their own set their action explicitly
+
+    return new ThreadPoolExecutor(
+      1,
+      1,
+      0,
+      TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactory() {
+        @NotNull
+        @Override
+        public Thread newThread(@NotNull final Runnable r) {
+          return new Thread(r, EXECUTOR_NAME);
+        }
+      }
+    ) {
+      @Override
+      protected void beforeExecute(@NotNull final Thread t, @NotNull final Runnable r) {
+        metrics.setAction(TheRExecutionMetrics.OTHER_ACTION);
+
+        super.beforeExecute(t, r);
+      }
+    };
+  }
+
+  @NotNull
+  private TheRDebugger createDebugger(@NotNull final TheRExecutor executor,
                                       @NotNull final TheROutputReceiver outputReceiver,
                                       @NotNull final String scriptPath) throws ExecutionException {
     try {
       return new TheRDebugger(
-        processHandler,
+        executor,
         new TheRFunctionDebuggerFactoryImpl(),
-        new TheRVarsLoaderFactoryImpl(processHandler, outputReceiver),
+        new TheRVarsLoaderFactoryImpl(executor, outputReceiver, true),
         new TheRDebuggerEvaluatorFactoryImpl(),
         new BufferedReader(new FileReader(scriptPath)),
         outputReceiver,
@@ -1,10 +1,15 @@
 package com.jetbrains.ther.run.debug.resolve;
 
 import com.intellij.xdebugger.XSourcePosition;
+import com.jetbrains.ther.debugger.TheRBreakpointTable;
 import com.jetbrains.ther.debugger.data.TheRLocation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 public interface TheRResolvingSession {
 
   @Nullable
@@ -14,4 +19,11 @@ public interface TheRResolvingSession {
   XSourcePosition resolveCurrent(final int line);
 
   void dropLast(final int number);
+
+  @NotNull
+  Set<String> resolveEnclosingFunctions(@NotNull final Collection<XSourcePosition> positions);
+
+  @NotNull
+  TheRBreakpointTable resolveBreakpoints(@NotNull final Collection<XSourcePosition> positions,
+                                        @NotNull final Map<XSourcePosition, String> conditions);
 }
@@ -9,14 +9,13 @@ import com.intellij.psi.PsiManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.xdebugger.XDebuggerUtil;
 import com.intellij.xdebugger.XSourcePosition;
+import com.jetbrains.ther.debugger.TheRBreakpointTable;
 import com.jetbrains.ther.debugger.data.TheRLocation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.*;
 
 public class TheRResolvingSessionImpl implements TheRResolvingSession {
 
@@ -59,13 +58,47 @@ public class TheRResolvingSessionImpl implements TheRResolvingSession {
 
   @Override
   public void dropLast(final int number) {
-    final ListIterator<TheRResolvingSessionEntry> iterator = myEntries.listIterator(myEntries.size());
-    iterator.previous();
-
     for (int i = 0; i < number; i++) {
-      iterator.remove();
-      iterator.previous();
+      myEntries.remove(myEntries.size() - 1);
+    }
+  }
+
+  @NotNull
+  @Override
+  public Set<String> resolveEnclosingFunctions(@NotNull final Collection<XSourcePosition> positions) {
+    final Set<String> result = new HashSet<String>();
+
+    for (final XSourcePosition position : positions) {
+      if (position.getFile().equals(myVirtualFile)) {
+        addEnclosingFunctions(myRoot, position.getLine(), result);
+      }
+    }
+
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public TheRBreakpointTable resolveBreakpoints(@NotNull final Collection<XSourcePosition> positions,
+                                               @NotNull final Map<XSourcePosition, String> conditions) {
+    // conditions are stored by 1-based lines, see `addBreakpoint`
+
+    final Map<String, BitSet> result = new HashMap<String, BitSet>();
+    final Map<Integer, String> resultConditions = new HashMap<Integer, String>();
+
+    for (final XSourcePosition position : positions) {
+      if (position.getFile().equals(myVirtualFile)) {
+        addBreakpoint(myRoot, position.getLine(), result);
+
+        final String condition = conditions.get(position);
+
+        if (condition != null) {
+          resultConditions.put(position.getLine() + 1, condition);
+        }
+      }
     }
+
+    return new TheRBreakpointTable(result, resultConditions);
   }
 
   @NotNull
@@ -198,6 +231,48 @@ public class TheRResolvingSessionImpl implements TheRResolvingSession {
     return result;
   }
 
+  private static void addEnclosingFunctions(@NotNull final TheRFunctionDescriptor descriptor,
+                                            final int line,
+                                            @NotNull final Set<String> result) {
+    for (final List<TheRFunctionDescriptor> sameNameChildren : descriptor.getChildren().values()) {
+      for (final TheRFunctionDescriptor child : sameNameChildren) {
+        if (child.getStartLine() <= line && line <= child.getEndLine()) {
+          result.add(child.getName());
+
+          addEnclosingFunctions(child, line, result);
+        }
+      }
+    }
+  }
+
+  private static void addBreakpoint(@NotNull final TheRFunctionDescriptor descriptor,
+                                    final int line,
+                                    @NotNull final Map<String, BitSet> result) {
+    // reverse of `resolveLine`: 0-based line is converted to 1-based one,
+    // unbrace function is located at 0 line
+
+    BitSet lines = result.get(descriptor.getName());
+
+    if (lines == null) {
+      lines = new BitSet();
+      result.put(descriptor.getName(), lines);
+    }
+
+    lines.set(line + 1);
+
+    if (line == descriptor.getStartLine()) {
+      lines.set(0);
+    }
+
+    for (final List<TheRFunctionDescriptor> sameNameChildren : descriptor.getChildren().values()) {
+      for (final TheRFunctionDescriptor child : sameNameChildren) {
+        if (child.getStartLine() <= line && line <= child.getEndLine()) {
+          addBreakpoint(child, line, result);
+        }
+      }
+    }
+  }
+
   private static class TheRResolvingSessionEntry {
 
     @Nullable
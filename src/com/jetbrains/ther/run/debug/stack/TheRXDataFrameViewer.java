@@ -0,0 +1,190 @@
+package com.jetbrains.ther.run.debug.stack;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameChunk;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameInfo;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+// modal to prevent resuming while rows are being loaded from the suspended frame
+class TheRXDataFrameViewer extends DialogWrapper {
+
+  @NotNull
+  private final JComponent myComponent;
+
+  public TheRXDataFrameViewer(@NotNull final String name,
+                              @NotNull final TheRDataFrameLoader loader,
+                              @NotNull final TheRDataFrameInfo info,
+                              @NotNull final ExecutorService executor) {
+    super(false);
+
+    setTitle(name + " (" + info.getRowCount() + " x " + info.getColumns().size() + ")");
+    setModal(true);
+
+    final JBTable table = new JBTable(new TheRXDataFrameTableModel(loader, info, executor));
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+
+    myComponent = new JBScrollPane(table);
+    myComponent.setPreferredSize(new Dimension(800, 600));
+
+    init();
+  }
+
+  @Nullable
+  @Override
+  protected JComponent createCenterPanel() {
+    return myComponent;
+  }
+
+  private static class TheRXDataFrameTableModel extends AbstractTableModel {
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getInstance(TheRXDataFrameTableModel.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final int MAX_CHUNKS = 20;
+
+    @NotNull
+    private static final String LOADING = "...";
+
+    @NotNull
+    private final TheRDataFrameLoader myLoader;
+
+    @NotNull
+    private final TheRDataFrameInfo myInfo;
+
+    @NotNull
+    private final ExecutorService myExecutor;
+
+    @NotNull
+    private final Map<Integer, TheRDataFrameChunk> myChunks;
+
+    @NotNull
+    private final Set<Integer> myPendingChunks;
+
+    @NotNull
+    private final List<Integer> myQueuedChunks;
+
+    public TheRXDataFrameTableModel(@NotNull final TheRDataFrameLoader loader,
+                                    @NotNull final TheRDataFrameInfo info,
+                                    @NotNull final ExecutorService executor) {
+      myLoader = loader;
+      myInfo = info;
+      myExecutor = executor;
+
+      myChunks = new LinkedHashMap<Integer, TheRDataFrameChunk>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(@NotNull final Map.Entry<Integer, TheRDataFrameChunk> eldest) {
+          return size() > MAX_CHUNKS;
+        }
+      };
+
+      myPendingChunks = new HashSet<Integer>();
+      myQueuedChunks = new ArrayList<Integer>();
+    }
+
+    @Override
+    public int getRowCount() {
+      return myInfo.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return myInfo.getColumns().size();
+    }
+
+    @NotNull
+    @Override
+    public String getColumnName(final int column) {
+      return myInfo.getColumns().get(column).getName();
+    }
+
+    @NotNull
+    @Override
+    public Object getValueAt(final int row, final int column) {
+      // called from EDT only, so chunks are requested only for visible rows
+
+      final int from = row - row % CHUNK_SIZE;
+      final TheRDataFrameChunk chunk = myChunks.get(from);
+
+      if (chunk != null) {
+        return chunk.getValue(row, column);
+      }
+
+      if (myPendingChunks.add(from)) {
+        scheduleLoading(from);
+      }
+
+      return LOADING;
+    }
+
+    private void scheduleLoading(final int from) {
+      // chunks requested while the previous loading is waiting for the executor are loaded together
+
+      final boolean isScheduled;
+
+      synchronized (myQueuedChunks) {
+        isScheduled = !myQueuedChunks.isEmpty();
+        myQueuedChunks.add(from);
+      }
+
+      if (isScheduled) {
+        return;
+      }
+
+      myExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            final List<Integer> froms;
+
+            synchronized (myQueuedChunks) {
+              froms = new ArrayList<Integer>(myQueuedChunks);
+              myQueuedChunks.clear();
+            }
+
+            List<TheRDataFrameChunk> chunks = null;
+
+            try {
+              chunks = myLoader.loadChunks(myInfo, froms, CHUNK_SIZE);
+            }
+            catch (final TheRDebuggerException e) {
+              LOGGER.warn(e);
+            }
+
+            final List<TheRDataFrameChunk> loaded = chunks;
+
+            SwingUtilities.invokeLater(
+              new Runnable() {
+                @Override
+                public void run() {
+                  myPendingChunks.removeAll(froms);
+
+                  if (loaded != null) {
+                    for (final TheRDataFrameChunk chunk : loaded) {
+                      myChunks.put(chunk.getFrom(), chunk);
+                      fireTableRowsUpdated(chunk.getFrom(), chunk.getFrom() + chunk.getSize() - 1);
+                    }
+                  }
+                }
+              }
+            );
+          }
+        }
+      );
+    }
+  }
+}
@@ -6,6 +6,9 @@ import com.jetbrains.ther.debugger.evaluator.TheRDebuggerEvaluator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 // TODO [xdbg][test]
@@ -17,23 +20,66 @@ class TheRXDebuggerEvaluator extends XDebuggerEvaluator {
   @NotNull
   private final ExecutorService myExecutor;
 
+  @NotNull
+  private final List<String> myPendingExpressions;
+
+  @NotNull
+  private final List<TheRDebuggerEvaluator.Receiver> myPendingReceivers;
+
   public TheRXDebuggerEvaluator(@NotNull final TheRDebuggerEvaluator evaluator, @NotNull final ExecutorService executor) {
     myEvaluator = evaluator;
     myExecutor = executor;
+
+    myPendingExpressions = new ArrayList<String>();
+    myPendingReceivers = new ArrayList<TheRDebuggerEvaluator.Receiver>();
   }
 
   @Override
   public void evaluate(@NotNull final String expression,
                        @NotNull final XEvaluationCallback callback,
                        @Nullable final XSourcePosition expressionPosition) {
+    // watches are evaluated one by one during the same EDT event,
+    // so expressions are collected until the event is over and then evaluated by one command
+
+    synchronized (myPendingExpressions) {
+      myPendingExpressions.add(expression);
+      myPendingReceivers.add(new ExpressionReceiver(callback));
+
+      if (myPendingExpressions.size() == 1) {
+        SwingUtilities.invokeLater(
+          new Runnable() {
+            @Override
+            public void run() {
+              scheduleEvaluation();
+            }
+          }
+        );
+      }
+    }
+  }
+
+  private void scheduleEvaluation() {
+    final List<String> expressions;
+    final List<TheRDebuggerEvaluator.Receiver> receivers;
+
+    synchronized (myPendingExpressions) {
+      expressions = new ArrayList<String>(myPendingExpressions);
+      receivers = new ArrayList<TheRDebuggerEvaluator.Receiver>(myPendingReceivers);
+
+      myPendingExpressions.clear();
+      myPendingReceivers.clear();
+    }
+
     myExecutor.execute(
       new Runnable() {
         @Override
         public void run() {
-          myEvaluator.evaluate(
-            expression,
-            new ExpressionReceiver(callback)
-          );
+          if (expressions.size() == 1) {
+            myEvaluator.evaluate(expressions.get(0), receivers.get(0));
+          }
+          else {
+            myEvaluator.evaluate(expressions, receivers);
+          }
         }
       }
     );
@@ -19,6 +19,30 @@ final class TheRXPresentationUtils {
     }
   }
 
+  public static void computeSummaryPresentation(@NotNull final TheRVar var,
+                                                @NotNull final XValueNode node,
+                                                @NotNull final XFullValueEvaluator evaluator) {
+    node.setPresentation(
+      AllIcons.Debugger.Value,
+      var.getType(),
+      calculatePreview(var.getValue()),
+      true
+    );
+
+    node.setFullValueEvaluator(evaluator);
+  }
+
+  public static void computePagePresentation(@NotNull final XValueNode node, @NotNull final XFullValueEvaluator evaluator) {
+    node.setPresentation(
+      AllIcons.Debugger.Value,
+      null,
+      "",
+      false
+    );
+
+    node.setFullValueEvaluator(evaluator);
+  }
+
   public static void computePresentation(@NotNull final String value, @NotNull final XValueNode node) {
     if (isOneLine(value)) {
       setPresentation(node, value);
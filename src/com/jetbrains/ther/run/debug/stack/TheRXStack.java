@@ -1,6 +1,7 @@
 package com.jetbrains.ther.run.debug.stack;
 
 import com.intellij.xdebugger.frame.XSuspendContext;
+import com.jetbrains.ther.debugger.executor.TheRExecutionMetrics;
 import com.jetbrains.ther.debugger.frame.TheRStackFrame;
 import com.jetbrains.ther.run.debug.resolve.TheRResolvingSession;
 import org.jetbrains.annotations.NotNull;
@@ -8,6 +9,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.ExecutorService;
@@ -23,26 +25,37 @@ public class TheRXStack {
   @NotNull
   private final ExecutorService myExecutor;
 
+  @NotNull
+  private final TheRExecutionMetrics myMetrics;
+
   @Nullable
   private List<TheRXStackFrame> myStack;
 
   @Nullable
   private XSuspendContext mySuspendContext;
 
+  @NotNull
+  private List<TheRStackFrame> myPreviousOriginalStack;
+
   public TheRXStack(@NotNull final List<TheRStackFrame> stack,
                     @NotNull final TheRResolvingSession session,
-                    @NotNull final ExecutorService executor) {
+                    @NotNull final ExecutorService executor,
+                    @NotNull final TheRExecutionMetrics metrics) {
     myOriginalStack = stack;
     mySession = session;
     myExecutor = executor;
+    myMetrics = metrics;
     myStack = null;
     mySuspendContext = null;
+    myPreviousOriginalStack = Collections.emptyList();
   }
 
   public void update() {
-    // `myOriginalStack` ends with newest frame and `myStack` ends with eldest frame
+    // `myOriginalStack` ends with newest frame and `myStack` ends with eldest frame,
+    // update could be called not after every step, so frames are compared by identity instead of depth
 
     myStack = calculateStack(myStack, myOriginalStack);
+    myPreviousOriginalStack = new ArrayList<TheRStackFrame>(myOriginalStack);
     mySuspendContext = new TheRXSuspendContext(myStack);
   }
 
@@ -64,110 +77,83 @@ public class TheRXStack {
 
     final int prevSize = previousStack.size();
     final int currentSize = currentStack.size();
+    final int commonSize = calculateCommonSize(currentStack);
 
-    if (prevSize == currentSize) {
-      return calculateStackOnTheSameDepth(previousStack, currentStack);
-    }
-    else if (currentSize > prevSize) {
-      return calculateStackOnTheMoreDepth(previousStack, currentStack);
-    }
-    else {
-      return calculateStackOnTheLessDepth(previousStack, currentStack);
-    }
-  }
+    final TheRXStackFrame[] result = new TheRXStackFrame[currentSize];
 
-  @NotNull
-  private List<TheRXStackFrame> calculateStackFully(@NotNull final List<TheRStackFrame> currentStack) {
-    final TheRXStackFrame[] result = new TheRXStackFrame[currentStack.size()];
+    final ListIterator<TheRXStackFrame> previousStackIterator = previousStack.listIterator(prevSize - commonSize);
 
-    int index = 0;
-    for (final TheRStackFrame frame : currentStack) {
-      result[result.length - 1 - index] =
-        new TheRXStackFrame(
-          frame,
-          mySession.resolveNext(frame.getLocation()),
-          myExecutor
-        );
-
-      index++;
+    for (int i = 0; i < commonSize; i++) {
+      result[currentSize - commonSize + i] = previousStackIterator.next();
     }
 
-    return Arrays.asList(result);
-  }
-
-  @NotNull
-  private List<TheRXStackFrame> calculateStackOnTheSameDepth(@NotNull final List<TheRXStackFrame> previousStack,
-                                                             @NotNull final List<TheRStackFrame> currentStack) {
-    final List<TheRXStackFrame> result = new ArrayList<TheRXStackFrame>(previousStack);
-    final TheRStackFrame lastFrame = currentStack.get(currentStack.size() - 1);
-
-    result.set(
-      0,
-      new TheRXStackFrame(
-        lastFrame,
-        mySession.resolveCurrent(
-          lastFrame.getLocation().getLine()
-        ),
-        myExecutor
-      )
-    );
-
-    return result;
-  }
+    if (prevSize > commonSize) {
+      mySession.dropLast(prevSize - commonSize);
+    }
 
-  @NotNull
-  private List<TheRXStackFrame> calculateStackOnTheMoreDepth(@NotNull final List<TheRXStackFrame> previousStack,
-                                                             @NotNull final List<TheRStackFrame> currentStack) {
-    final TheRXStackFrame[] result = new TheRXStackFrame[currentStack.size()];
-    final int offset = currentStack.size() - previousStack.size();
+    if (commonSize > 0 && (prevSize > commonSize || currentStack.get(commonSize - 1) != myPreviousOriginalStack.get(commonSize - 1))) {
+      // eldest common frame has been resumed since previous update
 
-    int index = 0;
-    for (final TheRXStackFrame previousFrame : previousStack) {
-      result[offset + index] = previousFrame;
+      final TheRStackFrame frame = currentStack.get(commonSize - 1);
 
-      index++;
+      result[currentSize - commonSize] =
+        new TheRXStackFrame(
+          frame,
+          mySession.resolveCurrent(
+            frame.getLocation().getLine()
+          ),
+          myExecutor,
+          myMetrics
+        );
     }
 
-    final ListIterator<TheRStackFrame> currentStackIterator = currentStack.listIterator(previousStack.size());
+    final ListIterator<TheRStackFrame> currentStackIterator = currentStack.listIterator(commonSize);
 
-    for (int i = 0; i < offset; i++) {
+    for (int i = commonSize; i < currentSize; i++) {
       final TheRStackFrame frame = currentStackIterator.next();
 
-      result[offset - 1 - i] =
+      result[currentSize - 1 - i] =
         new TheRXStackFrame(
           frame,
           mySession.resolveNext(frame.getLocation()),
-          myExecutor
+          myExecutor,
+          myMetrics
         );
     }
 
     return Arrays.asList(result);
   }
 
-  @NotNull
-  private List<TheRXStackFrame> calculateStackOnTheLessDepth(@NotNull final List<TheRXStackFrame> previousStack,
-                                                             @NotNull final List<TheRStackFrame> currentStack) {
-    final TheRXStackFrame[] result = new TheRXStackFrame[currentStack.size()];
-    final int offset = previousStack.size() - currentStack.size();
+  private int calculateCommonSize(@NotNull final List<TheRStackFrame> currentStack) {
+    // debugger replaces the newest frame on every step but keeps its loader, so loader identifies the frame
 
-    final ListIterator<TheRXStackFrame> previousStackIterator = previousStack.listIterator(offset);
+    final int size = Math.min(myPreviousOriginalStack.size(), currentStack.size());
 
-    for (int i = 0; i < currentStack.size(); i++) {
-      result[i] = previousStackIterator.next();
+    for (int i = 0; i < size; i++) {
+      if (myPreviousOriginalStack.get(i).getLoader() != currentStack.get(i).getLoader()) {
+        return i;
+      }
     }
 
-    final TheRStackFrame lastFrame = currentStack.get(currentStack.size() - 1);
+    return size;
+  }
+
+  @NotNull
+  private List<TheRXStackFrame> calculateStackFully(@NotNull final List<TheRStackFrame> currentStack) {
+    final TheRXStackFrame[] result = new TheRXStackFrame[currentStack.size()];
 
-    mySession.dropLast(offset);
+    int index = 0;
+    for (final TheRStackFrame frame : currentStack) {
+      result[result.length - 1 - index] =
+        new TheRXStackFrame(
+          frame,
+          mySession.resolveNext(frame.getLocation()),
+          myExecutor,
+          myMetrics
+        );
 
-    result[0] =
-      new TheRXStackFrame(
-        lastFrame,
-        mySession.resolveCurrent(
-          lastFrame.getLocation().getLine()
-        ),
-        myExecutor
-      );
+      index++;
+    }
 
     return Arrays.asList(result);
   }
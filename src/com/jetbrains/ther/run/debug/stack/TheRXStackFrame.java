@@ -1,14 +1,19 @@
 package com.jetbrains.ther.run.debug.stack;
 
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.ui.ColoredTextContainer;
 import com.intellij.ui.SimpleTextAttributes;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.evaluation.XDebuggerEvaluator;
 import com.intellij.xdebugger.frame.*;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionMetrics;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameInfo;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameLoader;
 import com.jetbrains.ther.debugger.frame.TheRStackFrame;
 import com.jetbrains.ther.debugger.frame.TheRVar;
+import com.jetbrains.ther.debugger.frame.TheRVarsLoader;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -19,6 +24,11 @@ import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.MAIN_FUNCTI
 
 class TheRXStackFrame extends XStackFrame {
 
+  private static final int PAGE_SIZE = 1000;
+
+  @NotNull
+  private static final String LOAD_VARS_ACTION = "load vars";
+
   @NotNull
   private final TheRStackFrame myFrame;
 
@@ -28,15 +38,20 @@ class TheRXStackFrame extends XStackFrame {
   @NotNull
   private final ExecutorService myExecutor;
 
+  @NotNull
+  private final TheRExecutionMetrics myMetrics;
+
   @Nullable
   private TheRXDebuggerEvaluator myEvaluator;
 
   public TheRXStackFrame(@NotNull final TheRStackFrame frame,
                          @Nullable final XSourcePosition position,
-                         @NotNull final ExecutorService executor) {
+                         @NotNull final ExecutorService executor,
+                         @NotNull final TheRExecutionMetrics metrics) {
     myPosition = position;
     myFrame = frame;
     myExecutor = executor;
+    myMetrics = metrics;
     myEvaluator = null;
   }
 
@@ -62,6 +77,8 @@ class TheRXStackFrame extends XStackFrame {
       new Runnable() {
         @Override
         public void run() {
+          myMetrics.setAction(LOAD_VARS_ACTION);
+
           try {
             node.addChildren(
               transform(
@@ -94,7 +111,7 @@ class TheRXStackFrame extends XStackFrame {
     final XValueChildrenList result = new XValueChildrenList();
 
     for (final TheRVar var : vars) {
-      result.add(new TheRXVar(var, myExecutor));
+      result.add(new TheRXVar(var, myFrame.getLoader(), myExecutor));
     }
 
     return result;
@@ -112,19 +129,68 @@ class TheRXStackFrame extends XStackFrame {
     @NotNull
     private final TheRVar myVar;
 
+    @NotNull
+    private final TheRVarsLoader myLoader;
+
     @NotNull
     private final ExecutorService myExecutor;
 
-    public TheRXVar(@NotNull final TheRVar var, @NotNull final ExecutorService executor) {
+    private int myNextPage;
+
+    public TheRXVar(@NotNull final TheRVar var, @NotNull final TheRVarsLoader loader, @NotNull final ExecutorService executor) {
       super(var.getName());
 
       myVar = var;
+      myLoader = loader;
       myExecutor = executor;
+      myNextPage = 0;
     }
 
     @Override
     public void computePresentation(@NotNull final XValueNode node, @NotNull final XValuePlace place) {
-      TheRXPresentationUtils.computePresentation(myVar, node);
+      if (myVar.isComplete()) {
+        TheRXPresentationUtils.computePresentation(myVar, node);
+      }
+      else if (myVar.isDataFrame()) {
+        TheRXPresentationUtils.computeSummaryPresentation(
+          myVar,
+          node,
+          new TheRXDataFrameEvaluator(myLoader.getDataFrameLoader(myVar.getName()), myVar.getName(), myExecutor)
+        );
+      }
+      else {
+        TheRXPresentationUtils.computeSummaryPresentation(
+          myVar,
+          node,
+          new TheRXLoadingEvaluator(myLoader, myVar.getName(), -1, -1, myExecutor)
+        );
+      }
+    }
+
+    @Override
+    public void computeChildren(@NotNull final XCompositeNode node) {
+      // large value is split into pages, every page is loaded only when it is viewed
+
+      final int length = myVar.getLength();
+      final int pages = (length + PAGE_SIZE - 1) / PAGE_SIZE;
+      final int lastPage = Math.min(pages, myNextPage + XCompositeNode.MAX_CHILDREN_TO_SHOW);
+
+      final XValueChildrenList result = new XValueChildrenList();
+
+      for (int page = myNextPage; page < lastPage; page++) {
+        final int from = page * PAGE_SIZE + 1;
+        final int to = Math.min((page + 1) * PAGE_SIZE, length);
+
+        result.add(new TheRXPage(myVar.getName(), from, to, myLoader, myExecutor));
+      }
+
+      myNextPage = lastPage;
+
+      node.addChildren(result, lastPage == pages);
+
+      if (lastPage < pages) {
+        node.tooManyChildren(pages - lastPage);
+      }
     }
 
     @Nullable
@@ -138,4 +204,120 @@ class TheRXStackFrame extends XStackFrame {
       }
     }
   }
+
+  private static class TheRXPage extends XNamedValue {
+
+    @NotNull
+    private final TheRXLoadingEvaluator myEvaluator;
+
+    public TheRXPage(@NotNull final String var,
+                     final int from,
+                     final int to,
+                     @NotNull final TheRVarsLoader loader,
+                     @NotNull final ExecutorService executor) {
+      super("[" + from + ":" + to + "]");
+
+      myEvaluator = new TheRXLoadingEvaluator(loader, var, from, to, executor);
+    }
+
+    @Override
+    public void computePresentation(@NotNull final XValueNode node, @NotNull final XValuePlace place) {
+      TheRXPresentationUtils.computePagePresentation(node, myEvaluator);
+    }
+  }
+
+  private static class TheRXLoadingEvaluator extends XFullValueEvaluator {
+
+    @NotNull
+    private final TheRVarsLoader myLoader;
+
+    @NotNull
+    private final String myVar;
+
+    private final int myFrom;
+
+    private final int myTo;
+
+    @NotNull
+    private final ExecutorService myExecutor;
+
+    public TheRXLoadingEvaluator(@NotNull final TheRVarsLoader loader,
+                                 @NotNull final String var,
+                                 final int from,
+                                 final int to,
+                                 @NotNull final ExecutorService executor) {
+      myLoader = loader;
+      myVar = var;
+      myFrom = from;
+      myTo = to;
+      myExecutor = executor;
+    }
+
+    @Override
+    public void startEvaluation(@NotNull final XFullValueEvaluationCallback callback) {
+      myExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              callback.evaluated(myFrom == -1 ? myLoader.loadValue(myVar) : myLoader.loadValue(myVar, myFrom, myTo));
+            }
+            catch (final TheRDebuggerException e) {
+              callback.errorOccurred(e.getMessage());
+            }
+          }
+        }
+      );
+    }
+  }
+
+  private static class TheRXDataFrameEvaluator extends XFullValueEvaluator {
+
+    @NotNull
+    private final TheRDataFrameLoader myLoader;
+
+    @NotNull
+    private final String myVar;
+
+    @NotNull
+    private final ExecutorService myExecutor;
+
+    public TheRXDataFrameEvaluator(@NotNull final TheRDataFrameLoader loader,
+                                   @NotNull final String var,
+                                   @NotNull final ExecutorService executor) {
+      super("View as Table");
+
+      myLoader = loader;
+      myVar = var;
+      myExecutor = executor;
+    }
+
+    @Override
+    public void startEvaluation(@NotNull final XFullValueEvaluationCallback callback) {
+      myExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              final TheRDataFrameInfo info = myLoader.loadInfo();
+
+              callback.evaluated(info.getRowCount() + " obs. of " + info.getColumns().size() + " variables");
+
+              ApplicationManager.getApplication().invokeLater(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    new TheRXDataFrameViewer(myVar, myLoader, info, myExecutor).show();
+                  }
+                }
+              );
+            }
+            catch (final TheRDebuggerException e) {
+              callback.errorOccurred(e.getMessage());
+            }
+          }
+        }
+      );
+    }
+  }
 }
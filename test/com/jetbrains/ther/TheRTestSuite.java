@@ -1,13 +1,22 @@
 package com.jetbrains.ther;
 
+import com.jetbrains.ther.debugger.TheRBreakpointTableTest;
 import com.jetbrains.ther.debugger.TheRDebuggerStringUtilsTest;
 import com.jetbrains.ther.debugger.TheRDebuggerTest;
 import com.jetbrains.ther.debugger.TheRDebuggerUtilsTest;
 import com.jetbrains.ther.debugger.TheRForcedFunctionDebuggerHandlerTest;
+import com.jetbrains.ther.debugger.evaluator.TheRCachingDebuggerEvaluatorTest;
 import com.jetbrains.ther.debugger.evaluator.TheRDebuggerEvaluatorImplTest;
 import com.jetbrains.ther.debugger.evaluator.TheRExpressionHandlerImplTest;
+import com.jetbrains.ther.debugger.executor.TheRExecutionInterrupterTest;
+import com.jetbrains.ther.debugger.executor.TheRExecutionMetricsTest;
+import com.jetbrains.ther.debugger.executor.TheRExecutionPipelineTest;
 import com.jetbrains.ther.debugger.executor.TheRExecutionResultCalculatorImplTest;
 import com.jetbrains.ther.debugger.executor.TheRExecutorUtilsTest;
+import com.jetbrains.ther.debugger.executor.TheRReplayingExecutorTest;
+import com.jetbrains.ther.debugger.frame.TheRBatchVarsLoaderImplTest;
+import com.jetbrains.ther.debugger.frame.TheRCachingVarsLoaderTest;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameLoaderImplTest;
 import com.jetbrains.ther.debugger.frame.TheRValueModifierHandlerImplTest;
 import com.jetbrains.ther.debugger.frame.TheRValueModifierImplTest;
 import com.jetbrains.ther.debugger.frame.TheRVarsLoaderImplTest;
@@ -15,9 +24,11 @@ import com.jetbrains.ther.debugger.function.TheRBraceFunctionDebuggerTest;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerFactoryImplTest;
 import com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtilsTest;
 import com.jetbrains.ther.debugger.function.TheRUnbraceFunctionDebuggerTest;
+import com.jetbrains.ther.documentation.TheRHelpStoreTest;
 import com.jetbrains.ther.inspections.TheRTypeCheckerInspectionTest;
 import com.jetbrains.ther.inspections.TheRUnresolvedReferenceInspectionTest;
 import com.jetbrains.ther.inspections.TheRUnusedInspectionTest;
+import com.jetbrains.ther.interpreter.TheRWorkerTest;
 import com.jetbrains.ther.lexer.TheRHighlightingLexerTest;
 import com.jetbrains.ther.parser.TheRParsingTest;
 import com.jetbrains.ther.rename.TheRRenameTest;
@@ -60,15 +71,22 @@ public class TheRTestSuite extends TestCase {
     addDebuggerTests(suite);
     addRunTests(suite);
 
+    addJUnit4Test(suite, TheRWorkerTest.class);
+    addJUnit4Test(suite, TheRHelpStoreTest.class);
+
     return suite;
   }
 
   private static void addDebuggerTests(@NotNull final TestSuite suite) {
     // evaluator package
+    addJUnit4Test(suite, TheRCachingDebuggerEvaluatorTest.class);
     addJUnit4Test(suite, TheRDebuggerEvaluatorImplTest.class);
     addJUnit4Test(suite, TheRExpressionHandlerImplTest.class);
 
     // frame package
+    addJUnit4Test(suite, TheRBatchVarsLoaderImplTest.class);
+    addJUnit4Test(suite, TheRCachingVarsLoaderTest.class);
+    addJUnit4Test(suite, TheRDataFrameLoaderImplTest.class);
     addJUnit4Test(suite, TheRValueModifierHandlerImplTest.class);
     addJUnit4Test(suite, TheRValueModifierImplTest.class);
     addJUnit4Test(suite, TheRVarsLoaderImplTest.class);
@@ -80,10 +98,15 @@ public class TheRTestSuite extends TestCase {
     addJUnit4Test(suite, TheRTraceAndDebugUtilsTest.class);
 
     // interpreter package
+    addJUnit4Test(suite, TheRExecutionInterrupterTest.class);
+    addJUnit4Test(suite, TheRExecutionMetricsTest.class);
+    addJUnit4Test(suite, TheRExecutionPipelineTest.class);
     addJUnit4Test(suite, TheRExecutionResultCalculatorImplTest.class);
     addJUnit4Test(suite, TheRExecutorUtilsTest.class);
+    addJUnit4Test(suite, TheRReplayingExecutorTest.class);
 
     // `main` package
+    addJUnit4Test(suite, TheRBreakpointTableTest.class);
     addJUnit4Test(suite, TheRDebuggerTest.class);
     addJUnit4Test(suite, TheRDebuggerStringUtilsTest.class);
     addJUnit4Test(suite, TheRDebuggerUtilsTest.class);
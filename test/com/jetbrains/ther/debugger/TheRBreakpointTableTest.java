@@ -0,0 +1,100 @@
+package com.jetbrains.ther.debugger;
+
+import com.jetbrains.ther.debugger.data.TheRLocation;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TheRBreakpointTableTest {
+
+  @Test
+  public void empty() {
+    assertFalse(TheRBreakpointTable.EMPTY.contains(new TheRLocation("abc", 1)));
+    assertFalse(TheRBreakpointTable.EMPTY.containsFunction("abc"));
+    assertTrue(TheRBreakpointTable.EMPTY.getLines().isEmpty());
+    assertTrue(TheRBreakpointTable.EMPTY.isCoveredBy(new BitSet()));
+    assertTrue(TheRBreakpointTable.EMPTY.getConditions().isEmpty());
+  }
+
+  @Test
+  public void ordinary() {
+    final BitSet lines = new BitSet();
+    lines.set(0);
+    lines.set(3);
+
+    final TheRBreakpointTable table = new TheRBreakpointTable(Collections.singletonMap("abc", lines));
+
+    assertTrue(table.contains(new TheRLocation("abc", 0)));
+    assertTrue(table.contains(new TheRLocation("abc", 3)));
+    assertFalse(table.contains(new TheRLocation("abc", 2)));
+    assertFalse(table.contains(new TheRLocation("abc", -1)));
+    assertFalse(table.contains(new TheRLocation("def", 3)));
+    assertTrue(table.containsFunction("abc"));
+    assertFalse(table.containsFunction("def"));
+    assertFalse(table.hasCondition(new TheRLocation("abc", 3)));
+  }
+
+  @Test
+  public void conditional() {
+    final BitSet lines = new BitSet();
+    lines.set(2);
+    lines.set(3);
+
+    final TheRBreakpointTable table =
+      new TheRBreakpointTable(Collections.singletonMap("abc", lines), Collections.singletonMap(3, "x > 1"));
+
+    assertTrue(table.contains(new TheRLocation("abc", 3)));
+    assertTrue(table.hasCondition(new TheRLocation("abc", 3)));
+    assertFalse(table.hasCondition(new TheRLocation("abc", 2)));
+    assertEquals(Collections.singletonMap(3, "x > 1"), table.getConditions());
+  }
+
+  @Test
+  public void hooked() {
+    final BitSet first = new BitSet();
+    first.set(2);
+    first.set(5);
+
+    final BitSet second = new BitSet();
+    second.set(7);
+
+    final Map<String, BitSet> lines = new HashMap<String, BitSet>();
+    lines.put("abc", first);
+    lines.put("def", second);
+
+    final TheRBreakpointTable table = new TheRBreakpointTable(lines);
+
+    final BitSet expected = new BitSet();
+    expected.set(2);
+    expected.set(5);
+    expected.set(7);
+
+    assertEquals(expected, table.getLines());
+    assertTrue(table.isCoveredBy(expected));
+
+    final BitSet partial = (BitSet)expected.clone();
+    partial.clear(7);
+
+    assertFalse(table.isCoveredBy(partial));
+  }
+
+  @Test
+  public void hookedFunctionStart() {
+    final BitSet lines = new BitSet();
+    lines.set(0);
+    lines.set(3);
+
+    final TheRBreakpointTable table = new TheRBreakpointTable(Collections.singletonMap("abc", lines));
+
+    final BitSet expected = new BitSet();
+    expected.set(3);
+
+    assertEquals(expected, table.getLines());
+    assertFalse(table.isCoveredBy(table.getLines()));
+  }
+}
@@ -1,6 +1,7 @@
 package com.jetbrains.ther.debugger;
 
 import com.intellij.openapi.util.TextRange;
+import com.intellij.util.containers.ContainerUtil;
 import com.jetbrains.ther.debugger.data.TheRLanguageConstants;
 import com.jetbrains.ther.debugger.data.TheRLocation;
 import com.jetbrains.ther.debugger.data.TheRResponseConstants;
@@ -11,22 +12,36 @@ import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
 import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
 import com.jetbrains.ther.debugger.executor.TheRExecutionResultType;
 import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import com.jetbrains.ther.debugger.executor.TheRRecordingExecutor;
+import com.jetbrains.ther.debugger.executor.TheRReplayingExecutor;
 import com.jetbrains.ther.debugger.frame.*;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebugger;
 import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerFactory;
+import com.jetbrains.ther.debugger.function.TheRFunctionDebuggerHandler;
 import com.jetbrains.ther.debugger.mock.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import static com.jetbrains.ther.debugger.data.TheRCommands.ARM_HOOKS_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.RESTORE_FUNCTIONS_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.hookConditionsCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.releaseFunctionsCommand;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.MAIN_FUNCTION_NAME;
-import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.LS_FUNCTIONS_ERROR;
+import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.INSTRUMENT_FUNCTIONS_ERROR;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 public class TheRDebuggerTest {
 
@@ -63,13 +78,13 @@ public class TheRDebuggerTest {
 
     assertFalse(debugger.advance());
 
-    assertEquals(4, executor.getCounter());
+    assertEquals(1, executor.getCounter());
     assertEquals(0, loaderFactory.myCounter);
     assertEquals(0, evaluatorFactory.myCounter);
     assertTrue(scriptReader.isClosed());
     assertEquals(1, scriptReader.getCounter());
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
-    assertEquals(Arrays.asList("error1", "error_complete", LS_FUNCTIONS_ERROR, "error_body"), outputReceiver.getErrors());
+    assertEquals(Collections.singletonList("error_submit"), outputReceiver.getErrors());
     assertEquals(0, modifierFactory.myCounter);
     assertEquals(0, debugger.getStack().size());
   }
@@ -85,7 +100,7 @@ public class TheRDebuggerTest {
 
     final int scriptLength = 2;
 
-    final MockTheRExecutor executor = new MockTheRExecutor(scriptLength);
+    final MockTheRExecutor executor = new MockTheRExecutor();
     final MockTheRFunctionDebugger functionDebugger = new MockTheRFunctionDebugger(MAIN_FUNCTION_NAME, scriptLength, null);
     final MockTheRFunctionDebuggerFactory debuggerFactory = new MockTheRFunctionDebuggerFactory(functionDebugger);
     final MockTheRVarsLoaderFactory loaderFactory = new MockTheRVarsLoaderFactory();
@@ -124,7 +139,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(8, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, functionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
     assertEquals(0, loaderFactory.myCounter);
@@ -133,7 +148,7 @@ public class TheRDebuggerTest {
     assertEquals(scriptLength + 1, scriptReader.getCounter());
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
     assertEquals(
-      Arrays.asList("error1", "error2", "error3", "error_complete", LS_FUNCTIONS_ERROR, "error_body", "error_call", "error0"),
+      Arrays.asList("error_submit", INSTRUMENT_FUNCTIONS_ERROR, "error_call", "error0"),
       outputReceiver.getErrors()
     );
     assertEquals(0, expressionHandler.myCounter);
@@ -145,7 +160,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(8, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(1, functionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
     assertEquals(0, loaderFactory.myCounter);
@@ -162,7 +177,7 @@ public class TheRDebuggerTest {
 
     assertFalse(debugger.advance());
 
-    assertEquals(8, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(2, functionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
     assertEquals(0, loaderFactory.myCounter);
@@ -192,7 +207,7 @@ public class TheRDebuggerTest {
 
     final int scriptLength = 6;
 
-    final MockTheRExecutor executor = new MockTheRExecutor(scriptLength);
+    final MockTheRExecutor executor = new MockTheRExecutor();
     final MockTheRFunctionDebugger secondFunctionDebugger = new MockTheRFunctionDebugger("abc", 2, null);
     final Stack21TheRFunctionDebugger firstFunctionDebugger = new Stack21TheRFunctionDebugger(secondFunctionDebugger);
     final MockTheRFunctionDebuggerFactory debuggerFactory = new MockTheRFunctionDebuggerFactory(firstFunctionDebugger);
@@ -233,7 +248,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(12, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(0, firstFunctionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
@@ -243,10 +258,7 @@ public class TheRDebuggerTest {
     assertEquals(scriptLength + 1, scriptReader.getCounter());
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
     assertEquals(
-      Arrays.asList(
-        "error1", "error2", "error3", "error4", "error5", "error6", "error7", "error_complete", LS_FUNCTIONS_ERROR, "error_body",
-        "error_call", "error0"
-      ),
+      Arrays.asList("error_submit", INSTRUMENT_FUNCTIONS_ERROR, "error_call", "error0"),
       outputReceiver.getErrors()
     );
     assertEquals(0, expressionHandler.myCounter);
@@ -258,7 +270,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(12, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(1, firstFunctionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
@@ -276,7 +288,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(13, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
@@ -296,7 +308,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(13, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(1, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
@@ -315,7 +327,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(13, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
@@ -333,7 +345,7 @@ public class TheRDebuggerTest {
 
     assertFalse(debugger.advance());
 
-    assertEquals(13, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(3, firstFunctionDebugger.getCounter());
     assertEquals(1, debuggerFactory.getCounter());
@@ -368,7 +380,7 @@ public class TheRDebuggerTest {
 
     final int scriptLength = 10;
 
-    final MockTheRExecutor executor = new MockTheRExecutor(scriptLength);
+    final MockTheRExecutor executor = new MockTheRExecutor();
     final MockTheRFunctionDebugger thirdFunctionDebugger = new Stack313TheRFunctionDebugger();
     final MockTheRFunctionDebugger secondFunctionDebugger = new Stack312TheRFunctionDebugger(thirdFunctionDebugger);
     final MockTheRFunctionDebugger firstFunctionDebugger = new Stack311TheRFunctionDebugger(secondFunctionDebugger);
@@ -411,7 +423,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(16, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(0, firstFunctionDebugger.getCounter());
@@ -423,8 +435,7 @@ public class TheRDebuggerTest {
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
     assertEquals(
       Arrays.asList(
-        "error1", "error2", "error3", "error4", "error5", "error6", "error7", "error8", "error9", "error10", "error11", "error_complete",
-        LS_FUNCTIONS_ERROR, "error_body", "error_call", "error0"
+        "error_submit", INSTRUMENT_FUNCTIONS_ERROR, "error_call", "error0"
       ),
       outputReceiver.getErrors()
     );
@@ -437,7 +448,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(16, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(1, firstFunctionDebugger.getCounter());
@@ -456,7 +467,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(17, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -477,7 +488,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(17, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(1, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -497,7 +508,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(18, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -519,7 +530,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(18, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(1, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -540,7 +551,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(18, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -560,7 +571,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(18, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(3, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -579,7 +590,7 @@ public class TheRDebuggerTest {
 
     assertFalse(debugger.advance());
 
-    assertEquals(18, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(3, secondFunctionDebugger.getCounter());
     assertEquals(3, firstFunctionDebugger.getCounter());
@@ -614,7 +625,7 @@ public class TheRDebuggerTest {
 
     final int scriptLength = 9;
 
-    final MockTheRExecutor executor = new MockTheRExecutor(scriptLength);
+    final MockTheRExecutor executor = new MockTheRExecutor();
     final MockTheRFunctionDebugger thirdFunctionDebugger = new Stack323TheRFunctionDebugger();
     final MockTheRFunctionDebugger secondFunctionDebugger = new Stack322TheRFunctionDebugger(thirdFunctionDebugger);
     final MockTheRFunctionDebugger firstFunctionDebugger = new Stack321TheRFunctionDebugger(secondFunctionDebugger);
@@ -657,7 +668,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(15, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(0, firstFunctionDebugger.getCounter());
@@ -669,8 +680,7 @@ public class TheRDebuggerTest {
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
     assertEquals(
       Arrays.asList(
-        "error1", "error2", "error3", "error4", "error5", "error6", "error7", "error8", "error9", "error10", "error_complete",
-        LS_FUNCTIONS_ERROR, "error_body", "error_call", "error0"
+        "error_submit", INSTRUMENT_FUNCTIONS_ERROR, "error_call", "error0"
       ),
       outputReceiver.getErrors()
     );
@@ -683,7 +693,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(15, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(1, firstFunctionDebugger.getCounter());
@@ -702,7 +712,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(16, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -723,7 +733,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(16, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(1, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -743,7 +753,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(17, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -765,7 +775,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(17, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(1, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -786,7 +796,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(17, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(2, firstFunctionDebugger.getCounter());
@@ -805,7 +815,7 @@ public class TheRDebuggerTest {
 
     assertFalse(debugger.advance());
 
-    assertEquals(17, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
     assertEquals(3, firstFunctionDebugger.getCounter());
@@ -844,7 +854,7 @@ public class TheRDebuggerTest {
 
     final int scriptLength = 13;
 
-    final MockTheRExecutor executor = new MockTheRExecutor(scriptLength);
+    final MockTheRExecutor executor = new MockTheRExecutor();
     final MockTheRFunctionDebugger fourthFunctionDebugger = new Stack44TheRFunctionDebugger();
     final MockTheRFunctionDebugger thirdFunctionDebugger = new Stack43TheRFunctionDebugger(fourthFunctionDebugger);
     final MockTheRFunctionDebugger secondFunctionDebugger = new Stack42TheRFunctionDebugger(thirdFunctionDebugger);
@@ -889,7 +899,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(19, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
@@ -902,8 +912,7 @@ public class TheRDebuggerTest {
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
     assertEquals(
       Arrays.asList(
-        "error1", "error2", "error3", "error4", "error5", "error6", "error7", "error8", "error9", "error10", "error11", "error12",
-        "error13", "error14", "error_complete", LS_FUNCTIONS_ERROR, "error_body", "error_call", "error0"
+        "error_submit", INSTRUMENT_FUNCTIONS_ERROR, "error_call", "error0"
       ),
       outputReceiver.getErrors()
     );
@@ -916,7 +925,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(19, executor.getCounter());
+    assertEquals(4, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
@@ -936,7 +945,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(20, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(0, secondFunctionDebugger.getCounter());
@@ -958,7 +967,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(20, executor.getCounter());
+    assertEquals(5, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(1, secondFunctionDebugger.getCounter());
@@ -979,7 +988,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(21, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(0, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
@@ -1002,7 +1011,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(21, executor.getCounter());
+    assertEquals(6, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(1, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
@@ -1024,7 +1033,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(22, executor.getCounter());
+    assertEquals(7, executor.getCounter());
     assertEquals(0, fourthFunctionDebugger.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
@@ -1048,7 +1057,7 @@ public class TheRDebuggerTest {
     outputReceiver.reset();
     assertTrue(debugger.advance());
 
-    assertEquals(22, executor.getCounter());
+    assertEquals(7, executor.getCounter());
     assertEquals(1, fourthFunctionDebugger.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
@@ -1071,7 +1080,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(22, executor.getCounter());
+    assertEquals(7, executor.getCounter());
     assertEquals(2, fourthFunctionDebugger.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(2, secondFunctionDebugger.getCounter());
@@ -1092,7 +1101,7 @@ public class TheRDebuggerTest {
 
     assertTrue(debugger.advance());
 
-    assertEquals(22, executor.getCounter());
+    assertEquals(7, executor.getCounter());
     assertEquals(2, fourthFunctionDebugger.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(3, secondFunctionDebugger.getCounter());
@@ -1112,7 +1121,7 @@ public class TheRDebuggerTest {
 
     assertFalse(debugger.advance());
 
-    assertEquals(22, executor.getCounter());
+    assertEquals(7, executor.getCounter());
     assertEquals(2, fourthFunctionDebugger.getCounter());
     assertEquals(2, thirdFunctionDebugger.getCounter());
     assertEquals(3, secondFunctionDebugger.getCounter());
@@ -1130,45 +1139,284 @@ public class TheRDebuggerTest {
     assertEquals(0, debugger.getStack().size());
   }
 
-  private static class MockTheRExecutor extends com.jetbrains.ther.debugger.mock.MockTheRExecutor {
+  @Test
+  public void releaseAndRestore() throws TheRDebuggerException {
+    final String releaseCommand = releaseFunctionsCommand(Arrays.asList("f", MAIN_FUNCTION_NAME));
+    final TheRExecutionResult releaseResult = new TheRExecutionResult("", TheRExecutionResultType.EMPTY, TextRange.EMPTY_RANGE, "error_r");
+    final TheRExecutionResult restoreResult = new TheRExecutionResult("", TheRExecutionResultType.EMPTY, TextRange.EMPTY_RANGE, "error_rs");
+
+    final TheRExecutor executor = MockitoUtils.setupExecutor(
+      new ContainerUtil.ImmutableMapBuilder<String, List<TheRExecutionResult>>()
+        .put(releaseCommand, Collections.singletonList(releaseResult))
+        .put(RESTORE_FUNCTIONS_COMMAND, Collections.singletonList(restoreResult))
+        .build()
+    );
+
+    final MockTheROutputReceiver outputReceiver = new MockTheROutputReceiver();
+
+    final TheRDebugger debugger = new TheRDebugger(
+      executor,
+      new MockTheRFunctionDebuggerFactory(null),
+      new MockTheRVarsLoaderFactory(),
+      new MockTheRDebuggerEvaluatorFactory(),
+      new MockTheRScriptReader(0),
+      outputReceiver,
+      new IllegalTheRExpressionHandler(),
+      new MockTheRValueModifierFactory(),
+      new IllegalTheRValueModifierHandler()
+    );
+
+    debugger.releaseFunctions(Collections.singletonList("f"));
+    debugger.restoreFunctions();
+
+    MockitoUtils.verifyExecutor(executor, Arrays.asList(releaseCommand, RESTORE_FUNCTIONS_COMMAND));
+    verifyNoMoreInteractions(executor);
+
+    assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
+    assertEquals(Arrays.asList("error_r", "error_rs"), outputReceiver.getErrors());
+  }
+
+  @Test
+  public void resumeToHooks() throws TheRDebuggerException {
+    /*
+    instruction1
+    f()
+    instruction3
+    instruction4 # hooked breakpoint
+    instruction5 # hooked breakpoint
+    f <- function() {
+      instruction1 # hooked breakpoint
+    }
+    */
+
+    final HookTheRExecutor executor = new HookTheRExecutor();
+    final HookTheRFunctionDebugger mainDebugger = new HookTheRFunctionDebugger(MAIN_FUNCTION_NAME, -1, 0);
+    final HookTheRFunctionDebuggerFactory debuggerFactory = new HookTheRFunctionDebuggerFactory(mainDebugger);
+    final MockTheROutputReceiver outputReceiver = new MockTheROutputReceiver();
+
+    final TheRDebugger debugger = new TheRDebugger(
+      executor,
+      debuggerFactory,
+      new MockTheRVarsLoaderFactory(),
+      new MockTheRDebuggerEvaluatorFactory(),
+      new MockTheRScriptReader(5),
+      outputReceiver,
+      new MockTheRExpressionHandler(),
+      new MockTheRValueModifierFactory(),
+      new MockTheRValueModifierHandler()
+    );
+
+    assertTrue(debugger.resume());
+
+    assertEquals(4, executor.getCounter());
+    assertEquals(1, debugger.getStack().size());
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 0), debugger.getStack().get(0).getLocation());
+
+    // hook in the same frame
+
+    outputReceiver.reset();
+    mainDebugger.setNextHook(MAIN_FUNCTION_NAME, 0, 3);
+    assertTrue(debugger.resume());
+
+    assertEquals(5, executor.getCounter());
+    assertEquals(1, debugger.getStack().size());
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 3), debugger.getStack().get(0).getLocation());
+    assertEquals(Collections.singletonList("error_arm"), outputReceiver.getErrors());
+
+    // hook in the frame entered without stepping
+
+    outputReceiver.reset();
+    mainDebugger.setNextHook("f", 1, 6);
+    assertTrue(debugger.resume());
+
+    assertEquals(6, executor.getCounter());
+    assertEquals(1, debuggerFactory.myCounter);
+    assertEquals(2, debugger.getStack().size());
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 3), debugger.getStack().get(0).getLocation());
+    assertEquals(new TheRLocation("f", 6), debugger.getStack().get(1).getLocation());
+
+    // hook in the frame below the top one, the top frame has been finished
+
+    outputReceiver.reset();
+    assert debuggerFactory.myHookedDebugger != null;
+    debuggerFactory.myHookedDebugger.setNextHook(MAIN_FUNCTION_NAME, 0, 4);
+    assertTrue(debugger.resume());
+
+    assertEquals(7, executor.getCounter());
+    assertEquals(1, debuggerFactory.myCounter);
+    assertEquals(1, debugger.getStack().size());
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 4), debugger.getStack().get(0).getLocation());
+  }
+
+  @Test
+  public void hookedBreakpoints() throws TheRDebuggerException {
+    final BitSet lines = new BitSet();
+    lines.set(3);
+    lines.set(4);
+
+    final TheRDebugger debugger = new TheRDebugger(
+      new HookTheRExecutor(),
+      new HookTheRFunctionDebuggerFactory(new HookTheRFunctionDebugger(MAIN_FUNCTION_NAME, -1, 0)),
+      new MockTheRVarsLoaderFactory(),
+      new MockTheRDebuggerEvaluatorFactory(),
+      new MockTheRScriptReader(5),
+      new MockTheROutputReceiver(),
+      new MockTheRExpressionHandler(),
+      new MockTheRValueModifierFactory(),
+      new MockTheRValueModifierHandler()
+    );
+
+    debugger.setBreakpoints(new TheRBreakpointTable(Collections.singletonMap(MAIN_FUNCTION_NAME, lines)));
+    assertTrue(debugger.isHooked());
+
+    assertTrue(debugger.resume());
+    assertTrue(debugger.isHooked());
+
+    // breakpoint added after the main function has been defined isn't hooked
+
+    final BitSet newLines = (BitSet)lines.clone();
+    newLines.set(2);
+
+    debugger.setBreakpoints(new TheRBreakpointTable(Collections.singletonMap(MAIN_FUNCTION_NAME, newLines)));
+    assertFalse(debugger.isHooked());
+  }
+
+  @Test
+  public void conditionalBreakpoints() throws TheRDebuggerException {
+    /*
+    instruction1
+    instruction2
+    instruction3 # hooked breakpoint with condition
+    instruction4 # hooked breakpoint
+    */
+
+    final BitSet lines = new BitSet();
+    lines.set(3);
+    lines.set(4);
+
+    final Map<Integer, String> conditions = Collections.singletonMap(3, "x > 1");
+
+    // condition is checked by the armed hook only, stepping without hooks doesn't stop at the conditional breakpoint
+
+    final ConditionalTheRExecutor executor = new ConditionalTheRExecutor();
+    final TheRDebugger debugger = createConditionalDebugger(executor, true);
+
+    debugger.setBreakpoints(new TheRBreakpointTable(Collections.singletonMap(MAIN_FUNCTION_NAME, lines), conditions));
+    assertTrue(debugger.advance());
+    assertTrue(debugger.hasHookedConditions());
+
+    assertTrue(debugger.advance(0));
+
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 4), debugger.getStack().get(0).getLocation());
+    assertTrue(debugger.isAtBreakpoint());
+    assertTrue(executor.myCommands.isEmpty());
+
+    // armed hook with TRUE condition stops at its line, conditions are passed to R only once
+
+    final ConditionalTheRExecutor trueExecutor = new ConditionalTheRExecutor();
+    final TheRDebugger trueDebugger = createConditionalDebugger(trueExecutor, true);
+
+    trueDebugger.setBreakpoints(new TheRBreakpointTable(Collections.singletonMap(MAIN_FUNCTION_NAME, lines), conditions));
+    assertTrue(trueDebugger.advance());
+
+    trueDebugger.armHooks();
+    trueDebugger.armHooks();
+    assertTrue(trueDebugger.advance(0));
+
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 3), trueDebugger.getStack().get(0).getLocation());
+    assertTrue(trueDebugger.isAtBreakpoint());
+
+    trueDebugger.restoreFunctions();
+    trueDebugger.armHooks();
+
+    assertEquals(
+      Arrays.asList(hookConditionsCommand(conditions) + "; " + ARM_HOOKS_COMMAND, RESTORE_FUNCTIONS_COMMAND, ARM_HOOKS_COMMAND),
+      trueExecutor.myCommands
+    );
+
+    // armed hook with FALSE condition is passed
+
+    final ConditionalTheRExecutor falseExecutor = new ConditionalTheRExecutor();
+    final TheRDebugger falseDebugger = createConditionalDebugger(falseExecutor, false);
+
+    falseDebugger.setBreakpoints(new TheRBreakpointTable(Collections.singletonMap(MAIN_FUNCTION_NAME, lines), conditions));
+    assertTrue(falseDebugger.advance());
+
+    falseDebugger.armHooks();
+    assertTrue(falseDebugger.advance(0));
+
+    assertEquals(new TheRLocation(MAIN_FUNCTION_NAME, 4), falseDebugger.getStack().get(0).getLocation());
+    assertTrue(falseDebugger.isAtBreakpoint());
+  }
+
+  @Test
+  public void replay() throws TheRDebuggerException {
+    // script is copied to the new temp file on every run, so the replayed command differs from the recorded one by path only
+
+    final StringWriter writer = new StringWriter();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(new MockTheRExecutor(), writer);
+
+    final List<String> recorded = debugMainFunction(recorder);
+    recorder.close();
+
+    final TheRReplayingExecutor replayer = new TheRReplayingExecutor(new StringReader(writer.toString()), false);
+
+    assertEquals(recorded, debugMainFunction(replayer));
+    assertTrue(replayer.isOver());
+
+    assertEquals(
+      Arrays.asList("error_submit", INSTRUMENT_FUNCTIONS_ERROR, "error_call", "error0", MAIN_FUNCTION_NAME + ":0", MAIN_FUNCTION_NAME + ":1"),
+      recorded
+    );
+  }
+
+  @NotNull
+  private static List<String> debugMainFunction(@NotNull final TheRExecutor executor) throws TheRDebuggerException {
+    // returns errors and locations the debugger has stopped at
+
+    final MockTheROutputReceiver outputReceiver = new MockTheROutputReceiver();
+
+    final TheRDebugger debugger = new TheRDebugger(
+      executor,
+      new MockTheRFunctionDebuggerFactory(new MockTheRFunctionDebugger(MAIN_FUNCTION_NAME, 2, null)),
+      new MockTheRVarsLoaderFactory(),
+      new MockTheRDebuggerEvaluatorFactory(),
+      new MockTheRScriptReader(2),
+      outputReceiver,
+      new MockTheRExpressionHandler(),
+      new MockTheRValueModifierFactory(),
+      new MockTheRValueModifierHandler()
+    );
+
+    final List<String> result = new ArrayList<String>();
 
-    private final int myScriptLength;
+    while (debugger.advance()) {
+      final TheRLocation location = debugger.getStack().get(0).getLocation();
 
-    public MockTheRExecutor(final int scriptLength) {
-      myScriptLength = scriptLength;
+      result.addAll(outputReceiver.getErrors());
+      result.add(location.getFunctionName() + ":" + location.getLine());
+
+      outputReceiver.reset();
     }
 
+    return result;
+  }
+
+  private static class MockTheRExecutor extends com.jetbrains.ther.debugger.mock.MockTheRExecutor {
+
     @NotNull
     @Override
     protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
-      if (getCounter() < myScriptLength + 2) {
-        return new TheRExecutionResult(
-          TheRResponseConstants.PLUS_AND_SPACE,
-          TheRExecutionResultType.PLUS,
-          TextRange.EMPTY_RANGE,
-          "error" + getCounter()
-        );
-      }
-
-      if (getCounter() == myScriptLength + 2) {
+      if (getCounter() == 1) {
         return new TheRExecutionResult(
-          "",
-          TheRExecutionResultType.EMPTY,
-          TextRange.EMPTY_RANGE,
-          "error_complete"
-        );
-      }
-
-      if (getCounter() == myScriptLength + 4) {
-        return new TheRExecutionResult(
-          " \n \n \n \n \n \n ",
+          "[1] FALSE",
           TheRExecutionResultType.RESPONSE,
-          TextRange.allOf(" \n \n \n \n \n \n "),
-          "error_body"
+          TextRange.allOf("[1] FALSE"),
+          "error_submit"
         );
       }
 
-      if (getCounter() == myScriptLength + 5) {
+      if (getCounter() == 3) {
         return new TheRExecutionResult(
           "",
           TheRExecutionResultType.DEBUGGING_IN,
@@ -1177,7 +1425,7 @@ public class TheRDebuggerTest {
         );
       }
 
-      final int frameNumber = getCounter() - 1 - myScriptLength - 5;
+      final int frameNumber = getCounter() - 4;
 
       return new TheRExecutionResult(
         "[1] " + frameNumber,
@@ -1190,22 +1438,15 @@ public class TheRDebuggerTest {
 
   private static class EmptyTheRExecutor extends MockTheRExecutor {
 
-    public EmptyTheRExecutor() {
-      super(0);
-    }
-
     @NotNull
     @Override
     protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
-      if (getCounter() < 4) {
-        return super.doExecute(command);
-      }
-      else if (getCounter() == 4) {
+      if (getCounter() == 1) {
         return new TheRExecutionResult(
-          " \n \n \n ",
+          TheRResponseConstants.TRUE_RESPONSE,
           TheRExecutionResultType.RESPONSE,
-          TextRange.allOf(" \n \n \n "),
-          "error_body"
+          TextRange.allOf(TheRResponseConstants.TRUE_RESPONSE),
+          "error_submit"
         );
       }
       else {
@@ -1575,4 +1816,185 @@ public class TheRDebuggerTest {
       }
     }
   }
-}
\ No newline at end of file
+
+  @NotNull
+  private static TheRDebugger createConditionalDebugger(@NotNull final ConditionalTheRExecutor executor, final boolean conditionHolds) {
+    return new TheRDebugger(
+      executor,
+      new MockTheRFunctionDebuggerFactory(new ConditionalTheRFunctionDebugger(executor, 3, conditionHolds)),
+      new MockTheRVarsLoaderFactory(),
+      new MockTheRDebuggerEvaluatorFactory(),
+      new MockTheRScriptReader(5),
+      new MockTheROutputReceiver(),
+      new MockTheRExpressionHandler(),
+      new MockTheRValueModifierFactory(),
+      new MockTheRValueModifierHandler()
+    );
+  }
+
+  private static class ConditionalTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    private final List<String> myCommands = new ArrayList<String>();
+
+    private boolean myIsArmed = false;
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (getCounter() <= 4) {
+        return super.doExecute(command);
+      }
+
+      myCommands.add(command);
+      myIsArmed = command.endsWith(ARM_HOOKS_COMMAND);
+
+      return new TheRExecutionResult(
+        "",
+        TheRExecutionResultType.EMPTY,
+        TextRange.EMPTY_RANGE,
+        ""
+      );
+    }
+  }
+
+  private static class ConditionalTheRFunctionDebugger extends MockTheRFunctionDebugger {
+
+    @NotNull
+    private final ConditionalTheRExecutor myExecutor;
+
+    private final int myHookedLine;
+
+    private final boolean myConditionHolds;
+
+    public ConditionalTheRFunctionDebugger(@NotNull final ConditionalTheRExecutor executor,
+                                           final int hookedLine,
+                                           final boolean conditionHolds) {
+      super(MAIN_FUNCTION_NAME, 5, null);
+
+      myExecutor = executor;
+      myHookedLine = hookedLine;
+      myConditionHolds = conditionHolds;
+    }
+
+    @Override
+    public void advance() throws TheRDebuggerException {
+      // hooked statement is executed by the step from its line
+
+      if (myExecutor.myIsArmed && myConditionHolds && getCounter() == myHookedLine) {
+        assert getHandler() != null;
+
+        myExecutor.myIsArmed = false;
+        getHandler().onBreakpointHook(MAIN_FUNCTION_NAME, 0, myHookedLine);
+      }
+      else {
+        super.advance();
+      }
+    }
+  }
+
+  private static class HookTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (command.equals(ARM_HOOKS_COMMAND)) {
+        return new TheRExecutionResult(
+          "",
+          TheRExecutionResultType.EMPTY,
+          TextRange.EMPTY_RANGE,
+          "error_arm"
+        );
+      }
+
+      return super.doExecute(command);
+    }
+  }
+
+  private static class HookTheRFunctionDebugger extends MockTheRFunctionDebugger {
+
+    private final int myFrameNumber;
+
+    private final int myLineNumber;
+
+    @Nullable
+    private String myNextFunctionName;
+
+    private int myNextFrameNumber;
+
+    private int myNextLineNumber;
+
+    public HookTheRFunctionDebugger(@NotNull final String functionName, final int frameNumber, final int lineNumber) {
+      super(functionName, Integer.MAX_VALUE, null);
+
+      myFrameNumber = frameNumber;
+      myLineNumber = lineNumber;
+    }
+
+    @NotNull
+    @Override
+    public TheRLocation getLocation() {
+      return new TheRLocation(super.getLocation().getFunctionName(), myLineNumber);
+    }
+
+    @Override
+    public int getFrameNumber() {
+      return myFrameNumber;
+    }
+
+    @Override
+    public void resume() throws TheRDebuggerException {
+      assert getHandler() != null;
+      assert myNextFunctionName != null;
+
+      getHandler().onBreakpointHook(myNextFunctionName, myNextFrameNumber, myNextLineNumber);
+    }
+
+    public void setNextHook(@NotNull final String functionName, final int frameNumber, final int lineNumber) {
+      myNextFunctionName = functionName;
+      myNextFrameNumber = frameNumber;
+      myNextLineNumber = lineNumber;
+    }
+  }
+
+  private static class HookTheRFunctionDebuggerFactory implements TheRFunctionDebuggerFactory {
+
+    @NotNull
+    private final HookTheRFunctionDebugger myMainDebugger;
+
+    @Nullable
+    private HookTheRFunctionDebugger myHookedDebugger;
+
+    private int myCounter = 0;
+
+    public HookTheRFunctionDebuggerFactory(@NotNull final HookTheRFunctionDebugger mainDebugger) {
+      myMainDebugger = mainDebugger;
+    }
+
+    @NotNull
+    @Override
+    public TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
+                                                    @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                                    @NotNull final TheROutputReceiver outputReceiver) {
+      myMainDebugger.setHandler(debuggerHandler);
+
+      return myMainDebugger;
+    }
+
+    @NotNull
+    @Override
+    public TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
+                                                    @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                                    @NotNull final TheROutputReceiver outputReceiver,
+                                                    @NotNull final String functionName,
+                                                    final int frameNumber,
+                                                    final int lineNumber) {
+      myCounter++;
+
+      myHookedDebugger = new HookTheRFunctionDebugger(functionName, frameNumber, lineNumber);
+      myHookedDebugger.setHandler(debuggerHandler);
+
+      return myHookedDebugger;
+    }
+  }
+}
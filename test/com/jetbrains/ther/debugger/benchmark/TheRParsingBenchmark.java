@@ -0,0 +1,310 @@
+package com.jetbrains.ther.debugger.benchmark;
+
+import com.intellij.openapi.util.TextRange;
+import com.jetbrains.ther.debugger.TheRDebuggerStringUtils;
+import com.jetbrains.ther.debugger.TheROutputReceiver;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResultCalculatorImpl;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import com.jetbrains.ther.debugger.frame.TheRVarsLoader;
+import com.jetbrains.ther.debugger.frame.TheRVarsLoaderFactoryImpl;
+import com.jetbrains.ther.debugger.mock.IllegalTheRValueModifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.RESPONSE;
+
+public final class TheRParsingBenchmark {
+
+  // it is not a part of the test suite, run it manually: `TheRParsingBenchmark [measurement millis]`,
+  // throughput and bytes allocated per operation are printed for every parser and output size,
+  // allocation is measured by HotSpot thread counters and is reported as -1 if they are not supported
+
+  @NotNull
+  private static final String[] SIZE_NAMES = new String[]{"tiny", "1 KB", "100 KB", "4 MB"};
+
+  private static final int[] SIZES = new int[]{0, 1 << 10, 100 << 10, 4 << 20};
+
+  private static final int CHUNK_SIZE = 8 << 10;
+
+  private static final int VAR_SIZE = 64;
+
+  @NotNull
+  private static final String BROWSE = BROWSE_PREFIX + "1" + BROWSE_SUFFIX;
+
+  @NotNull
+  private static final TheROutputReceiver RECEIVER = new TheROutputReceiver() {
+    @Override
+    public void receiveOutput(@NotNull final String output) {
+      ourSink ^= System.identityHashCode(output);
+    }
+
+    @Override
+    public void receiveError(@NotNull final String error) {
+      ourSink ^= System.identityHashCode(error);
+    }
+  };
+
+  private static volatile int ourSink = 0;
+
+  public static void main(@NotNull final String[] args) throws TheRDebuggerException {
+    final long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+
+    for (int i = 0; i < SIZES.length; i++) {
+      final String body = generatePrint(SIZES[i]);
+      final String output = "print(x)\n" + body + BROWSE;
+      final int varsCount = Math.max(1, SIZES[i] / VAR_SIZE);
+
+      run("calculate, " + SIZE_NAMES[i], new CalculateOperation(output), millis);
+      run("isComplete, " + SIZE_NAMES[i], new IsCompleteOperation(output), millis);
+      run("appendResult, " + SIZE_NAMES[i], new AppendResultOperation(body), millis);
+      run("vars, " + SIZE_NAMES[i], new LoadVarsOperation(varsCount, false), millis);
+      run("batch vars, " + SIZE_NAMES[i], new LoadVarsOperation(varsCount, true), millis);
+    }
+
+    System.out.println("sink: " + ourSink);
+  }
+
+  private static void run(@NotNull final String name, @NotNull final Operation operation, final long millis)
+    throws TheRDebuggerException {
+    measure(operation, millis / 2); // warm up
+
+    final Measurement measurement = measure(operation, millis);
+
+    System.out.println(
+      String.format(
+        "%-24s %14.1f ops/s %14d B/op",
+        name,
+        measurement.myOperations * 1e9 / measurement.myNanos,
+        measurement.myBytes == -1 ? -1 : measurement.myBytes / measurement.myOperations
+      )
+    );
+  }
+
+  @NotNull
+  private static Measurement measure(@NotNull final Operation operation, final long millis) throws TheRDebuggerException {
+    final long bytesBefore = getAllocatedBytes();
+    final long begin = System.nanoTime();
+    final long end = begin + millis * 1000000;
+
+    long operations = 0;
+    long now;
+
+    do {
+      ourSink ^= System.identityHashCode(operation.run());
+      operations++;
+      now = System.nanoTime();
+    }
+    while (now < end);
+
+    final long bytesAfter = getAllocatedBytes();
+
+    return new Measurement(operations, now - begin, bytesBefore == -1 ? -1 : bytesAfter - bytesBefore);
+  }
+
+  private static long getAllocatedBytes() {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+
+      if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+
+    return -1;
+  }
+
+  @NotNull
+  private static String generatePrint(final int size) {
+    // looks like printed numeric vector, lines are prefixed with the index of the first element
+
+    final StringBuilder sb = new StringBuilder(size + 100);
+    final Random random = new Random(42);
+
+    int index = 1;
+
+    while (sb.length() < size) {
+      sb.append('[').append(index).append(']');
+
+      for (int i = 0; i < 8; i++) {
+        sb.append(' ').append(String.format("%.6f", random.nextDouble()));
+      }
+
+      sb.append('\n');
+      index += 8;
+    }
+
+    return sb.toString();
+  }
+
+  private interface Operation {
+
+    @NotNull
+    Object run() throws TheRDebuggerException;
+  }
+
+  private static class Measurement {
+
+    private final long myOperations;
+
+    private final long myNanos;
+
+    private final long myBytes;
+
+    public Measurement(final long operations, final long nanos, final long bytes) {
+      myOperations = operations;
+      myNanos = nanos;
+      myBytes = bytes;
+    }
+  }
+
+  private static class CalculateOperation implements Operation {
+
+    @NotNull
+    private final String myOutput;
+
+    public CalculateOperation(@NotNull final String output) {
+      myOutput = output;
+    }
+
+    @NotNull
+    @Override
+    public Object run() {
+      return new TheRExecutionResultCalculatorImpl().calculate(myOutput, "");
+    }
+  }
+
+  private static class IsCompleteOperation implements Operation {
+
+    // output is appended by chunks as the process handler does it
+
+    @NotNull
+    private final String myOutput;
+
+    @NotNull
+    private final StringBuilder myBuffer;
+
+    public IsCompleteOperation(@NotNull final String output) {
+      myOutput = output;
+      myBuffer = new StringBuilder(output.length());
+    }
+
+    @NotNull
+    @Override
+    public Object run() {
+      final TheRExecutionResultCalculatorImpl calculator = new TheRExecutionResultCalculatorImpl();
+
+      myBuffer.setLength(0);
+
+      for (int i = 0; i < myOutput.length(); i += CHUNK_SIZE) {
+        myBuffer.append(myOutput, i, Math.min(i + CHUNK_SIZE, myOutput.length()));
+
+        if (calculator.isComplete(myBuffer)) {
+          return calculator;
+        }
+      }
+
+      throw new IllegalStateException("Output is not complete");
+    }
+  }
+
+  private static class AppendResultOperation implements Operation {
+
+    @NotNull
+    private final TheRExecutionResult myResult;
+
+    public AppendResultOperation(@NotNull final String body) {
+      final String output = "print(x)\n" + body;
+
+      myResult = new TheRExecutionResult(output, RESPONSE, new TextRange("print(x)\n".length(), output.length()), "");
+    }
+
+    @NotNull
+    @Override
+    public Object run() {
+      TheRDebuggerStringUtils.appendResult(myResult, RECEIVER);
+
+      return myResult;
+    }
+  }
+
+  private static class LoadVarsOperation implements Operation {
+
+    @NotNull
+    private final TheRVarsLoader myLoader;
+
+    public LoadVarsOperation(final int count, final boolean batch) {
+      myLoader = new TheRVarsLoaderFactoryImpl(new GeneratedTheRExecutor(count), RECEIVER, batch).getLoader(
+        new IllegalTheRValueModifier(),
+        1
+      );
+    }
+
+    @NotNull
+    @Override
+    public Object run() throws TheRDebuggerException {
+      return myLoader.load();
+    }
+  }
+
+  private static class GeneratedTheRExecutor implements TheRExecutor {
+
+    // `ls` and batch loading results are generated for `count` numeric variables
+
+    @NotNull
+    private static final TheRExecutionResult TYPE_RESULT = response("[1] \"double\"");
+
+    @NotNull
+    private static final TheRExecutionResult VALUE_RESULT = response("[1] 0.123456");
+
+    @NotNull
+    private final TheRExecutionResult myLsResult;
+
+    @NotNull
+    private final TheRExecutionResult myBatchResult;
+
+    public GeneratedTheRExecutor(final int count) {
+      final StringBuilder ls = new StringBuilder();
+      final StringBuilder batch = new StringBuilder();
+
+      for (int i = 0; i < count; i++) {
+        ls.append(i % 4 == 0 ? "[" + (i + 1) + "]" : "").append(" \"var").append(i).append('"').append(i % 4 == 3 ? "\n" : "");
+
+        batch.append(i == 0 ? "" : "\n").append(VAR_PREFIX).append("var").append(i).append("\n[1] \"double\"\n[1] 0.123456");
+      }
+
+      myLsResult = response(ls.toString());
+      myBatchResult = response(batch.toString());
+    }
+
+    @NotNull
+    @Override
+    public TheRExecutionResult execute(@NotNull final String command) {
+      if (command.startsWith("ls(")) {
+        return myLsResult;
+      }
+
+      if (command.startsWith("typeof(")) {
+        return TYPE_RESULT;
+      }
+
+      if (command.startsWith("local(")) {
+        return myBatchResult;
+      }
+
+      return VALUE_RESULT;
+    }
+
+    @NotNull
+    private static TheRExecutionResult response(@NotNull final String output) {
+      return new TheRExecutionResult(output, RESPONSE, TextRange.allOf(output), "");
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.jetbrains.ther.debugger.evaluator;
+
+import com.jetbrains.ther.debugger.TheRSuspensionCache;
+import com.jetbrains.ther.debugger.frame.TheRVar;
+import com.jetbrains.ther.debugger.mock.TheRDebuggerEvaluatorErrorReceiver;
+import com.jetbrains.ther.debugger.mock.TheRDebuggerEvaluatorReceiver;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TheRCachingDebuggerEvaluatorTest {
+
+  @Test
+  public void cached() {
+    final MockTheRDebuggerEvaluator evaluator = new MockTheRDebuggerEvaluator();
+    final TheRSuspensionCache cache = new TheRSuspensionCache();
+    final TheRCachingDebuggerEvaluator cachingEvaluator = new TheRCachingDebuggerEvaluator(evaluator, cache, 0);
+    final TheRDebuggerEvaluatorReceiver receiver = new TheRDebuggerEvaluatorReceiver("result_x");
+
+    cachingEvaluator.evaluate("x", receiver);
+    cachingEvaluator.evaluate("x", receiver);
+
+    assertEquals(2, receiver.getCounter());
+    assertEquals(1, evaluator.myCounter);
+
+    cache.invalidate();
+
+    cachingEvaluator.evaluate("x", receiver);
+
+    assertEquals(3, receiver.getCounter());
+    assertEquals(2, evaluator.myCounter);
+  }
+
+  @Test
+  public void invalidated() {
+    final MockTheRDebuggerEvaluator evaluator = new MockTheRDebuggerEvaluator();
+    final TheRSuspensionCache cache = new TheRSuspensionCache();
+    final TheRCachingDebuggerEvaluator cachingEvaluator = new TheRCachingDebuggerEvaluator(evaluator, cache, 0);
+    final TheRDebuggerEvaluatorReceiver receiver = new TheRDebuggerEvaluatorReceiver("result_x <- 1");
+
+    cache.putVars(0, Collections.<TheRVar>emptyList());
+    cache.putValue(0, "y", "value_y");
+    cache.putResult(0, "y", "result_y");
+
+    cachingEvaluator.evaluate("x <- 1", receiver);
+
+    assertNull(cache.getVars(0));
+    assertNull(cache.getValue(0, "y"));
+    assertNull(cache.getResult(0, "y"));
+    assertEquals("result_x <- 1", cache.getResult(0, "x <- 1"));
+
+    cache.putVars(0, Collections.<TheRVar>emptyList());
+
+    cachingEvaluator.evaluate("x <- 1", receiver);
+
+    assertNotNull(cache.getVars(0));
+    assertEquals(2, receiver.getCounter());
+    assertEquals(1, evaluator.myCounter);
+  }
+
+  @Test
+  public void error() {
+    final MockTheRDebuggerEvaluator evaluator = new MockTheRDebuggerEvaluator();
+    final TheRCachingDebuggerEvaluator cachingEvaluator = new TheRCachingDebuggerEvaluator(evaluator, new TheRSuspensionCache(), 0);
+    final TheRDebuggerEvaluatorErrorReceiver receiver = new TheRDebuggerEvaluatorErrorReceiver();
+
+    cachingEvaluator.evaluate("error", receiver);
+    cachingEvaluator.evaluate("error", receiver);
+
+    assertEquals(2, receiver.getCounter());
+    assertEquals(2, evaluator.myCounter);
+  }
+
+  @Test
+  public void batch() {
+    final MockTheRDebuggerEvaluator evaluator = new MockTheRDebuggerEvaluator();
+    final TheRCachingDebuggerEvaluator cachingEvaluator = new TheRCachingDebuggerEvaluator(evaluator, new TheRSuspensionCache(), 0);
+    final TheRDebuggerEvaluatorReceiver xReceiver = new TheRDebuggerEvaluatorReceiver("result_x");
+    final TheRDebuggerEvaluatorReceiver yReceiver = new TheRDebuggerEvaluatorReceiver("result_y");
+
+    cachingEvaluator.evaluate("x", xReceiver);
+    cachingEvaluator.evaluate(
+      Arrays.asList("x", "y"),
+      Arrays.<TheRDebuggerEvaluator.Receiver>asList(xReceiver, yReceiver)
+    );
+
+    assertEquals(2, xReceiver.getCounter());
+    assertEquals(1, yReceiver.getCounter());
+    assertEquals(1, evaluator.myCounter);
+    assertEquals(1, evaluator.myBatchCounter);
+    assertEquals(Collections.singletonList("y"), evaluator.myLastBatch);
+  }
+
+  private static class MockTheRDebuggerEvaluator implements TheRDebuggerEvaluator {
+
+    private int myCounter = 0;
+
+    private int myBatchCounter = 0;
+
+    @NotNull
+    private List<String> myLastBatch = Collections.emptyList();
+
+    @Override
+    public void evaluate(@NotNull final String expression, @NotNull final Receiver receiver) {
+      myCounter++;
+
+      if (expression.equals("error")) {
+        receiver.receiveError("error_" + expression);
+      }
+      else {
+        receiver.receiveResult("result_" + expression);
+      }
+    }
+
+    @Override
+    public void evaluate(@NotNull final List<String> expressions, @NotNull final List<Receiver> receivers) {
+      myBatchCounter++;
+      myLastBatch = expressions;
+
+      for (int i = 0; i < expressions.size(); i++) {
+        receivers.get(i).receiveResult("result_" + expressions.get(i));
+      }
+    }
+  }
+}
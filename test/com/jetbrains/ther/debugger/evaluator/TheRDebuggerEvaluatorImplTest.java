@@ -11,12 +11,17 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
+import static com.jetbrains.ther.debugger.data.TheRCommands.RESTORE_FUNCTIONS_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.batchEvaluationCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.releaseFunctionsCommand;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_ENTER_FUNCTION_SUFFIX;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_FUNCTION_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TheRDebuggerEvaluatorImplTest {
 
@@ -105,6 +110,36 @@ public class TheRDebuggerEvaluatorImplTest {
     assertEquals(1, receiver.getCounter());
   }
 
+  @Test
+  public void interruptedExecution() {
+    final String expression = "Sys.sleep(100)";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(
+      "",
+      INTERRUPTED,
+      TextRange.EMPTY_RANGE,
+      ""
+    );
+    final MockTheRExpressionHandler handler = new MockTheRExpressionHandler();
+
+    final TheRDebuggerEvaluatorImpl evaluator = new TheRDebuggerEvaluatorImpl(
+      executor,
+      new MockTheRFunctionDebuggerFactory(null),
+      new IllegalTheROutputReceiver(),
+      handler,
+      1
+    );
+
+    final TheRDebuggerEvaluatorErrorReceiver receiver = new TheRDebuggerEvaluatorErrorReceiver();
+
+    evaluator.evaluate(expression, receiver);
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(1, handler.myCounter);
+    assertEquals(expression, handler.myLastExpression);
+    assertEquals(1, receiver.getCounter());
+  }
+
   @Test
   public void expression() {
     final String expression = "def(c(1:5))";
@@ -260,6 +295,147 @@ public class TheRDebuggerEvaluatorImplTest {
     assertEquals(expression, handler.myLastExpression);
   }
 
+  @Test
+  public void functionAfterOutput() {
+    final String expression = "{ print(0); def(c(1:5)) }";
+    final String error = "error";
+    final String output = "[1] 0\n" +
+                          DEBUGGING_IN_PREFIX + "def(c(1:5))\n" +
+                          DEBUG_AT_PREFIX + "{\n" +
+                          "    .doTrace(" + SERVICE_FUNCTION_PREFIX + "def" + SERVICE_ENTER_FUNCTION_SUFFIX + "(), \"on entry\")\n" +
+                          "    {\n" +
+                          "        print(\"x\")\n" +
+                          "    }\n" +
+                          "}";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(
+      output,
+      DEBUGGING_IN_AFTER_OUTPUT,
+      new TextRange(0, 5),
+      error
+    );
+
+    final MyFunctionDebugger debugger = new MyFunctionDebugger();
+    final MockTheRFunctionDebuggerFactory factory = new MockTheRFunctionDebuggerFactory(debugger);
+    final MockTheROutputReceiver outputReceiver = new MockTheROutputReceiver();
+    final MockTheRExpressionHandler handler = new MockTheRExpressionHandler();
+
+    final TheRDebuggerEvaluatorImpl evaluator = new TheRDebuggerEvaluatorImpl(
+      executor,
+      factory,
+      outputReceiver,
+      handler,
+      1
+    );
+
+    final TheRDebuggerEvaluatorReceiver receiver = new TheRDebuggerEvaluatorReceiver("[1] 0\n[1] 1 2 3");
+
+    evaluator.evaluate(expression, receiver);
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(2, debugger.getCounter());
+    assertEquals(1, factory.getCounter());
+    assertEquals(1, receiver.getCounter());
+    assertEquals(Collections.singletonList(error), outputReceiver.getErrors());
+    assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
+    assertEquals(1, handler.myCounter);
+    assertEquals(expression, handler.myLastExpression);
+  }
+
+  @Test
+  public void batch() {
+    final String error = "error";
+    final String output = "[1] \"x\"\n" +
+                          BATCH_RESULT_PREFIX + "1\n" +
+                          "[1] 1 2 3\n" +
+                          BATCH_ERROR_PREFIX + "2\n" +
+                          "object 'abc' not found\n" +
+                          BATCH_RESULT_PREFIX + "3\n";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(
+      output,
+      RESPONSE,
+      TextRange.allOf(output),
+      error
+    );
+
+    final MockTheROutputReceiver outputReceiver = new MockTheROutputReceiver();
+    final MockTheRExpressionHandler handler = new MockTheRExpressionHandler();
+
+    final TheRDebuggerEvaluatorImpl evaluator = new TheRDebuggerEvaluatorImpl(
+      executor,
+      new MockTheRFunctionDebuggerFactory(null),
+      outputReceiver,
+      handler,
+      1
+    );
+
+    final TheRDebuggerEvaluatorReceiver first = new TheRDebuggerEvaluatorReceiver("[1] 1 2 3");
+    final TheRDebuggerEvaluatorErrorReceiver second = new TheRDebuggerEvaluatorErrorReceiver();
+    final TheRDebuggerEvaluatorReceiver third = new TheRDebuggerEvaluatorReceiver("");
+    final TheRDebuggerEvaluatorErrorReceiver fourth = new TheRDebuggerEvaluatorErrorReceiver();
+
+    evaluator.evaluate(
+      Arrays.asList("def(c(1:5))", "abc", "invisible(1)", "x"),
+      Arrays.<TheRDebuggerEvaluator.Receiver>asList(first, second, third, fourth)
+    );
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(1, first.getCounter());
+    assertEquals(1, second.getCounter());
+    assertEquals(1, third.getCounter());
+    assertEquals(1, fourth.getCounter());
+    assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
+    assertEquals(Collections.singletonList(error), outputReceiver.getErrors());
+    assertEquals(4, handler.myCounter);
+    assertEquals("x", handler.myLastExpression);
+  }
+
+  @Test
+  public void batchFunction() {
+    // debugged function is released for the batch, so it doesn't open the browser inside of the output capturing,
+    // it is restored even if the batch is interrupted
+
+    final List<String> expressions = Arrays.asList("def(c(1:5))", "x");
+    final String command = batchEvaluationCommand(expressions);
+
+    assertTrue(command.startsWith(releaseFunctionsCommand(Collections.<String>emptyList()) + "; "));
+    assertTrue(command.endsWith("finally = " + RESTORE_FUNCTIONS_COMMAND + "))"));
+
+    final BatchTheRExecutor executor = new BatchTheRExecutor(
+      command,
+      BATCH_RESULT_PREFIX + "1\n" +
+      "[1] 1 2 3\n" +
+      BATCH_RESULT_PREFIX + "2\n" +
+      "[1] 4"
+    );
+
+    final MockTheRFunctionDebuggerFactory factory = new MockTheRFunctionDebuggerFactory(null);
+    final MockTheROutputReceiver outputReceiver = new MockTheROutputReceiver();
+    final MockTheRExpressionHandler handler = new MockTheRExpressionHandler();
+
+    final TheRDebuggerEvaluatorImpl evaluator = new TheRDebuggerEvaluatorImpl(
+      executor,
+      factory,
+      outputReceiver,
+      handler,
+      1
+    );
+
+    final TheRDebuggerEvaluatorReceiver first = new TheRDebuggerEvaluatorReceiver("[1] 1 2 3");
+    final TheRDebuggerEvaluatorReceiver second = new TheRDebuggerEvaluatorReceiver("[1] 4");
+
+    evaluator.evaluate(expressions, Arrays.<TheRDebuggerEvaluator.Receiver>asList(first, second));
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(0, factory.getCounter());
+    assertEquals(1, first.getCounter());
+    assertEquals(1, second.getCounter());
+    assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
+    assertEquals(Collections.singletonList("error"), outputReceiver.getErrors());
+    assertEquals(2, handler.myCounter);
+  }
+
   private static class MockTheRExpressionHandler extends IllegalTheRExpressionHandler {
 
     @Nullable
@@ -325,4 +501,28 @@ public class TheRDebuggerEvaluatorImplTest {
       return "[1] 1 2 3";
     }
   }
-}
\ No newline at end of file
+
+  private static class BatchTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    private final String myCommand;
+
+    @NotNull
+    private final String myOutput;
+
+    public BatchTheRExecutor(@NotNull final String command, @NotNull final String output) {
+      myCommand = command;
+      myOutput = output;
+    }
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (!command.equals(myCommand)) {
+        throw new IllegalStateException("Unexpected command: " + command);
+      }
+
+      return new TheRExecutionResult(myOutput, RESPONSE, TextRange.allOf(myOutput), "error");
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.jetbrains.ther.debugger.executor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TheRExecutionInterrupterTest {
+
+  @Test
+  public void idle() {
+    final MockSignal signal = new MockSignal();
+    final TheRExecutionInterrupter interrupter = new TheRExecutionInterrupter(signal);
+
+    assertFalse(interrupter.isExecuting());
+    assertFalse(interrupter.interrupt());
+    assertFalse(interrupter.complete());
+
+    assertEquals(0, signal.myCounter);
+  }
+
+  @Test
+  public void interrupted() {
+    final MockSignal signal = new MockSignal();
+    final TheRExecutionInterrupter interrupter = new TheRExecutionInterrupter(signal);
+
+    interrupter.start();
+
+    assertTrue(interrupter.isExecuting());
+    assertTrue(interrupter.interrupt());
+    assertFalse(interrupter.interrupt());
+
+    assertEquals(1, signal.myCounter);
+
+    assertTrue(interrupter.complete());
+    assertFalse(interrupter.isExecuting());
+  }
+
+  @Test
+  public void completedBeforeSignal() {
+    final MockSignal signal = new MockSignal();
+    final TheRExecutionInterrupter interrupter = new TheRExecutionInterrupter(signal);
+
+    interrupter.start();
+
+    assertFalse(interrupter.complete());
+    assertFalse(interrupter.interrupt());
+
+    assertEquals(0, signal.myCounter);
+
+    interrupter.start();
+
+    assertFalse(interrupter.complete());
+  }
+
+  @Test
+  public void completedWhileSignalling() throws InterruptedException {
+    final TheRExecutionInterrupter[] interrupters = new TheRExecutionInterrupter[1];
+    final boolean[] completed = new boolean[1];
+
+    final Thread completion = new Thread() {
+      @Override
+      public void run() {
+        completed[0] = interrupters[0].complete();
+      }
+    };
+
+    interrupters[0] = new TheRExecutionInterrupter(
+      new Runnable() {
+        @Override
+        public void run() {
+          completion.start();
+
+          try {
+            completion.join(100);
+          }
+          catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+
+          assertTrue(completion.isAlive());
+        }
+      }
+    );
+
+    interrupters[0].start();
+
+    assertTrue(interrupters[0].interrupt());
+
+    completion.join();
+
+    assertTrue(completed[0]);
+  }
+
+  private static class MockSignal implements Runnable {
+
+    private int myCounter = 0;
+
+    @Override
+    public void run() {
+      myCounter++;
+    }
+  }
+}
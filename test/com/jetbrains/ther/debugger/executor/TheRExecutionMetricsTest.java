@@ -0,0 +1,69 @@
+package com.jetbrains.ther.debugger.executor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static com.jetbrains.ther.debugger.executor.TheRExecutionMetrics.OTHER_ACTION;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.DEBUG_AT;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.RESPONSE;
+import static org.junit.Assert.*;
+
+public class TheRExecutionMetricsTest {
+
+  @Test
+  public void empty() throws IOException {
+    final TheRExecutionMetrics metrics = new TheRExecutionMetrics();
+    final StringWriter writer = new StringWriter();
+
+    metrics.export(writer);
+
+    assertTrue(metrics.isEmpty());
+    assertEquals("", metrics.getSummary());
+    assertEquals("action,metric,bucket,count\n", writer.toString());
+  }
+
+  @Test
+  public void actions() throws IOException {
+    final TheRExecutionMetrics metrics = new TheRExecutionMetrics();
+
+    metrics.record(new TheRCommandMetrics(RESPONSE, 5, 0, 0, 0, 0, 0));
+
+    metrics.setAction("step, over");
+    metrics.record(new TheRCommandMetrics(DEBUG_AT, 2, 3, 1000, 2000, 3000, 500));
+    metrics.record(new TheRCommandMetrics(DEBUG_AT, 2, 100, 1000, 5000, 10000, 2000));
+
+    final StringWriter writer = new StringWriter();
+    metrics.export(writer);
+
+    assertEquals(
+      "action,metric,bucket,count\n" +
+      OTHER_ACTION + ",write_us,0,1\n" +
+      OTHER_ACTION + ",first_byte_us,0,1\n" +
+      OTHER_ACTION + ",completion_us,0,1\n" +
+      OTHER_ACTION + ",classification_us,0,1\n" +
+      OTHER_ACTION + ",chars_out,7,1\n" +
+      OTHER_ACTION + ",chars_in,0,1\n" +
+      OTHER_ACTION + ",type,RESPONSE,1\n" +
+      "\"step, over\",write_us,1,2\n" +
+      "\"step, over\",first_byte_us,3,1\n" +
+      "\"step, over\",first_byte_us,7,1\n" +
+      "\"step, over\",completion_us,3,1\n" +
+      "\"step, over\",completion_us,15,1\n" +
+      "\"step, over\",classification_us,0,1\n" +
+      "\"step, over\",classification_us,3,1\n" +
+      "\"step, over\",chars_out,3,2\n" +
+      "\"step, over\",chars_in,3,1\n" +
+      "\"step, over\",chars_in,127,1\n" +
+      "\"step, over\",type,DEBUG_AT,2\n",
+      writer.toString()
+    );
+
+    final String summary = metrics.getSummary();
+
+    assertTrue(summary.startsWith(OTHER_ACTION + ": 1 commands, {RESPONSE=1}\n"));
+    assertTrue(summary.contains("step, over: 2 commands, {DEBUG_AT=2}\n"));
+    assertTrue(summary.contains("  completion_us: p50 <= 3, p90 <= 15, p99 <= 15, max = 10, total = 13\n"));
+  }
+}
@@ -0,0 +1,289 @@
+package com.jetbrains.ther.debugger.executor;
+
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static com.jetbrains.ther.debugger.data.TheRCommands.sentinelCommand;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.BROWSE_PREFIX;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.BROWSE_SUFFIX;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.EMPTY;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.INTERRUPTED;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.RESPONSE;
+import static org.junit.Assert.*;
+
+public class TheRExecutionPipelineTest {
+
+  @NotNull
+  private static final String SENTINEL_PREFIX = "sentinel_";
+
+  @NotNull
+  private static final String BROWSE = BROWSE_PREFIX + "1" + BROWSE_SUFFIX;
+
+  @Test
+  public void single() throws TheRDebuggerException, InterruptedException, ExecutionException {
+    final MockListener listener = new MockListener();
+    final TheRExecutionPipeline pipeline = new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, listener);
+    final StringWriter writer = new StringWriter();
+
+    final Future<TheRExecutionResult> future = pipeline.submit("ls()", writer);
+
+    assertEquals("ls()\n" + sentinelCommand(SENTINEL_PREFIX + 0) + "\n", writer.toString());
+
+    pipeline.appendOutput("ls()\n[1] \"x\"\n" + BROWSE + sentinelCommand(SENTINEL_PREFIX + 0) + "\n" + SENTINEL_PREFIX + 0);
+    pipeline.appendError("error\n" + SENTINEL_PREFIX + 0 + "\n");
+
+    assertFalse(future.isDone());
+
+    pipeline.appendOutput("\n" + BROWSE);
+
+    assertTrue(future.isDone());
+    assertEquals(RESPONSE, future.get().getType());
+    assertEquals("[1] \"x\"", future.get().getOutput());
+    assertEquals("error\n", future.get().getError());
+
+    assertEquals(Arrays.asList("ls()"), listener.myCommands);
+
+    final TheRCommandMetrics metrics = listener.myMetrics.get(0);
+
+    assertEquals(RESPONSE, metrics.getType());
+    assertEquals(writer.toString().length(), metrics.getBytesOut());
+    assertEquals("ls()\n[1] \"x\"\n".length() + BROWSE.length() + "error\n".length(), metrics.getBytesIn());
+    assertTrue(metrics.getWriteNanos() >= 0);
+    assertTrue(metrics.getFirstByteNanos() >= metrics.getWriteNanos());
+    assertTrue(metrics.getCompletionNanos() >= metrics.getFirstByteNanos());
+    assertTrue(metrics.getClassificationNanos() >= 0);
+  }
+
+  @Test
+  public void pipelined() throws TheRDebuggerException, InterruptedException, ExecutionException {
+    final MockListener listener = new MockListener();
+    final TheRExecutionPipeline pipeline = new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, listener);
+    final StringWriter writer = new StringWriter();
+
+    final Future<TheRExecutionResult> first = pipeline.submit("x <- 1", writer);
+    final Future<TheRExecutionResult> second = pipeline.submit("x", writer);
+
+    final String output = "x <- 1\n" +
+                          BROWSE + sentinelCommand(SENTINEL_PREFIX + 0) + "\n" +
+                          SENTINEL_PREFIX + 0 + "\n" +
+                          BROWSE + "x\n" +
+                          "[1] 1\n" +
+                          BROWSE + sentinelCommand(SENTINEL_PREFIX + 1) + "\n" +
+                          SENTINEL_PREFIX + 1 + "\n" +
+                          BROWSE;
+
+    final String error = "error_x1\n" + SENTINEL_PREFIX + 0 + "\n" + SENTINEL_PREFIX + 1 + "\n";
+
+    for (int i = 0; i < output.length(); i += 5) {
+      pipeline.appendOutput(output.substring(i, Math.min(i + 5, output.length())));
+    }
+
+    assertFalse(first.isDone());
+    assertFalse(second.isDone());
+
+    for (int i = 0; i < error.length(); i += 3) {
+      pipeline.appendError(error.substring(i, Math.min(i + 3, error.length())));
+    }
+
+    assertEquals(EMPTY, first.get().getType());
+    assertEquals("error_x1\n", first.get().getError());
+
+    assertEquals(RESPONSE, second.get().getType());
+    assertEquals("[1] 1", second.get().getOutput());
+    assertEquals("", second.get().getError());
+
+    assertEquals(Arrays.asList("x <- 1", "x"), listener.myCommands);
+  }
+
+  @Test
+  public void cancelled() throws TheRDebuggerException, InterruptedException, ExecutionException {
+    final MockListener listener = new MockListener();
+    final TheRExecutionPipeline pipeline = new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, listener);
+    final StringWriter writer = new StringWriter();
+
+    final Future<TheRExecutionResult> first = pipeline.submit("x <- 1", writer);
+    final Future<TheRExecutionResult> second = pipeline.submit("x", writer);
+
+    first.cancel(false);
+
+    pipeline.appendOutput(
+      "x <- 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 0) + "\n" +
+      SENTINEL_PREFIX + 0 + "\n" +
+      BROWSE + "x\n" +
+      "[1] 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 1) + "\n" +
+      SENTINEL_PREFIX + 1 + "\n" +
+      BROWSE
+    );
+
+    pipeline.appendError(SENTINEL_PREFIX + 0 + "\n" + SENTINEL_PREFIX + 1 + "\n");
+
+    assertTrue(first.isCancelled());
+    assertEquals("[1] 1", second.get().getOutput());
+
+    assertEquals(Arrays.asList("x"), listener.myCommands);
+  }
+
+  @Test
+  public void cancelledWithInterruption() throws TheRDebuggerException, InterruptedException, ExecutionException {
+    final MockListener listener = new MockListener();
+    final TheRExecutionPipeline pipeline = new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, listener);
+    final StringWriter writer = new StringWriter();
+
+    final Future<TheRExecutionResult> first = pipeline.submit("for (i in 1:3) print(i)", writer);
+    final Future<TheRExecutionResult> second = pipeline.submit("x <- 1", writer);
+    final Future<TheRExecutionResult> third = pipeline.submit("x", writer);
+
+    second.cancel(true);
+
+    assertEquals(0, listener.myInterruptions);
+
+    first.cancel(true);
+    first.cancel(true);
+
+    assertEquals(1, listener.myInterruptions);
+
+    pipeline.appendOutput(
+      "for (i in 1:3) print(i)\n" +
+      "[1] 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 0) + "\n" +
+      SENTINEL_PREFIX + 0 + "\n" +
+      BROWSE + "x <- 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 1) + "\n" +
+      SENTINEL_PREFIX + 1 + "\n" +
+      BROWSE + "x\n" +
+      "[1] 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 2) + "\n" +
+      SENTINEL_PREFIX + 2 + "\n" +
+      BROWSE
+    );
+
+    pipeline.appendError(SENTINEL_PREFIX + 0 + "\n" + SENTINEL_PREFIX + 1 + "\n" + SENTINEL_PREFIX + 2 + "\n");
+
+    assertTrue(first.isCancelled());
+    assertTrue(second.isCancelled());
+    assertEquals("[1] 1", third.get().getOutput());
+
+    assertEquals(Arrays.asList("x"), listener.myCommands);
+  }
+
+  @Test
+  public void interrupted() throws TheRDebuggerException, InterruptedException, ExecutionException {
+    final MockListener listener = new MockListener();
+    final TheRExecutionPipeline pipeline = new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, listener);
+    final StringWriter writer = new StringWriter();
+
+    assertFalse(pipeline.interrupt());
+
+    final Future<TheRExecutionResult> first = pipeline.submit("for (i in 1:3) print(i)", writer);
+    final Future<TheRExecutionResult> second = pipeline.submit("x", writer);
+
+    assertTrue(pipeline.interrupt());
+    assertFalse(pipeline.interrupt());
+
+    assertEquals(1, listener.myInterruptions);
+
+    pipeline.appendOutput(
+      "for (i in 1:3) print(i)\n" +
+      "[1] 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 0) + "\n" +
+      SENTINEL_PREFIX + 0 + "\n" +
+      BROWSE + "x\n" +
+      "[1] 1\n" +
+      BROWSE + sentinelCommand(SENTINEL_PREFIX + 1) + "\n" +
+      SENTINEL_PREFIX + 1 + "\n" +
+      BROWSE
+    );
+
+    pipeline.appendError(SENTINEL_PREFIX + 0 + "\n" + SENTINEL_PREFIX + 1 + "\n");
+
+    assertEquals(INTERRUPTED, first.get().getType());
+    assertEquals("[1] 1", first.get().getOutput());
+    assertEquals("[1] 1", first.get().getResultRange().substring(first.get().getOutput()));
+
+    assertEquals(RESPONSE, second.get().getType());
+    assertEquals(1, listener.myInterruptions);
+  }
+
+  @Test
+  public void interruptedAfterCompletion() throws TheRDebuggerException, InterruptedException, ExecutionException {
+    // signal sent to R waiting for the next command would make it print an extra invitation
+
+    final MockListener listener = new MockListener();
+    final TheRExecutionPipeline pipeline = new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, listener);
+    final StringWriter writer = new StringWriter();
+
+    final Future<TheRExecutionResult> future = pipeline.submit("x", writer);
+
+    pipeline.appendOutput("x\n[1] 1\n" + BROWSE + sentinelCommand(SENTINEL_PREFIX + 0) + "\n" + SENTINEL_PREFIX + 0 + "\n" + BROWSE);
+    pipeline.appendError(SENTINEL_PREFIX + 0 + "\n");
+
+    assertFalse(pipeline.interrupt());
+
+    assertEquals(RESPONSE, future.get().getType());
+    assertEquals(0, listener.myInterruptions);
+  }
+
+  @Test
+  public void terminated() throws TheRDebuggerException, InterruptedException {
+    final TheRExecutionPipeline pipeline =
+      new TheRExecutionPipeline(new TheRExecutionResultCalculatorImpl(), SENTINEL_PREFIX, new MockListener());
+    final StringWriter writer = new StringWriter();
+
+    final Future<TheRExecutionResult> future = pipeline.submit("q()", writer);
+
+    pipeline.appendError("error_q");
+
+    assertEquals("error_q", pipeline.terminate());
+
+    try {
+      future.get();
+
+      fail("Terminated command has been completed");
+    }
+    catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof TheRDebuggerException);
+    }
+
+    try {
+      pipeline.submit("ls()", writer);
+
+      fail("Command has been submitted to the terminated process");
+    }
+    catch (final TheRDebuggerException ignored) {
+    }
+  }
+
+  private static class MockListener implements TheRExecutionPipeline.Listener {
+
+    @NotNull
+    private final List<String> myCommands = new ArrayList<String>();
+
+    @NotNull
+    private final List<TheRCommandMetrics> myMetrics = new ArrayList<TheRCommandMetrics>();
+
+    private int myInterruptions = 0;
+
+    @Override
+    public void onExecuted(@NotNull final String command,
+                           @NotNull final TheRExecutionResult result,
+                           @NotNull final TheRCommandMetrics metrics) {
+      myCommands.add(command);
+      myMetrics.add(metrics);
+    }
+
+    @Override
+    public void onInterrupted() {
+      myInterruptions++;
+    }
+  }
+}
@@ -5,7 +5,10 @@ import com.jetbrains.ther.debugger.data.TheRLanguageConstants;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
+import static com.jetbrains.ther.debugger.data.TheRCommands.CONTINUE_COMMAND;
 import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.FINISH_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.MAIN_FUNCTION_NAME;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_ENTER_FUNCTION_SUFFIX;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_FUNCTION_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
@@ -35,6 +38,62 @@ public class TheRExecutionResultCalculatorImplTest {
     assertFalse(CALCULATOR.isComplete("ls()\n[1] \"x\"\n" + BROWSE_PREFIX));
   }
 
+  @Test
+  public void completeIncremental() {
+    final TheRExecutionResultCalculatorImpl calculator = new TheRExecutionResultCalculatorImpl();
+    final StringBuilder output = new StringBuilder();
+
+    output.append("ls()\n[1] \"x\"\n");
+    assertFalse(calculator.isComplete(output));
+
+    output.append(BROWSE_PREFIX);
+    assertFalse(calculator.isComplete(output));
+
+    output.append("1").append(BROWSE_SUFFIX);
+    assertTrue(calculator.isComplete(output));
+  }
+
+  @Test
+  public void calculateIncremental() {
+    final TheRExecutionResultCalculatorImpl calculator = new TheRExecutionResultCalculatorImpl();
+    final StringBuilder output = new StringBuilder();
+
+    final String[] chunks = new String[]{
+      EXECUTE_AND_STEP_COMMAND + "\n[1] 1 ",
+      "2 3\n" + EXITING_FROM_PREFIX,
+      "x()\n" + DEBUG_AT_LINE_PREFIX + "4: print(\"x\")\n",
+      BROWSE_PREFIX + "1",
+      BROWSE_SUFFIX
+    };
+
+    for (final String chunk : chunks) {
+      output.append(chunk);
+      calculator.isComplete(output);
+    }
+
+    final TheRExecutionResult result = calculator.calculate(output, "");
+
+    assertEquals(
+      "[1] 1 2 3\n" +
+      EXITING_FROM_PREFIX + "x()\n" +
+      DEBUG_AT_LINE_PREFIX + "4: print(\"x\")",
+      result.getOutput()
+    );
+    assertEquals(EXITING_FROM, result.getType());
+    assertEquals("[1] 1 2 3", result.getResultRange().substring(result.getOutput()));
+
+    output.setLength(0);
+    output.append("ls()\n[1] \"x\"\n").append(BROWSE_PREFIX).append("1").append(BROWSE_SUFFIX);
+
+    assertTrue(calculator.isComplete(output));
+
+    final TheRExecutionResult nextResult = calculator.calculate(output, "");
+
+    assertEquals("[1] \"x\"", nextResult.getOutput());
+    assertEquals(RESPONSE, nextResult.getType());
+    assertEquals("[1] \"x\"", nextResult.getResultRange().substring(nextResult.getOutput()));
+  }
+
   @Test
   public void calculatePlus() {
     check(
@@ -85,6 +144,24 @@ public class TheRExecutionResultCalculatorImplTest {
     );
   }
 
+  @Test
+  public void calculateDebuggingInAfterOutput() {
+    check(
+      FINISH_COMMAND,
+      "[1] 1 2 3\n" +
+      DEBUGGING_IN_PREFIX + "x()\n" +
+      DEBUG_AT_PREFIX + "{\n" +
+      "    .doTrace(" + JETBRAINS_THER_X_ENTER + "(), \"on entry\")\n" +
+      "    {\n" +
+      "        print(\"x\")\n" +
+      "    }\n" +
+      "}",
+      BROWSE_PREFIX + "3" + BROWSE_SUFFIX,
+      DEBUGGING_IN_AFTER_OUTPUT,
+      "[1] 1 2 3"
+    );
+  }
+
   @Test
   public void calculateDebugAt() {
     check(
@@ -402,6 +479,59 @@ public class TheRExecutionResultCalculatorImplTest {
     );
   }
 
+  @Test
+  public void calculateBreakpointHook() {
+    check(
+      CONTINUE_COMMAND,
+      BREAKPOINT_HOOK_PREFIX + "2 4 f\n" +
+      "Called from: eval(quote(browser()), f)",
+      BROWSE_PREFIX + "2" + BROWSE_SUFFIX,
+      BREAKPOINT_HOOK,
+      ""
+    );
+  }
+
+  @Test
+  public void calculateBreakpointHookWithOutputBefore() {
+    check(
+      CONTINUE_COMMAND,
+      "[1] 1 2 3\n" +
+      BREAKPOINT_HOOK_PREFIX + "2 4 f\n" +
+      "Called from: eval(quote(browser()), f)",
+      BROWSE_PREFIX + "2" + BROWSE_SUFFIX,
+      BREAKPOINT_HOOK,
+      "[1] 1 2 3"
+    );
+  }
+
+  @Test
+  public void calculateBreakpointHookAfterExitingFrom() {
+    check(
+      CONTINUE_COMMAND,
+      "[1] 1 2 3\n" +
+      EXITING_FROM_PREFIX + "g()\n" +
+      "[1] 4 5 6\n" +
+      BREAKPOINT_HOOK_PREFIX + "1 7 " + MAIN_FUNCTION_NAME + "\n" +
+      "Called from: eval(quote(browser()), f)",
+      BROWSE_PREFIX + "1" + BROWSE_SUFFIX,
+      BREAKPOINT_HOOK,
+      "[1] 4 5 6"
+    );
+  }
+
+  @Test
+  public void calculateExitingFromHookedFrame() {
+    check(
+      EXECUTE_AND_STEP_COMMAND,
+      EXITING_FROM_PREFIX + "g()\n" +
+      "[1] 1 2 3\n" +
+      CALLED_FROM_PREFIX + "eval(quote(browser()), parent.frame())",
+      BROWSE_PREFIX + "1" + BROWSE_SUFFIX,
+      TheRExecutionResultType.EXITING_FROM,
+      "[1] 1 2 3"
+    );
+  }
+
   @Test
   public void calculateOutputAndBrowse() {
     check(
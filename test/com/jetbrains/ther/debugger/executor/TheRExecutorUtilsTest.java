@@ -7,11 +7,14 @@ import com.jetbrains.ther.debugger.mock.MockTheROutputReceiver;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.PLUS;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.RESPONSE;
-import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.execute;
-import static org.junit.Assert.assertEquals;
+import static com.jetbrains.ther.debugger.executor.TheRExecutorUtils.*;
+import static org.junit.Assert.*;
 
 public class TheRExecutorUtilsTest {
 
@@ -80,4 +83,39 @@ public class TheRExecutorUtilsTest {
     assertEquals(Collections.emptyList(), receiver.getOutputs());
     assertEquals(Collections.singletonList(error), receiver.getErrors());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void synchronousSubmitting() throws TheRDebuggerException {
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor("abc", RESPONSE, TextRange.allOf("abc"), "error");
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final Future<TheRExecutionResult> future = submit(executor, "def");
+
+    assertTrue(future.isDone());
+    assertEquals(1, executor.getCounter());
+    assertEquals("abc", get(future, RESPONSE, receiver));
+    assertEquals(Collections.singletonList("error"), receiver.getErrors());
+  }
+
+  @Test
+  public void timeout() {
+    final FutureTask<TheRExecutionResult> future = new FutureTask<TheRExecutionResult>(
+      new Callable<TheRExecutionResult>() {
+        @Override
+        public TheRExecutionResult call() {
+          throw new IllegalStateException("Command shouldn't be completed");
+        }
+      }
+    );
+
+    try {
+      get(future, 10);
+
+      fail("Command has been completed");
+    }
+    catch (final TheRDebuggerException ignored) {
+    }
+
+    assertTrue(future.isCancelled());
+  }
+}
@@ -0,0 +1,191 @@
+package com.jetbrains.ther.debugger.executor;
+
+import com.intellij.openapi.util.TextRange;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.mock.MockTheRExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
+import static org.junit.Assert.*;
+
+public class TheRReplayingExecutorTest {
+
+  @Test
+  public void replay() throws TheRDebuggerException {
+    final StringWriter writer = new StringWriter();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(new MultilineTheRExecutor(), writer);
+
+    recorder.execute("ls()");
+    recorder.execute("x <- 1");
+    recorder.execute("print(\"a b\")\nprint(1)");
+    recorder.close();
+
+    final TheRReplayingExecutor executor = new TheRReplayingExecutor(new StringReader(writer.toString()), false);
+
+    final TheRExecutionResult first = executor.execute("ls()");
+
+    assertEquals("[1] \"x\"\r\n" + "RESPONSE 0 1 2 3 4 5\n" + "Browse[1]> ", first.getOutput());
+    assertEquals(RESPONSE, first.getType());
+    assertEquals(new TextRange(0, 7), first.getResultRange());
+    assertEquals("warning\n", first.getError());
+
+    final TheRExecutionResult second = executor.execute("x <- 1");
+
+    assertEquals("", second.getOutput());
+    assertEquals(EMPTY, second.getType());
+    assertEquals(TextRange.EMPTY_RANGE, second.getResultRange());
+    assertEquals("", second.getError());
+
+    assertFalse(executor.isOver());
+
+    assertEquals(DEBUG_AT, executor.execute("print(\"a b\")\nprint(1)").getType());
+
+    assertTrue(executor.isOver());
+  }
+
+  @Test
+  public void replaySubmitted() throws TheRDebuggerException {
+    final StringWriter writer = new StringWriter();
+    final PendingTheRExecutor pending = new PendingTheRExecutor();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(pending, writer);
+
+    final Future<TheRExecutionResult> first = recorder.submit("ls()");
+    final Future<TheRExecutionResult> second = recorder.submit("x <- 1");
+    final Future<TheRExecutionResult> third = recorder.submit("x");
+
+    second.cancel(true);
+    pending.myFutures.get(2).run();
+
+    assertEquals("", writer.toString());
+
+    pending.myFutures.get(0).run();
+
+    assertEquals("[1] 1", TheRExecutorUtils.get(third).getOutput());
+    assertEquals("[1] 1", TheRExecutorUtils.get(first).getOutput());
+
+    recorder.close();
+
+    final TheRReplayingExecutor executor = new TheRReplayingExecutor(new StringReader(writer.toString()), false);
+
+    assertEquals(RESPONSE, executor.execute("ls()").getType());
+    assertEquals(INTERRUPTED, executor.execute("x <- 1").getType());
+    assertEquals(RESPONSE, executor.execute("x").getType());
+
+    assertTrue(executor.isOver());
+  }
+
+  @Test
+  public void replayTempFiles() throws TheRDebuggerException {
+    final StringWriter writer = new StringWriter();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(new MultilineTheRExecutor(), writer);
+
+    recorder.execute("readLines(\"/tmp/ther123.r\"); f <- file('/tmp/ther456.bin', \"wb\")");
+    recorder.close();
+
+    assertFalse(writer.toString().contains("123"));
+    assertFalse(writer.toString().contains("456"));
+
+    final TheRReplayingExecutor executor = new TheRReplayingExecutor(new StringReader(writer.toString()), false);
+
+    assertEquals(DEBUG_AT, executor.execute("readLines(\"C:/Temp Dir/ther789.r\"); f <- file('/var/tmp/ther1.bin', \"wb\")").getType());
+    assertTrue(executor.isOver());
+  }
+
+  @Test(expected = TheRDebuggerException.class)
+  public void unexpectedCommand() throws TheRDebuggerException {
+    final StringWriter writer = new StringWriter();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(new MultilineTheRExecutor(), writer);
+
+    recorder.execute("ls()");
+    recorder.close();
+
+    new TheRReplayingExecutor(new StringReader(writer.toString()), false).execute("ls(all.names = TRUE)");
+  }
+
+  @Test(expected = TheRDebuggerException.class)
+  public void overTranscript() throws TheRDebuggerException {
+    final StringWriter writer = new StringWriter();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(new MultilineTheRExecutor(), writer);
+
+    recorder.execute("ls()");
+    recorder.close();
+
+    final TheRReplayingExecutor executor = new TheRReplayingExecutor(new StringReader(writer.toString()), false);
+
+    executor.execute("ls()");
+    executor.execute("ls()");
+  }
+
+  @Test(expected = TheRDebuggerException.class)
+  public void truncatedTranscript() throws TheRDebuggerException {
+    final StringWriter writer = new StringWriter();
+    final TheRRecordingExecutor recorder = new TheRRecordingExecutor(new MultilineTheRExecutor(), writer);
+
+    recorder.execute("ls()");
+    recorder.close();
+
+    final String transcript = writer.toString();
+
+    new TheRReplayingExecutor(new StringReader(transcript.substring(0, transcript.length() - 5)), false);
+  }
+
+  private static class PendingTheRExecutor implements TheRAsyncExecutor {
+
+    @NotNull
+    private final List<FutureTask<TheRExecutionResult>> myFutures = new ArrayList<FutureTask<TheRExecutionResult>>();
+
+    @NotNull
+    @Override
+    public Future<TheRExecutionResult> submit(@NotNull final String command) {
+      final FutureTask<TheRExecutionResult> result = new FutureTask<TheRExecutionResult>(
+        new Callable<TheRExecutionResult>() {
+          @Override
+          public TheRExecutionResult call() {
+            return new TheRExecutionResult("[1] 1", RESPONSE, TextRange.allOf("[1] 1"), "");
+          }
+        }
+      );
+
+      myFutures.add(result);
+
+      return result;
+    }
+
+    @NotNull
+    @Override
+    public TheRExecutionResult execute(@NotNull final String command) {
+      throw new IllegalStateException("Command should be submitted");
+    }
+  }
+
+  private static class MultilineTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (command.equals("ls()")) {
+        return new TheRExecutionResult(
+          "[1] \"x\"\r\n" + "RESPONSE 0 1 2 3 4 5\n" + "Browse[1]> ",
+          RESPONSE,
+          new TextRange(0, 7),
+          "warning\n"
+        );
+      }
+
+      if (command.equals("x <- 1")) {
+        return new TheRExecutionResult("", EMPTY, TextRange.EMPTY_RANGE, "");
+      }
+
+      return new TheRExecutionResult("debug at #2: print(1)", DEBUG_AT, TextRange.EMPTY_RANGE, "");
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.util.containers.ContainerUtil;
+import com.jetbrains.ther.debugger.MockitoUtils;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.exception.TheRInterruptedException;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
+import com.jetbrains.ther.debugger.executor.TheRExecutor;
+import com.jetbrains.ther.debugger.mock.AlwaysSameResultTheRExecutor;
+import com.jetbrains.ther.debugger.mock.IllegalTheRValueModifier;
+import com.jetbrains.ther.debugger.mock.MockTheRExecutor;
+import com.jetbrains.ther.debugger.mock.MockTheROutputReceiver;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.jetbrains.ther.debugger.TheRDebuggerUtils.loadValueCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.loadVarsCommand;
+import static com.jetbrains.ther.debugger.data.TheRLanguageConstants.FUNCTION_TYPE;
+import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
+import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
+import static org.junit.Assert.*;
+
+public class TheRBatchVarsLoaderImplTest {
+
+  @Test
+  public void empty() throws TheRDebuggerException {
+    final String output = "";
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(output, RESPONSE, TextRange.allOf(output), "error");
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    assertEquals(
+      0,
+      new TheRBatchVarsLoaderImpl(
+        executor,
+        receiver,
+        new IllegalTheRValueModifier(),
+        0
+      ).load().size()
+    );
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error"), receiver.getErrors());
+  }
+
+  @Test
+  public void ordinary() throws TheRDebuggerException {
+    final String output = VAR_PREFIX + "a\n" +
+                          "[1] \"integer\"\n" +
+                          "[1] 1 2 3\n" +
+                          VAR_PREFIX + "b\n" +
+                          FUNCTION_TYPE + "\n" +
+                          "function(x) {\n" +
+                          "    x ^ 2\n" +
+                          "}\n" +
+                          VAR_PREFIX + "c\n" +
+                          FUNCTION_TYPE + "\n" +
+                          "function(x) {\n" +
+                          "    x ^ 2\n" +
+                          "}\n" +
+                          ENVIRONMENT_PREFIX + "0xfffffff>\n" +
+                          VAR_PREFIX + "d\n" +
+                          "[1] \"list\"\n" +
+                          "[[1]]\n" +
+                          "[1] 1\n" +
+                          "\n" +
+                          "[[2]]\n" +
+                          "[1] 2";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(output, RESPONSE, TextRange.allOf(output), "error");
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final List<TheRVar> actual = new TheRBatchVarsLoaderImpl(
+      executor,
+      receiver,
+      new IllegalTheRValueModifier(),
+      0
+    ).load();
+
+    assertEquals(4, actual.size());
+
+    assertEquals("a", actual.get(0).getName());
+    assertEquals("[1] \"integer\"", actual.get(0).getType());
+    assertEquals("[1] 1 2 3", actual.get(0).getValue());
+
+    assertEquals("b", actual.get(1).getName());
+    assertEquals(FUNCTION_TYPE, actual.get(1).getType());
+    assertEquals(
+      "function(x) {\n" +
+      "    x ^ 2\n" +
+      "}",
+      actual.get(1).getValue()
+    );
+
+    assertEquals("c", actual.get(2).getName());
+    assertEquals(FUNCTION_TYPE, actual.get(2).getType());
+    assertEquals(
+      "function(x) {\n" +
+      "    x ^ 2\n" +
+      "}",
+      actual.get(2).getValue()
+    );
+
+    assertEquals("d", actual.get(3).getName());
+    assertEquals("[1] \"list\"", actual.get(3).getType());
+    assertEquals(
+      "[[1]]\n" +
+      "[1] 1\n" +
+      "\n" +
+      "[[2]]\n" +
+      "[1] 2",
+      actual.get(3).getValue()
+    );
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error"), receiver.getErrors());
+  }
+
+  @Test
+  public void summary() throws TheRDebuggerException {
+    final String output = VAR_PREFIX + "a\n" +
+                          "[1] \"double\"\n" +
+                          SUMMARY_PREFIX + "1000000\n" +
+                          "numeric, length 1000000, 7.6 Mb\n" +
+                          "[1] 1 2 3\n" +
+                          VAR_PREFIX + "b\n" +
+                          "[1] \"integer\"\n" +
+                          "[1] 1\n" +
+                          VAR_PREFIX + "c\n" +
+                          "[1] \"list\"\n" +
+                          DATA_FRAME_SUMMARY_PREFIX + "2\n" +
+                          "data.frame, dim 1 x 2, 1.2 Kb\n" +
+                          "  x y\n" +
+                          "1 1 2";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(output, RESPONSE, TextRange.allOf(output), "error");
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final List<TheRVar> actual = new TheRBatchVarsLoaderImpl(
+      executor,
+      receiver,
+      new IllegalTheRValueModifier(),
+      0
+    ).load();
+
+    assertEquals(3, actual.size());
+
+    assertEquals("a", actual.get(0).getName());
+    assertEquals("[1] \"double\"", actual.get(0).getType());
+    assertEquals("numeric, length 1000000, 7.6 Mb\n[1] 1 2 3", actual.get(0).getValue());
+    assertFalse(actual.get(0).isComplete());
+    assertEquals(1000000, actual.get(0).getLength());
+    assertFalse(actual.get(0).isDataFrame());
+
+    assertEquals("b", actual.get(1).getName());
+    assertEquals("[1] \"integer\"", actual.get(1).getType());
+    assertEquals("[1] 1", actual.get(1).getValue());
+    assertTrue(actual.get(1).isComplete());
+
+    assertEquals("c", actual.get(2).getName());
+    assertEquals("[1] \"list\"", actual.get(2).getType());
+    assertEquals("data.frame, dim 1 x 2, 1.2 Kb\n  x y\n1 1 2", actual.get(2).getValue());
+    assertFalse(actual.get(2).isComplete());
+    assertEquals(2, actual.get(2).getLength());
+    assertTrue(actual.get(2).isDataFrame());
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error"), receiver.getErrors());
+  }
+
+  @Test
+  public void longSummary() throws TheRDebuggerException {
+    final String output = VAR_PREFIX + "a\n" +
+                          "[1] \"logical\"\n" +
+                          SUMMARY_PREFIX + "3000000000\n" +
+                          "logical, length 3000000000, 11.2 Gb\n" +
+                          "[1] NA NA NA\n" +
+                          VAR_PREFIX + "b\n" +
+                          "[1] \"logical\"\n" +
+                          SUMMARY_PREFIX + "3e+09\n" +
+                          "logical, length 3e+09, 11.2 Gb\n" +
+                          "[1] NA NA NA";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(output, RESPONSE, TextRange.allOf(output), "error");
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final List<TheRVar> actual = new TheRBatchVarsLoaderImpl(
+      executor,
+      receiver,
+      new IllegalTheRValueModifier(),
+      0
+    ).load();
+
+    assertEquals(2, actual.size());
+
+    assertEquals("a", actual.get(0).getName());
+    assertEquals("logical, length 3000000000, 11.2 Gb\n[1] NA NA NA", actual.get(0).getValue());
+    assertFalse(actual.get(0).isComplete());
+    assertEquals(Integer.MAX_VALUE, actual.get(0).getLength());
+
+    assertEquals("b", actual.get(1).getName());
+    assertEquals("logical, length 3e+09, 11.2 Gb\n[1] NA NA NA", actual.get(1).getValue());
+    assertTrue(actual.get(1).isComplete());
+  }
+
+  @Test
+  public void page() throws TheRDebuggerException {
+    final String output = "[1] 4 5 6";
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+    final TheRExecutor executor = MockitoUtils.setupExecutor(
+      new ContainerUtil.ImmutableMapBuilder<String, List<TheRExecutionResult>>()
+        .put(
+          loadValueCommand(1, "a", 4, 6),
+          Collections.singletonList(new TheRExecutionResult(output, RESPONSE, TextRange.allOf(output), "error_page"))
+        )
+        .build()
+    );
+
+    assertEquals(
+      output,
+      new TheRBatchVarsLoaderImpl(
+        executor,
+        receiver,
+        new IllegalTheRValueModifier(),
+        1
+      ).loadValue("a", 4, 6)
+    );
+
+    MockitoUtils.verifyExecutor(executor, Collections.singletonList(loadValueCommand(1, "a", 4, 6)));
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error_page"), receiver.getErrors());
+  }
+
+  @Test
+  public void inDebug() throws TheRDebuggerException {
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final List<TheRVar> actual = new TheRBatchVarsLoaderImpl(
+      new InDebugTheRExecutor(),
+      receiver,
+      new IllegalTheRValueModifier(),
+      0
+    ).load();
+
+    assertEquals(1, actual.size());
+    assertEquals("a", actual.get(0).getName());
+    assertEquals("[1] \"integer\"", actual.get(0).getType());
+    assertEquals("[1] 1 2 3", actual.get(0).getValue());
+
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Arrays.asList("error_dbg_at", "error_vars"), receiver.getErrors());
+  }
+
+  @Test
+  public void interrupted() {
+    final String output = VAR_PREFIX + "a\n" +
+                          "[1] \"integer\"\n";
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(output, INTERRUPTED, TextRange.allOf(output), "error");
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    try {
+      new TheRBatchVarsLoaderImpl(
+        executor,
+        receiver,
+        new IllegalTheRValueModifier(),
+        0
+      ).load();
+
+      fail();
+    }
+    catch (final TheRInterruptedException ignored) {
+    }
+    catch (final TheRDebuggerException e) {
+      fail();
+    }
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error"), receiver.getErrors());
+  }
+
+  private static class InDebugTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (getCounter() == 1 && command.equals(loadVarsCommand(0))) {
+        final String output = DEBUG_AT_LINE_PREFIX + "2: print(v)";
+
+        return new TheRExecutionResult(
+          output,
+          DEBUG_AT,
+          TextRange.EMPTY_RANGE,
+          "error_dbg_at"
+        );
+      }
+
+      if (getCounter() == 2) {
+        final String output = VAR_PREFIX + "a\n" +
+                              "[1] \"integer\"\n" +
+                              "[1] 1 2 3";
+
+        return new TheRExecutionResult(
+          output,
+          RESPONSE,
+          TextRange.allOf(output),
+          "error_vars"
+        );
+      }
+
+      throw new IllegalStateException("Unexpected command");
+    }
+  }
+}
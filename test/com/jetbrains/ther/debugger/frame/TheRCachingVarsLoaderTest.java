@@ -0,0 +1,94 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.jetbrains.ther.debugger.TheRSuspensionCache;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.mock.IllegalTheRValueModifier;
+import com.jetbrains.ther.debugger.mock.IllegalTheRVarsLoader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TheRCachingVarsLoaderTest {
+
+  @Test
+  public void cached() throws TheRDebuggerException {
+    final MockTheRVarsLoader loader = new MockTheRVarsLoader();
+    final TheRCachingVarsLoader cachingLoader = new TheRCachingVarsLoader(loader, new TheRSuspensionCache(), 1);
+
+    assertEquals(1, cachingLoader.load().size());
+    assertEquals(1, cachingLoader.load().size());
+    assertEquals(1, loader.myLoads);
+
+    assertEquals("x", cachingLoader.loadValue("x"));
+    assertEquals("x", cachingLoader.loadValue("x"));
+    assertEquals("x[1:2]", cachingLoader.loadValue("x", 1, 2));
+    assertEquals("x[1:2]", cachingLoader.loadValue("x", 1, 2));
+    assertEquals("x[3:4]", cachingLoader.loadValue("x", 3, 4));
+    assertEquals(3, loader.myValueLoads);
+  }
+
+  @Test
+  public void invalidated() throws TheRDebuggerException {
+    final MockTheRVarsLoader loader = new MockTheRVarsLoader();
+    final TheRSuspensionCache cache = new TheRSuspensionCache();
+    final TheRCachingVarsLoader cachingLoader = new TheRCachingVarsLoader(loader, cache, 1);
+
+    cachingLoader.load();
+    cachingLoader.loadValue("x");
+
+    cache.invalidate();
+
+    cachingLoader.load();
+    cachingLoader.loadValue("x");
+
+    assertEquals(2, loader.myLoads);
+    assertEquals(2, loader.myValueLoads);
+  }
+
+  @Test
+  public void frames() throws TheRDebuggerException {
+    final MockTheRVarsLoader loader = new MockTheRVarsLoader();
+    final TheRSuspensionCache cache = new TheRSuspensionCache();
+
+    new TheRCachingVarsLoader(loader, cache, 1).load();
+    new TheRCachingVarsLoader(loader, cache, 2).load();
+    new TheRCachingVarsLoader(loader, cache, 1).load();
+
+    assertEquals(2, loader.myLoads);
+  }
+
+  private static class MockTheRVarsLoader extends IllegalTheRVarsLoader {
+
+    private int myLoads = 0;
+
+    private int myValueLoads = 0;
+
+    @NotNull
+    @Override
+    public List<TheRVar> load() throws TheRDebuggerException {
+      myLoads++;
+
+      return Collections.singletonList(new TheRVar("x", "[1] \"integer\"", "[1] 1", new IllegalTheRValueModifier()));
+    }
+
+    @NotNull
+    @Override
+    public String loadValue(@NotNull final String var) throws TheRDebuggerException {
+      myValueLoads++;
+
+      return var;
+    }
+
+    @NotNull
+    @Override
+    public String loadValue(@NotNull final String var, final int from, final int to) throws TheRDebuggerException {
+      myValueLoads++;
+
+      return var + "[" + from + ":" + to + "]";
+    }
+  }
+}
@@ -0,0 +1,280 @@
+package com.jetbrains.ther.debugger.frame;
+
+import com.intellij.openapi.util.TextRange;
+import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.executor.TheRAsyncExecutor;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
+import com.jetbrains.ther.debugger.executor.TheRExecutionResultType;
+import com.jetbrains.ther.debugger.mock.MockTheRExecutor;
+import com.jetbrains.ther.debugger.mock.MockTheROutputReceiver;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.jetbrains.ther.debugger.TheRDebuggerUtils.calculateValueCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.dataFrameChunkCommand;
+import static com.jetbrains.ther.debugger.data.TheRCommands.dataFrameInfoCommand;
+import static org.junit.Assert.*;
+
+public class TheRDataFrameLoaderImplTest {
+
+  @NotNull
+  private static final Pattern PATH_PATTERN = Pattern.compile("file\\(\"([^\"]*)\", \"wb\"\\)");
+
+  @Test
+  public void info() throws TheRDebuggerException {
+    final ByteBuffer buffer = allocate();
+    buffer.putInt(3).putInt(2);
+    putString(buffer, "x");
+    buffer.putInt(TheRDataFrameColumn.Type.DOUBLE.ordinal());
+    putString(buffer, "f");
+    buffer.putInt(TheRDataFrameColumn.Type.FACTOR.ordinal());
+    buffer.putInt(2);
+    putString(buffer, "a");
+    putString(buffer, "b");
+
+    final FileTheRExecutor executor = new FileTheRExecutor(buffer, dataFrameInfoCommand(calculateValueCommand(1, "df"), ""));
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final TheRDataFrameInfo info = new TheRDataFrameLoaderImpl(executor, receiver, 1, "df").loadInfo();
+
+    assertEquals(3, info.getRowCount());
+    assertEquals(2, info.getColumns().size());
+
+    assertEquals("x", info.getColumns().get(0).getName());
+    assertEquals(TheRDataFrameColumn.Type.DOUBLE, info.getColumns().get(0).getType());
+    assertEquals(Collections.<String>emptyList(), info.getColumns().get(0).getLevels());
+
+    assertEquals("f", info.getColumns().get(1).getName());
+    assertEquals(TheRDataFrameColumn.Type.FACTOR, info.getColumns().get(1).getType());
+    assertEquals(Arrays.asList("a", "b"), info.getColumns().get(1).getLevels());
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error_file"), receiver.getErrors());
+  }
+
+  @Test
+  public void chunk() throws TheRDebuggerException {
+    final TheRDataFrameInfo info = new TheRDataFrameInfo(
+      10,
+      Arrays.asList(
+        new TheRDataFrameColumn("d", TheRDataFrameColumn.Type.DOUBLE, Collections.<String>emptyList()),
+        new TheRDataFrameColumn("i", TheRDataFrameColumn.Type.INTEGER, Collections.<String>emptyList()),
+        new TheRDataFrameColumn("l", TheRDataFrameColumn.Type.LOGICAL, Collections.<String>emptyList()),
+        new TheRDataFrameColumn("f", TheRDataFrameColumn.Type.FACTOR, Arrays.asList("a", "b")),
+        new TheRDataFrameColumn("c", TheRDataFrameColumn.Type.CHARACTER, Collections.<String>emptyList())
+      )
+    );
+
+    final ByteBuffer buffer = allocate();
+    buffer.putDouble(1.5).putDouble(Double.longBitsToDouble(0x7FF00000000007A2L)).putDouble(3);
+    buffer.putInt(1).putInt(Integer.MIN_VALUE).putInt(3);
+    buffer.putInt(1).putInt(0).putInt(Integer.MIN_VALUE);
+    buffer.putInt(2).putInt(1).putInt(Integer.MIN_VALUE);
+    putString(buffer, "x");
+    putString(buffer, "y");
+    putString(buffer, "z");
+
+    final FileTheRExecutor executor = new FileTheRExecutor(buffer, dataFrameChunkCommand(calculateValueCommand(1, "df"), "", 5, 7));
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final TheRDataFrameChunk chunk = new TheRDataFrameLoaderImpl(executor, receiver, 1, "df").loadChunk(info, 4, 7);
+
+    assertEquals(4, chunk.getFrom());
+    assertEquals(3, chunk.getSize());
+    assertFalse(chunk.contains(3));
+    assertTrue(chunk.contains(6));
+    assertFalse(chunk.contains(7));
+
+    assertEquals(Arrays.asList("1.5", "NA", "3"), Arrays.asList(chunk.getValue(4, 0), chunk.getValue(5, 0), chunk.getValue(6, 0)));
+    assertEquals(Arrays.asList("1", "NA", "3"), Arrays.asList(chunk.getValue(4, 1), chunk.getValue(5, 1), chunk.getValue(6, 1)));
+    assertEquals(Arrays.asList("TRUE", "FALSE", "NA"), Arrays.asList(chunk.getValue(4, 2), chunk.getValue(5, 2), chunk.getValue(6, 2)));
+    assertEquals(Arrays.asList("b", "a", "NA"), Arrays.asList(chunk.getValue(4, 3), chunk.getValue(5, 3), chunk.getValue(6, 3)));
+    assertEquals(Arrays.asList("x", "y", "z"), Arrays.asList(chunk.getValue(4, 4), chunk.getValue(5, 4), chunk.getValue(6, 4)));
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error_file"), receiver.getErrors());
+  }
+
+  @Test
+  public void chunks() throws TheRDebuggerException {
+    final TheRDataFrameInfo info = new TheRDataFrameInfo(
+      5,
+      Collections.singletonList(new TheRDataFrameColumn("i", TheRDataFrameColumn.Type.INTEGER, Collections.<String>emptyList()))
+    );
+
+    final PipelinedTheRExecutor executor = new PipelinedTheRExecutor(2);
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final List<TheRDataFrameChunk> chunks = new TheRDataFrameLoaderImpl(executor, receiver, 1, "df").loadChunks(info, Arrays.asList(0, 4), 4);
+
+    assertEquals(
+      Arrays.asList(
+        dataFrameChunkCommand(calculateValueCommand(1, "df"), "", 1, 4),
+        dataFrameChunkCommand(calculateValueCommand(1, "df"), "", 5, 5)
+      ),
+      executor.myCommands
+    );
+
+    assertEquals(2, chunks.size());
+
+    assertEquals(0, chunks.get(0).getFrom());
+    assertEquals(4, chunks.get(0).getSize());
+    assertEquals(Arrays.asList("0", "1", "2", "3"), Arrays.asList(chunks.get(0).getValue(0, 0), chunks.get(0).getValue(1, 0),
+                                                                  chunks.get(0).getValue(2, 0), chunks.get(0).getValue(3, 0)));
+
+    assertEquals(4, chunks.get(1).getFrom());
+    assertEquals(1, chunks.get(1).getSize());
+    assertEquals("4", chunks.get(1).getValue(4, 0));
+
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Arrays.asList("error_file", "error_file"), receiver.getErrors());
+  }
+
+  @Test(expected = TheRDebuggerException.class)
+  public void truncated() throws TheRDebuggerException {
+    final ByteBuffer buffer = allocate();
+    buffer.putInt(3).putInt(2);
+
+    new TheRDataFrameLoaderImpl(
+      new FileTheRExecutor(buffer, dataFrameInfoCommand(calculateValueCommand(1, "df"), "")),
+      new MockTheROutputReceiver(),
+      1,
+      "df"
+    ).loadInfo();
+  }
+
+  @NotNull
+  private static ByteBuffer allocate() {
+    return ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void putString(@NotNull final ByteBuffer buffer, @NotNull final String value) {
+    buffer.put(value.getBytes()).put((byte)0);
+  }
+
+  private static void write(@NotNull final String path, @NotNull final ByteBuffer buffer) throws TheRDebuggerException {
+    try {
+      final FileOutputStream stream = new FileOutputStream(path);
+
+      try {
+        stream.write(buffer.array(), 0, buffer.position());
+      }
+      finally {
+        stream.close();
+      }
+    }
+    catch (final IOException e) {
+      throw new TheRDebuggerException(e);
+    }
+  }
+
+  private static class PipelinedTheRExecutor implements TheRAsyncExecutor {
+
+    // every command writes its rows numbers, results are completed only after all commands are submitted
+
+    @NotNull
+    private final List<String> myCommands = new ArrayList<String>();
+
+    private final int myExpectedCount;
+
+    private int myRow = 0;
+
+    public PipelinedTheRExecutor(final int expectedCount) {
+      myExpectedCount = expectedCount;
+    }
+
+    @NotNull
+    @Override
+    public Future<TheRExecutionResult> submit(@NotNull final String command) {
+      final Matcher matcher = PATH_PATTERN.matcher(command);
+
+      if (!matcher.find()) {
+        throw new IllegalStateException("Unexpected command");
+      }
+
+      myCommands.add(command.replace(matcher.group(1), ""));
+
+      final String path = matcher.group(1);
+
+      return new FutureTask<TheRExecutionResult>(
+        new Callable<TheRExecutionResult>() {
+          @Override
+          public TheRExecutionResult call() throws TheRDebuggerException {
+            if (myCommands.size() != myExpectedCount) {
+              throw new IllegalStateException("Result is requested before all commands are submitted");
+            }
+
+            final ByteBuffer buffer = allocate();
+            final int to = Math.min(myRow + 4, 5);
+
+            for (; myRow < to; myRow++) {
+              buffer.putInt(myRow);
+            }
+
+            write(path, buffer);
+
+            return new TheRExecutionResult("", TheRExecutionResultType.EMPTY, TextRange.EMPTY_RANGE, "error_file");
+          }
+        }
+      ) {
+        @Override
+        public TheRExecutionResult get() throws InterruptedException, ExecutionException {
+          run();
+
+          return super.get();
+        }
+      };
+    }
+
+    @NotNull
+    @Override
+    public TheRExecutionResult execute(@NotNull final String command) {
+      throw new IllegalStateException("Command should be submitted");
+    }
+  }
+
+  private static class FileTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    private final ByteBuffer myBuffer;
+
+    @NotNull
+    private final String myExpectedCommand;
+
+    public FileTheRExecutor(@NotNull final ByteBuffer buffer, @NotNull final String expectedCommand) {
+      myBuffer = buffer;
+      myExpectedCommand = expectedCommand;
+    }
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      final Matcher matcher = PATH_PATTERN.matcher(command);
+
+      if (getCounter() != 1 || !matcher.find() || !command.replace(matcher.group(1), "").equals(myExpectedCommand)) {
+        throw new IllegalStateException("Unexpected command");
+      }
+
+      write(matcher.group(1), myBuffer);
+
+      return new TheRExecutionResult("", TheRExecutionResultType.EMPTY, TextRange.EMPTY_RANGE, "error_file");
+    }
+  }
+}
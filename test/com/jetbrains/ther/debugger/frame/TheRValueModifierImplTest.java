@@ -226,6 +226,79 @@ public class TheRValueModifierImplTest {
     assertEquals(1, listener.myCounter);
   }
 
+  @Test
+  public void functionAfterOutput() {
+    final String error = "error";
+
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(
+      "[1] 0\n" +
+      DEBUGGING_IN_PREFIX + "def(c(1:5))\n" +
+      DEBUG_AT_PREFIX + "{\n" +
+      "    .doTrace(" + SERVICE_FUNCTION_PREFIX + "def" + SERVICE_ENTER_FUNCTION_SUFFIX + "(), \"on entry\")\n" +
+      "    {\n" +
+      "        print(\"x\")\n" +
+      "    }\n" +
+      "}",
+      DEBUGGING_IN_AFTER_OUTPUT,
+      new TextRange(0, 5),
+      error
+    );
+
+    final MockTheRFunctionDebugger debugger = new MockTheRFunctionDebugger("def", 2, "result");
+    final MockTheRFunctionDebuggerFactory factory = new MockTheRFunctionDebuggerFactory(debugger);
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+    final AlwaysSameResponseHandler handler = new AlwaysSameResponseHandler(true);
+    final SuccessListener listener = new SuccessListener();
+
+    final TheRValueModifierImpl modifier = new TheRValueModifierImpl(
+      executor,
+      factory,
+      receiver,
+      handler,
+      0
+    );
+
+    modifier.setValue("name", "{ print(0); def(c(1:5)) }", listener);
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(2, debugger.getCounter());
+    assertEquals(1, factory.getCounter());
+    assertEquals(Collections.singletonList(error), receiver.getErrors());
+    assertEquals(Collections.singletonList("[1] 0"), receiver.getOutputs());
+    assertEquals(1, handler.myCounter);
+    assertEquals(1, listener.myCounter);
+  }
+
+  @Test
+  public void interrupted() {
+    final AlwaysSameResultTheRExecutor executor = new AlwaysSameResultTheRExecutor(
+      "[1] 1",
+      INTERRUPTED,
+      TextRange.allOf("[1] 1"),
+      "error"
+    );
+
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+    final AlwaysSameResponseHandler handler = new AlwaysSameResponseHandler(true);
+    final ErrorListener listener = new ErrorListener();
+
+    final TheRValueModifierImpl modifier = new TheRValueModifierImpl(
+      executor,
+      new MockTheRFunctionDebuggerFactory(null),
+      receiver,
+      handler,
+      0
+    );
+
+    modifier.setValue("name", "{ print(1); repeat {} }", listener);
+
+    assertEquals(1, executor.getCounter());
+    assertEquals(Collections.singletonList("error"), receiver.getErrors());
+    assertEquals(Collections.singletonList("[1] 1"), receiver.getOutputs());
+    assertEquals(1, handler.myCounter);
+    assertEquals(1, listener.myCounter);
+  }
+
   private static class AlwaysSameResponseHandler extends IllegalTheRValueModifierHandler {
 
     private final boolean myResponse;
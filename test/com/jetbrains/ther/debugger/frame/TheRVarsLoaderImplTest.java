@@ -21,7 +21,7 @@ import static com.jetbrains.ther.debugger.data.TheRResponseConstants.DEBUG_AT_LI
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.ENVIRONMENT_PREFIX;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.DEBUG_AT;
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.RESPONSE;
-import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.LS_FUNCTIONS_ERROR;
+import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.INSTRUMENT_FUNCTIONS_ERROR;
 import static org.junit.Assert.assertEquals;
 
 public class TheRVarsLoaderImplTest {
@@ -84,7 +84,7 @@ public class TheRVarsLoaderImplTest {
 
     assertEquals(Collections.emptyList(), receiver.getOutputs());
     assertEquals(
-      Arrays.asList(LS_FUNCTIONS_ERROR, "error_ta", "error_va", "error_t4", "error_vb", "error_t6", "error_vc", "error_t8"),
+      Arrays.asList(INSTRUMENT_FUNCTIONS_ERROR, "error_ta", "error_va", "error_t4", "error_vb", "error_t6", "error_vc", "error_t8"),
       receiver.getErrors()
     );
   }
@@ -106,7 +106,7 @@ public class TheRVarsLoaderImplTest {
     assertEquals("[1] 1 2 3", actual.get(0).getValue());
 
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList(LS_FUNCTIONS_ERROR, "error_ta", "error_dbg_at", "error_va"), receiver.getErrors());
+    assertEquals(Arrays.asList(INSTRUMENT_FUNCTIONS_ERROR, "error_ta", "error_dbg_at", "error_va"), receiver.getErrors());
   }
 
   private static class OrdinaryTheRExecutor extends MockTheRExecutor {
@@ -123,7 +123,7 @@ public class TheRVarsLoaderImplTest {
           output,
           RESPONSE,
           TextRange.allOf(output),
-          LS_FUNCTIONS_ERROR
+          INSTRUMENT_FUNCTIONS_ERROR
         );
       }
 
@@ -203,7 +203,7 @@ public class TheRVarsLoaderImplTest {
           output,
           RESPONSE,
           TextRange.allOf(output),
-          LS_FUNCTIONS_ERROR
+          INSTRUMENT_FUNCTIONS_ERROR
         );
       }
 
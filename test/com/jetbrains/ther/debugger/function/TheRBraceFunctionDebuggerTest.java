@@ -19,10 +19,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static com.jetbrains.ther.debugger.data.TheRCommands.CONTINUE_COMMAND;
 import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.FINISH_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.INSTRUMENT_FUNCTIONS_COMMAND;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.*;
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
-import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.LS_FUNCTIONS_ERROR;
+import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.INSTRUMENT_FUNCTIONS_ERROR;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -45,14 +48,15 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(2, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at_1", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at_1", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -61,7 +65,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 1), debugger.getLocation());
     assertEquals(4, executor.getCounter());
     assertEquals(Collections.singletonList("[1] 1 2 3"), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at_2", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at_2", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -93,7 +97,8 @@ public class TheRBraceFunctionDebuggerTest {
       factory,
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
@@ -102,7 +107,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at_1", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at_1", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -128,6 +133,62 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(Collections.singletonList("error_exit"), receiver.getErrors());
   }
 
+  @Test
+  public void finish() throws TheRDebuggerException {
+    /*
+    abc() {
+      print(c(1:3))
+      def()
+      instruction3
+    }
+    */
+
+    final FinishTheRExecutor executor = new FinishTheRExecutor();
+    final MockTheRFunctionDebuggerFactory factory = new MockTheRFunctionDebuggerFactory(new IllegalTheRFunctionDebugger());
+    final FunctionTheRFunctionDebuggerHandler handler = new FunctionTheRFunctionDebuggerHandler();
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final TheRBraceFunctionDebugger debugger = new TheRBraceFunctionDebugger(
+      executor,
+      factory,
+      handler,
+      receiver,
+      "abc",
+      1
+    );
+
+    assertTrue(debugger.hasNext());
+    assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
+    assertEquals(2, executor.getCounter());
+    assertEquals(0, factory.getCounter());
+    assertEquals(0, handler.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Arrays.asList("error_dbg_at_1", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
+
+    receiver.reset();
+    debugger.finish();
+
+    assertTrue(debugger.hasNext());
+    assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
+    assertEquals(3, executor.getCounter());
+    assertEquals(1, factory.getCounter());
+    assertEquals(1, handler.getCounter());
+    assertEquals(Collections.singletonList("[1] 1 2 3"), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error_debugging"), receiver.getErrors());
+
+    receiver.reset();
+    debugger.finish();
+
+    assertFalse(debugger.hasNext());
+    assertEquals(new TheRLocation("abc", -1), debugger.getLocation());
+    assertEquals("", debugger.getResult());
+    assertEquals(4, executor.getCounter());
+    assertEquals(1, factory.getCounter());
+    assertEquals(1, handler.getCounter());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error_exit"), receiver.getErrors());
+  }
+
   @Test
   public void recursiveReturnAndOutputBefore() throws TheRDebuggerException {
     /*
@@ -423,14 +484,15 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(2, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -440,7 +502,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(7, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
     assertEquals(
-      Arrays.asList("error_continue", "error_entry", "error_entry", "error_dbg_at", LS_FUNCTIONS_ERROR),
+      Arrays.asList("error_continue", "error_entry", "error_entry", "error_dbg_at", INSTRUMENT_FUNCTIONS_ERROR),
       receiver.getErrors()
     );
 
@@ -490,7 +552,8 @@ public class TheRBraceFunctionDebuggerTest {
       factory,
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
@@ -499,7 +562,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_ent1", "error_ent2", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_ent1", "error_ent2", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -510,7 +573,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_body", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_body", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -532,7 +595,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(1, factory.getCounter());
     assertEquals(1, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_body", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_body", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -592,7 +655,8 @@ public class TheRBraceFunctionDebuggerTest {
       factory,
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
@@ -601,7 +665,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_ent", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_ent", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -669,18 +733,81 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 1), debugger.getLocation());
     assertEquals(2, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error1", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error1", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     debugger.advance();
   }
 
+  @Test
+  public void resumeToHook() throws TheRDebuggerException {
+    /*
+    abc() {
+      instruction1
+      def()
+    }
+    def() {
+      instruction1
+      instruction2 # hooked breakpoint
+    }
+    */
+
+    final ResumeTheRExecutor executor = new ResumeTheRExecutor();
+    final ResumeTheRFunctionDebuggerHandler handler = new ResumeTheRFunctionDebuggerHandler();
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final TheRBraceFunctionDebugger debugger = new TheRBraceFunctionDebugger(
+      executor,
+      new MockTheRFunctionDebuggerFactory(null),
+      handler,
+      receiver,
+      "abc",
+      1
+    );
+
+    assertTrue(debugger.hasNext());
+    assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
+    assertEquals(2, executor.getCounter());
+
+    receiver.reset();
+    debugger.resume();
+
+    assertEquals(3, executor.getCounter());
+    assertEquals("def", handler.myFunctionName);
+    assertEquals(2, handler.myFrameNumber);
+    assertEquals(5, handler.myLineNumber);
+    assertEquals(Collections.singletonList("[1] 1 2 3"), receiver.getOutputs());
+    assertEquals(Collections.singletonList("error_hook"), receiver.getErrors());
+  }
+
+  @Test
+  public void stoppedByHook() throws TheRDebuggerException {
+    final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
+
+    final TheRBraceFunctionDebugger debugger = new TheRBraceFunctionDebugger(
+      new IllegalTheRExecutor(),
+      new MockTheRFunctionDebuggerFactory(null),
+      new IllegalTheRFunctionDebuggerHandler(),
+      receiver,
+      "def",
+      2,
+      5
+    );
+
+    assertTrue(debugger.hasNext());
+    assertEquals(new TheRLocation("def", 5), debugger.getLocation());
+    assertEquals(2, debugger.getFrameNumber());
+    assertEquals(Collections.emptyList(), receiver.getOutputs());
+    assertEquals(Collections.emptyList(), receiver.getErrors());
+  }
+
   private void braceLoop(@NotNull final String outputBefore) throws TheRDebuggerException {
     final BraceLoopTheRExecutor executor = new BraceLoopTheRExecutor(outputBefore);
     final MockTheROutputReceiver receiver = new MockTheROutputReceiver();
@@ -690,14 +817,15 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(3, executor.getCounter());
     assertEquals(outputBefore.isEmpty() ? Collections.emptyList() : Collections.singletonList(outputBefore), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_ent1", "error_ent2", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_ent1", "error_ent2", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -706,7 +834,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 1), debugger.getLocation());
     assertEquals(5, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_body", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_body", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -715,7 +843,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(7, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_ent2", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_ent2", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -724,7 +852,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 1), debugger.getLocation());
     assertEquals(9, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_body", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_body", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -745,14 +873,15 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(2, executor.getCounter());
     assertEquals(outputBefore.isEmpty() ? Collections.emptyList() : Collections.singletonList(outputBefore), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_ent1", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_ent1", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -774,7 +903,8 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
@@ -782,7 +912,7 @@ public class TheRBraceFunctionDebuggerTest {
     assertEquals(2, executor.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_body", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_body", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -805,7 +935,7 @@ public class TheRBraceFunctionDebuggerTest {
     final TheRExecutor executor = MockitoUtils.setupExecutor(
       new ContainerUtil.ImmutableMapBuilder<String, List<TheRExecutionResult>>()
         .put(EXECUTE_AND_STEP_COMMAND, Arrays.asList(firstResult, thirdResult))
-        .put(TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND, Collections.singletonList(TheRTraceAndDebugUtilsTest.NO_FUNCTIONS_RESULT))
+        .put(INSTRUMENT_FUNCTIONS_COMMAND, Collections.singletonList(TheRTraceAndDebugUtilsTest.INSTRUMENT_FUNCTIONS_RESULT))
         .build()
     );
 
@@ -817,18 +947,19 @@ public class TheRBraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       handler,
       receiver,
-      functionName
+      functionName,
+      1
     );
 
     final List<String> currentCommands =
-      new ArrayList<String>(Arrays.asList(EXECUTE_AND_STEP_COMMAND, TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND));
+      new ArrayList<String>(Arrays.asList(EXECUTE_AND_STEP_COMMAND, INSTRUMENT_FUNCTIONS_COMMAND));
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation(functionName, 0), debugger.getLocation());
     MockitoUtils.verifyExecutor(executor, currentCommands);
     verifyZeroInteractions(handler);
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     currentCommands.add(EXECUTE_AND_STEP_COMMAND);
@@ -946,6 +1077,52 @@ public class TheRBraceFunctionDebuggerTest {
     }
   }
 
+  private static class FinishTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (command.equals(EXECUTE_AND_STEP_COMMAND) && getCounter() == 1) {
+        return new TheRExecutionResult(
+          DEBUG_AT_LINE_PREFIX + "1: print(c(1:3))\n" +
+          BROWSE_PREFIX + "3" + BROWSE_SUFFIX,
+          TheRExecutionResultType.DEBUG_AT,
+          TextRange.EMPTY_RANGE,
+          "error_dbg_at_1"
+        );
+      }
+
+      if (command.equals(FINISH_COMMAND) && getCounter() == 3) {
+        return new TheRExecutionResult(
+          "[1] 1 2 3\n" +
+          DEBUGGING_IN_PREFIX + "def()\n" +
+          "debug: {\n" +
+          "    .doTrace(" + SERVICE_FUNCTION_PREFIX + "def" + SERVICE_ENTER_FUNCTION_SUFFIX + "(), \"on entry\")\n" +
+          "    {\n" +
+          "        print(\"x\")\n" +
+          "    }\n" +
+          "}\n" +
+          BROWSE_PREFIX + "3" + BROWSE_SUFFIX,
+          TheRExecutionResultType.DEBUGGING_IN_AFTER_OUTPUT,
+          new TextRange(0, 9),
+          "error_debugging"
+        );
+      }
+
+      if (command.equals(FINISH_COMMAND) && getCounter() == 4) {
+        return new TheRExecutionResult(
+          EXITING_FROM_PREFIX + "abc()\n" +
+          BROWSE_PREFIX + "1" + BROWSE_SUFFIX,
+          TheRExecutionResultType.EXITING_FROM,
+          TextRange.EMPTY_RANGE,
+          "error_exit"
+        );
+      }
+
+      throw new IllegalStateException("Unexpected command");
+    }
+  }
+
   private static class ContinueTraceTheRExecutor extends MockTheRExecutor {
 
     @NotNull
@@ -1342,4 +1519,60 @@ public class TheRBraceFunctionDebuggerTest {
       throw new IllegalStateException("Unexpected command");
     }
   }
-}
\ No newline at end of file
+
+  private static class ResumeTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      if (command.equals(EXECUTE_AND_STEP_COMMAND) && getCounter() == 1) {
+        return new TheRExecutionResult(
+          DEBUG_AT_LINE_PREFIX + "1: print(c(1))\n" +
+          BROWSE_PREFIX + "1" + BROWSE_SUFFIX,
+          TheRExecutionResultType.DEBUG_AT,
+          TextRange.EMPTY_RANGE,
+          "error_dbg_at_1"
+        );
+      }
+
+      if (command.equals(CONTINUE_COMMAND) && getCounter() == 3) {
+        return new TheRExecutionResult(
+          "[1] 1 2 3\n" +
+          BREAKPOINT_HOOK_PREFIX + "2 5 def\n" +
+          "Called from: eval(quote(browser()), f)\n" +
+          BROWSE_PREFIX + "2" + BROWSE_SUFFIX,
+          TheRExecutionResultType.BREAKPOINT_HOOK,
+          new TextRange(0, 9),
+          "error_hook"
+        );
+      }
+
+      throw new IllegalStateException("Unexpected command");
+    }
+  }
+
+  private static class ResumeTheRFunctionDebuggerHandler extends IllegalTheRFunctionDebuggerHandler {
+
+    private String myFunctionName;
+
+    private int myFrameNumber = -1;
+
+    private int myLineNumber = -1;
+
+    @Override
+    public void onBreakpointHook(@NotNull final String functionName, final int frameNumber, final int lineNumber) {
+      myFunctionName = functionName;
+      myFrameNumber = frameNumber;
+      myLineNumber = lineNumber;
+    }
+  }
+
+  private static class IllegalTheRExecutor extends MockTheRExecutor {
+
+    @NotNull
+    @Override
+    protected TheRExecutionResult doExecute(@NotNull final String command) throws TheRDebuggerException {
+      throw new IllegalStateException("Unexpected command");
+    }
+  }
+}
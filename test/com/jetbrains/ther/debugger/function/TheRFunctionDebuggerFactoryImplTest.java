@@ -16,7 +16,7 @@ import java.util.Arrays;
 import java.util.Collections;
 
 import static com.jetbrains.ther.debugger.executor.TheRExecutionResultType.*;
-import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.LS_FUNCTIONS_ERROR;
+import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.INSTRUMENT_FUNCTIONS_ERROR;
 import static org.junit.Assert.assertEquals;
 
 public class TheRFunctionDebuggerFactoryImplTest {
@@ -34,8 +34,9 @@ public class TheRFunctionDebuggerFactoryImplTest {
     final TheRLocation expected = new TheRLocation("abc", 1);
 
     assertEquals(expected, debugger.getLocation());
+    assertEquals(3, debugger.getFrameNumber());
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
-    assertEquals(Arrays.asList("error_entry", "error_st", "error_dbg_at", LS_FUNCTIONS_ERROR), outputReceiver.getErrors());
+    assertEquals(Arrays.asList("error_entry", "error_st", "error_dbg_at", INSTRUMENT_FUNCTIONS_ERROR), outputReceiver.getErrors());
   }
 
   @Test
@@ -51,8 +52,9 @@ public class TheRFunctionDebuggerFactoryImplTest {
     final TheRLocation expected = new TheRLocation("abc", 0);
 
     assertEquals(expected, debugger.getLocation());
+    assertEquals(-1, debugger.getFrameNumber());
     assertEquals(Collections.emptyList(), outputReceiver.getOutputs());
-    assertEquals(Arrays.asList("error_entry", "error_st", LS_FUNCTIONS_ERROR), outputReceiver.getErrors());
+    assertEquals(Arrays.asList("error_entry", "error_st", INSTRUMENT_FUNCTIONS_ERROR), outputReceiver.getErrors());
   }
 
   @Test(expected = TheRUnexpectedExecutionResultTypeException.class)
@@ -83,7 +85,7 @@ public class TheRFunctionDebuggerFactoryImplTest {
       if (getCounter() == 2) {
         return new TheRExecutionResult(
           TheRResponseConstants.TRACING_PREFIX + "abc(1) on entry\n" +
-          "[1] \"abc\"\n" +
+          "[1] \"abc\" \"3\"\n" +
           "debug: {\n" +
           "    x + 1\n" +
           "}",
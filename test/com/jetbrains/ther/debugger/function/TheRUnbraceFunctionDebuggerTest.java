@@ -19,10 +19,11 @@ import java.util.Collections;
 import java.util.List;
 
 import static com.jetbrains.ther.debugger.data.TheRCommands.EXECUTE_AND_STEP_COMMAND;
+import static com.jetbrains.ther.debugger.data.TheRCommands.INSTRUMENT_FUNCTIONS_COMMAND;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_ENTER_FUNCTION_SUFFIX;
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.SERVICE_FUNCTION_PREFIX;
 import static com.jetbrains.ther.debugger.data.TheRResponseConstants.*;
-import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.LS_FUNCTIONS_ERROR;
+import static com.jetbrains.ther.debugger.mock.MockTheRExecutor.INSTRUMENT_FUNCTIONS_ERROR;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -42,14 +43,15 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(1, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -78,7 +80,8 @@ public class TheRUnbraceFunctionDebuggerTest {
       factory,
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
@@ -87,7 +90,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -278,14 +281,15 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(1, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -294,7 +298,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(5, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_continue", "error_entry", "error_entry", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_continue", "error_entry", "error_entry", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -323,14 +327,15 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(1, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     debugger.advance();
   }
@@ -350,14 +355,15 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(1, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -366,7 +372,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(3, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at_1", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at_1", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -375,7 +381,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(5, executor.getCounter());
     assertEquals(Collections.singletonList("[1] 1 2 3"), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at_2", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at_2", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -404,7 +410,8 @@ public class TheRUnbraceFunctionDebuggerTest {
       factory,
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
@@ -413,7 +420,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -424,7 +431,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(0, factory.getCounter());
     assertEquals(0, handler.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_dbg_at", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_dbg_at", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -463,14 +470,15 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       new IllegalTheRFunctionDebuggerHandler(),
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(1, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -479,7 +487,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     assertEquals(3, executor.getCounter());
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Arrays.asList("error_body", LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Arrays.asList("error_body", INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -495,7 +503,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     throws TheRDebuggerException {
     final TheRExecutor executor = MockitoUtils.setupExecutor(
       new ContainerUtil.ImmutableMapBuilder<String, List<TheRExecutionResult>>()
-        .put(TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND, Collections.singletonList(TheRTraceAndDebugUtilsTest.NO_FUNCTIONS_RESULT))
+        .put(INSTRUMENT_FUNCTIONS_COMMAND, Collections.singletonList(TheRTraceAndDebugUtilsTest.INSTRUMENT_FUNCTIONS_RESULT))
         .put(EXECUTE_AND_STEP_COMMAND, Collections.singletonList(secondResult))
         .build()
     );
@@ -508,17 +516,18 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
-    final List<String> currentCommands = new ArrayList<String>(Collections.singletonList(TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND));
+    final List<String> currentCommands = new ArrayList<String>(Collections.singletonList(INSTRUMENT_FUNCTIONS_COMMAND));
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
     MockitoUtils.verifyExecutor(executor, currentCommands);
     verifyZeroInteractions(handler);
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     currentCommands.add(EXECUTE_AND_STEP_COMMAND);
@@ -540,7 +549,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     throws TheRDebuggerException {
     final TheRExecutor executor = MockitoUtils.setupExecutor(
       new ContainerUtil.ImmutableMapBuilder<String, List<TheRExecutionResult>>()
-        .put(TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND, Collections.singletonList(TheRTraceAndDebugUtilsTest.NO_FUNCTIONS_RESULT))
+        .put(INSTRUMENT_FUNCTIONS_COMMAND, Collections.singletonList(TheRTraceAndDebugUtilsTest.INSTRUMENT_FUNCTIONS_RESULT))
         .put(EXECUTE_AND_STEP_COMMAND, Collections.singletonList(secondResult))
         .build()
     );
@@ -553,15 +562,16 @@ public class TheRUnbraceFunctionDebuggerTest {
       new MockTheRFunctionDebuggerFactory(null),
       handler,
       receiver,
-      "abc"
+      "abc",
+      1
     );
 
     assertTrue(debugger.hasNext());
     assertEquals(new TheRLocation("abc", 0), debugger.getLocation());
-    MockitoUtils.verifyExecutor(executor, Collections.singletonList(TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND));
+    MockitoUtils.verifyExecutor(executor, Collections.singletonList(INSTRUMENT_FUNCTIONS_COMMAND));
     verifyZeroInteractions(handler);
     assertEquals(Collections.emptyList(), receiver.getOutputs());
-    assertEquals(Collections.singletonList(LS_FUNCTIONS_ERROR), receiver.getErrors());
+    assertEquals(Collections.singletonList(INSTRUMENT_FUNCTIONS_ERROR), receiver.getErrors());
 
     receiver.reset();
     debugger.advance();
@@ -569,7 +579,7 @@ public class TheRUnbraceFunctionDebuggerTest {
     assertFalse(debugger.hasNext());
     assertEquals(new TheRLocation("abc", -1), debugger.getLocation());
     assertEquals("[1] 1 2 3", debugger.getResult());
-    MockitoUtils.verifyExecutor(executor, Arrays.asList(TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND, EXECUTE_AND_STEP_COMMAND));
+    MockitoUtils.verifyExecutor(executor, Arrays.asList(INSTRUMENT_FUNCTIONS_COMMAND, EXECUTE_AND_STEP_COMMAND));
     if (returnLineNumber != -1) verify(handler, times(1)).setReturnLineNumber(returnLineNumber);
     assertEquals(Collections.singletonList("[1] 1 2 3"), receiver.getOutputs());
     assertEquals(Collections.singletonList("error_exit"), receiver.getErrors());
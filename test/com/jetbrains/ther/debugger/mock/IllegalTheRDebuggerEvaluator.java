@@ -3,10 +3,17 @@ package com.jetbrains.ther.debugger.mock;
 import com.jetbrains.ther.debugger.evaluator.TheRDebuggerEvaluator;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public class IllegalTheRDebuggerEvaluator implements TheRDebuggerEvaluator {
 
   @Override
   public void evaluate(@NotNull final String expression, @NotNull final Receiver receiver) {
     throw new IllegalStateException("EvalExpression shouldn't be called");
   }
+
+  @Override
+  public void evaluate(@NotNull final List<String> expressions, @NotNull final List<Receiver> receivers) {
+    throw new IllegalStateException("EvalExpressions shouldn't be called");
+  }
 }
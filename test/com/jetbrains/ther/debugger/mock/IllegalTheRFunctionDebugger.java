@@ -25,4 +25,9 @@ public class IllegalTheRFunctionDebugger extends MockTheRFunctionDebugger {
   public void advance() throws TheRDebuggerException {
     throw new IllegalStateException("Advance shouldn't be called");
   }
+
+  @Override
+  public void resume() throws TheRDebuggerException {
+    throw new IllegalStateException("Resume shouldn't be called");
+  }
 }
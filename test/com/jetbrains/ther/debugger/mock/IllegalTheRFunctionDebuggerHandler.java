@@ -20,4 +20,9 @@ public class IllegalTheRFunctionDebuggerHandler implements TheRFunctionDebuggerH
   public void setDropFrames(final int number) {
     throw new IllegalStateException("SetDropFrames shouldn't be called");
   }
+
+  @Override
+  public void onBreakpointHook(@NotNull final String functionName, final int frameNumber, final int lineNumber) {
+    throw new IllegalStateException("OnBreakpointHook shouldn't be called");
+  }
 }
@@ -1,6 +1,7 @@
 package com.jetbrains.ther.debugger.mock;
 
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
+import com.jetbrains.ther.debugger.frame.TheRDataFrameLoader;
 import com.jetbrains.ther.debugger.frame.TheRVar;
 import com.jetbrains.ther.debugger.frame.TheRVarsLoader;
 import org.jetbrains.annotations.NotNull;
@@ -14,4 +15,22 @@ public class IllegalTheRVarsLoader implements TheRVarsLoader {
   public List<TheRVar> load() throws TheRDebuggerException {
     throw new IllegalStateException("Load shouldn't be called");
   }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var) throws TheRDebuggerException {
+    throw new IllegalStateException("LoadValue shouldn't be called");
+  }
+
+  @NotNull
+  @Override
+  public String loadValue(@NotNull final String var, final int from, final int to) throws TheRDebuggerException {
+    throw new IllegalStateException("LoadValue shouldn't be called");
+  }
+
+  @NotNull
+  @Override
+  public TheRDataFrameLoader getDataFrameLoader(@NotNull final String var) {
+    throw new IllegalStateException("GetDataFrameLoader shouldn't be called");
+  }
 }
@@ -5,13 +5,13 @@ import com.jetbrains.ther.debugger.executor.TheRExecutionResult;
 import com.jetbrains.ther.debugger.executor.TheRExecutor;
 import org.jetbrains.annotations.NotNull;
 
-import static com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtilsTest.LS_FUNCTIONS_COMMAND;
-import static com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtilsTest.NO_FUNCTIONS_RESULT;
+import static com.jetbrains.ther.debugger.data.TheRCommands.INSTRUMENT_FUNCTIONS_COMMAND;
+import static com.jetbrains.ther.debugger.function.TheRTraceAndDebugUtilsTest.INSTRUMENT_FUNCTIONS_RESULT;
 
 public abstract class MockTheRExecutor implements TheRExecutor {
 
   @NotNull
-  public static final String LS_FUNCTIONS_ERROR = "error_ls";
+  public static final String INSTRUMENT_FUNCTIONS_ERROR = "error_instrument";
 
   private int myCounter = 0;
 
@@ -20,8 +20,8 @@ public abstract class MockTheRExecutor implements TheRExecutor {
   public TheRExecutionResult execute(@NotNull final String command) throws TheRDebuggerException {
     myCounter++;
 
-    if (useNoFunctionsResult() && command.equals(LS_FUNCTIONS_COMMAND)) {
-      return NO_FUNCTIONS_RESULT;
+    if (useNoFunctionsResult() && command.equals(INSTRUMENT_FUNCTIONS_COMMAND)) {
+      return INSTRUMENT_FUNCTIONS_RESULT;
     }
 
     return doExecute(command);
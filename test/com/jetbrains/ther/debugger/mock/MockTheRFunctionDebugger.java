@@ -34,6 +34,11 @@ public class MockTheRFunctionDebugger implements TheRFunctionDebugger {
     return new TheRLocation(myFunctionName, myCounter);
   }
 
+  @Override
+  public int getFrameNumber() {
+    return -1;
+  }
+
   @Override
   public boolean hasNext() {
     return myCounter < myLimit;
@@ -44,6 +49,16 @@ public class MockTheRFunctionDebugger implements TheRFunctionDebugger {
     myCounter++;
   }
 
+  @Override
+  public void finish() throws TheRDebuggerException {
+    myCounter = myLimit;
+  }
+
+  @Override
+  public void resume() throws TheRDebuggerException {
+    myCounter = myLimit;
+  }
+
   @NotNull
   @Override
   public String getResult() {
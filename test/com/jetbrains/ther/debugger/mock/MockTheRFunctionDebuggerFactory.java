@@ -26,6 +26,26 @@ public class MockTheRFunctionDebuggerFactory implements TheRFunctionDebuggerFact
   public TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
                                                   @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
                                                   @NotNull final TheROutputReceiver outputReceiver) throws TheRDebuggerException {
+    return getFunctionDebugger(debuggerHandler);
+  }
+
+  @NotNull
+  @Override
+  public TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRExecutor executor,
+                                                  @NotNull final TheRFunctionDebuggerHandler debuggerHandler,
+                                                  @NotNull final TheROutputReceiver outputReceiver,
+                                                  @NotNull final String functionName,
+                                                  final int frameNumber,
+                                                  final int lineNumber) {
+    return getFunctionDebugger(debuggerHandler);
+  }
+
+  public int getCounter() {
+    return myCounter;
+  }
+
+  @NotNull
+  private TheRFunctionDebugger getFunctionDebugger(@NotNull final TheRFunctionDebuggerHandler debuggerHandler) {
     if (myDebugger == null) {
       throw new IllegalStateException("GetFunctionDebugger shouldn't be called");
     }
@@ -36,8 +56,4 @@ public class MockTheRFunctionDebuggerFactory implements TheRFunctionDebuggerFact
 
     return myDebugger;
   }
-
-  public int getCounter() {
-    return myCounter;
-  }
 }
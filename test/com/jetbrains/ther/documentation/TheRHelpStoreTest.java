@@ -0,0 +1,132 @@
+package com.jetbrains.ther.documentation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TheRHelpStoreTest {
+
+  private File myExport;
+
+  private File myStore;
+
+  @Before
+  public void setUp() throws IOException {
+    myExport = File.createTempFile("r_help", ".export");
+    myStore = File.createTempFile("r_help", ".store");
+  }
+
+  @After
+  public void tearDown() {
+    myExport.delete();
+    myStore.delete();
+  }
+
+  @Test
+  public void multiTopicPage() throws IOException {
+    // every topic of the header refers to the same page
+
+    final TheRHelpStore store = build(
+      "\u0001base\tc\tvector\tas.vector\n" +
+      "Vectors\n" +
+      "\n" +
+      "Usage: c(...)\n"
+    );
+
+    final String text = "Vectors\n\nUsage: c(...)\n";
+
+    assertEquals(text, store.getHelpText("c", "base"));
+    assertEquals(text, store.getHelpText("vector", "base"));
+    assertEquals(text, store.getHelpText("as.vector", "base"));
+    assertEquals(text, store.getHelpText("as.vector", null));
+  }
+
+  @Test
+  public void multiplePages() throws IOException {
+    final TheRHelpStore store = build(
+      "ignored before the first header\n" +
+      "\u0001base\tc\n" +
+      "Combine\n" +
+      "\u0001stats\tsd\tvar\n" +
+      "Standard Deviation\n" +
+      "\u0001utils\thead\n" +
+      "\u0001mypackage\n" +
+      "No topics\n"
+    );
+
+    assertEquals("Combine\n", store.getHelpText("c", "base"));
+    assertEquals("Standard Deviation\n", store.getHelpText("sd", "stats"));
+    assertEquals("Standard Deviation\n", store.getHelpText("var", "stats"));
+    assertEquals("", store.getHelpText("head", "utils"));
+    assertNull(store.getHelpText("mypackage", "mypackage"));
+  }
+
+  @Test
+  public void packageLessLookup() throws IOException {
+    // topic without package is taken from the first exported package, base and recommended packages are exported first
+
+    final TheRHelpStore store = build(
+      "\u0001base\tfilter\n" +
+      "Base filter\n" +
+      "\u0001stats\tfilter\tsd\n" +
+      "Stats filter\n"
+    );
+
+    assertEquals("Base filter\n", store.getHelpText("filter", null));
+    assertEquals("Stats filter\n", store.getHelpText("filter", "stats"));
+    assertEquals("Stats filter\n", store.getHelpText("sd", null));
+  }
+
+  @Test
+  public void missingTopic() throws IOException {
+    final TheRHelpStore store = build(
+      "\u0001base\tc\n" +
+      "Combine\n"
+    );
+
+    assertNull(store.getHelpText("sd", null));
+    assertNull(store.getHelpText("sd", "base"));
+    assertNull(store.getHelpText("c", "stats"));
+  }
+
+  @Test
+  public void nonAsciiText() throws IOException {
+    final TheRHelpStore store = build(
+      "\u0001base\tIconv\n" +
+      "Convert “quoted” text: é, ü, 漢字\n"
+    );
+
+    assertEquals("Convert “quoted” text: é, ü, 漢字\n", store.getHelpText("Iconv", "base"));
+  }
+
+  @Test(expected = IOException.class)
+  public void unsupportedFormat() throws IOException {
+    final Writer writer = new OutputStreamWriter(new FileOutputStream(myStore), "UTF-8");
+    try {
+      writer.write("not a store");
+    }
+    finally {
+      writer.close();
+    }
+
+    TheRHelpStore.open(myStore);
+  }
+
+  private TheRHelpStore build(final String export) throws IOException {
+    final Writer writer = new OutputStreamWriter(new FileOutputStream(myExport), "UTF-8");
+    try {
+      writer.write(export);
+    }
+    finally {
+      writer.close();
+    }
+
+    TheRHelpStore.write(myExport, myStore);
+    return TheRHelpStore.open(myStore);
+  }
+}
@@ -0,0 +1,92 @@
+package com.jetbrains.ther.interpreter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TheRWorkerTest {
+
+  @Test
+  public void request() {
+    assertEquals(
+      "jetbrains_ther_worker_run(1, \"f\", \"/helpers/r-help.r\", c())",
+      TheRWorker.calculateRequest(1, "f", "/helpers/r-help.r", Collections.<String>emptyList())
+    );
+  }
+
+  @Test
+  public void quotedRequest() {
+    // request is written in one line and every value is a single R string
+
+    final String request = TheRWorker.calculateRequest(
+      2,
+      "e",
+      "cat(\"a\\tb\")\r\nx",
+      Arrays.asList("C:\\R library", "it's \"quoted\"", "\t")
+    );
+
+    assertEquals(
+      "jetbrains_ther_worker_run(2, \"e\", \"cat(\\\"a\\\\tb\\\")\\r\\nx\", " +
+      "c(\"C:\\\\R library\", \"it's \\\"quoted\\\"\", \"\\t\"))",
+      request
+    );
+    assertFalse(request.contains("\n"));
+    assertFalse(request.contains("\r"));
+  }
+
+  @Test
+  public void framed() {
+    final TheRWorker.Response response = new TheRWorker.Response(3);
+
+    assertFalse(response.onLine("[1] 1", false));
+    assertFalse(response.onLine("Warning message:", true));
+    assertFalse(response.onLine("", false));
+    assertFalse(response.onLine("", true));
+
+    assertTrue(response.onLine("jetbrains_ther_worker_done 3 0", false));
+    assertFalse(response.isDone());
+
+    assertTrue(response.onLine("jetbrains_ther_worker_done 3", true));
+    assertTrue(response.isDone());
+
+    assertEquals("[1] 1\n", response.getOutput());
+    assertEquals("Warning message:\n", response.getError());
+    assertEquals(0, response.getStatus());
+  }
+
+  @Test
+  public void failed() {
+    final TheRWorker.Response response = new TheRWorker.Response(4);
+
+    assertFalse(response.onLine("Error: no package", true));
+    assertFalse(response.onLine("", true));
+    assertTrue(response.onLine("jetbrains_ther_worker_done 4", true));
+    assertFalse(response.onLine("", false));
+    assertTrue(response.onLine("jetbrains_ther_worker_done 4 1", false));
+
+    assertTrue(response.isDone());
+    assertEquals("", response.getOutput());
+    assertEquals("Error: no package\n", response.getError());
+    assertEquals(1, response.getStatus());
+  }
+
+  @Test
+  public void foreignSentinel() {
+    // helper output looking like the sentinel of another request doesn't complete the response
+
+    final TheRWorker.Response response = new TheRWorker.Response(5);
+
+    assertFalse(response.onLine("jetbrains_ther_worker_done 50 0", false));
+    assertFalse(response.onLine("jetbrains_ther_worker_done", false));
+    assertFalse(response.isDone());
+
+    assertTrue(response.onLine("jetbrains_ther_worker_done 5 q", false));
+    assertTrue(response.onLine("jetbrains_ther_worker_done 5", true));
+
+    assertEquals("jetbrains_ther_worker_done 50 0\njetbrains_ther_worker_done", response.getOutput());
+    assertEquals(1, response.getStatus());
+  }
+}
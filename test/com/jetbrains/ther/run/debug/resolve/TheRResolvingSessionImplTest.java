@@ -2,12 +2,19 @@ package com.jetbrains.ther.run.debug.resolve;
 
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.testFramework.PlatformTestCase;
+import com.intellij.xdebugger.XDebuggerUtil;
 import com.intellij.xdebugger.XSourcePosition;
+import com.jetbrains.ther.debugger.TheRBreakpointTable;
 import com.jetbrains.ther.debugger.data.TheRLocation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
 import static com.jetbrains.ther.debugger.data.TheRFunctionConstants.MAIN_FUNCTION_NAME;
 
@@ -288,6 +295,74 @@ public class TheRResolvingSessionImplTest extends PlatformTestCase {
     );
   }
 
+  public void testEnclosingFunctions() throws IOException {
+    final String text = "f <- function() {\n" +
+                        "    g <- function() {\n" +
+                        "        1\n" +
+                        "    }\n" +
+                        "    g()\n" +
+                        "}\n" +
+                        "h <- function() {\n" +
+                        "    2\n" +
+                        "}\n" +
+                        "f()";
+
+    final VirtualFile virtualFile = createVirtualFile(text);
+    final VirtualFile otherVirtualFile = getVirtualFile(createTempFile("other.r", text));
+    assert otherVirtualFile != null;
+
+    final TheRResolvingSessionImpl resolvingSession = new TheRResolvingSessionImpl(getProject(), virtualFile);
+    final XDebuggerUtil util = XDebuggerUtil.getInstance();
+
+    assertEquals(
+      new HashSet<String>(Arrays.asList("f", "g")),
+      resolvingSession.resolveEnclosingFunctions(
+        Arrays.asList(util.createPosition(virtualFile, 2), util.createPosition(otherVirtualFile, 7))
+      )
+    );
+
+    assertEquals(
+      Collections.singleton("h"),
+      resolvingSession.resolveEnclosingFunctions(
+        Arrays.asList(util.createPosition(virtualFile, 7), util.createPosition(virtualFile, 9))
+      )
+    );
+  }
+
+  public void testBreakpoints() throws IOException {
+    final String text = "f <- function() {\n" +
+                        "    g <- function() c(1:5)\n" +
+                        "    g()\n" +
+                        "}\n" +
+                        "f()";
+
+    final VirtualFile virtualFile = createVirtualFile(text);
+    final VirtualFile otherVirtualFile = getVirtualFile(createTempFile("other.r", text));
+    assert otherVirtualFile != null;
+
+    final TheRResolvingSessionImpl resolvingSession = new TheRResolvingSessionImpl(getProject(), virtualFile);
+    final XDebuggerUtil util = XDebuggerUtil.getInstance();
+
+    final XSourcePosition conditional = util.createPosition(virtualFile, 2);
+    final XSourcePosition otherConditional = util.createPosition(otherVirtualFile, 3);
+
+    final Map<XSourcePosition, String> conditions = new HashMap<XSourcePosition, String>();
+    conditions.put(conditional, "x > 1");
+    conditions.put(otherConditional, "y > 1");
+
+    final TheRBreakpointTable table = resolvingSession.resolveBreakpoints(
+      Arrays.asList(util.createPosition(virtualFile, 1), conditional, util.createPosition(otherVirtualFile, 4), otherConditional),
+      conditions
+    );
+
+    assertEquals(Collections.singletonMap(3, "x > 1"), table.getConditions());
+    assertTrue(table.contains(new TheRLocation("f", 2)));
+    assertTrue(table.contains(new TheRLocation("f", 3)));
+    assertTrue(table.contains(new TheRLocation("g", 0)));
+    assertFalse(table.contains(new TheRLocation("g", 3)));
+    assertFalse(table.contains(new TheRLocation(MAIN_FUNCTION_NAME, 5)));
+  }
+
   @NotNull
   private VirtualFile createVirtualFile(@NotNull final String text) throws IOException {
     final VirtualFile result = getVirtualFile(createTempFile("script.r", text));
@@ -9,7 +9,6 @@ import com.jetbrains.ther.debugger.data.TheRLocation;
 import com.jetbrains.ther.debugger.exception.TheRDebuggerException;
 import com.jetbrains.ther.debugger.frame.TheRStackFrame;
 import com.jetbrains.ther.debugger.frame.TheRVar;
-import com.jetbrains.ther.debugger.frame.TheRVarsLoader;
 import com.jetbrains.ther.debugger.mock.IllegalTheRDebuggerEvaluator;
 import com.jetbrains.ther.debugger.mock.IllegalTheRValueModifier;
 import com.jetbrains.ther.debugger.mock.IllegalTheRVarsLoader;
@@ -143,7 +142,7 @@ public class TheRXStackFrameTest {
     assertEquals(AllIcons.Debugger.StackFrame, container.myIcon);
   }
 
-  private static class OrdinaryTheRVarsLoader implements TheRVarsLoader {
+  private static class OrdinaryTheRVarsLoader extends IllegalTheRVarsLoader {
 
     private int myCounter = 0;
 
@@ -178,7 +177,7 @@ public class TheRXStackFrameTest {
     }
   }
 
-  private static class ErrorTheRVarsLoader implements TheRVarsLoader {
+  private static class ErrorTheRVarsLoader extends IllegalTheRVarsLoader {
 
     private int myCounter = 0;
 
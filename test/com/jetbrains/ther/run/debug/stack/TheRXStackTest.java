@@ -3,6 +3,7 @@ package com.jetbrains.ther.run.debug.stack;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.frame.XExecutionStack;
 import com.intellij.xdebugger.frame.XStackFrame;
+import com.jetbrains.ther.debugger.TheRBreakpointTable;
 import com.jetbrains.ther.debugger.data.TheRLocation;
 import com.jetbrains.ther.debugger.frame.TheRStackFrame;
 import com.jetbrains.ther.debugger.mock.IllegalTheRDebuggerEvaluator;
@@ -16,7 +17,10 @@ import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 
@@ -56,7 +60,7 @@ public class TheRXStackTest {
       1,
       new TheRStackFrame(
         new TheRLocation("def", 2),
-        new IllegalTheRVarsLoader(),
+        originalStack.get(1).getLoader(),
         new IllegalTheRDebuggerEvaluator()
       )
     );
@@ -258,6 +262,64 @@ public class TheRXStackTest {
     check(stack, 4);
   }
 
+  @Test
+  public void replacedDepth() {
+    final List<TheRStackFrame> originalStack = new ArrayList<TheRStackFrame>();
+    final MockTheRResolvingSession resolvingSession = new MockTheRResolvingSession();
+
+    final TheRXStack stack = new TheRXStack(originalStack, resolvingSession, ExecutorServices.ILLEGAL_EXECUTOR);
+
+    originalStack.add(
+      new TheRStackFrame(
+        new TheRLocation("abc", 2),
+        new IllegalTheRVarsLoader(),
+        new IllegalTheRDebuggerEvaluator()
+      )
+    );
+
+    originalStack.add(
+      new TheRStackFrame(
+        new TheRLocation("def", 1),
+        new IllegalTheRVarsLoader(),
+        new IllegalTheRDebuggerEvaluator()
+      )
+    );
+
+    stack.update();
+
+    assertEquals(2, resolvingSession.myNext);
+    assertEquals(0, resolvingSession.myCurrent);
+    assertEquals(0, resolvingSession.myDropped);
+    check(stack, 2, 1);
+
+    // several steps without update: `def` has returned and `ghi` has been called on the same depth
+
+    originalStack.set(
+      0,
+      new TheRStackFrame(
+        new TheRLocation("abc", 3),
+        originalStack.get(0).getLoader(),
+        new IllegalTheRDebuggerEvaluator()
+      )
+    );
+
+    originalStack.set(
+      1,
+      new TheRStackFrame(
+        new TheRLocation("ghi", 1),
+        new IllegalTheRVarsLoader(),
+        new IllegalTheRDebuggerEvaluator()
+      )
+    );
+
+    stack.update();
+
+    assertEquals(3, resolvingSession.myNext);
+    assertEquals(1, resolvingSession.myCurrent);
+    assertEquals(1, resolvingSession.myDropped);
+    check(stack, 4, 3);
+  }
+
   private void check(@NotNull final TheRXStack stack, @NotNull final int... lines) {
     final MockXStackFrameContainer container = new MockXStackFrameContainer();
 
@@ -303,5 +365,18 @@ public class TheRXStackTest {
     public void dropLast(final int number) {
       myDropped += number;
     }
+
+    @NotNull
+    @Override
+    public Set<String> resolveEnclosingFunctions(@NotNull final Collection<XSourcePosition> positions) {
+      throw new IllegalStateException("ResolveEnclosingFunctions shouldn't be called");
+    }
+
+    @NotNull
+    @Override
+    public TheRBreakpointTable resolveBreakpoints(@NotNull final Collection<XSourcePosition> positions,
+                                                 @NotNull final Map<XSourcePosition, String> conditions) {
+      throw new IllegalStateException("ResolveBreakpoints shouldn't be called");
+    }
   }
 }
\ No newline at end of file